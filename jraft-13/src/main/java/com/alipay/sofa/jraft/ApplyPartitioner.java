@@ -0,0 +1,23 @@
+package com.alipay.sofa.jraft;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：并行应用日志时使用的分区器，根据业务日志的数据计算出这条日志的冲突键，冲突键相同的日志会按照日志索引的顺序在同一个通道中应用到状态机
+ * 冲突键不同的日志可能在不同的线程中同时应用，所以只有不同冲突键的日志可以以任意顺序应用的状态机才能开启并行应用，比如按照key分区的KV状态机
+ * 每个节点都会用这个分区器计算冲突键，所以同一条日志在所有节点上计算出来的冲突键必须相同，只能根据日志的数据计算，不能依赖本地状态
+ * 实现类只能读取data中的数据，不能修改data的position和limit
+ */
+public interface ApplyPartitioner {
+
+    /**
+     * 计算业务日志的冲突键
+     *
+     * @param data 业务日志的数据，也就是Task中的data
+     * @return 冲突键，可以是负数
+     */
+    int partition(final ByteBuffer data);
+}
@@ -5,6 +5,7 @@ import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.LogStorage;
 import com.alipay.sofa.jraft.storage.RaftMetaStorage;
 import com.alipay.sofa.jraft.storage.SnapshotStorage;
+import com.alipay.sofa.jraft.util.ReplicationWindow;
 
 /**
  * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
@@ -30,5 +31,9 @@ public interface JRaftServiceFactory {
     //创建编解码工厂
     LogEntryCodecFactory createLogEntryCodecFactory();
 
+    //创建复制器使用的复制窗口，每个复制器创建的时候都会调用一次，所以每次调用都要返回一个新的对象
+    //用户可以重写这个方法提供自己的流控策略
+    ReplicationWindow createReplicationWindow(final RaftOptions raftOptions);
+
 
 }
@@ -32,6 +32,11 @@ public interface Node extends Lifecycle<NodeOptions>, Describer {
 
     void apply(final Task task);
 
+    //批量提交业务指令，非阻塞模式下要么全部提交成功，要么全部回复EBUSY
+    void apply(final List<Task> tasks);
+
+    void applyBatch(final Task[] tasks);
+
     State getNodeState();
 
     NodeMetrics getNodeMetrics();
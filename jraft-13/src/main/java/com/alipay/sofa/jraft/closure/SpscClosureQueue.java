@@ -0,0 +1,237 @@
+package com.alipay.sofa.jraft.closure;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：用环形数组实现的单生产者单消费者回调队列，用来代替ClosureQueueImpl
+ * ClosureQueueImpl用LinkedList存放回调对象，每个回调对象都要创建一个链表节点，而且投票箱线程添加回调和状态机线程取出回调都要争抢同一把锁
+ * 这个队列只有一个生产者和一个消费者，生产者就是投票箱，添加回调、清空队列和重置起始索引都是在投票箱的写锁中调用的，所以这些操作不会并发执行
+ * 消费者就是状态机线程，只有它会调用popClosureUntil方法，添加回调和取出回调都不需要上锁，也不会创建对象
+ * 队列中的每个回调都有一个序号，序号加上indexOffset就是回调对应的日志索引，序号对环形数组的容量取模就是回调在数组中的位置
+ * 数组满了的时候不会把旧数组中的回调拷贝到新数组，而是创建一个容量翻倍的新数组链接在旧数组后面，之后的回调都放到新数组中，消费者取完旧数组中的回调之后就不再使用旧数组了
+ * 这样生产者就不会修改消费者正在读取的数组。清空队列的时候状态机线程可能正在取出回调，所以回调的所有权通过getAndSet决定，先把回调从数组中取出来的一方负责执行回调
+ * 清空队列之后生产者换到一个新的环形数组中，状态机线程可能还在旧数组中取出清空之前的回调，新添加的回调不会和这些位置重叠
+ */
+public class SpscClosureQueue implements ClosureQueue {
+
+    private static final Logger LOG                   = LoggerFactory.getLogger(SpscClosureQueue.class);
+
+    //第一个环形数组的默认容量
+    public static final int     DEFAULT_INIT_CAPACITY = 1024;
+
+    private String              groupId;
+    //生产者正在使用的环形数组，只有生产者访问
+    private Chunk               producerChunk;
+    //消费者正在使用的环形数组，消费者切换到下一个数组之后，之前的数组就可以被回收了
+    private volatile Chunk      consumerChunk;
+    //下一个回调的序号，只有生产者修改
+    private volatile long       tail;
+    //消费者下一个要取出的回调的序号，只有消费者修改
+    private volatile long       head;
+    //清空队列时的tail，这个序号之前的回调已经被清空队列的操作取走了，消费者会直接跳过
+    private volatile long       clearedSeq;
+    //序号加上这个值就是日志索引，重置队列起始索引的时候修改
+    private volatile long       indexOffset;
+
+    //一个环形数组，存放序号从startSeq开始的回调
+    private static final class Chunk {
+        final long                          startSeq;
+        final AtomicReferenceArray<Closure> slots;
+        final int                           mask;
+        //生产者创建的下一个环形数组
+        volatile Chunk                      next;
+
+        Chunk(final long startSeq, final int capacity) {
+            this.startSeq = startSeq;
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        int capacity() {
+            return this.mask + 1;
+        }
+
+        int slotOf(final long seq) {
+            return (int) ((seq - this.startSeq) & this.mask);
+        }
+    }
+
+    public SpscClosureQueue() {
+        this(DEFAULT_INIT_CAPACITY);
+    }
+
+    public SpscClosureQueue(final int initCapacity) {
+        super();
+        Requires.requireTrue(initCapacity > 0, "initCapacity must be positive");
+        final Chunk chunk = new Chunk(0, roundToPowerOfTwo(initCapacity));
+        this.producerChunk = chunk;
+        this.consumerChunk = chunk;
+    }
+
+    public SpscClosureQueue(final String groupId) {
+        this(groupId, DEFAULT_INIT_CAPACITY);
+    }
+
+    public SpscClosureQueue(final String groupId, final int initCapacity) {
+        this(initCapacity);
+        this.groupId = groupId;
+    }
+
+    private static int roundToPowerOfTwo(final int value) {
+        return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    //消费者下一个要取出的回调的序号，清空队列之后消费者还没有执行的时候，head会小于clearedSeq
+    private long firstSeq() {
+        return Math.max(this.head, this.clearedSeq);
+    }
+
+    //从chunk开始向后找到存放seq的环形数组
+    private static Chunk chunkOf(Chunk chunk, final long seq) {
+        Chunk next;
+        while ((next = chunk.next) != null && seq >= next.startSeq) {
+            chunk = next;
+        }
+        return chunk;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：清空队列，队列中剩下的回调都会在线程池中回复EPERM，这个方法在投票箱的写锁中调用
+     * 状态机线程可能正在取出回调，两边都用getAndSet从数组中取回调，取到回调的一方负责执行，所以同一个回调不会被执行两次
+     */
+    @Override
+    public void clear() {
+        final long t = this.tail;
+        Chunk chunk = this.consumerChunk;
+        //消费者已经切换到了chunk，chunk之前的回调都已经被取走了
+        final long from = Math.max(firstSeq(), chunk.startSeq);
+        final List<Closure> savedClosures = new ArrayList<>((int) Math.max(0, t - from));
+        for (long seq = from; seq < t; seq++) {
+            chunk = chunkOf(chunk, seq);
+            final Closure done = chunk.slots.getAndSet(chunk.slotOf(seq), null);
+            if (done != null) {
+                savedClosures.add(done);
+            }
+        }
+        //之后添加的回调放到一个新的环形数组中，消费者如果还在按照清空之前读到的序号取回调，只会访问旧数组
+        //这样生产者判断数组是否已满的时候就可以使用firstSeq，不需要等消费者再执行一次才能复用清空的位置
+        final Chunk producer = this.producerChunk;
+        if (producer.startSeq != t) {
+            final Chunk next = new Chunk(t, producer.capacity());
+            producer.next = next;
+            this.producerChunk = next;
+        }
+        this.clearedSeq = t;
+        if (savedClosures.isEmpty()) {
+            return;
+        }
+        final Status status = new Status(RaftError.EPERM, "Leader stepped down");
+        ThreadPoolsFactory.runInThread(this.groupId, () -> {
+            for (final Closure done : savedClosures) {
+                done.run(status);
+            }
+        });
+    }
+
+    //重置队列的起始索引，下一个添加的回调对应的日志索引就是firstIndex，这个方法在投票箱的写锁中调用
+    @Override
+    public void resetFirstIndex(final long firstIndex) {
+        final long t = this.tail;
+        Requires.requireTrue(t <= firstSeq(), "Queue is not empty.");
+        this.indexOffset = firstIndex - t;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：添加回调，这个方法在投票箱的写锁中调用。序号为t的回调要放到上一轮序号为t-capacity的回调的位置上，如果消费者还没有取走那个回调，环形数组就满了
+     * 这时候创建一个容量翻倍的新数组链接到当前数组后面，新数组从序号t开始存放回调，当前数组中的回调还是由消费者按顺序取出
+     * 判断的时候使用firstSeq而不是head，清空队列之后消费者还没有执行，head还停留在清空之前，这时候被清空的位置已经可以复用了
+     */
+    @Override
+    public void appendPendingClosure(final Closure closure) {
+        final long t = this.tail;
+        Chunk chunk = this.producerChunk;
+        if (t - chunk.startSeq >= chunk.capacity() && t - firstSeq() >= chunk.capacity()) {
+            final Chunk next = new Chunk(t, chunk.capacity() << 1);
+            chunk.next = next;
+            this.producerChunk = chunk = next;
+        }
+        chunk.slots.lazySet(chunk.slotOf(t), closure);
+        //回调放到数组中之后再更新tail，消费者读到了新的tail就一定能读到这个回调
+        this.tail = t + 1;
+    }
+
+    @Override
+    public long popClosureUntil(final long endIndex, final List<Closure> closures) {
+        return popClosureUntil(endIndex, closures, null);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：取出日志索引不超过endIndex的所有回调，返回第一个回调对应的日志索引，这个方法只会被状态机线程调用
+     * 返回值的含义和ClosureQueueImpl一样，队列为空或者endIndex小于队列的起始索引的时候返回endIndex + 1，endIndex超出了队列的范围返回-1
+     * 被清空队列的操作取走的回调在closures中对应的位置是null，这些回调已经回复了EPERM，状态机不会再执行它们
+     */
+    @Override
+    public long popClosureUntil(final long endIndex, final List<Closure> closures, final List<TaskClosure> taskClosures) {
+        closures.clear();
+        if (taskClosures != null) {
+            taskClosures.clear();
+        }
+        //先读tail再读其他的值，读到了新的tail就一定能读到生产者在更新tail之前写入的值
+        final long t = this.tail;
+        final long offset = this.indexOffset;
+        final long h = firstSeq();
+        if (h != this.head) {
+            //清空队列的操作已经取走了clearedSeq之前的回调，直接跳过，生产者也可以复用这些位置了
+            this.head = h;
+        }
+        if (t <= h) {
+            return endIndex + 1;
+        }
+        final long outFirstIndex = h + offset;
+        if (endIndex < outFirstIndex) {
+            return endIndex + 1;
+        }
+        if (endIndex > t - 1 + offset) {
+            LOG.error("Invalid endIndex={}, firstIndex={}, closureQueueSize={}", endIndex, outFirstIndex, t - h);
+            return -1;
+        }
+        final long endSeq = endIndex - offset;
+        Chunk chunk = this.consumerChunk;
+        for (long seq = h; seq <= endSeq; seq++) {
+            chunk = chunkOf(chunk, seq);
+            final Closure closure = chunk.slots.getAndSet(chunk.slotOf(seq), null);
+            if (taskClosures != null && closure instanceof TaskClosure) {
+                taskClosures.add((TaskClosure) closure);
+            }
+            closures.add(closure);
+        }
+        if (chunk != this.consumerChunk) {
+            this.consumerChunk = chunk;
+        }
+        //回调都取出来之后再更新head，生产者读到了新的head才会复用这些位置
+        this.head = endSeq + 1;
+        return outFirstIndex;
+    }
+}
@@ -0,0 +1,127 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.util.ReplicationWindow;
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：自适应的复制窗口，参考了TCP拥塞控制的思路，限制的是未收到响应的日志字节数，而不仅仅是请求数量
+ * 窗口小于慢启动阈值的时候，每收到一个成功响应，窗口就增加响应对应的字节数，相当于每个往返时间窗口翻倍
+ * 超过慢启动阈值之后，每个往返时间窗口大约增加一个请求的最大字节数
+ * 如果请求超时失败或者跟随者繁忙，窗口减半；如果往返时间明显超过了最近观察到的最小往返时间，说明请求在网络或者跟随者的队列中排队了
+ * 这时候窗口缩小八分之一。这样高延迟的跨机房跟随者可以用足够大的窗口把链路填满，而本机房的跟随者也不会被请求淹没
+ * 未收到响应的请求数量仍然受maxReplicatorInflightMsgs限制，因为复制器的响应队列也受这个值限制
+ */
+public class AdaptiveReplicationWindow implements ReplicationWindow {
+
+    //最小往返时间的有效期，过期之后重新采样，这样网络路径变化之后窗口也能适应
+    private static final long MIN_RTT_EXPIRE_MS = 10_000;
+    //往返时间超过最小往返时间的这个倍数，并且超出的部分大于DELAY_SLACK_MS，就认为出现了排队
+    private static final int  DELAY_FACTOR      = 2;
+    private static final long DELAY_SLACK_MS    = 5;
+
+    private final int         maxInflightMsgs;
+    private final int         maxBodySize;
+    private final long        minWindowBytes;
+    private final long        maxWindowBytes;
+    //当前窗口的字节数
+    private volatile long     windowBytes;
+    //慢启动阈值
+    private long              ssthresh;
+    //平滑后的往返时间
+    private volatile long     srttMs;
+    //最近一段时间观察到的最小往返时间
+    private long              minRttMs;
+    private long              minRttStampMs;
+    //上一次缩小窗口的时间，一个往返时间内最多缩小一次，避免同一批请求的响应把窗口连续缩小
+    private long              lastDecreaseMs;
+
+    public AdaptiveReplicationWindow(final RaftOptions raftOptions) {
+        this.maxInflightMsgs = raftOptions.getMaxReplicatorInflightMsgs();
+        this.maxBodySize = raftOptions.getMaxBodySize();
+        this.minWindowBytes = Math.max(1, raftOptions.getReplicationWindowMinBytes());
+        this.maxWindowBytes = Math.max(this.minWindowBytes, raftOptions.getReplicationWindowMaxBytes());
+        this.windowBytes = clamp(raftOptions.getReplicationWindowInitBytes());
+        this.ssthresh = this.maxWindowBytes;
+    }
+
+    @Override
+    public boolean canSend(final int inflightCount, final long inflightBytes) {
+        return inflightCount <= this.maxInflightMsgs && inflightBytes < this.windowBytes;
+    }
+
+    @Override
+    public int getMaxRequestBytes(final long inflightBytes) {
+        //窗口剩下的空间不够一个请求的时候，请求就只携带剩下的字节数，但是不会小于最小窗口，避免发送大量很小的请求
+        final long remaining = Math.max(this.windowBytes - inflightBytes, this.minWindowBytes);
+        return (int) Math.min(this.maxBodySize, remaining);
+    }
+
+    @Override
+    public void onAck(final int bytes, final long rttMs) {
+        final long rtt = Math.max(rttMs, 1);
+        final long now = Utils.monotonicMs();
+        this.srttMs = smooth(this.srttMs, rtt);
+        if (this.minRttMs == 0 || rtt <= this.minRttMs || now - this.minRttStampMs > MIN_RTT_EXPIRE_MS) {
+            this.minRttMs = rtt;
+            this.minRttStampMs = now;
+        }
+        if (rtt > this.minRttMs * DELAY_FACTOR && rtt - this.minRttMs > DELAY_SLACK_MS) {
+            //出现了排队，温和地缩小窗口
+            decrease(now, this.windowBytes - (this.windowBytes >> 3));
+            return;
+        }
+        long window = this.windowBytes;
+        if (window < this.ssthresh) {
+            window += bytes;
+        } else {
+            window += Math.max(1, (long) this.maxBodySize * bytes / window);
+        }
+        this.windowBytes = clamp(window);
+    }
+
+    @Override
+    public void onCongestion() {
+        decrease(Utils.monotonicMs(), this.windowBytes >> 1);
+    }
+
+    private void decrease(final long now, final long target) {
+        if (now - this.lastDecreaseMs < this.srttMs) {
+            return;
+        }
+        this.lastDecreaseMs = now;
+        this.windowBytes = clamp(target);
+        this.ssthresh = this.windowBytes;
+    }
+
+    private long clamp(final long window) {
+        return Math.min(this.maxWindowBytes, Math.max(this.minWindowBytes, window));
+    }
+
+    //计算平滑后的往返时间，新的采样占八分之一的权重
+    static long smooth(final long srttMs, final long rttMs) {
+        if (srttMs <= 0) {
+            return rttMs;
+        }
+        return (srttMs * 7 + rttMs) >> 3;
+    }
+
+    @Override
+    public long getWindowBytes() {
+        return this.windowBytes;
+    }
+
+    @Override
+    public long getSmoothedRttMs() {
+        return this.srttMs;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveReplicationWindow{windowBytes=" + this.windowBytes + ", ssthresh=" + this.ssthresh
+               + ", srttMs=" + this.srttMs + ", minRttMs=" + this.minRttMs + '}';
+    }
+}
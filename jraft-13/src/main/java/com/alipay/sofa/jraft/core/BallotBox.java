@@ -5,12 +5,10 @@ import com.alipay.sofa.jraft.FSMCaller;
 import com.alipay.sofa.jraft.Lifecycle;
 import com.alipay.sofa.jraft.closure.ClosureQueue;
 import com.alipay.sofa.jraft.conf.Configuration;
-import com.alipay.sofa.jraft.entity.Ballot;
 import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.option.BallotBoxOptions;
 import com.alipay.sofa.jraft.util.Describer;
 import com.alipay.sofa.jraft.util.Requires;
-import com.alipay.sofa.jraft.util.SegmentList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,8 +37,8 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
     private long lastCommittedIndex = 0;
     //要提交的下一条日志的索引
     private long pendingIndex;
-    //这个队列存放的就是为每一个日志条目对象创建的Ballot对象
-    private final SegmentList<Ballot> pendingMetaQueue = new SegmentList<>(false);
+    //日志提交跟踪器，记录每个节点的匹配索引，代替之前给每一个日志条目创建的Ballot对象
+    private final MatchIndexCommitTracker commitTracker = new MatchIndexCommitTracker();
     //状态机组件
     private FSMCaller waiter;
 
@@ -50,8 +48,9 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
     }
 
 
-    SegmentList<Ballot> getPendingMetaQueue() {
-        return this.pendingMetaQueue;
+    //得到等待提交的日志数量
+    int getPendingSize() {
+        return this.commitTracker.size();
     }
 
     //得到最后一条被提交的日志索引
@@ -114,46 +113,38 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
             if (lastLogIndex < this.pendingIndex) {
                 return true;
             }
-            //这里就是要给兜底判断，如果发现要处理的这批日志的最后一条索引比pendingMetaQueuependingMetaQueue队列的数据还多
-            //这时候就发生了数据越界异常，直接抛出异常即可，原因很简单，领导者的每一条日志都会对应一个投票计数器，投票计数器存放到pendingMetaQueue队列中
-            //现在要处理的日志索引比队列中的投票计数器还多，这显然是不正常的
-            if (lastLogIndex >= this.pendingIndex + this.pendingMetaQueue.size()) {
+            //这里就是要给兜底判断，如果发现要处理的这批日志的最后一条索引比等待提交的日志还多
+            //这时候就发生了数据越界异常，直接抛出异常即可，原因很简单，领导者的每一条日志都会添加到提交跟踪器中
+            //现在要处理的日志索引比跟踪器中的日志还多，这显然是不正常的
+            if (lastLogIndex >= this.pendingIndex + this.commitTracker.size()) {
                 throw new ArrayIndexOutOfBoundsException();
             }
             //这里情况就复杂很多了，需要仔细分析两种情况
             //这里先说firstLogIndex大于pendingIndex的情况，这种情况很可能是，领导者向跟随者发送日志的时候，一下子发送了好几批
             //但是第一批日志还没有被应用呢，第二批日志有些已经有收到回应了，这时候肯定是大于接下来要提交的索引
-            //所以，判断一下，然后给得到的这个startAt投票就行，这里大家一定要注意，这里只是投票，并不是真的提交
+            //所以，这里只是更新节点的匹配索引，这里大家一定要注意，这里只是投票，并不是真的提交
             //因为日志复制是采用Pipeline模式，前面的没有处理完，是不会先提交后面的日志的
             //每一个复制器对象收到响应不可能是完全同步的，有可能有些复制器对象已经完全处理完了自己的日志复制响应，其他复制器对象还没收到几个响应呢
             //接下来就是pendingIndex大于firstLogIndex的情况了
             //这里可能就是新的领导者把旧日志同步给某个进度落后的节点时，可能会出现的情况。比如领导者现在有1-4索引的日志，这时候有一个节点故障了，在节点故障期间，领导者内部有产生了4条新日志
             //把这四条新日志同步给其他跟随者节点，然后领导者成功提交了日志，这时候pendingIndex就变成了9，然后故障的节点恢复正常了，这时候领导者又产生了两条新日志，现在一共有10条日志了
             //领导者就把5-10都发送给这个节点了，在收到刚刚故障恢复的节点的投票响应时，肯定是从日志索引9开始继续处理呀，否则不就重复执行命令了吗
-            final long startAt = Math.max(this.pendingIndex, firstLogIndex);
-            //下面的逻辑就简单多了接下来就是给对应的日志索引投票的逻辑
-            Ballot.PosHint hint = new Ballot.PosHint();
-            //用上面得到的startAt开始便利要投票的日志
-            for (long logIndex = startAt; logIndex <= lastLogIndex; logIndex++) {
-                //根据日志索引得到对应的投票计数器
-                final Ballot bl = this.pendingMetaQueue.get((int) (logIndex - this.pendingIndex));
-                //进行投票操作
-                hint = bl.grant(peer, hint);
-                //判断该索引对应的日志是否收到了集群过半的投票
-                if (bl.isGranted()) {
-                    //如果收到了过半投票，就意味着日志同步成功了，这时候给最后提交的日志索引赋值
-                    lastCommittedIndex = logIndex;
-                    //这行代码是我自己添加的
-                    System.out.println("领导者发送的日志收到过半投票，可以把日志应用到状态机了！！！");
-                }
+            //节点的日志是按顺序持久化的，所以这里只需要把节点的匹配索引更新为lastLogIndex，然后由跟踪器计算出被多数派持久化的最大日志索引
+            //之前要给startAt到lastLogIndex之间的每一条日志的Ballot对象投票，现在每次响应的开销只和集群节点数量有关
+            final long quorumIndex = this.commitTracker.grant(peer, lastLogIndex, this.pendingIndex);
+            if (quorumIndex >= this.pendingIndex) {
+                //如果收到了过半投票，就意味着日志同步成功了，这时候给最后提交的日志索引赋值
+                lastCommittedIndex = quorumIndex;
+                //这行代码是我自己添加的
+                System.out.println("领导者发送的日志收到过半投票，可以把日志应用到状态机了！！！");
             }
             //如果没有提交日志，就直接退出该方法，没有提交日志意味着收到的投票还不够
             //继续等待跟随者节点回复投票响应即可
             if (lastCommittedIndex == 0) {
                 return true;
             }
-            //如果日志提交成功了，那就从pendingMetaQueue队列中把对应的投票计数器全部都移除
-            this.pendingMetaQueue.removeFromFirst((int) (lastCommittedIndex - this.pendingIndex) + 1);
+            //如果日志提交成功了，那就通知跟踪器这些日志已经提交了
+            this.commitTracker.onCommitted(lastCommittedIndex);
             //记录日志的提交范围
             LOG.debug("Committed log fromIndex={}, toIndex={}.", this.pendingIndex, lastCommittedIndex);
             //更新pendingIndex
@@ -173,7 +164,7 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
     public void clearPendingTasks() {
         final long stamp = this.stampedLock.writeLock();
         try {
-            this.pendingMetaQueue.clear();
+            this.commitTracker.reset();
             this.pendingIndex = 0;
             this.closureQueue.clear();
         } finally {
@@ -192,9 +183,9 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
     public boolean resetPendingIndex(final long newPendingIndex) {
         final long stamp = this.stampedLock.writeLock();
         try {
-            if (!(this.pendingIndex == 0 && this.pendingMetaQueue.isEmpty())) {
-                LOG.error("resetPendingIndex fail, pendingIndex={}, pendingMetaQueueSize={}.", this.pendingIndex,
-                        this.pendingMetaQueue.size());
+            if (!(this.pendingIndex == 0 && this.commitTracker.isEmpty())) {
+                LOG.error("resetPendingIndex fail, pendingIndex={}, pendingSize={}.", this.pendingIndex,
+                        this.commitTracker.size());
                 return false;
             }
             if (newPendingIndex <= this.lastCommittedIndex) {
@@ -215,16 +206,13 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
      * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
      * @author：陈清风扬，个人微信号：chenqingfengyangjj。
      * @date:2023/12/17
-     * @方法描述：该方法的作用很重要，但是逻辑很简单，就是给每一个日志条目创建一个Ballot对象，Ballot对象是投票计数器，同时把每一个日志条目的回调方法存放到closureQueue队列中
+     * @方法描述：该方法的作用很重要，但是逻辑很简单，就是把每一个日志条目添加到提交跟踪器中，配置没有变化的话不会创建任何对象，同时把每一个日志条目的回调方法存放到closureQueue队列中
      * 存放到这个队列中，就意味着状态机组件可以使用这个队列中的数据了
      */
     public boolean appendPendingTask(final Configuration conf, final Configuration oldConf, final Closure done) {
-        //为日志条目创建投票技术器对象
-        final Ballot bl = new Ballot();
-        //初始化投票计数器，因为要计数，判断收到的票数是否超过集群过半节点
-        //所以肯定需要知道集群中有多少节点
-        if (!bl.init(conf, oldConf)) {
-            LOG.error("Fail to init ballot.");
+        //跟踪器要判断日志是否被集群过半节点持久化，所以肯定需要知道集群中有多少节点
+        if (conf == null || conf.isEmpty()) {
+            LOG.error("Fail to append task with empty conf.");
             return false;
         }
         final long stamp = this.stampedLock.writeLock();
@@ -232,8 +220,8 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
             if (this.pendingIndex <= 0) {
                 LOG.error("Fail to appendingTask, pendingIndex={}.", this.pendingIndex);
                 return false;
-            }//把创建的投票计数器存放到pendingMetaQueue队列中
-            this.pendingMetaQueue.add(bl);
+            }//把日志条目添加到提交跟踪器中，这条日志的索引就是等待提交的下一个位置
+            this.commitTracker.append(this.pendingIndex + this.commitTracker.size(), conf, oldConf);
             //把用户为业务层的每一个操作定义的回调方法存放到closureQueue队列中
             //注意，这个回调方法并不是在日志提交成功后执行状态机操作的，仅仅是用来通知业务层操作的执行结果的
             this.closureQueue.appendPendingClosure(done);
@@ -255,7 +243,7 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
         final long stamp = this.stampedLock.writeLock();
         try {//这个是跟随者节点调用的方法，pendingIndex对跟随者节点是无效的，只有领导者才能维护pendingIndex
             //所以在跟随着节点中，如果判断出pendingIndex不为0了，说明当前节点已经变成了领导者
-            if (this.pendingIndex != 0 || !this.pendingMetaQueue.isEmpty()) {
+            if (this.pendingIndex != 0 || !this.commitTracker.isEmpty()) {
                 Requires.requireTrue(lastCommittedIndex < this.pendingIndex,
                         "Node changes to leader, pendingIndex=%d, param lastCommittedIndex=%d", this.pendingIndex,
                         lastCommittedIndex);
@@ -289,18 +277,18 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
     public void describe(final Printer out) {
         long _lastCommittedIndex;
         long _pendingIndex;
-        long _pendingMetaQueueSize;
+        long _pendingSize;
         long stamp = this.stampedLock.tryOptimisticRead();
         if (this.stampedLock.validate(stamp)) {
             _lastCommittedIndex = this.lastCommittedIndex;
             _pendingIndex = this.pendingIndex;
-            _pendingMetaQueueSize = this.pendingMetaQueue.size();
+            _pendingSize = this.commitTracker.size();
         } else {
             stamp = this.stampedLock.readLock();
             try {
                 _lastCommittedIndex = this.lastCommittedIndex;
                 _pendingIndex = this.pendingIndex;
-                _pendingMetaQueueSize = this.pendingMetaQueue.size();
+                _pendingSize = this.commitTracker.size();
             } finally {
                 this.stampedLock.unlockRead(stamp);
             }
@@ -309,7 +297,7 @@ public class BallotBox implements Lifecycle<BallotBoxOptions>, Describer {
                 .println(_lastCommittedIndex);
         out.print("  pendingIndex: ")
                 .println(_pendingIndex);
-        out.print("  pendingMetaQueueSize: ")
-                .println(_pendingMetaQueueSize);
+        out.print("  pendingSize: ")
+                .println(_pendingSize);
     }
 }
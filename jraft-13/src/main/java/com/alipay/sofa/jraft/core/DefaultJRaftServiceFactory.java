@@ -3,13 +3,16 @@ package com.alipay.sofa.jraft.core;
 import com.alipay.sofa.jraft.JRaftServiceFactory;
 import com.alipay.sofa.jraft.entity.codec.LogEntryCodecFactory;
 import com.alipay.sofa.jraft.entity.codec.v2.LogEntryV2CodecFactory;
+import com.alipay.sofa.jraft.option.LogStorageType;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.LogStorage;
 import com.alipay.sofa.jraft.storage.RaftMetaStorage;
 import com.alipay.sofa.jraft.storage.SnapshotStorage;
 import com.alipay.sofa.jraft.storage.impl.LocalRaftMetaStorage;
 import com.alipay.sofa.jraft.storage.impl.RocksDBLogStorage;
+import com.alipay.sofa.jraft.storage.impl.SegmentLogStorage;
 import com.alipay.sofa.jraft.storage.snapshot.local.LocalSnapshotStorage;
+import com.alipay.sofa.jraft.util.ReplicationWindow;
 import com.alipay.sofa.jraft.util.Requires;
 import com.alipay.sofa.jraft.util.SPI;
 import org.apache.commons.lang.StringUtils;
@@ -31,9 +34,13 @@ public class DefaultJRaftServiceFactory implements JRaftServiceFactory {
     //创建日志存储器，实际上创建的就是一个RocksDBLogStorage对象
     //这个RocksDBLogStorage对象封装了RocksDB，jraft框架运行过程中
     //产生的所有日志都会存放在这个RocksDB数据库中，这个数据库是C++开发的
+    //如果用户在RaftOptions中把日志存储器类型配置成了Segment，就会创建基于分段文件的SegmentLogStorage
     @Override
     public LogStorage createLogStorage(final String uri, final RaftOptions raftOptions) {
         Requires.requireTrue(StringUtils.isNotBlank(uri), "Blank log storage uri.");
+        if (raftOptions.getLogStorageType() == LogStorageType.Segment) {
+            return new SegmentLogStorage(uri, raftOptions);
+        }
         return new RocksDBLogStorage(uri, raftOptions);
     }
 
@@ -61,5 +68,14 @@ public class DefaultJRaftServiceFactory implements JRaftServiceFactory {
         return LogEntryV2CodecFactory.getInstance();
     }
 
+    //根据配置参数决定使用固定窗口还是自适应窗口
+    @Override
+    public ReplicationWindow createReplicationWindow(final RaftOptions raftOptions) {
+        if (raftOptions.isEnableAdaptiveReplicationWindow()) {
+            return new AdaptiveReplicationWindow(raftOptions);
+        }
+        return new FixedReplicationWindow(raftOptions);
+    }
+
 }
 
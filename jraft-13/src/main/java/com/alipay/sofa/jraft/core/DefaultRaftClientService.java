@@ -163,6 +163,42 @@ public class DefaultRaftClientService extends AbstractClientService implements R
         return invokeWithDone(endpoint, request, done, timeoutMs);
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：发送批量心跳请求的方法，和appendEntries方法一样，收到响应后的回调也交给目标节点专属的单线程执行器执行
+     * 这样批量心跳响应和单个心跳响应的回调在同一个线程中执行，不会出现并发问题
+     */
+    @Override
+    public Future<Message> batchHeartbeat(final Endpoint endpoint, final RpcRequests.BatchHeartbeatRequest request,
+                                          final int timeoutMs,
+                                          final RpcResponseClosure<RpcRequests.BatchHeartbeatResponse> done) {
+        final Executor executor = this.appendEntriesExecutorMap.computeIfAbsent(endpoint, k -> appendEntriesExecutors.next());
+        if (!checkConnection(endpoint, true)) {
+            return onConnectionFail(endpoint, request, done, executor);
+        }
+        return invokeWithDone(endpoint, request, done, timeoutMs, executor);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：发送中继日志复制请求的方法，请求发给中继节点，收到响应后的回调交给中继节点专属的单线程执行器执行
+     * 同一个中继节点的多个请求按照发送的顺序到达，中继节点转发给跟随者的时候也就能保持请求的顺序
+     */
+    @Override
+    public Future<Message> relayAppendEntries(final Endpoint endpoint,
+                                              final RpcRequests.RelayAppendEntriesRequest request, final int timeoutMs,
+                                              final RpcResponseClosure<RpcRequests.RelayAppendEntriesResponse> done) {
+        final Executor executor = this.appendEntriesExecutorMap.computeIfAbsent(endpoint, k -> appendEntriesExecutors.next());
+        if (!checkConnection(endpoint, true)) {
+            return onConnectionFail(endpoint, request, done, executor);
+        }
+        return invokeWithDone(endpoint, request, done, timeoutMs, executor);
+    }
+
     private Future<Message> onConnectionFail(final Endpoint endpoint, final Message request, Closure done, final Executor executor) {
         final FutureImpl<Message> future = new FutureImpl<>();
         executor.execute(() -> {
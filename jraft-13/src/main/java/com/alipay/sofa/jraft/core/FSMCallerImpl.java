@@ -185,6 +185,8 @@ public class FSMCallerImpl implements FSMCaller {
     private volatile CountDownLatch shutdownLatch;
     //性能检测工具
     private NodeMetrics nodeMetrics;
+    //开启并行应用日志之后使用的组件，没有开启的时候为null
+    private ParallelApplier parallelApplier;
     //这个成员变量在第七版本也用不到，在第十版本会用到，和线性一致读有关的成员变量
     private final CopyOnWriteArrayList<LastAppliedLogIndexListener> lastAppliedLogIndexListeners = new CopyOnWriteArrayList<>();
 
@@ -218,6 +220,16 @@ public class FSMCallerImpl implements FSMCaller {
         this.lastAppliedIndex.set(opts.getBootstrapId().getIndex());
         notifyLastAppliedIndexUpdated(this.lastAppliedIndex.get());
         this.lastAppliedTerm = opts.getBootstrapId().getTerm();
+        if (opts.getApplyLanes() > 1) {
+            if (opts.getApplyPartitioner() == null) {
+                LOG.error("Fail to init FSMCaller, applyLanes={} but applyPartitioner is null.", opts.getApplyLanes());
+                return false;
+            }
+            this.parallelApplier = new ParallelApplier(this.node.getGroupId(), this.fsm, opts.getApplyPartitioner(),
+                    opts.getApplyLanes(), this.nodeMetrics);
+            LOG.info("FSMCaller of group {} applies tasks in {} parallel lanes.", this.node.getGroupId(),
+                    opts.getApplyLanes());
+        }
         this.disruptor = DisruptorBuilder.<ApplyTask> newInstance()
                 .setEventFactory(new ApplyTaskFactory())
                 .setRingBufferSize(opts.getDisruptorBufferSize())
@@ -644,7 +656,12 @@ public class FSMCallerImpl implements FSMCaller {
                     continue;
                 }
                 //走到这里意味着是业务日志，那就在下面这个方法中将日志应用到状态机上
-                doApplyTasks(iterImpl);
+                if (this.parallelApplier != null) {
+                    //开启了并行应用，这一段连续的业务日志会按照冲突键分配到多个通道中同时应用，所有通道都应用完之后才会返回
+                    this.parallelApplier.apply(iterImpl);
+                } else {
+                    doApplyTasks(iterImpl);
+                }
             }
             //日志应用中出现错误，就设置错误状态给状态机组件
             //并且执行回调队列中剩余的回调方法
@@ -0,0 +1,59 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.util.ReplicationWindow;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：固定的复制窗口，这就是之前复制器一直使用的限流方式，只根据maxReplicatorInflightMsgs限制未收到响应的请求数量
+ * 每个请求的日志数据大小由maxBodySize限制，往返时间只是记录下来给监控使用
+ */
+public class FixedReplicationWindow implements ReplicationWindow {
+
+    private final int           maxInflightMsgs;
+    private final int           maxBodySize;
+    private volatile long       srttMs;
+
+    public FixedReplicationWindow(final RaftOptions raftOptions) {
+        this.maxInflightMsgs = raftOptions.getMaxReplicatorInflightMsgs();
+        this.maxBodySize = raftOptions.getMaxBodySize();
+    }
+
+    @Override
+    public boolean canSend(final int inflightCount, final long inflightBytes) {
+        return inflightCount <= this.maxInflightMsgs;
+    }
+
+    @Override
+    public int getMaxRequestBytes(final long inflightBytes) {
+        return this.maxBodySize;
+    }
+
+    @Override
+    public void onAck(final int bytes, final long rttMs) {
+        this.srttMs = AdaptiveReplicationWindow.smooth(this.srttMs, rttMs);
+    }
+
+    @Override
+    public void onCongestion() {
+        //固定窗口不需要调整
+    }
+
+    @Override
+    public long getWindowBytes() {
+        return (long) this.maxInflightMsgs * this.maxBodySize;
+    }
+
+    @Override
+    public long getSmoothedRttMs() {
+        return this.srttMs;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedReplicationWindow{maxInflightMsgs=" + this.maxInflightMsgs + ", maxBodySize=" + this.maxBodySize
+               + ", srttMs=" + this.srttMs + '}';
+    }
+}
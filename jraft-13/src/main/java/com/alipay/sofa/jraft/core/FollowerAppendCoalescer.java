@@ -0,0 +1,202 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.storage.LogManager;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：跟随者的日志复制请求合并器，每个跟随者节点一个对象。pipeline模式下领导者会连续发送很多小的日志复制请求
+ * 之前跟随者每收到一个请求，都要单独调用一次日志管理器的appendEntries方法，每个请求都要经过一次冲突检查，发布一次disruptor事件
+ * 现在跟随者校验完请求之后，把请求中的日志交给这个合并器，和前一个请求的日志首尾相接的话就放到同一批中
+ * 第一个请求到达的时候提交一个落盘任务，落盘任务执行之前到达的请求都会合并到这一批中，所以没有额外的等待时间
+ * 一批日志达到了最大条数或者最大字节数，或者新到达的请求和这一批日志接不上，就立刻把这一批日志交给日志管理器落盘
+ * 落盘成功之后，按照请求到达的顺序回调每个请求的FollowerStableClosure，给领导者回复响应
+ * 还没有交给日志管理器的日志对跟随者的一致性检查也是可见的，所以下一个请求的前一条日志可以是这一批中的最后一条日志
+ * 落盘任务是在节点的锁之外执行的，节点的任期或者角色变化之后，旧任期的日志绝对不能再交给日志管理器，否则可能会截断这个节点成为领导者之后写入的日志
+ * 所以节点在写锁中修改任期和角色的时候会调用discard方法丢弃还没有落盘的日志，落盘的时候也会再检查一次这批日志的任期
+ */
+public class FollowerAppendCoalescer {
+
+    private static final Logger             LOG      = LoggerFactory.getLogger(FollowerAppendCoalescer.class);
+
+    private final String                    groupId;
+    private final LogManager                logManager;
+    private final int                       maxEntries;
+    private final int                       maxBytes;
+    //等待落盘的日志，这些日志的索引是连续的
+    private List<LogEntry>                  entries  = new ArrayList<>();
+    //等待落盘的日志对应的回调对象，按照请求到达的顺序存放
+    private List<LogManager.StableClosure>  closures = new ArrayList<>();
+    //这一批日志的领导者任期，换了领导者之后不能和之前的日志合并
+    private long                            term;
+    //节点最近一次调用discard方法时的任期，任期比它小的日志都是旧任期的日志，不能再落盘
+    private long                            nodeTerm;
+    private long                            firstIndex;
+    private long                            lastIndex;
+    private int                             bytes;
+    //是否已经提交了落盘任务
+    private boolean                         flushScheduled;
+
+    public FollowerAppendCoalescer(final String groupId, final LogManager logManager, final int maxEntries,
+                                   final int maxBytes) {
+        this.groupId = groupId;
+        this.logManager = logManager;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：添加一个请求中的日志，prevLogIndex是请求中的前一条日志索引，term是跟随者处理请求时的任期
+     * 这个请求的日志和等待落盘的日志接不上的时候，要先把等待落盘的日志交给日志管理器，保证日志管理器看到的日志顺序和请求到达的顺序一样
+     */
+    public synchronized void append(final long prevLogIndex, final List<LogEntry> toAppend,
+                                    final LogManager.StableClosure done, final long term) {
+        if (!this.entries.isEmpty() && (prevLogIndex != this.lastIndex || term != this.term)) {
+            flushLocked();
+        }
+        if (toAppend.isEmpty()) {
+            //请求中的日志都是空数据，直接交给日志管理器处理
+            this.logManager.appendEntries(toAppend, done);
+            return;
+        }
+        if (this.entries.isEmpty()) {
+            this.term = term;
+            this.firstIndex = toAppend.get(0).getId().getIndex();
+        }
+        for (final LogEntry entry : toAppend) {
+            this.bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+        }
+        this.entries.addAll(toAppend);
+        this.closures.add(done);
+        final LogEntry last = toAppend.get(toAppend.size() - 1);
+        this.lastIndex = last.getId().getIndex();
+        if (this.entries.size() >= this.maxEntries || this.bytes >= this.maxBytes) {
+            flushLocked();
+        } else if (!this.flushScheduled) {
+            this.flushScheduled = true;
+            ThreadPoolsFactory.runInThread(this.groupId, this::flush);
+        }
+    }
+
+    //得到指定索引的日志的任期，这个索引的日志还在等待落盘的话，直接从等待落盘的日志中获取
+    public synchronized long getTerm(final long index) {
+        if (!this.entries.isEmpty() && index >= this.firstIndex) {
+            if (index <= this.lastIndex) {
+                return this.entries.get((int) (index - this.firstIndex)).getId().getTerm();
+            }
+            //等待落盘的日志可能会截断日志管理器中更大索引的日志，所以先落盘再查询
+            flushLocked();
+        }
+        return this.logManager.getTerm(index);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：得到跟随者的最后一条日志索引，包括还在等待落盘的日志，返回的是这批日志交给日志管理器之后的最后一条日志索引
+     * 日志管理器的日志比这批日志长的时候，如果这批日志和日志管理器中的日志有冲突，日志管理器会截断冲突位置之后的日志，最后一条日志就是这批日志的最后一条
+     * 根据日志匹配原则，只要这批日志的最后一条和日志管理器中同一个索引的日志任期相同，前面的日志也都相同，这时候日志管理器不会截断任何日志
+     */
+    public synchronized long getLastLogIndex() {
+        final long lastLogIndex = this.logManager.getLastLogIndex();
+        if (this.entries.isEmpty()) {
+            return lastLogIndex;
+        }
+        if (lastLogIndex <= this.lastIndex) {
+            return this.lastIndex;
+        }
+        final long lastTerm = this.entries.get(this.entries.size() - 1).getId().getTerm();
+        //有冲突的话日志管理器会截断这批日志后面的日志
+        return this.logManager.getTerm(this.lastIndex) == lastTerm ? lastLogIndex : this.lastIndex;
+    }
+
+    //把等待落盘的日志交给日志管理器，节点停机的时候也会调用这个方法
+    public synchronized void flush() {
+        this.flushScheduled = false;
+        flushLocked();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：丢弃还没有交给日志管理器的日志，并且给这些请求回复EPERM，领导者之后会重新发送这些日志
+     * 这个方法在节点的写锁中调用，节点下台，开始选举，成为领导者的时候都会调用。这个方法和落盘任务用同一把锁
+     * 所以这个方法返回之后，旧任期的日志要么已经交给了日志管理器，要么再也不会交给日志管理器，节点之后写入的日志一定在它们后面
+     */
+    public synchronized void discard(final long nodeTerm, final Status status) {
+        this.nodeTerm = Math.max(this.nodeTerm, nodeTerm);
+        failLocked(status);
+    }
+
+    private void failLocked(final Status status) {
+        if (this.entries.isEmpty()) {
+            return;
+        }
+        final List<LogManager.StableClosure> dones = this.closures;
+        LOG.warn("Node {} discard {} pending follower entries in [{}, {}] of term {}, status={}.", this.groupId,
+            this.entries.size(), this.firstIndex, this.lastIndex, this.term, status);
+        this.entries = new ArrayList<>();
+        this.closures = new ArrayList<>();
+        this.bytes = 0;
+        ThreadPoolsFactory.runInThread(this.groupId, () -> new MergedStableClosure(dones).run(status));
+    }
+
+    private void flushLocked() {
+        if (this.entries.isEmpty()) {
+            return;
+        }
+        //节点已经进入了更大的任期，这批日志是旧任期的领导者发送的，不能再落盘
+        if (this.term < this.nodeTerm) {
+            failLocked(new Status(RaftError.EPERM, "Term changed from %d to %d before flush.", this.term,
+                this.nodeTerm));
+            return;
+        }
+        final List<LogEntry> toAppend = this.entries;
+        final List<LogManager.StableClosure> dones = this.closures;
+        this.entries = new ArrayList<>(toAppend.size());
+        this.closures = new ArrayList<>(dones.size());
+        this.bytes = 0;
+        if (dones.size() == 1) {
+            this.logManager.appendEntries(toAppend, dones.get(0));
+        } else {
+            this.logManager.appendEntries(toAppend, new MergedStableClosure(dones));
+        }
+    }
+
+    //合并后的一批日志的回调对象，日志落盘之后按照顺序回调每个请求的回调对象
+    private static class MergedStableClosure extends LogManager.StableClosure {
+
+        private final List<LogManager.StableClosure> closures;
+
+        MergedStableClosure(final List<LogManager.StableClosure> closures) {
+            super(null);
+            this.closures = closures;
+        }
+
+        @Override
+        public void run(final Status status) {
+            for (final LogManager.StableClosure done : this.closures) {
+                try {
+                    done.run(status);
+                } catch (final Throwable t) {
+                    LOG.error("Fail to run follower stable closure with status: {}.", status, t);
+                }
+            }
+        }
+    }
+}
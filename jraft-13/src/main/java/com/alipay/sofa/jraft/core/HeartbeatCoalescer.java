@@ -0,0 +1,249 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.error.RemotingException;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.rpc.impl.FutureImpl;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.alipay.sofa.jraft.util.NamedThreadFactory;
+import com.alipay.sofa.jraft.util.ThreadPoolUtil;
+import com.google.protobuf.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：心跳消息合并器，整个进程共享一个对象。一个进程中部署了成百上千个复制组的时候，两个节点之间每个复制组都要定时发送心跳消息
+ * 心跳请求的数量和复制组的数量成正比，这些请求几乎不携带数据，但是每个请求都要走一遍序列化，网络传输和请求处理的流程
+ * 开启了心跳合并之后，复制器不再直接发送心跳消息，而是把心跳消息交给这个合并器，合并器按照本地节点和目标节点的地址把心跳消息分组
+ * 每组的第一个心跳消息到达之后等待一小段时间，或者一组中的心跳消息达到了最大数量，就把这组心跳消息放到一个BatchHeartbeatRequest请求中发送
+ * 收到批量响应之后再按照顺序把每个响应交给对应复制器的回调方法，回调方法看到的和单独发送心跳消息收到的响应是一样的
+ */
+public class HeartbeatCoalescer {
+
+    private static final Logger                LOG      = LoggerFactory.getLogger(HeartbeatCoalescer.class);
+
+    private static final HeartbeatCoalescer    INSTANCE = new HeartbeatCoalescer();
+
+    //还没有发送的心跳消息，key是本地节点和目标节点的地址
+    private final ConcurrentMap<PeerKey, Batch> pending = new ConcurrentHashMap<>();
+
+    public static HeartbeatCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    //执行延迟发送任务的定时器，只有开启了心跳合并才会创建
+    private static class SchedulerHolder {
+        static final ScheduledExecutorService SCHEDULER = ThreadPoolUtil.newScheduledThreadPool(
+                                                            "JRaft-Heartbeat-Coalescer", false, 1,
+                                                            new NamedThreadFactory("JRaft-Heartbeat-Coalescer-",
+                                                                true));
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：提交一个心跳消息，返回的future和rpcService.appendEntries方法返回的future作用一样，复制器销毁的时候可以用来取消心跳请求
+     * rpcService是提交心跳消息的节点自己的客户端，批量请求会使用这一批中最后一个提交者的客户端发送
+     */
+    public Future<Message> submit(final RaftClientService rpcService, final Endpoint local, final Endpoint peer,
+                                  final RpcRequests.AppendEntriesRequest request, final int timeoutMs,
+                                  final int delayMs, final int maxBatch,
+                                  final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+        final PeerKey key = new PeerKey(local, peer);
+        final Heartbeat heartbeat = new Heartbeat(request, done);
+        while (true) {
+            final Batch batch = this.pending.computeIfAbsent(key, Batch::new);
+            boolean first;
+            boolean full;
+            synchronized (batch) {
+                //这一批已经被发送出去了，重新获取新的批次
+                if (batch.sealed) {
+                    continue;
+                }
+                batch.heartbeats.add(heartbeat);
+                batch.rpcService = rpcService;
+                batch.timeoutMs = batch.timeoutMs <= 0 ? timeoutMs : Math.min(batch.timeoutMs, timeoutMs);
+                first = batch.heartbeats.size() == 1;
+                full = batch.heartbeats.size() >= maxBatch || delayMs <= 0;
+                if (full) {
+                    seal(batch);
+                }
+            }
+            if (full) {
+                send(batch);
+            } else if (first) {
+                SchedulerHolder.SCHEDULER.schedule(() -> flush(batch), delayMs, TimeUnit.MILLISECONDS);
+            }
+            return heartbeat.future;
+        }
+    }
+
+    //延迟时间到了，发送这一批心跳消息
+    private void flush(final Batch batch) {
+        synchronized (batch) {
+            if (batch.sealed) {
+                return;
+            }
+            seal(batch);
+        }
+        send(batch);
+    }
+
+    //标记这一批心跳消息已经发送，并且从等待发送的集合中移除，调用者要持有批次对象的锁
+    private void seal(final Batch batch) {
+        batch.sealed = true;
+        this.pending.remove(batch.key, batch);
+    }
+
+    private void send(final Batch batch) {
+        final List<Heartbeat> heartbeats = batch.heartbeats;
+        final RpcRequests.BatchHeartbeatRequest.Builder rb = RpcRequests.BatchHeartbeatRequest.newBuilder();
+        for (final Heartbeat heartbeat : heartbeats) {
+            rb.addRequests(heartbeat.request);
+        }
+        try {
+            batch.rpcService.batchHeartbeat(batch.key.peer, rb.build(), batch.timeoutMs,
+                new RpcResponseClosureAdapter<RpcRequests.BatchHeartbeatResponse>() {
+
+                    @Override
+                    public void run(final Status status) {
+                        onBatchReturned(heartbeats, status, getResponse());
+                    }
+                });
+        } catch (final Throwable t) {
+            LOG.error("Fail to send batch heartbeat to {}.", batch.key.peer, t);
+            onBatchReturned(heartbeats, new Status(RaftError.EINTERNAL, "Fail to send batch heartbeat: %s",
+                t.getMessage()), null);
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：收到批量响应之后，把每个心跳响应交给对应的回调方法。整个批量请求失败的时候，每个心跳消息都按照请求失败处理
+     * 批量响应中某个位置上的响应携带了errorResponse，说明这个复制组的心跳消息在跟随者处理失败了，和单独发送心跳消息收到错误响应的处理方式一样
+     */
+    private static void onBatchReturned(final List<Heartbeat> heartbeats, final Status status,
+                                        final RpcRequests.BatchHeartbeatResponse response) {
+        final boolean ok = status.isOk() && response != null && response.getResponsesCount() == heartbeats.size();
+        if (status.isOk() && !ok) {
+            LOG.warn("Invalid batch heartbeat response, expect {} responses, but got {}.", heartbeats.size(),
+                response == null ? 0 : response.getResponsesCount());
+        }
+        for (int i = 0; i < heartbeats.size(); i++) {
+            final Heartbeat heartbeat = heartbeats.get(i);
+            if (!ok) {
+                heartbeat.complete(status.isOk() ? new Status(RaftError.EINTERNAL, "Invalid batch heartbeat response")
+                    : status, null);
+                continue;
+            }
+            final RpcRequests.AppendEntriesResponse resp = response.getResponses(i);
+            if (resp.hasErrorResponse()) {
+                final RpcRequests.ErrorResponse eResp = resp.getErrorResponse();
+                final Status st = new Status();
+                st.setCode(eResp.getErrorCode());
+                if (eResp.hasErrorMsg()) {
+                    st.setErrorMsg(eResp.getErrorMsg());
+                }
+                heartbeat.complete(st, null);
+            } else {
+                heartbeat.complete(Status.OK(), resp);
+            }
+        }
+    }
+
+    //等待发送的单个心跳消息
+    private static class Heartbeat {
+        final RpcRequests.AppendEntriesRequest                        request;
+        final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done;
+        final FutureImpl<Message>                                     future = new FutureImpl<>();
+
+        Heartbeat(final RpcRequests.AppendEntriesRequest request,
+                  final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+            this.request = request;
+            this.done = done;
+        }
+
+        void complete(Status status, final RpcRequests.AppendEntriesResponse response) {
+            //复制器销毁的时候会取消心跳请求，这时候和单独发送的心跳请求一样，回调方法收到的是取消的状态
+            if (this.future.isCancelled()) {
+                status = new Status(RaftError.ECANCELED, "RPC request was canceled by future.");
+            }
+            if (this.done != null) {
+                try {
+                    if (status.isOk()) {
+                        this.done.setResponse(response);
+                    }
+                    this.done.run(status);
+                } catch (final Throwable t) {
+                    LOG.error("Fail to run RpcResponseClosure, the request is {}.", this.request, t);
+                }
+            }
+            if (!this.future.isDone()) {
+                if (status.isOk()) {
+                    this.future.setResult(response);
+                } else {
+                    this.future.failure(new RemotingException(status.getErrorMsg()));
+                }
+            }
+        }
+    }
+
+    //发往同一个目标节点的一批心跳消息
+    private static class Batch {
+        final PeerKey         key;
+        final List<Heartbeat> heartbeats = new ArrayList<>();
+        RaftClientService     rpcService;
+        int                   timeoutMs;
+        boolean               sealed;
+
+        Batch(final PeerKey key) {
+            this.key = key;
+        }
+    }
+
+    private static class PeerKey {
+        final Endpoint local;
+        final Endpoint peer;
+
+        PeerKey(final Endpoint local, final Endpoint peer) {
+            this.local = local;
+            this.peer = peer;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final PeerKey that = (PeerKey) o;
+            return Objects.equals(this.local, that.local) && Objects.equals(this.peer, that.peer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.local, this.peer);
+        }
+    }
+}
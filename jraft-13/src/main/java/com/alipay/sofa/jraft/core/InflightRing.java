@@ -0,0 +1,146 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.util.Ints;
+import com.google.protobuf.Message;
+
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：复制器存放未收到响应的请求的环形数组，数组的下标就是请求序号和数组长度减1做与运算的结果
+ * 之前复制器用一个ArrayDeque存放请求，用一个优先级队列存放乱序到达的响应，每个请求和响应都要创建一个对象，响应放入队列的时候还要排序
+ * 现在请求和它的响应放在同一个槽位中，收到响应的时候根据请求序号直接找到槽位，处理响应的时候根据requiredNextSeq直接找到下一个要处理的槽位
+ * 查找和删除都是O(1)的，槽位中的Inflight对象是预先创建好的，反复使用，发送请求和接收响应都不会再创建对象
+ * 复制器未收到响应的请求数量受maxReplicatorInflightMsgs限制，所以数组的长度是大于这个值的2的幂，万一槽位被占用了就把数组扩容一倍
+ * 这个类的所有方法都是在复制器持有锁的时候调用的，所以不需要考虑并发问题
+ */
+class InflightRing {
+
+    private Replicator.Inflight[] slots;
+    private int                   mask;
+    //数组中请求的数量
+    private int                   size;
+    //已经收到响应但是还没有处理的请求数量
+    private int                   responded;
+    //最后一个添加到数组中的请求
+    private Replicator.Inflight   last;
+
+    InflightRing(final int maxInflightMsgs) {
+        //窗口允许的请求数量是maxInflightMsgs+1，再加上探针请求，所以多留出两个槽位
+        allocate(Ints.findNextPositivePowerOfTwo(Math.max(8, maxInflightMsgs + 2)));
+    }
+
+    private void allocate(final int capacity) {
+        this.slots = new Replicator.Inflight[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new Replicator.Inflight();
+        }
+        this.mask = capacity - 1;
+    }
+
+    //添加一个请求，返回存放这个请求的槽位
+    Replicator.Inflight add(final Replicator.RequestType reqType, final long startIndex, final int count,
+                            final int size, final int budgetSize, final int seq,
+                            final Future<Message> rpcFuture) {
+        Replicator.Inflight slot = this.slots[seq & this.mask];
+        if (slot.inUse) {
+            grow();
+            slot = this.slots[seq & this.mask];
+        }
+        slot.reset(reqType, startIndex, count, size, budgetSize, seq, rpcFuture);
+        this.size++;
+        this.last = slot;
+        return slot;
+    }
+
+    //数组满了，扩容一倍，然后把正在使用的槽位按照新的长度重新放置，未收到响应的请求序号是连续的，所以扩容后不会冲突
+    private void grow() {
+        final Replicator.Inflight[] old = this.slots;
+        allocate(old.length << 1);
+        for (final Replicator.Inflight inflight : old) {
+            if (inflight.inUse) {
+                this.slots[inflight.seq & this.mask] = inflight;
+            }
+        }
+    }
+
+    //根据请求序号找到对应的请求，找不到返回null
+    Replicator.Inflight get(final int seq) {
+        final Replicator.Inflight slot = this.slots[seq & this.mask];
+        return slot.inUse && slot.seq == seq ? slot : null;
+    }
+
+    //把响应放到对应请求的槽位中，找不到对应的请求返回false
+    boolean setResponse(final int seq, final Replicator.RequestType reqType, final Status status,
+                        final Message request, final Message response, final long rpcSendTime) {
+        final Replicator.Inflight slot = get(seq);
+        if (slot == null || slot.hasResponse) {
+            return false;
+        }
+        slot.setResponse(reqType, status, request, response, rpcSendTime);
+        this.responded++;
+        return true;
+    }
+
+    //把请求从数组中移除，槽位中的字段会保留到下一次被使用，所以调用者仍然可以读取请求的索引和字节数
+    void remove(final Replicator.Inflight inflight) {
+        if (!inflight.inUse) {
+            return;
+        }
+        if (inflight.hasResponse) {
+            this.responded--;
+        }
+        inflight.release();
+        this.size--;
+    }
+
+    void clear() {
+        if (this.size > 0) {
+            for (final Replicator.Inflight inflight : this.slots) {
+                if (inflight.inUse) {
+                    inflight.release();
+                }
+            }
+        }
+        this.size = 0;
+        this.responded = 0;
+        this.last = null;
+    }
+
+    //遍历所有还没有收到响应的请求
+    void forEach(final Consumer<Replicator.Inflight> action) {
+        if (this.size == 0) {
+            return;
+        }
+        for (final Replicator.Inflight inflight : this.slots) {
+            if (inflight.inUse) {
+                action.accept(inflight);
+            }
+        }
+    }
+
+    //得到最后一个添加的请求，这个请求已经被移除的话返回null
+    Replicator.Inflight peekLast() {
+        return this.last != null && this.last.inUse ? this.last : null;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int getRespondedCount() {
+        return this.responded;
+    }
+
+    int capacity() {
+        return this.slots.length;
+    }
+}
@@ -12,6 +12,7 @@ import com.alipay.sofa.jraft.util.Requires;
 import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
 import com.alipay.sofa.jraft.util.Utils;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -24,6 +25,11 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class IteratorImpl {
 
+    //每次从日志管理器中预读的日志条目的最大数量，并行应用每一轮分配的日志条数也使用这个上限
+    static final int          MAX_PREFETCH_ENTRIES = 1024;
+    //每次从日志管理器中预读的日志data的最大字节数，并行应用每一轮分配的日志字节数也使用这个上限
+    static final long         MAX_PREFETCH_BYTES   = 4 * 1024 * 1024;
+
     private final FSMCallerImpl fsmCaller;
     private final LogManager logManager;
     private final List<Closure> closures;
@@ -34,6 +40,10 @@ public class IteratorImpl {
     private LogEntry currEntry = new LogEntry();
     private final AtomicLong applyingIndex;
     private RaftException error;
+    //预读的日志条目，状态机落后很多的时候，日志可能已经不在内存中了，这时候一次性从日志存储器中批量读取，而不是一条一条地读取
+    private List<LogEntry> prefetched = Collections.emptyList();
+    //预读的第一条日志的索引
+    private long prefetchedFirstIndex;
 
     public IteratorImpl(final FSMCallerImpl fsmCaller, final LogManager logManager, final List<Closure> closures,
                         final long firstClosureIndex, final long lastAppliedIndex, final long committedIndex,
@@ -88,7 +98,7 @@ public class IteratorImpl {
             ++this.currentIndex;
             if (this.currentIndex <= this.committedIndex) {
                 try {//根据索引得到下一个要处理的日志对象
-                    this.currEntry = this.logManager.getEntry(this.currentIndex);
+                    this.currEntry = getEntry(this.currentIndex);
                     //对日志做判空检验
                     if (this.currEntry == null) {
                         getOrCreateError().setType(EnumOutter.ErrorType.ERROR_TYPE_LOG);
@@ -105,6 +115,21 @@ public class IteratorImpl {
         }
     }
 
+    //先从预读的日志中获取，预读的日志中没有的话，就从日志管理器中批量读取一批日志，最多读取到committedIndex
+    private LogEntry getEntry(final long index) {
+        long offset = index - this.prefetchedFirstIndex;
+        if (offset < 0 || offset >= this.prefetched.size()) {
+            this.prefetched = this.logManager.getEntries(index,
+                    (int) Math.min(this.committedIndex - index + 1, MAX_PREFETCH_ENTRIES), MAX_PREFETCH_BYTES);
+            this.prefetchedFirstIndex = index;
+            if (this.prefetched.isEmpty()) {
+                return null;
+            }
+            offset = 0;
+        }
+        return this.prefetched.get((int) offset);
+    }
+
     public long getIndex() {
         return this.currentIndex;
     }
@@ -166,6 +191,24 @@ public class IteratorImpl {
 
     }
 
+    //并行应用日志的时候使用，index之前的日志都已经应用到状态机了，从index开始的日志都当作没有应用，状态机进入错误状态
+    void setErrorAt(final long index, final Status st) {
+        this.currentIndex = index;
+        this.currEntry = null;
+        getOrCreateError().setType(EnumOutter.ErrorType.ERROR_TYPE_STATE_MACHINE);
+        getOrCreateError().getStatus().setError(RaftError.ESTATEMACHINE,
+                "StateMachine meet critical error when applying one or more tasks since index=%d, %s", index,
+                st != null ? st.toString() : "none");
+    }
+
+    //并行应用日志的时候使用，这条日志已经在某个通道中应用了，它的回调已经被状态机执行了，出错之后不需要再回复错误
+    void clearClosure(final long index) {
+        final long offset = index - this.firstClosureIndex;
+        if (offset >= 0 && offset < this.closures.size()) {
+            this.closures.set((int) offset, null);
+        }
+    }
+
     private RaftException getOrCreateError() {
         if (this.error == null) {
             this.error = new RaftException();
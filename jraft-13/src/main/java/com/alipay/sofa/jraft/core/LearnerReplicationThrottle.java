@@ -0,0 +1,70 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：学习者复制的带宽限流器，每个节点一个对象，这个节点上所有学习者复制器共享同一个限流器
+ * 新加入的学习者需要追赶大量日志，如果和跟随者使用同样的发送速度，就会和多数派的日志复制争抢网卡和磁盘，提高日志提交的延迟
+ * 这里用令牌桶限制学习者复制器每秒最多发送的日志字节数，令牌桶最多积累一秒的令牌
+ * 复制器发送请求之前先申请令牌，申请到的令牌数量就是这个请求最多可以携带的字节数，请求构建完成之后再根据实际的字节数结算
+ * 令牌不够的时候复制器等待一段时间再继续发送，心跳消息不受限流影响
+ */
+public class LearnerReplicationThrottle {
+
+    //每秒最多发送的字节数
+    private final long bytesPerSecond;
+    //令牌数量少于这个值的时候就不发送请求，避免发送大量很小的请求，相当于10毫秒可以发送的字节数
+    private final long minChunkBytes;
+    //当前的令牌数量，请求实际携带的字节数超过了申请的数量时可能是负数
+    private long       tokens;
+    private long       lastRefillMs;
+
+    public LearnerReplicationThrottle(final long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        this.minChunkBytes = Math.max(1, this.bytesPerSecond / 100);
+        this.tokens = this.bytesPerSecond;
+        this.lastRefillMs = Utils.monotonicMs();
+    }
+
+    private void refill() {
+        final long now = Utils.monotonicMs();
+        final long elapsed = now - this.lastRefillMs;
+        if (elapsed > 0) {
+            this.tokens = Math.min(this.bytesPerSecond, this.tokens + elapsed * this.bytesPerSecond / 1000);
+            this.lastRefillMs = now;
+        }
+    }
+
+    //申请最多maxBytes个令牌，返回申请到的令牌数量，返回0表示需要等待
+    public synchronized int acquire(final int maxBytes) {
+        refill();
+        if (this.tokens < Math.min(maxBytes, this.minChunkBytes)) {
+            return 0;
+        }
+        final int acquired = (int) Math.min(this.tokens, maxBytes);
+        this.tokens -= acquired;
+        return acquired;
+    }
+
+    //请求构建完成之后根据实际的字节数结算，多申请的令牌退回，少申请的从令牌桶中扣除
+    public synchronized void settle(final int acquired, final int actualBytes) {
+        this.tokens = Math.min(this.bytesPerSecond, this.tokens + acquired - actualBytes);
+    }
+
+    //得到令牌足够发送下一个请求需要等待的毫秒数
+    public synchronized long getWaitMs() {
+        refill();
+        final long lack = this.minChunkBytes - this.tokens;
+        if (lack <= 0) {
+            return 0;
+        }
+        return lack * 1000 / this.bytesPerSecond + 1;
+    }
+
+    public long getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+}
@@ -0,0 +1,199 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.entity.PeerId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：投票箱使用的日志提交跟踪器，用来代替之前每条日志一个的Ballot对象
+ * 之前领导者每产生一条日志，投票箱都要创建一个Ballot对象，收到跟随者的响应之后，要遍历响应覆盖的每一条日志，在每个Ballot对象中线性查找节点并投票
+ * 一批1024条日志的响应就要操作上千个对象，而且这些操作都是在投票箱的写锁中执行的
+ * 现在只给每个节点记录一个匹配索引，也就是这个节点已经持久化的最大日志索引，节点收到响应之后只更新自己的匹配索引
+ * 然后在配置中所有节点的匹配索引中找出第quorum大的值，这个值之前的日志都已经被多数派持久化了，可以直接提交，每次响应的开销只和节点数量有关
+ * 配置变更期间新旧配置都要达到多数派，所以连续使用同一个配置的日志放在一个配置段中，每个配置段记录自己的新旧配置，日志的提交要按照配置段的顺序推进
+ * 这个类的所有方法都是在投票箱持有写锁的时候调用的，所以不需要考虑并发问题，添加日志和处理响应的时候都不会创建对象
+ */
+class MatchIndexCommitTracker {
+
+    //所有配置段中出现过的节点，节点在这个集合中的位置就是它的匹配索引在matchIndexes数组中的位置
+    private final List<PeerId>      peers        = new ArrayList<>();
+    //每个节点的匹配索引
+    private long[]                  matchIndexes = new long[0];
+    //计算第quorum大的匹配索引时使用的临时数组，避免每次计算都创建数组
+    private long[]                  scratch      = new long[0];
+    //按照日志索引从小到大存放的配置段，只有配置变更的时候才会有多个配置段
+    private final List<ConfSegment> segments     = new ArrayList<>();
+    //最后一条添加到跟踪器中的日志索引
+    private long                    lastIndex;
+
+    //使用同一个配置的一段连续日志
+    private static final class ConfSegment {
+        //这一段的第一条日志索引，提交了一部分日志之后会向后移动
+        long                startIndex;
+        final Configuration conf;
+        final Configuration oldConf;
+        //新配置中的节点在peers集合中的位置
+        final int[]         slots;
+        final int           quorum;
+        //旧配置中的节点在peers集合中的位置，不在配置变更期间的时候为null
+        final int[]         oldSlots;
+        final int           oldQuorum;
+
+        ConfSegment(final long startIndex, final Configuration conf, final Configuration oldConf,
+                    final int[] slots, final int[] oldSlots) {
+            this.startIndex = startIndex;
+            this.conf = conf;
+            this.oldConf = oldConf;
+            this.slots = slots;
+            this.quorum = slots.length / 2 + 1;
+            this.oldSlots = oldSlots;
+            this.oldQuorum = oldSlots == null ? 0 : oldSlots.length / 2 + 1;
+        }
+
+        //判断日志使用的配置是不是这个配置段的配置
+        boolean sameConf(final Configuration conf, final Configuration oldConf) {
+            if (!this.conf.getPeers().equals(conf.getPeers())) {
+                return false;
+            }
+            if (this.oldConf == null) {
+                return isEmpty(oldConf);
+            }
+            return !isEmpty(oldConf) && this.oldConf.getPeers().equals(oldConf.getPeers());
+        }
+    }
+
+    private static boolean isEmpty(final Configuration conf) {
+        return conf == null || conf.isEmpty();
+    }
+
+    //等待提交的日志数量
+    int size() {
+        return this.segments.isEmpty() ? 0 : (int) (this.lastIndex - this.segments.get(0).startIndex + 1);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：添加一条等待提交的日志，index是这条日志的索引，和最后一个配置段的配置一样的话只需要更新lastIndex
+     * 配置变了才会创建新的配置段，新配置段中的节点如果之前没有出现过，就在peers集合中给它分配一个位置，匹配索引从0开始
+     */
+    void append(final long index, final Configuration conf, final Configuration oldConf) {
+        final ConfSegment last = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+        if (last == null || !last.sameConf(conf, oldConf)) {
+            if (size() == 0) {
+                //之前的日志已经全部提交了，留下的配置段不再需要
+                this.segments.clear();
+            }
+            final int[] slots = slotsOf(conf);
+            final int[] oldSlots = isEmpty(oldConf) ? null : slotsOf(oldConf);
+            this.segments.add(new ConfSegment(index, conf.copy(), isEmpty(oldConf) ? null : oldConf.copy(), slots,
+                oldSlots));
+        }
+        this.lastIndex = index;
+    }
+
+    private int[] slotsOf(final Configuration conf) {
+        final List<PeerId> confPeers = conf.getPeers();
+        final int[] slots = new int[confPeers.size()];
+        for (int i = 0; i < slots.length; i++) {
+            int slot = this.peers.indexOf(confPeers.get(i));
+            if (slot < 0) {
+                slot = this.peers.size();
+                this.peers.add(confPeers.get(i).copy());
+                final long[] newMatchIndexes = new long[this.peers.size()];
+                System.arraycopy(this.matchIndexes, 0, newMatchIndexes, 0, this.matchIndexes.length);
+                this.matchIndexes = newMatchIndexes;
+                this.scratch = new long[this.peers.size()];
+            }
+            slots[i] = slot;
+        }
+        return slots;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：节点peer已经持久化了lastLogIndex之前的所有日志，更新它的匹配索引，然后计算出可以提交的最大日志索引
+     * 节点的日志是按顺序持久化的，收到一批日志的成功响应就说明这批日志之前的日志也都持久化了，所以只需要记录最大的索引
+     * 返回值小于pendingIndex说明还没有新的日志可以提交，peer不在任何配置段中的时候，比如学习者，直接返回0
+     */
+    long grant(final PeerId peer, final long lastLogIndex, final long pendingIndex) {
+        final int slot = this.peers.indexOf(peer);
+        if (slot < 0) {
+            return 0;
+        }
+        if (lastLogIndex > this.matchIndexes[slot]) {
+            this.matchIndexes[slot] = lastLogIndex;
+        }
+        long committed = pendingIndex - 1;
+        for (int i = 0; i < this.segments.size(); i++) {
+            final ConfSegment segment = this.segments.get(i);
+            final long endIndex = endIndexOf(i);
+            long quorumIndex = quorumIndex(segment.slots, segment.quorum);
+            if (segment.oldSlots != null) {
+                quorumIndex = Math.min(quorumIndex, quorumIndex(segment.oldSlots, segment.oldQuorum));
+            }
+            if (quorumIndex < segment.startIndex) {
+                break;
+            }
+            committed = Math.min(quorumIndex, endIndex);
+            if (committed < endIndex) {
+                //这个配置段的日志还没有全部提交，后面配置段的日志也不能提交
+                break;
+            }
+        }
+        return committed;
+    }
+
+    //第i个配置段的最后一条日志索引
+    private long endIndexOf(final int i) {
+        return i + 1 < this.segments.size() ? this.segments.get(i + 1).startIndex - 1 : this.lastIndex;
+    }
+
+    //在slots对应的节点的匹配索引中找出第quorum大的值，节点数量很少，直接用插入排序
+    private long quorumIndex(final int[] slots, final int quorum) {
+        final long[] values = this.scratch;
+        for (int i = 0; i < slots.length; i++) {
+            final long v = this.matchIndexes[slots[i]];
+            int j = i - 1;
+            while (j >= 0 && values[j] < v) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = v;
+        }
+        return quorum <= slots.length ? values[quorum - 1] : 0;
+    }
+
+    //committedIndex之前的日志都已经提交了，把完全提交的配置段移除，第一个配置段的起始索引向后移动
+    //最后一个配置段即使全部提交了也保留下来，后面的日志大多还是使用这个配置，这样就不用重新创建配置段了
+    void onCommitted(final long committedIndex) {
+        while (this.segments.size() > 1 && endIndexOf(0) <= committedIndex) {
+            this.segments.remove(0);
+        }
+        if (!this.segments.isEmpty()) {
+            final ConfSegment first = this.segments.get(0);
+            first.startIndex = Math.max(first.startIndex, committedIndex + 1);
+        }
+    }
+
+    //领导者下台的时候清空所有状态，新的领导者任期重新开始统计匹配索引
+    void reset() {
+        this.segments.clear();
+        this.peers.clear();
+        this.matchIndexes = new long[0];
+        this.scratch = new long[0];
+        this.lastIndex = 0;
+    }
+}
@@ -3,7 +3,7 @@ package com.alipay.sofa.jraft.core;
 import com.alipay.sofa.jraft.*;
 import com.alipay.sofa.jraft.closure.CatchUpClosure;
 import com.alipay.sofa.jraft.closure.ClosureQueue;
-import com.alipay.sofa.jraft.closure.ClosureQueueImpl;
+import com.alipay.sofa.jraft.closure.SpscClosureQueue;
 import com.alipay.sofa.jraft.closure.ReadIndexClosure;
 import com.alipay.sofa.jraft.conf.Configuration;
 import com.alipay.sofa.jraft.conf.ConfigurationEntry;
@@ -22,8 +22,10 @@ import com.alipay.sofa.jraft.storage.impl.LogManagerImpl;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotExecutorImpl;
 import com.alipay.sofa.jraft.util.*;
 import com.alipay.sofa.jraft.util.concurrent.LongHeldDetectingReadWriteLock;
+import com.alipay.sofa.jraft.util.compress.CompressType;
 import com.alipay.sofa.jraft.util.timer.RaftTimerFactory;
 import com.google.protobuf.Message;
+import com.google.protobuf.ZeroByteStringHelper;
 import com.lmax.disruptor.*;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
@@ -120,6 +122,16 @@ public class NodeImpl implements Node, RaftServerService {
     private RepeatedTimer electionTimer;
     //检测节点性能的成员变量，在第一版本没什么用
     private NodeMetrics metrics;
+    //领导者所有复制器共享的日志批次缓存，同一批日志只需要构建一次请求数据
+    private ReplicationBatchCache replicationBatchCache;
+    //复制日志占用的内存预算
+    private ReplicationMemoryBudget replicationMemoryBudget;
+    //学习者复制的带宽限流器，没有限制带宽的时候为null
+    private LearnerReplicationThrottle learnerReplicationThrottle;
+    //跟随者的日志复制请求合并器，没有开启合并的时候为null
+    private FollowerAppendCoalescer appendCoalescer;
+    //中继复制组件，这个节点被指定为其他跟随者的中继节点的时候，由它转发领导者发来的日志复制请求
+    private ReplicationRelay replicationRelay;
     //当前节点的Id
     private NodeId nodeId;
     //为jraft框架提供各种服务的工厂，在第一版本中，这个工厂只提供了元数据存储器服务
@@ -168,6 +180,15 @@ public class NodeImpl implements Node, RaftServerService {
                     "Raft-Node-Lock report: currentThread={}, acquireMode={}, heldThread={}, queuedThreads={}, blockedMs={}.",
                     Thread.currentThread(), acquireMode, heldThread, queuedThreads, blockedMs);
         }
+
+        //统计节点写锁每次的持有时间，单位是微秒，写锁持有的时间越短，投票请求和isLeader这些需要获取锁的操作等待的时间就越短
+        @Override
+        public void reportHeld(final AcquireMode acquireMode, final long heldNanos) {
+            final NodeMetrics metrics = this.node.getNodeMetrics();
+            if (metrics != null) {
+                metrics.recordLatency("node-write-lock-held-micros", TimeUnit.NANOSECONDS.toMicros(heldNanos));
+            }
+        }
     }
 
 
@@ -193,6 +214,16 @@ public class NodeImpl implements Node, RaftServerService {
         }
     }
 
+    //把业务指令包装成日志条目放到环形数组中的数据传输器，没有捕获任何变量，所有提交指令的线程共用这一个对象
+    private static final EventTranslatorOneArg<LogEntryAndClosure, Task> TASK_TRANSLATOR = (event, sequence, task) -> {
+        event.reset();
+        final LogEntry entry = new LogEntry();
+        entry.setData(task.getData());
+        event.done = task.getDone();
+        event.entry = entry;
+        event.expectedTerm = task.getExpectedTerm();
+    };
+
     //事件工厂，需要在Disruptor框架中使用
     private static class LogEntryAndClosureFactory implements EventFactory<LogEntryAndClosure> {
 
@@ -739,7 +770,8 @@ public class NodeImpl implements Node, RaftServerService {
             LOG.error("Fail to init fsm caller, null instance, bootstrapId={}.", bootstrapId);
             return false;
         }//创建状态机需要的回调队列，这个队列中封装着需要和业务层面沟通的回调方法
-        this.closureQueue = new ClosureQueueImpl(this.groupId);
+        //使用单生产者单消费者的环形队列，投票箱添加回调和状态机取出回调都不需要上锁
+        this.closureQueue = new SpscClosureQueue(this.groupId);
         //创建状态机初始化需要的参数配置对象
         final FSMCallerOptions opts = new FSMCallerOptions();
         //这行代码暂时注释掉，等12版本再讲解这行代码
@@ -750,6 +782,8 @@ public class NodeImpl implements Node, RaftServerService {
         //options对象中
         opts.setFsm(this.options.getFsm());
         opts.setClosureQueue(this.closureQueue);
+        opts.setApplyLanes(this.options.getApplyLanes());
+        opts.setApplyPartitioner(this.options.getApplyPartitioner());
         opts.setNode(this);
         opts.setBootstrapId(bootstrapId);
         //设置状态机的Disruptor环形数组的容量大小
@@ -1025,6 +1059,32 @@ public class NodeImpl implements Node, RaftServerService {
             LOG.error("Node {} initLogStorage failed.", getNodeId());
             return false;
         }
+        //创建复制内存预算，并且把预算的使用情况注册到监控指标中
+        this.replicationMemoryBudget = new ReplicationMemoryBudget(this.raftOptions.getReplicationMemoryBudgetBytes(),
+            this.logManager);
+        if (this.metrics.getMetricRegistry() != null) {
+            this.metrics.getMetricRegistry().register("replication-memory-budget",
+                new ReplicationMemoryBudget.BudgetMetricSet(this.replicationMemoryBudget));
+        }
+        //创建复制器共享的日志批次缓存，缓存中的批次要计入复制内存预算，所以在预算创建之后创建
+        if (this.raftOptions.getReplicationBatchCacheSize() > 0) {
+            this.replicationBatchCache = new ReplicationBatchCache(this.raftOptions.getReplicationBatchCacheSize(),
+                this.replicationMemoryBudget);
+        }
+        //创建学习者复制的带宽限流器
+        if (this.raftOptions.getLearnerReplicationMaxBytesPerSecond() > 0) {
+            this.learnerReplicationThrottle = new LearnerReplicationThrottle(
+                this.raftOptions.getLearnerReplicationMaxBytesPerSecond());
+        }
+        //创建中继复制组件
+        this.replicationRelay = new ReplicationRelay(this, this.logManager,
+            this.raftOptions.getReplicationRelayWaitTimeoutMs());
+        //创建跟随者的日志复制请求合并器
+        if (this.raftOptions.isEnableFollowerAppendCoalescing()) {
+            this.appendCoalescer = new FollowerAppendCoalescer(this.groupId, this.logManager,
+                this.raftOptions.getMaxFollowerAppendCoalesceEntries(),
+                this.raftOptions.getMaxFollowerAppendCoalesceBytes());
+        }
         //初始化元数据存储器组件
         if (!initMetaStorage()) {
             LOG.error("Node {} initMetaStorage failed.", getNodeId());
@@ -1194,6 +1254,8 @@ public class NodeImpl implements Node, RaftServerService {
             this.state = State.STATE_CANDIDATE;
             //递增当前节点的任期
             this.currTerm++;
+            //合并器中旧任期的日志不能再落盘了，否则可能截断这个节点成为领导者之后写入的日志
+            discardPendingFollowerEntries("Candidate started a new term.");
             //当前节点要为自己投票，所以把为谁投票的ID设置为自己的服务器ID
             this.votedId = this.serverId.copy();
             //这里还会记录一条日志，表示要启动投票超时计时器了
@@ -1327,6 +1389,8 @@ public class NodeImpl implements Node, RaftServerService {
                 this.conf.getConf(), this.conf.getOldConf());
         //将当前节点状态设置为领导者
         this.state = State.STATE_LEADER;
+        //成为领导者之后会写入配置变更日志，在这之前确保合并器中没有跟随者的日志了
+        discardPendingFollowerEntries("Node became leader.");
         //设置领导者ID为当前服务器ID，也就是说领导者就是自己
         this.leaderId = this.serverId.copy();
         //重置raft复制组的term，这行代码的意义在第一版本还体现不出来，后面日志复制的时候就体现出来了
@@ -1408,8 +1472,14 @@ public class NodeImpl implements Node, RaftServerService {
             //持久化元数据信息
             this.metaStorage.setTermAndVotedFor(term, this.votedId);
         }
+        //丢弃合并器中还没有落盘的日志，任期变化之后旧领导者的日志不能再落盘
+        discardPendingFollowerEntries("Node stepped down.");
         //领导者要下台了，停止内部所有复制器对象工作
         this.replicatorGroup.stopAll();
+        //清空日志批次缓存，正在发送的请求持有的批次收到响应后就会被回收
+        if (this.replicationBatchCache != null) {
+            this.replicationBatchCache.clear();
+        }
         //如果当前节点不是学习者，那就启动当前节点的超时选举定时器
         if (!isLearner()) {
             //启动超时选举定时器，走到这里，就意味着当前的stepDown方法，也可能是在NodeImpl类的init方法中被调用的
@@ -1422,6 +1492,13 @@ public class NodeImpl implements Node, RaftServerService {
         }
     }
 
+    //丢弃跟随者日志复制请求合并器中还没有落盘的日志，在节点的写锁中调用
+    private void discardPendingFollowerEntries(final String reason) {
+        if (this.appendCoalescer != null) {
+            this.appendCoalescer.discard(this.currTerm, new Status(RaftError.EPERM, reason));
+        }
+    }
+
     //判断当前节点是不是一个学习者
     private boolean isLearner() {
         return this.conf.listLearners().contains(this.serverId);
@@ -1819,7 +1896,9 @@ public class NodeImpl implements Node, RaftServerService {
             final long prevLogTerm = request.getPrevLogTerm();
             //获得当前跟随者节点的最后一条日志的任期，这里是根据领导者请求中的前一条日志索引获得的
             //这里其实就是对这个索引进行判断了
-            final long localPrevLogTerm = this.logManager.getTerm(prevLogIndex);
+            //开启了请求合并的话，还在合并器中等待落盘的日志也要参与检查
+            final long localPrevLogTerm = this.appendCoalescer != null ? this.appendCoalescer.getTerm(prevLogIndex)
+                    : this.logManager.getTerm(prevLogIndex);
             //接下来就是具体判断了，先判断当前节点的最后一条日志的任期是否和领导者请求中的任期不想等
             //不相等就说明日志不匹配，可能跟随者的日志落后领导者，领导者发送过来的前一条日志，跟随者根本没有
             //也可能是跟随者的本地日志有一些是旧的领导者的，当前发送消息过来的是新的领导者
@@ -1827,16 +1906,24 @@ public class NodeImpl implements Node, RaftServerService {
             //这也是一种日志不匹配的情况，这样一来，显然就需要领导者那边递减自己要发送给当前跟随者的下一条日志的索引
             //直到日志对应的任期匹配了，这样才能开始传输日志
             if (localPrevLogTerm != prevLogTerm) {
-                final long lastLogIndex = this.logManager.getLastLogIndex();
+                final long lastLogIndex = getFollowerLastLogIndex();
                 LOG.warn(
                         "Node {} reject term_unmatched AppendEntriesRequest from {}, term={}, prevLogIndex={}, prevLogTerm={}, localPrevLogTerm={}, lastLogIndex={}, entriesSize={}.",
                         getNodeId(), request.getServerId(), request.getTerm(), prevLogIndex, prevLogTerm, localPrevLogTerm,
                         lastLogIndex, entriesCount);
-                return RpcRequests.AppendEntriesResponse.newBuilder()
+                final RpcRequests.AppendEntriesResponse.Builder respBuilder = RpcRequests.AppendEntriesResponse.newBuilder()
                         .setSuccess(false)
                         .setTerm(this.currTerm)
-                        .setLastLogIndex(lastLogIndex)
-                        .build();
+                        .setLastLogIndex(lastLogIndex);
+                //把冲突的任期和这个任期的第一条日志索引告诉领导者，领导者可以一次跳过整个冲突的任期，不用每次只回退一条日志
+                //如果跟随者根本没有prevLogIndex这条日志，冲突索引就是跟随者最后一条日志的下一条
+                if (localPrevLogTerm != 0) {
+                    respBuilder.setConflictTerm(localPrevLogTerm)
+                            .setConflictIndex(findFirstIndexOfTerm(this.logManager, localPrevLogTerm, prevLogIndex));
+                } else {
+                    respBuilder.setConflictIndex(lastLogIndex + 1);
+                }
+                return respBuilder.build();
             }
             //这是我自己添加的代码
             LOG.info("FOLLOWER接收到了心跳消息！");
@@ -1847,7 +1934,7 @@ public class NodeImpl implements Node, RaftServerService {
                 final RpcRequests.AppendEntriesResponse.Builder respBuilder = RpcRequests.AppendEntriesResponse.newBuilder()
                         .setSuccess(true)
                         .setTerm(this.currTerm)
-                        .setLastLogIndex(this.logManager.getLastLogIndex());
+                        .setLastLogIndex(getFollowerLastLogIndex());
                 doUnlock = false;
                 this.writeLock.unlock();
                 //在这里把跟随者节点要提交的最后一条日志索引赋值
@@ -1875,10 +1962,26 @@ public class NodeImpl implements Node, RaftServerService {
             ByteBuffer allData = null;
             //把日志从请求中取出来，然后全部交给allData对象
             if (request.hasData()) {
-                allData = request.getData().asReadOnlyByteBuffer();
+                //这里直接拿到请求中存放日志数据的字节数组，不会复制数据，后面每条日志的数据都是这个字节数组的切片
+                //切片引用着这个字节数组，所以在日志落盘，并且从内存缓存中移除之前，这个字节数组都不会被回收
+                allData = ByteBuffer.wrap(ZeroByteStringHelper.getByteArray(request.getData()));
+                //领导者压缩了这批日志的数据，这里要先解压
+                if (request.getCompressType() != CompressType.NONE.getNumber()) {
+                    allData = decompressEntriesData(request, allData);
+                    if (allData == null) {
+                        return RpcFactoryHelper
+                                .responseFactory()
+                                .newResponse(RpcRequests.AppendEntriesResponse.getDefaultInstance(), RaftError.EINVAL,
+                                        "Fail to decompress entries data, compressType=%d", request.getCompressType());
+                    }
+                }
             }
             //获取这一次发送过来的这批日志的元数据的集合，这个应该还有印象吧
             final List<RaftOutter.EntryMeta> entriesList = request.getEntriesList();
+            //这批日志中最后一条data是allData切片的日志
+            LogEntry lastSliced = null;
+            //这批日志切片的总字节数
+            long slicedBytes = 0;
             //下面就是具体从请求中解析出每一条日志的逻辑
             for (int i = 0; i < entriesCount; i++) {
                 //这里就得到了要解析的日志的每一条索引，index本来是领导者传递过来的前一条日志的索引
@@ -1909,16 +2012,30 @@ public class NodeImpl implements Node, RaftServerService {
                     }
                     //把解析出来的日志条目放到日志条目集合中
                     entries.add(logEntry);
+                    if (entry.getDataLen() > 0) {
+                        lastSliced = logEntry;
+                        slicedBytes += entry.getDataLen();
+                    }
                 }
             }
+            //只要这批日志中还有一条留在日志管理器的内存缓存中，allData的整个字节数组就不会被回收
+            //每条切片日志记的是自己切片的长度，数组中不属于任何切片的字节，比如请求中其他字段的字节，记在最后一条切片日志上
+            //这样这批日志记的字节数加起来就是整个数组的大小，缓存淘汰一部分日志的时候统计的字节数也只减少这部分日志的切片长度
+            if (lastSliced != null) {
+                lastSliced.setRetainedBytes((int) (lastSliced.getRetainedBytes() + allData.capacity() - slicedBytes));
+            }
             //接下来就是将日志落盘的具体逻辑了，但是，这里请大家注意一下，现在是跟随者节点要把日志落盘，日志落盘成功后，肯定要向领导者回复落盘成功的消息
             //所谓落盘成功其实就是返回一个true，也就代表着跟随者节点给这条日志投票了，这个逻辑就在下面创建的封装回调方法的对象中实现了
             //当然，还有一个最重要的逻辑，那就是跟随者根据领导者传递过来的committedIndex，也就是已经可以应用到状态机的日志的索引，将对应日志应用到状态机
             //这个逻辑也在FollowerStableClosure封装的回调方法中实现了
             final FollowerStableClosure closure = new FollowerStableClosure(request, RpcRequests.AppendEntriesResponse.newBuilder()
                     .setTerm(this.currTerm), this, done, this.currTerm);
-            //在这里把存放了日志条目的集合交给日志管理器去落盘了
-            this.logManager.appendEntries(entries, closure);
+            //在这里把存放了日志条目的集合交给日志管理器去落盘了，开启了请求合并的话，先交给合并器和前后的请求合并成一批
+            if (this.appendCoalescer != null) {
+                this.appendCoalescer.append(prevLogIndex, entries, closure, this.currTerm);
+            } else {
+                this.logManager.appendEntries(entries, closure);
+            }
             //这行代码暂且注释掉，没有配置变更
             //checkAndSetConfiguration(true);
             //操作成功
@@ -1949,6 +2066,45 @@ public class NodeImpl implements Node, RaftServerService {
     }
 
 
+    //得到跟随者的最后一条日志索引，开启了请求合并的话，包括还在合并器中等待落盘的日志
+    private long getFollowerLastLogIndex() {
+        return this.appendCoalescer != null ? this.appendCoalescer.getLastLogIndex()
+                : this.logManager.getLastLogIndex();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：解压领导者发送过来的日志数据，原始数据的长度就是每条日志元信息中数据长度的总和，压缩类型未知或者数据损坏就返回null
+     */
+    private ByteBuffer decompressEntriesData(final RpcRequests.AppendEntriesRequest request, final ByteBuffer data) {
+        final CompressType compressType = CompressType.forNumber(request.getCompressType());
+        if (compressType == null || compressType == CompressType.NONE) {
+            LOG.error("Node {} received AppendEntriesRequest with unknown compress type {}.", getNodeId(),
+                request.getCompressType());
+            return null;
+        }
+        long rawLen = 0;
+        for (final RaftOutter.EntryMeta meta : request.getEntriesList()) {
+            rawLen += meta.getDataLen();
+        }
+        if (rawLen > Integer.MAX_VALUE) {
+            LOG.error("Node {} received AppendEntriesRequest with too large data, rawLen={}.", getNodeId(), rawLen);
+            return null;
+        }
+        final long startNs = System.nanoTime();
+        try {
+            return compressType.getCompressor().decompress(data, (int) rawLen);
+        } catch (final IllegalArgumentException e) {
+            LOG.error("Node {} fail to decompress entries data, compressType={}, rawLen={}.", getNodeId(),
+                compressType, rawLen, e);
+            return null;
+        } finally {
+            this.metrics.recordSize("handle-append-entries-decompress-cpu-us", (System.nanoTime() - startNs) / 1000);
+        }
+    }
+
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -1972,12 +2128,21 @@ public class NodeImpl implements Node, RaftServerService {
             final long dataLen = entry.getDataLen();
             //如果字节长度大于0
             if (dataLen > 0) {
-                //从allData中获得真正的日志有效信息
-                final byte[] bs = new byte[(int) dataLen];
                 assert allData != null;
-                allData.get(bs, 0, bs.length);
+                if (allData.remaining() < dataLen) {
+                    throw new IllegalStateException(String.format(
+                        "Invalid entries data, index=%d, dataLen=%d, remaining=%d", index, dataLen,
+                        allData.remaining()));
+                }
+                //从allData中切出这条日志的有效信息，切片和allData共享同一个字节数组，不需要为每条日志分配内存和复制数据
+                //字节数组属于protobuf的请求对象，所以这里给出的是只读切片。每条日志先记自己切片的长度，数组剩下的字节由调用者记在最后一条切片日志上
+                final ByteBuffer slice = allData.slice();
+                BufferUtils.limit(slice, (int) dataLen);
+                final ByteBuffer data = slice.asReadOnlyBuffer();
+                BufferUtils.position(allData, allData.position() + (int) dataLen);
+                logEntry.setRetainedBytes((int) dataLen);
                 //把日志有效信息，也就是真正的业务执行设置到日志条目对象中
-                logEntry.setData(ByteBuffer.wrap(bs));
+                logEntry.setData(data);
             }//接下来就是判断有没有集群节点信息了
             if (entry.getPeersCount() > 0) {
                 //如果有集群节点信息，那就判断日志类型是不是配置变更类型
@@ -2383,31 +2548,30 @@ public class NodeImpl implements Node, RaftServerService {
     @Override
     public void apply(final Task task) {
         Requires.requireNonNull(task, "Null task");
-        //创建日志对象
-        final LogEntry entry = new LogEntry();
-        //把业务层传来的指令包装成一个日志条目，到这里一个业务指令就变成一条日志了
-        //只不过现在的日志还没有索引，任期等等
-        entry.setData(task.getData());
-        //创建一个Disruptor框架的生产者需要使用的数据传输器，这个数据传输器的作用就是把日志条目对象
-        //存放到LogEntryAndClosure对象中，而LogEntryAndClosure对象就会放到环形数组中
-        final EventTranslator<LogEntryAndClosure> translator = (event, sequence) -> {
-            event.reset();
-            event.done = task.getDone();
-            event.entry = entry;
-            event.expectedTerm = task.getExpectedTerm();
-        };
+        //复制日志占用的内存超过预算了，说明有跟随者跟不上，直接拒绝新的业务请求，不让日志继续堆积在内存中
+        if (this.replicationMemoryBudget != null && this.replicationMemoryBudget.isExceeded()) {
+            final String errorMsg = "Node is busy, replication memory budget exceeded: " + this.replicationMemoryBudget;
+            this.replicationMemoryBudget.onRejected();
+            this.metrics.recordTimes("apply-task-memory-overload-times", 1);
+            if (task.getDone() == null) {
+                throw new OverloadException(errorMsg);
+            }
+            ThreadPoolsFactory.runClosureInThread(this.groupId, task.getDone(), new Status(RaftError.EBUSY, errorMsg));
+            return;
+        }
         //默认提交日志到Disruptor框架中是采用非阻塞模式
+        //数据传输器TASK_TRANSLATOR的作用就是把业务层传来的指令包装成一个日志条目，然后和回调一起存放到环形数组的LogEntryAndClosure对象中
         switch(this.options.getApplyTaskMode()) {
             case Blocking:
                 //这里阻塞的意思是，消费速度跟不上生产者速度时，当前发布生产者数据的线程就直接阻塞了
                 //知道发不成功才结束阻塞
-                this.applyQueue.publishEvent(translator);
+                this.applyQueue.publishEvent(TASK_TRANSLATOR, task);
                 break;
             case NonBlocking:
             default:
                 //这里非阻塞的意思是，当消费速度跟不上生产速度时，尝试向队列中发布生产者数据
                 //如果发布不成功，就直接回复给客户端当前节点非常忙碌，并没有让线程阻塞
-                if (!this.applyQueue.tryPublishEvent(translator)) {
+                if (!this.applyQueue.tryPublishEvent(TASK_TRANSLATOR, task)) {
                     String errorMsg = "Node is busy, has too many tasks, queue is full and bufferSize="+ this.applyQueue.getBufferSize();
                     ThreadPoolsFactory.runClosureInThread(this.groupId, task.getDone(),
                             new Status(RaftError.EBUSY, errorMsg));
@@ -2421,6 +2585,81 @@ public class NodeImpl implements Node, RaftServerService {
         }
     }
 
+    @Override
+    public void apply(final List<Task> tasks) {
+        Requires.requireNonNull(tasks, "Null tasks");
+        applyBatch(tasks.toArray(new Task[0]));
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：批量提交业务指令，一次从环形数组中申请一段连续的位置，然后用同一个数据传输器把所有指令都放到环形数组中
+     * 逐条调用apply方法的时候，每条指令都要申请一次环形数组的位置，还要创建一个数据传输器对象，同一个连接上的一批请求可以直接用这个方法提交
+     * 非阻塞模式下，环形数组剩余的位置不够放下所有指令的时候，所有指令都会被拒绝，要么全部提交成功，要么全部回复EBUSY
+     * 一批指令的数量不能超过环形数组的容量
+     */
+    @Override
+    public void applyBatch(final Task[] tasks) {
+        Requires.requireNonNull(tasks, "Null tasks");
+        if (tasks.length == 0) {
+            return;
+        }
+        for (final Task task : tasks) {
+            Requires.requireNonNull(task, "Null task");
+        }
+        Requires.requireTrue(tasks.length <= this.applyQueue.getBufferSize(),
+            "Too many tasks in one batch: %d, bufferSize=%d", tasks.length, this.applyQueue.getBufferSize());
+        if (this.replicationMemoryBudget != null && this.replicationMemoryBudget.isExceeded()) {
+            this.replicationMemoryBudget.onRejected();
+            this.metrics.recordTimes("apply-task-memory-overload-times", tasks.length);
+            rejectTasks(tasks, "Node is busy, replication memory budget exceeded: " + this.replicationMemoryBudget);
+            return;
+        }
+        switch(this.options.getApplyTaskMode()) {
+            case Blocking:
+                this.applyQueue.publishEvents(TASK_TRANSLATOR, tasks);
+                break;
+            case NonBlocking:
+            default:
+                //tryPublishEvents要么申请到所有需要的位置，要么一个位置也不申请
+                if (!this.applyQueue.tryPublishEvents(TASK_TRANSLATOR, tasks)) {
+                    LOG.warn("Node {} applyQueue is overload.", getNodeId());
+                    this.metrics.recordTimes("apply-task-overload-times", tasks.length);
+                    rejectTasks(tasks, "Node is busy, has too many tasks, queue is full and bufferSize="
+                                       + this.applyQueue.getBufferSize());
+                }
+                break;
+        }
+    }
+
+    //一批指令全部回复EBUSY，所有回调放到一个任务中执行，有指令没有回调的时候和apply方法一样抛出OverloadException
+    private void rejectTasks(final Task[] tasks, final String errorMsg) {
+        final Status status = new Status(RaftError.EBUSY, errorMsg);
+        boolean hasNullDone = false;
+        for (final Task task : tasks) {
+            if (task.getDone() == null) {
+                hasNullDone = true;
+                break;
+            }
+        }
+        ThreadPoolsFactory.runInThread(this.groupId, () -> {
+            for (final Task task : tasks) {
+                if (task.getDone() != null) {
+                    try {
+                        task.getDone().run(status);
+                    } catch (final Throwable t) {
+                        LOG.error("Fail to run done closure.", t);
+                    }
+                }
+            }
+        });
+        if (hasNullDone) {
+            throw new OverloadException(errorMsg);
+        }
+    }
+
 
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
@@ -2430,82 +2669,120 @@ public class NodeImpl implements Node, RaftServerService {
      */
     private void executeApplyingTasks(final List<LogEntryAndClosure> tasks) {
         //虽然该方法是在批处理器中执行的，批处理器就是一个线程，不会有并发问题
-        //但是在整个集群中，除了当前的线程，可能还会有日志快照线程，日志传输线程
-        //同时访问日志组件，对日志组件中的某些属性进行修改，所以，这里要直接获得写锁
-        this.writeLock.lock();
-        try {//这个tasks集合中存放着32个LogEntryAndClosure对象
-            //每个LogEntryAndClosure对象中存放着一个logEntry对象
-            final int size = tasks.size();
-            //判断当前节点是不是领导者，如果不是领导者不能处理日志
-            if (this.state != State.STATE_LEADER) {
-                final Status st = new Status();
-                if (this.state != State.STATE_TRANSFERRING) {
-                    st.setError(RaftError.EPERM, "Is not leader.");
-                } else {
-                    st.setError(RaftError.EBUSY, "Is transferring leadership.");
+        //但是在整个集群中，除了当前的线程，可能还会有日志快照线程，日志传输线程，处理投票请求的线程同时访问节点的状态
+        //之前这里整个方法都持有写锁，投票请求，isLeader这些操作都要等待这批日志处理完，现在分成三步执行
+        //第一步在读锁中记录当前节点的状态和任期，第二步在锁外设置日志的任期和类型，第三步在读锁中检查任期没有变化，然后把日志交给投票箱和日志管理器
+        //节点的状态，任期和配置只有在持有写锁的时候才会被修改，所以第三步持有读锁的时候，这些值和检查的时候是一样的，日志不会以旧的任期写入
+        //这个tasks集合中存放着32个LogEntryAndClosure对象，每个LogEntryAndClosure对象中存放着一个logEntry对象
+        final int size = tasks.size();
+        final State state;
+        final long term;
+        this.readLock.lock();
+        try {
+            state = this.state;
+            term = this.currTerm;
+        } finally {
+            this.readLock.unlock();
+        }
+        //判断当前节点是不是领导者，如果不是领导者不能处理日志
+        if (state != State.STATE_LEADER) {
+            //这个就是获得每一个LogEntryAndClosure对象中包装每一个Task中的回调方法
+            //这个回调方法是用来通知业务层日志处理是否成功的，这个回调方法会在日志被顺利提交之后才会被回调
+            final List<Closure> dones = tasks.stream().map(ele -> ele.done)
+                    .filter(Objects::nonNull).collect(Collectors.toList());
+            //回调每一个方法，通知业务层日志处理失败，其实也就是指令操作失败，因为访问的节点已经不是领导者了
+            failApplyingTasks(dones, notLeaderStatus(state));
+            return;
+        }//在这里创建的这个集合专门存放每一条日志
+        final List<LogEntry> entries = new ArrayList<>(size);
+        //日志对应的回调方法，和entries中的日志一一对应
+        final List<Closure> dones = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            //获得每一个包装日志的对象
+            final LogEntryAndClosure task = tasks.get(i);
+            //当领导者在处理日志的时候，这个时候刚初始化好的日志对象中的任期是-1，这个是在Task创建的时候初始化好的
+            //这时候expectedTerm肯定等于-1，并且不等于当前节点的任期
+            //expectedTerm的值不等于-1，就报错
+            if (task.expectedTerm != -1 && task.expectedTerm != term) {
+                LOG.debug("Node {} can't apply task whose expectedTerm={} doesn't match currTerm={}.", getNodeId(),
+                        task.expectedTerm, term);
+                if (task.done != null) {
+                    //执行回调方法，通知业务层操作失败了
+                    final Status st = new Status(RaftError.EPERM, "expected_term=%d doesn't match current_term=%d",
+                            task.expectedTerm, term);
+                    //在这里执行回调方法
+                    ThreadPoolsFactory.runClosureInThread(this.groupId, task.done, st);
+                    task.reset();
                 }
-                LOG.debug("Node {} can't apply, status={}.", getNodeId(), st);
-                //这个就是获得每一个LogEntryAndClosure对象中包装每一个Task中的回调方法
-                //这个回调方法是用来通知业务层日志处理是否成功的，这个回调方法会在日志被顺利提交之后才会被回调
-                //具体逻辑会在第5版本实现
-                final List<Closure> dones = tasks.stream().map(ele -> ele.done)
-                        .filter(Objects::nonNull).collect(Collectors.toList());
-                //回调每一个方法，通知业务层日志处理失败，其实也就是指令操作失败，因为访问的节点已经不是领导者了
-                ThreadPoolsFactory.runInThread(this.groupId, () -> {
-                    for (final Closure done : dones) {
-                        done.run(st);
-                    }
-                });
+                continue;
+            }
+            //为每一个日志条目设置任期
+            task.entry.getId().setTerm(term);
+            //设置日志条目类型，从这个方法中设置设置的日志条目对象都是业务日志
+            task.entry.setType(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+            //得到了每一条日志，并且把日志添加到集合中
+            entries.add(task.entry);
+            dones.add(task.done);
+            //这里也是为了循环利用Event
+            task.reset();
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        this.readLock.lock();
+        try {
+            //第一步之后节点下台或者任期变了，这批日志就不能再写入了
+            if (this.state != State.STATE_LEADER || this.currTerm != term) {
+                LOG.debug("Node {} can't apply tasks of term {}, state={}, currTerm={}.", getNodeId(), term,
+                        this.state, this.currTerm);
+                failApplyingTasks(dones, this.state == State.STATE_LEADER ? new Status(RaftError.EPERM,
+                        "Term changed from %d to %d.", term, this.currTerm) : notLeaderStatus(this.state));
                 return;
-            }//在这里创建的这个集合专门存放每一条日志
-            final List<LogEntry> entries = new ArrayList<>(size);
-            for (int i = 0; i < size; i++) {
-                //获得每一个包装日志的对象
-                final LogEntryAndClosure task = tasks.get(i);
-                //当领导者在处理日志的时候，这个时候刚初始化好的日志对象中的任期是-1，这个是在Task创建的时候初始化好的
-                //这时候expectedTerm肯定等于-1，并且不等于当前节点的任期
-                //expectedTerm的值不等于-1，就报错
-                if (task.expectedTerm != -1 && task.expectedTerm != this.currTerm) {
-                    LOG.debug("Node {} can't apply task whose expectedTerm={} doesn't match currTerm={}.", getNodeId(),
-                            task.expectedTerm, this.currTerm);
-                    if (task.done != null) {
-                        //执行回调方法，通知业务层操作失败了
-                        final Status st = new Status(RaftError.EPERM, "expected_term=%d doesn't match current_term=%d",
-                                task.expectedTerm, this.currTerm);
-                        //在这里执行回调方法
-                        ThreadPoolsFactory.runClosureInThread(this.groupId, task.done, st);
-                        task.reset();
-                    }
-                    continue;
-                } //下面这段代码是为每一个日志条目对象创建了Ballot对象，并且把每一个日志条目对应的回调方法放到了
-                //投票箱的回调队列中，投票箱使用的回调队列，实际上就是状态机组件持有的回调队列，这个要搞清楚
-                if (!this.ballotBox.appendPendingTask(this.conf.getConf(),
-                        this.conf.isStable() ? null : this.conf.getOldConf(), task.done)) {
-                    //如果没有创建成功成功，则直接通知业务层操作失败
-                    ThreadPoolsFactory.runClosureInThread(this.groupId, task.done, new Status(RaftError.EINTERNAL, "Fail to append task."));
-                    task.reset();
-                    continue;
+            }
+            final Configuration conf = this.conf.getConf();
+            final Configuration oldConf = this.conf.isStable() ? null : this.conf.getOldConf();
+            for (int i = 0; i < entries.size(); i++) {
+                //把每一条日志对应的回调方法放到投票箱的回调队列中，投票箱使用的回调队列，实际上就是状态机组件持有的回调队列，这个要搞清楚
+                if (!this.ballotBox.appendPendingTask(conf, oldConf, dones.get(i))) {
+                    //如果没有创建成功成功，则直接通知业务层操作失败，这条日志也不再写入
+                    ThreadPoolsFactory.runClosureInThread(this.groupId, dones.get(i), new Status(RaftError.EINTERNAL, "Fail to append task."));
+                    entries.remove(i);
+                    dones.remove(i);
+                    i--;
                 }
-                //为每一个日志条目设置任期
-                task.entry.getId().setTerm(this.currTerm);
-                //设置日志条目类型，从这个方法中设置设置的日志条目对象都是业务日志
-                task.entry.setType(EnumOutter.EntryType.ENTRY_TYPE_DATA);
-                //得到了每一条日志，并且把日志添加到集合中
-                entries.add(task.entry);
-                //这里也是为了循环利用Event
-                task.reset();
-            }//将设置好的日志交给日志管理器处理，在日志管理器中，这些日志将会被设置任期，然后进行落盘的操作
+            }
+            //将设置好的日志交给日志管理器处理，在日志管理器中，这些日志将会被设置索引，然后进行落盘的操作
             //这里的回调是当日志落盘成功后，直接判断是否可以在领导者提交了，这里判断提交的条件是看看每一条日志是否
-            //得到了集群中过半节点的投票，第三版本还不用关心这个回调函数
-            //因为我们还没有引入状态机，也没有引入日志传输的功能
+            //得到了集群中过半节点的投票
             this.logManager.appendEntries(entries, new LeaderStableClosure(entries));
-            //更新配置信息，暂时先注释掉
-            //checkAndSetConfiguration(true);
         } finally {
-            this.writeLock.unlock();
+            this.readLock.unlock();
         }
     }
 
+    //节点不是领导者的时候回复的状态，正在转移领导权的时候回复EBUSY，其他情况回复EPERM
+    private static Status notLeaderStatus(final State state) {
+        final Status st = new Status();
+        if (state != State.STATE_TRANSFERRING) {
+            st.setError(RaftError.EPERM, "Is not leader.");
+        } else {
+            st.setError(RaftError.EBUSY, "Is transferring leadership.");
+        }
+        return st;
+    }
+
+    //一批日志的回调方法全部回复失败
+    private void failApplyingTasks(final List<Closure> dones, final Status st) {
+        LOG.debug("Node {} can't apply, status={}.", getNodeId(), st);
+        ThreadPoolsFactory.runInThread(this.groupId, () -> {
+            for (final Closure done : dones) {
+                if (done != null) {
+                    done.run(st);
+                }
+            }
+        });
+    }
+
 
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
@@ -2632,6 +2909,43 @@ public class NodeImpl implements Node, RaftServerService {
         return this.serviceFactory;
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：在本地日志中找到指定任期的第一条日志索引，index是已知任期为term的一条日志。日志的任期是随着索引递增的，所以这里可以使用二分查找
+     * 只需要读取对数次日志的任期，不用从index开始一条一条往前找
+     */
+    static long findFirstIndexOfTerm(final LogManager logManager, final long term, final long index) {
+        long lo = logManager.getFirstLogIndex();
+        long hi = index;
+        while (lo < hi) {
+            final long mid = lo + ((hi - lo) >>> 1);
+            if (logManager.getTerm(mid) < term) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+
+    public ReplicationBatchCache getReplicationBatchCache() {
+        return this.replicationBatchCache;
+    }
+
+    public ReplicationMemoryBudget getReplicationMemoryBudget() {
+        return this.replicationMemoryBudget;
+    }
+
+    public LearnerReplicationThrottle getLearnerReplicationThrottle() {
+        return this.learnerReplicationThrottle;
+    }
+
+    public ReplicationRelay getReplicationRelay() {
+        return this.replicationRelay;
+    }
+
     @Override
     public RaftOptions getRaftOptions() {
         return this.raftOptions;
@@ -3151,6 +3465,12 @@ public class NodeImpl implements Node, RaftServerService {
                 //关闭线性一致读读服务组件
                 if (this.readOnlyService != null) {
                     this.readOnlyService.shutdown();
+                }//等待转发的中继请求全部回复失败
+                if (this.replicationRelay != null) {
+                    this.replicationRelay.shutdown();
+                }//把合并器中还没有落盘的日志交给日志管理器
+                if (this.appendCoalescer != null) {
+                    this.appendCoalescer.flush();
                 }//关闭日志管理器组件
                 if (this.logManager != null) {
                     this.logManager.shutdown();
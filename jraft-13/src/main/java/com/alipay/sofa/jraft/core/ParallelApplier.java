@@ -0,0 +1,304 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.ApplyPartitioner;
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.StateMachine;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import com.alipay.sofa.jraft.util.Utils;
+import com.alipay.sofa.jraft.util.concurrent.DefaultFixedThreadsExecutorGroupFactory;
+import com.alipay.sofa.jraft.util.concurrent.FixedThreadsExecutorGroup;
+import com.alipay.sofa.jraft.util.concurrent.SingleThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：并行应用日志的组件，开启并行应用之后状态机组件用它代替doApplyTasks方法
+ * 之前所有业务日志都在状态机线程中按顺序交给状态机的onApply方法，日志应用的速度最多只能用满一个CPU
+ * 现在状态机线程把一段连续的业务日志按照分区器计算出来的冲突键分配到多个通道中，通道内的日志按照索引的顺序应用，不同通道的日志同时应用
+ * 每一轮分配的日志条数和字节数和IteratorImpl预读日志的上限一样，积压了很多已提交日志的时候分多轮应用，不会把所有日志都放到通道中
+ * 通道的执行器来自整个进程共享的执行器组，线程数量是固定的，不会随着复制组数量的增加而增加
+ * 所有通道都应用完这段日志之后，状态机线程才会继续处理后面的日志，所以配置变更日志和快照都相当于屏障，执行的时候之前的日志一定都应用完了
+ * 最后应用的日志索引也是在所有通道都应用完之后才更新的。某个通道出错之后，其他通道也会尽快停止，最小的没有应用的日志之后的日志都当作没有应用
+ * 通道中的迭代器不支持commit和commitAndSnapshotSync方法，因为其他通道可能还没有应用到这条日志
+ */
+class ParallelApplier {
+
+    private static final Logger LOG                  = LoggerFactory.getLogger(ParallelApplier.class);
+
+    //每个执行器最多堆积的任务数量，每一段日志每个通道只会提交一个任务
+    private static final int    MAX_PENDING_TASKS    = 1024;
+
+    //所有复制组的并行应用通道共享的执行器组，第一次开启并行应用的时候才创建
+    private static class LaneExecutorsHolder {
+        static final FixedThreadsExecutorGroup EXECUTORS = DefaultFixedThreadsExecutorGroupFactory.INSTANCE
+                                                             .newExecutorGroup(Utils.FSM_APPLY_LANE_THREADS,
+                                                                 "JRaft-FSM-Apply-Lane-", MAX_PENDING_TASKS, true);
+    }
+
+    private final String        groupId;
+    private final StateMachine  fsm;
+    private final ApplyPartitioner partitioner;
+    private final NodeMetrics   nodeMetrics;
+    private final Lane[]        lanes;
+    //有通道出错之后设置为true，其他通道看到之后就不再应用新的日志
+    private volatile boolean    stopped;
+
+    ParallelApplier(final String groupId, final StateMachine fsm, final ApplyPartitioner partitioner,
+                    final int laneCount, final NodeMetrics nodeMetrics) {
+        Requires.requireTrue(laneCount > 1, "laneCount must be greater than 1");
+        this.groupId = groupId;
+        this.fsm = fsm;
+        this.partitioner = Requires.requireNonNull(partitioner, "applyPartitioner");
+        this.nodeMetrics = nodeMetrics;
+        this.lanes = new Lane[laneCount];
+        //连续从执行器组中取出执行器，通道数量不超过线程数量的时候同一个复制组的通道使用不同的线程
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new Lane(LaneExecutorsHolder.EXECUTORS.next());
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：并行应用从迭代器当前位置开始的一段连续的业务日志，这个方法在状态机线程中调用，所有通道都应用完之后才会返回
+     * 一轮最多分配MAX_PREFETCH_ENTRIES条日志，日志数据最多MAX_PREFETCH_BYTES字节，剩下的日志由状态机线程再次调用这个方法应用
+     * 返回之后迭代器指向这一轮日志后面的第一条日志，有通道出错的时候迭代器指向最小的没有应用的日志，并且设置了错误
+     */
+    void apply(final IteratorImpl iterImpl) {
+        final long startApplyMs = Utils.monotonicMs();
+        final long startIndex = iterImpl.getIndex();
+        //把连续的业务日志按照冲突键分配到各个通道中，遇到不是业务日志的日志或者达到这一轮的上限就停下
+        int count = 0;
+        long bytes = 0;
+        while (iterImpl.isGood() && iterImpl.entry().getType() == EnumOutter.EntryType.ENTRY_TYPE_DATA
+               && count < IteratorImpl.MAX_PREFETCH_ENTRIES && bytes < IteratorImpl.MAX_PREFETCH_BYTES) {
+            final LogEntry entry = iterImpl.entry();
+            final ByteBuffer data = entry.getData();
+            this.lanes[laneOf(data)].add(entry, iterImpl.done());
+            count++;
+            bytes += data == null ? 0 : data.remaining();
+            iterImpl.next();
+        }
+        try {
+            runLanes();
+            collectResult(iterImpl);
+        } finally {
+            for (final Lane lane : this.lanes) {
+                lane.reset();
+            }
+            this.stopped = false;
+            this.nodeMetrics.recordLatency("fsm-apply-tasks", Utils.monotonicMs() - startApplyMs);
+            this.nodeMetrics.recordSize("fsm-apply-tasks-count", iterImpl.getIndex() - startIndex);
+        }
+    }
+
+    //计算日志属于哪个通道，分区器不能修改data的position，这里还是在调用之后恢复一下，避免状态机读到错误的数据
+    private int laneOf(final ByteBuffer data) {
+        if (data == null) {
+            return 0;
+        }
+        final int position = data.position();
+        final int key = this.partitioner.partition(data);
+        data.position(position);
+        return Math.floorMod(key, this.lanes.length);
+    }
+
+    //有日志的通道中，最后一个在状态机线程中直接执行，其他的交给自己的线程执行，然后等待所有通道执行完
+    private void runLanes() {
+        Lane inline = null;
+        int submitted = 0;
+        for (final Lane lane : this.lanes) {
+            if (lane.size() > 0) {
+                if (inline != null) {
+                    submitted++;
+                }
+                inline = lane;
+            }
+        }
+        if (inline == null) {
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(submitted);
+        for (final Lane lane : this.lanes) {
+            if (lane.size() > 0 && lane != inline) {
+                lane.executor.execute(() -> {
+                    try {
+                        lane.run();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        inline.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //所有通道执行完之后检查结果，有没有应用的日志，就找出索引最小的那一条，从这一条开始的日志都当作没有应用
+    //这条日志之后已经被其他通道应用的日志，它们的回调已经被状态机执行了，要从回调列表中删除，避免再回复一次错误
+    private void collectResult(final IteratorImpl iterImpl) {
+        Status error = null;
+        long firstUnapplied = Long.MAX_VALUE;
+        for (final Lane lane : this.lanes) {
+            if (lane.error != null && error == null) {
+                error = lane.error;
+            }
+            if (lane.pos < lane.size()) {
+                firstUnapplied = Math.min(firstUnapplied, lane.indexAt(lane.pos));
+            }
+        }
+        if (firstUnapplied == Long.MAX_VALUE) {
+            return;
+        }
+        for (final Lane lane : this.lanes) {
+            for (int i = 0; i < lane.pos; i++) {
+                final long index = lane.indexAt(i);
+                if (index >= firstUnapplied) {
+                    iterImpl.clearClosure(index);
+                }
+            }
+        }
+        LOG.error("Node {} parallel apply stopped at index={}, status={}.", this.groupId, firstUnapplied, error);
+        iterImpl.setErrorAt(firstUnapplied, error);
+    }
+
+    //一个通道，同一个冲突键的日志都在同一个通道中，按照日志索引的顺序应用，这个类本身也是交给状态机的迭代器
+    private class Lane implements Iterator {
+
+        final SingleThreadExecutor     executor;
+        private final List<LogEntry>   entries = new ArrayList<>();
+        private final List<Closure>    dones   = new ArrayList<>();
+        //当前日志在entries中的位置，执行完之后pos之前的日志都已经应用了
+        int                            pos;
+        Status                         error;
+
+        Lane(final SingleThreadExecutor executor) {
+            this.executor = executor;
+        }
+
+        void add(final LogEntry entry, final Closure done) {
+            this.entries.add(entry);
+            this.dones.add(done);
+        }
+
+        int size() {
+            return this.entries.size();
+        }
+
+        long indexAt(final int i) {
+            return this.entries.get(i).getId().getIndex();
+        }
+
+        void reset() {
+            this.entries.clear();
+            this.dones.clear();
+            this.pos = 0;
+            this.error = null;
+        }
+
+        //把这个通道的日志交给状态机，和doApplyTasks方法一样，状态机提前返回的时候记录错误日志，跳过当前日志继续应用
+        void run() {
+            try {
+                while (hasNext()) {
+                    ParallelApplier.this.fsm.onApply(this);
+                    if (hasNext()) {
+                        LOG.error("Iterator is still valid, did you return before iterator reached the end?");
+                        next();
+                    }
+                }
+            } catch (final Throwable t) {
+                LOG.error("StateMachine meet error when applying log at index={}.", getIndex(), t);
+                setErrorAndRollback(1, new Status(RaftError.ESTATEMACHINE, "StateMachine throws: %s", t.getMessage()));
+            }
+        }
+
+        private boolean isValid() {
+            return this.pos < this.entries.size() && this.error == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return isValid() && !ParallelApplier.this.stopped;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            final ByteBuffer data = getData();
+            if (isValid()) {
+                this.pos++;
+            }
+            return data;
+        }
+
+        @Override
+        public ByteBuffer getData() {
+            return this.pos < this.entries.size() ? this.entries.get(this.pos).getData() : null;
+        }
+
+        @Override
+        public long getIndex() {
+            if (this.pos < this.entries.size()) {
+                return indexAt(this.pos);
+            }
+            return this.entries.isEmpty() ? 0 : indexAt(this.entries.size() - 1) + 1;
+        }
+
+        @Override
+        public long getTerm() {
+            return this.entries.get(this.pos).getId().getTerm();
+        }
+
+        @Override
+        public Closure done() {
+            return this.pos < this.dones.size() ? this.dones.get(this.pos) : null;
+        }
+
+        //其他通道可能还没有应用到这条日志，不能单独推进最后应用的日志索引
+        @Override
+        public boolean commit() {
+            return false;
+        }
+
+        @Override
+        public void commitAndSnapshotSync(final Closure done) {
+            ThreadPoolsFactory.runClosureInThread(ParallelApplier.this.groupId, done, new Status(RaftError.EINVAL,
+                "commitAndSnapshotSync is not supported in parallel apply mode."));
+        }
+
+        //和IteratorImpl一样，当前日志还有效的时候当前日志也算在ntail中
+        @Override
+        public void setErrorAndRollback(final long ntail, final Status st) {
+            Requires.requireTrue(ntail > 0, "Invalid ntail=" + ntail);
+            final long rollback = this.pos < this.entries.size() ? ntail - 1 : ntail;
+            this.pos = (int) Math.max(0, this.pos - rollback);
+            this.error = st != null ? st : new Status(RaftError.ESTATEMACHINE, "none");
+            ParallelApplier.this.stopped = true;
+        }
+    }
+}
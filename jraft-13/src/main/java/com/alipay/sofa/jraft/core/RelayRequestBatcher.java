@@ -0,0 +1,229 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.error.RemotingException;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.rpc.impl.FutureImpl;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.google.protobuf.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：中继请求合并器，整个进程共享一个对象。领导者发给同一个中继节点的日志复制请求，不管属于哪个复制组，发给哪个目标跟随者，都会合并到一个RelayAppendEntriesRequest中发送
+ * 每个中继节点一个发送通道，复制器提交请求的时候，如果通道中没有线程正在发送，提交请求的线程就负责发送，它把通道中排队的请求一次性取出来放到一个批量请求中
+ * 发送的时候其他复制器提交的请求会继续排队，发送完之后再把这些请求放到下一个批量请求中，所以不需要等待凑批次，也就不会增加请求的延迟
+ * 同一个通道同一时刻只有一个线程在发送，批量请求是按照请求提交的顺序发送的，中继节点处理批量请求也是按照顺序处理的，所以每个目标跟随者收到请求的顺序和复制器发送的顺序一样
+ * 收到批量响应之后再按照顺序把每个响应交给对应复制器的回调方法，回调方法看到的和中继节点单独回复的响应是一样的
+ */
+public class RelayRequestBatcher {
+
+    private static final Logger                   LOG      = LoggerFactory.getLogger(RelayRequestBatcher.class);
+
+    private static final RelayRequestBatcher      INSTANCE = new RelayRequestBatcher();
+
+    //每个中继节点一个发送通道，key是本地节点和中继节点的地址
+    private final ConcurrentMap<PeerKey, Channel> channels = new ConcurrentHashMap<>();
+
+    public static RelayRequestBatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：提交一个发给中继节点转发的日志复制请求，返回的future和rpcService.appendEntries方法返回的future作用一样，复制器重置的时候可以用来取消请求
+     * 一个批量请求最多包含maxBatch个请求，批量请求的超时时间是这一批请求中最大的超时时间
+     */
+    public Future<Message> submit(final RaftClientService rpcService, final Endpoint local, final Endpoint relay,
+                                  final RpcRequests.AppendEntriesRequest request, final int timeoutMs,
+                                  final int maxBatch, final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+        final Channel channel = this.channels.computeIfAbsent(new PeerKey(local, relay), Channel::new);
+        final Pending pending = new Pending(request, timeoutMs, done);
+        synchronized (channel) {
+            channel.rpcService = rpcService;
+            channel.pendings.add(pending);
+            //已经有线程在发送了，这个请求会被放到它的下一个批量请求中
+            if (channel.sending) {
+                return pending.future;
+            }
+            channel.sending = true;
+        }
+        drain(channel, Math.max(1, maxBatch));
+        return pending.future;
+    }
+
+    //把通道中排队的请求分批发送出去，直到通道中没有请求
+    private void drain(final Channel channel, final int maxBatch) {
+        while (true) {
+            final List<Pending> batch;
+            final RaftClientService rpcService;
+            synchronized (channel) {
+                if (channel.pendings.isEmpty()) {
+                    channel.sending = false;
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(channel.pendings.size(), maxBatch));
+                while (!channel.pendings.isEmpty() && batch.size() < maxBatch) {
+                    batch.add(channel.pendings.poll());
+                }
+                rpcService = channel.rpcService;
+            }
+            send(channel.key.peer, rpcService, batch);
+        }
+    }
+
+    private void send(final Endpoint relay, final RaftClientService rpcService, final List<Pending> batch) {
+        final RpcRequests.RelayAppendEntriesRequest.Builder rb = RpcRequests.RelayAppendEntriesRequest.newBuilder();
+        int timeoutMs = 0;
+        for (final Pending pending : batch) {
+            rb.addRequests(pending.request);
+            timeoutMs = Math.max(timeoutMs, pending.timeoutMs);
+        }
+        try {
+            rpcService.relayAppendEntries(relay, rb.build(), timeoutMs,
+                new RpcResponseClosureAdapter<RpcRequests.RelayAppendEntriesResponse>() {
+
+                    @Override
+                    public void run(final Status status) {
+                        onBatchReturned(batch, status, getResponse());
+                    }
+                });
+        } catch (final Throwable t) {
+            LOG.error("Fail to send relay request to {}.", relay, t);
+            onBatchReturned(batch, new Status(RaftError.EINTERNAL, "Fail to send relay request: %s", t.getMessage()),
+                null);
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：收到批量响应之后，把每个响应交给对应的回调方法。整个批量请求失败的时候，每个请求都按照请求失败处理
+     * 批量响应中某个位置上的响应携带了errorResponse，说明这个请求在中继节点转发失败了，对应的回调方法收到的是失败的状态
+     */
+    private static void onBatchReturned(final List<Pending> batch, final Status status,
+                                        final RpcRequests.RelayAppendEntriesResponse response) {
+        final boolean ok = status.isOk() && response != null && response.getResponsesCount() == batch.size();
+        if (status.isOk() && !ok) {
+            LOG.warn("Invalid relay response, expect {} responses, but got {}.", batch.size(),
+                response == null ? 0 : response.getResponsesCount());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            final Pending pending = batch.get(i);
+            if (!ok) {
+                pending.complete(status.isOk() ? new Status(RaftError.EINTERNAL, "Invalid relay response") : status,
+                    null);
+                continue;
+            }
+            final RpcRequests.AppendEntriesResponse resp = response.getResponses(i);
+            if (resp.hasErrorResponse()) {
+                final RpcRequests.ErrorResponse eResp = resp.getErrorResponse();
+                final Status st = new Status();
+                st.setCode(eResp.getErrorCode());
+                if (eResp.hasErrorMsg()) {
+                    st.setErrorMsg(eResp.getErrorMsg());
+                }
+                pending.complete(st, null);
+            } else {
+                pending.complete(Status.OK(), resp);
+            }
+        }
+    }
+
+    //等待发送的单个日志复制请求
+    private static class Pending {
+        final RpcRequests.AppendEntriesRequest                        request;
+        final int                                                     timeoutMs;
+        final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done;
+        final FutureImpl<Message>                                     future = new FutureImpl<>();
+
+        Pending(final RpcRequests.AppendEntriesRequest request, final int timeoutMs,
+                final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+            this.request = request;
+            this.timeoutMs = timeoutMs;
+            this.done = done;
+        }
+
+        void complete(Status status, final RpcRequests.AppendEntriesResponse response) {
+            //复制器重置的时候会取消请求，这时候和单独发送的请求一样，回调方法收到的是取消的状态
+            if (this.future.isCancelled()) {
+                status = new Status(RaftError.ECANCELED, "RPC request was canceled by future.");
+            }
+            if (this.done != null) {
+                try {
+                    if (status.isOk()) {
+                        this.done.setResponse(response);
+                    }
+                    this.done.run(status);
+                } catch (final Throwable t) {
+                    LOG.error("Fail to run RpcResponseClosure, the request is {}.", this.request, t);
+                }
+            }
+            if (!this.future.isDone()) {
+                if (status.isOk()) {
+                    this.future.setResult(response);
+                } else {
+                    this.future.failure(new RemotingException(status.getErrorMsg()));
+                }
+            }
+        }
+    }
+
+    //发往同一个中继节点的请求通道
+    private static class Channel {
+        final PeerKey             key;
+        final ArrayDeque<Pending> pendings = new ArrayDeque<>();
+        RaftClientService         rpcService;
+        //是否有线程正在发送这个通道中的请求
+        boolean                   sending;
+
+        Channel(final PeerKey key) {
+            this.key = key;
+        }
+    }
+
+    private static class PeerKey {
+        final Endpoint local;
+        final Endpoint peer;
+
+        PeerKey(final Endpoint local, final Endpoint peer) {
+            this.local = local;
+            this.peer = peer;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final PeerKey that = (PeerKey) o;
+            return Objects.equals(this.local, that.local) && Objects.equals(this.peer, that.peer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.local, this.peer);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.entity.RaftOutter;
+import com.alipay.sofa.jraft.util.Recyclable;
+import com.alipay.sofa.jraft.util.RecycleUtil;
+import com.google.protobuf.ByteString;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：领导者所有复制器共享的日志批次缓存。之前每个复制器发送日志的时候，都要自己读取日志，构建元信息，把日志数据复制到自己的ByteBufferCollector中
+ * 5个节点的集群中同一批日志就要处理4次。现在第一个发送某个起始索引的复制器会把构建好的元信息集合和日志数据放到这个缓存中
+ * 其他复制器发送同样起始索引的日志时，直接复用这些不可变的对象，只需要填充请求中的任期，提交索引这些公共字段
+ * 每个批次都有引用计数，缓存本身持有一个引用，每个正在发送的请求也持有一个引用，收到响应后释放
+ * 批次从缓存中淘汰并且所有请求都释放之后，存放日志数据的ByteBufferCollector才会被回收
+ * 批次和任期绑定，因为领导者在同一个任期中不会覆盖自己的日志，但是换了任期之后同样的索引上可能是不同的日志
+ * 批次的日志数据只计入一次复制内存预算，放入缓存的时候计入，引用计数减为0的时候释放，复用批次的复制器不会再重复计入
+ */
+public class ReplicationBatchCache {
+
+    //缓存最多存放的批次数量
+    private final int              capacity;
+    //key是批次的起始索引和日志条数，按照放入的顺序淘汰
+    private final Map<BatchKey, Batch> batches = new LinkedHashMap<>();
+    //节点的复制内存预算，批次的日志数据在放入缓存的时候计入预算
+    private final ReplicationMemoryBudget memoryBudget;
+
+    public ReplicationBatchCache(final int capacity, final ReplicationMemoryBudget memoryBudget) {
+        this.capacity = capacity;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：查找可以复用的批次，找到之后引用计数加1，使用者发送完请求之后要调用批次的recycle方法释放引用
+     * count是使用者这一次想要发送的日志条数，只有条数完全相同的批次才能复用，否则别的复制器在日志还很少的时候构建的小批次
+     * 会让之后的复制器也只发送这么几条日志。除了最后一条日志之外的数据大小也要小于maxBodySize，这和复制器自己构建批次的规则是一样的
+     * 所以复用的批次一定是复制器自己也可能构建出来的批次
+     */
+    public synchronized Batch acquire(final long term, final long startIndex, final int count, final int maxBodySize) {
+        final Batch batch = this.batches.get(new BatchKey(startIndex, count));
+        if (batch == null || batch.term != term || batch.lastEntryOffset >= maxBodySize) {
+            return null;
+        }
+        batch.refCnt++;
+        return batch;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：把复制器刚刚构建好的批次放到缓存中，批次创建的时候引用计数为1，也就是创建它的复制器持有的引用，放入缓存之后缓存再持有一个引用
+     * 如果同样起始索引和日志条数的批次已经存在，就替换掉旧的批次，旧的批次由它的使用者释放
+     * 批次的日志数据在这里计入预算，之后不管有多少个复制器在发送这个批次，都只占用一份预算，引用计数减为0的时候释放
+     */
+    public synchronized void publish(final Batch batch) {
+        batch.refCnt++;
+        if (!batch.charged) {
+            batch.charged = true;
+            this.memoryBudget.acquire(batch.size());
+        }
+        final Batch prev = this.batches.put(new BatchKey(batch.startIndex, batch.count), batch);
+        if (prev != null) {
+            prev.release();
+        }
+        final Iterator<Batch> it = this.batches.values().iterator();
+        while (this.batches.size() > this.capacity && it.hasNext()) {
+            final Batch evicted = it.next();
+            it.remove();
+            evicted.release();
+        }
+    }
+
+    //清空缓存，领导者下台的时候调用，正在发送的请求持有的批次等收到响应之后再释放
+    public synchronized void clear() {
+        for (final Batch batch : this.batches.values()) {
+            batch.release();
+        }
+        this.batches.clear();
+    }
+
+    public synchronized int size() {
+        return this.batches.size();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：一个编码好的日志批次，除了引用计数，其他成员变量创建之后都不会再改变
+     */
+    public final class Batch implements Recyclable {
+        //创建批次时领导者的任期
+        final long                           term;
+        //批次中第一条日志的索引
+        final long                           startIndex;
+        //批次中日志的条数
+        final int                            count;
+        //批次中最后一条日志的数据在原始数据中的起始位置，用来判断批次是否超过了使用者的maxBodySize
+        final int                            lastEntryOffset;
+        //所有日志的元信息
+        final List<RaftOutter.EntryMeta>     metas;
+        //请求中要发送的日志数据，如果开启了压缩，这里就是压缩后的数据，没有数据的时候为null
+        final ByteString                     data;
+        //日志数据的压缩类型
+        final int                            compressType;
+        //存放日志数据的收集器，引用计数减为0的时候回收
+        private final Recyclable             dataBuf;
+        //引用计数，由缓存对象的锁保护
+        private int                          refCnt = 1;
+        //日志数据是否已经计入了复制内存预算，由缓存对象的锁保护
+        private boolean                      charged;
+
+        public Batch(final long term, final long startIndex, final int lastEntryOffset,
+                     final List<RaftOutter.EntryMeta> metas, final ByteString data, final int compressType,
+                     final Recyclable dataBuf) {
+            this.term = term;
+            this.startIndex = startIndex;
+            this.count = metas.size();
+            this.lastEntryOffset = lastEntryOffset;
+            this.metas = metas;
+            this.data = data;
+            this.compressType = compressType;
+            this.dataBuf = dataBuf;
+        }
+
+        //批次的日志数据的字节数，也就是计入预算的字节数
+        int size() {
+            return this.data != null ? this.data.size() : 0;
+        }
+
+        //释放一个引用，调用者要持有缓存对象的锁，最后一个引用释放的时候回收日志数据，并且把占用的预算还回去
+        private void release() {
+            if (--this.refCnt == 0) {
+                RecycleUtil.recycle(this.dataBuf);
+                if (this.charged) {
+                    this.charged = false;
+                    ReplicationBatchCache.this.memoryBudget.release(size());
+                }
+            }
+        }
+
+        //使用者发送完请求之后调用这个方法释放自己持有的引用
+        @Override
+        public boolean recycle() {
+            synchronized (ReplicationBatchCache.this) {
+                release();
+                return this.refCnt == 0;
+            }
+        }
+    }
+
+    //批次在缓存中的key，同一个起始索引可能有日志条数不同的多个批次
+    private static final class BatchKey {
+        final long startIndex;
+        final int  count;
+
+        BatchKey(final long startIndex, final int count) {
+            this.startIndex = startIndex;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final BatchKey that = (BatchKey) o;
+            return this.startIndex == that.startIndex && this.count == that.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(this.startIndex) + this.count;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.storage.LogManager;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：节点级别的复制内存预算，每个节点一个对象。领导者为了复制日志占用的内存主要有两部分
+ * 一部分是所有复制器已经发送但是还没有收到响应的请求中的日志数据，另一部分是日志管理器在内存中缓存的日志
+ * 某个跟随者很慢的时候，它的复制器会一直占用发送窗口，内存中的日志也可能因为还没有落盘而无法淘汰，最终可能让领导者频繁Full GC
+ * 占用的内存超过预算之后，NodeImpl的apply方法会直接给业务层回复EBUSY，复制器在还有未收到响应的请求时也不再发送新的请求
+ * 每个复制器至少可以保留一个请求，所以复制不会完全停止，收到响应释放内存之后就可以继续发送了
+ */
+public class ReplicationMemoryBudget {
+
+    //预算的字节数，小于等于0的时候不限制
+    private final long       maxBytes;
+    private final LogManager logManager;
+    //所有复制器还没有收到响应的请求占用的字节数，共享批次缓存中的批次只计入一次
+    private final AtomicLong inflightBytes = new AtomicLong();
+    //因为超过预算被拒绝的业务请求数量
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    public ReplicationMemoryBudget(final long maxBytes, final LogManager logManager) {
+        this.maxBytes = maxBytes;
+        this.logManager = logManager;
+    }
+
+    //复制器发送请求的时候调用
+    public void acquire(final long bytes) {
+        if (bytes > 0) {
+            this.inflightBytes.addAndGet(bytes);
+        }
+    }
+
+    //复制器收到响应或者清空请求的时候调用
+    public void release(final long bytes) {
+        if (bytes > 0) {
+            this.inflightBytes.addAndGet(-bytes);
+        }
+    }
+
+    //得到当前占用的字节数，包括请求占用的字节数和日志管理器缓存的日志占用的字节数
+    public long getUsedBytes() {
+        return this.inflightBytes.get() + this.logManager.getMemoryLogBytes();
+    }
+
+    public boolean isExceeded() {
+        return this.maxBytes > 0 && getUsedBytes() > this.maxBytes;
+    }
+
+    //业务请求因为超过预算被拒绝的时候调用
+    public void onRejected() {
+        this.rejectedTasks.incrementAndGet();
+    }
+
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    public long getInflightBytes() {
+        return this.inflightBytes.get();
+    }
+
+    public long getRejectedTasks() {
+        return this.rejectedTasks.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationMemoryBudget{maxBytes=" + this.maxBytes + ", inflightBytes=" + this.inflightBytes.get()
+               + ", memoryLogBytes=" + this.logManager.getMemoryLogBytes() + ", rejectedTasks="
+               + this.rejectedTasks.get() + '}';
+    }
+
+    //把预算的使用情况注册到节点的监控指标中
+    static final class BudgetMetricSet implements MetricSet {
+
+        private final ReplicationMemoryBudget budget;
+
+        BudgetMetricSet(final ReplicationMemoryBudget budget) {
+            this.budget = budget;
+        }
+
+        @Override
+        public Map<String, Metric> getMetrics() {
+            final Map<String, Metric> gauges = new HashMap<>();
+            gauges.put("max-bytes", (Gauge<Long>) this.budget::getMaxBytes);
+            gauges.put("used-bytes", (Gauge<Long>) this.budget::getUsedBytes);
+            gauges.put("inflight-bytes", (Gauge<Long>) this.budget::getInflightBytes);
+            gauges.put("memory-log-bytes", (Gauge<Long>) this.budget.logManager::getMemoryLogBytes);
+            gauges.put("exceeded", (Gauge<Boolean>) this.budget::isExceeded);
+            gauges.put("rejected-tasks", (Gauge<Long>) this.budget::getRejectedTasks);
+            return gauges;
+        }
+    }
+}
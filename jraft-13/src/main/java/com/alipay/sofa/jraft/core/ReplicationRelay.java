@@ -0,0 +1,341 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.RaftOutter;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.storage.LogManager;
+import com.alipay.sofa.jraft.util.BufferUtils;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.ZeroByteStringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：中继复制组件，每个节点一个对象。跨机房部署的时候，领导者给远端机房的每个跟随者都要发送一份完整的日志数据，跨机房的带宽很容易成为瓶颈
+ * 开启中继复制之后，领导者发给远端机房跟随者的日志复制请求只携带日志的元信息，不携带日志数据，请求先发给同一个机房中被指定为中继节点的跟随者
+ * 中继节点本身也是领导者的跟随者，它从自己本地的日志中取出对应的日志数据填充到请求中，然后转发给目标跟随者，再把目标跟随者的响应原样回复给领导者
+ * 领导者的复制器收到的仍然是目标跟随者的AppendEntriesResponse，所以日志提交的判断和之前完全一样，领导者只需要给远端机房发送一份日志数据
+ * 中继节点收到请求的时候可能还没有收到对应的日志，这时候请求会在队列中等待一段时间，同一个目标跟随者的请求按照到达的顺序转发
+ * 中继节点本地的日志和元信息中的任期对不上，或者等待超时，就给领导者回复错误响应，领导者的复制器会在一段时间内改为直接给跟随者发送日志
+ * 到目标跟随者的连接在线程池中建立，不会阻塞处理中继请求的单线程执行器，转发队列空闲一段时间之后会被移除
+ */
+public class ReplicationRelay {
+
+    private static final Logger               LOG    = LoggerFactory.getLogger(ReplicationRelay.class);
+
+    //转发队列空闲超过这个时间就从queues中移除，目标跟随者不再需要中继或者已经被移出集群的时候，队列不会一直留在内存中
+    private static final long                 QUEUE_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    private final NodeImpl                    node;
+    private final LogManager                  logManager;
+    //请求等待中继节点收到日志的最长时间
+    private final long                        waitTimeoutMs;
+    //每个目标跟随者一个转发队列
+    private final Map<String, RelayQueue>     queues = new ConcurrentHashMap<>();
+    private volatile boolean                  stopped;
+
+    public ReplicationRelay(final NodeImpl node, final LogManager logManager, final long waitTimeoutMs) {
+        this.node = node;
+        this.logManager = logManager;
+        this.waitTimeoutMs = Math.max(1, waitTimeoutMs);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：转发一个不携带日志数据的日志复制请求，请求中的peerId就是目标跟随者，目标跟随者的响应或者转发失败的状态会交给done回调
+     * 这个方法要按照请求到达的顺序调用，所以处理中继请求的处理器使用的是单线程执行器
+     */
+    public void relay(final RpcRequests.AppendEntriesRequest request,
+                      final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+        if (this.stopped) {
+            done.run(new Status(RaftError.ESTOP, "Relay node %s is stopped.", this.node.getNodeId()));
+            return;
+        }
+        final PeerId target = new PeerId();
+        if (!target.parse(request.getPeerId())) {
+            done.run(new Status(RaftError.EINVAL, "Fail to parse peerId: %s", request.getPeerId()));
+            return;
+        }
+        if (target.equals(this.node.getServerId())) {
+            done.run(new Status(RaftError.EINVAL, "Relay node %s can not relay to itself.", target));
+            return;
+        }
+        final PendingRelay pending = new PendingRelay(request, done, Utils.monotonicMs() + this.waitTimeoutMs);
+        //队列可能刚好因为空闲或者连接失败被移除了，这时候重新创建一个队列
+        while (true) {
+            RelayQueue queue = this.queues.get(request.getPeerId());
+            if (queue == null) {
+                //第一次给这个跟随者转发请求，先建立好到跟随者的连接，否则第一个请求会因为连接不存在而失败
+                //建立连接是同步的，放到线程池中执行，连接建立之前到达的请求先在队列中排队
+                //两个请求同时创建队列的时候只有放进queues的那个队列会建立连接，另一个请求使用已经存在的队列
+                final RelayQueue newQueue = new RelayQueue(request.getPeerId(), target);
+                queue = this.queues.putIfAbsent(request.getPeerId(), newQueue);
+                if (queue == null) {
+                    queue = newQueue;
+                    queue.connect();
+                }
+            }
+            if (queue.add(pending)) {
+                return;
+            }
+        }
+    }
+
+    //节点停机的时候调用，等待转发的请求全部回复ESTOP
+    public void shutdown() {
+        this.stopped = true;
+        for (final RelayQueue queue : this.queues.values()) {
+            queue.drain();
+        }
+    }
+
+    //一个等待转发的请求
+    private static class PendingRelay {
+        final RpcRequests.AppendEntriesRequest                         request;
+        final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done;
+        final long                                                     deadlineMs;
+
+        PendingRelay(final RpcRequests.AppendEntriesRequest request,
+                     final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done, final long deadlineMs) {
+            this.request = request;
+            this.done = done;
+            this.deadlineMs = deadlineMs;
+        }
+
+        long lastLogIndex() {
+            return this.request.getPrevLogIndex() + this.request.getEntriesCount();
+        }
+    }
+
+    //发往同一个目标跟随者的请求队列，队头的请求需要的日志都到达之后才会转发，后面的请求要排在它后面，保证跟随者收到请求的顺序和领导者发送的顺序一样
+    private class RelayQueue {
+
+        private final String                    key;
+        private final PeerId                    target;
+        private final ArrayDeque<PendingRelay> pendings = new ArrayDeque<>();
+        //到目标跟随者的连接是否已经建立
+        private boolean                         connected;
+        //队列是否已经从queues中移除，移除之后不能再添加请求
+        private boolean                         removed;
+        //最后一次添加请求的时间，用来判断队列是否空闲
+        private long                            lastActiveMs = Utils.monotonicMs();
+        //是否已经在日志管理器中注册了新日志的回调
+        private boolean                         waitingLog;
+        //是否已经提交了等待超时的定时任务
+        private boolean                         timeoutScheduled;
+
+        RelayQueue(final String key, final PeerId target) {
+            this.key = key;
+            this.target = target;
+        }
+
+        //在线程池中建立到目标跟随者的连接，连接建立之后开始转发排队的请求，失败的话排队的请求全部回复错误，队列也被移除
+        void connect() {
+            ThreadPoolsFactory.runInThread(ReplicationRelay.this.node.getGroupId(), () -> {
+                final boolean success = ReplicationRelay.this.node.getRpcService().connect(this.target.getEndpoint());
+                synchronized (this) {
+                    if (success) {
+                        this.connected = true;
+                        drain();
+                        scheduleIdleCheck(QUEUE_IDLE_TIMEOUT_MS);
+                        return;
+                    }
+                    remove();
+                    PendingRelay pending;
+                    while ((pending = this.pendings.poll()) != null) {
+                        pending.done.run(new Status(RaftError.EINTERNAL, "Relay node %s fail to connect %s.",
+                            ReplicationRelay.this.node.getNodeId(), this.target));
+                    }
+                }
+            });
+        }
+
+        //添加一个请求，队列已经被移除的时候返回false，调用者要重新获取队列
+        synchronized boolean add(final PendingRelay pending) {
+            if (this.removed) {
+                return false;
+            }
+            this.lastActiveMs = Utils.monotonicMs();
+            this.pendings.add(pending);
+            drain();
+            return true;
+        }
+
+        private void remove() {
+            this.removed = true;
+            ReplicationRelay.this.queues.remove(this.key, this);
+        }
+
+        //队列中没有请求并且空闲时间超过了QUEUE_IDLE_TIMEOUT_MS就移除队列，否则等到可能空闲超时的时候再检查
+        private void scheduleIdleCheck(final long delayMs) {
+            ReplicationRelay.this.node.getTimerManager().schedule(() -> {
+                synchronized (this) {
+                    if (this.removed || ReplicationRelay.this.stopped) {
+                        return;
+                    }
+                    final long idleMs = Utils.monotonicMs() - this.lastActiveMs;
+                    if (this.pendings.isEmpty() && idleMs >= QUEUE_IDLE_TIMEOUT_MS) {
+                        remove();
+                        return;
+                    }
+                    scheduleIdleCheck(Math.max(1, QUEUE_IDLE_TIMEOUT_MS - idleMs));
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void drain() {
+            while (!this.pendings.isEmpty()) {
+                final PendingRelay head = this.pendings.peek();
+                if (ReplicationRelay.this.stopped) {
+                    this.pendings.poll();
+                    head.done.run(new Status(RaftError.ESTOP, "Relay node %s is stopped.",
+                        ReplicationRelay.this.node.getNodeId()));
+                    continue;
+                }
+                //连接还没有建立，请求先排队，连接建立之后会再次调用这个方法
+                if (!this.connected) {
+                    return;
+                }
+                final long lastLogIndex = ReplicationRelay.this.logManager.getLastLogIndex();
+                if (lastLogIndex < head.lastLogIndex()) {
+                    final long now = Utils.monotonicMs();
+                    if (now >= head.deadlineMs) {
+                        this.pendings.poll();
+                        head.done.run(new Status(RaftError.ETIMEDOUT,
+                            "Relay node %s waits for log %d timeout, last log index is %d.",
+                            ReplicationRelay.this.node.getNodeId(), head.lastLogIndex(), lastLogIndex));
+                        continue;
+                    }
+                    waitMoreLogs(lastLogIndex, head.deadlineMs - now);
+                    return;
+                }
+                this.pendings.poll();
+                forward(head);
+            }
+        }
+
+        //注册新日志的回调和超时的定时任务，两者触发的时候都会重新检查队头的请求
+        private void waitMoreLogs(final long lastLogIndex, final long delayMs) {
+            if (!this.waitingLog) {
+                this.waitingLog = true;
+                ReplicationRelay.this.logManager.wait(lastLogIndex, (arg, errorCode) -> {
+                    synchronized (this) {
+                        this.waitingLog = false;
+                        drain();
+                    }
+                    return true;
+                }, null);
+            }
+            if (!this.timeoutScheduled) {
+                this.timeoutScheduled = true;
+                ReplicationRelay.this.node.getTimerManager().schedule(() -> {
+                    synchronized (this) {
+                        this.timeoutScheduled = false;
+                        drain();
+                    }
+                }, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        //用本地的日志填充日志数据，然后转发给目标跟随者，这个方法在持有队列锁的时候调用，所以请求发送的顺序就是到达的顺序
+        //转发的超时时间是一个选举超时时间，目标跟随者迟迟不回复的时候尽快给领导者回复错误，领导者会改为直接给跟随者发送日志
+        private void forward(final PendingRelay pending) {
+            final Status st = new Status();
+            final RpcRequests.AppendEntriesRequest request = fillData(pending.request, st);
+            if (request == null) {
+                LOG.warn("Node {} fail to relay AppendEntriesRequest to {}, status={}.",
+                    ReplicationRelay.this.node.getNodeId(), this.target, st);
+                pending.done.run(st);
+                return;
+            }
+            ReplicationRelay.this.node.getRpcService().appendEntries(this.target.getEndpoint(), request,
+                ReplicationRelay.this.node.getOptions().getElectionTimeoutMs(),
+                new RpcResponseClosureAdapter<RpcRequests.AppendEntriesResponse>() {
+
+                    @Override
+                    public void run(final Status status) {
+                        pending.done.setResponse(getResponse());
+                        pending.done.run(status);
+                    }
+                });
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：根据请求中的日志元信息，从中继节点本地的日志中取出每条日志的数据，拼接成请求的data字段
+     * 每条日志的任期和数据长度都要和元信息对得上，日志的索引和任期相同，日志的内容就一定相同，所以跟随者收到的日志和领导者发送的一样
+     * 对不上的时候返回null，失败的原因设置到st中
+     */
+    private RpcRequests.AppendEntriesRequest fillData(final RpcRequests.AppendEntriesRequest request,
+                                                      final Status st) {
+        final int count = request.getEntriesCount();
+        if (count == 0) {
+            return request;
+        }
+        //一次性读取这个请求需要的所有日志，内存中没有的日志会从日志存储器中批量读取
+        final List<LogEntry> entries = this.logManager.getEntries(request.getPrevLogIndex() + 1, count,
+            Long.MAX_VALUE);
+        if (entries.size() < count) {
+            st.setError(RaftError.EINVAL, "Relay node %s log at index %d not found.", this.node.getNodeId(),
+                request.getPrevLogIndex() + 1 + entries.size());
+            return null;
+        }
+        int totalLen = 0;
+        for (int i = 0; i < count; i++) {
+            final RaftOutter.EntryMeta meta = request.getEntries(i);
+            final LogEntry entry = entries.get(i);
+            final long index = request.getPrevLogIndex() + 1 + i;
+            if (entry.getId().getTerm() != meta.getTerm()) {
+                st.setError(RaftError.EINVAL, "Relay node %s log at index %d does not match term %d.",
+                    this.node.getNodeId(), index, meta.getTerm());
+                return null;
+            }
+            final int dataLen = meta.hasDataLen() ? (int) meta.getDataLen() : 0;
+            final ByteBuffer data = entry.getData();
+            final int localLen = data == null ? 0 : data.remaining();
+            if (localLen != dataLen) {
+                st.setError(RaftError.EINVAL, "Relay node %s log at index %d does not match data length %d.",
+                    this.node.getNodeId(), index, dataLen);
+                return null;
+            }
+            totalLen += dataLen;
+        }
+        if (totalLen == 0) {
+            return request;
+        }
+        final ByteBuffer buf = ByteBuffer.allocate(totalLen);
+        for (final LogEntry entry : entries) {
+            if (entry.getData() != null) {
+                buf.put(entry.getData().slice());
+            }
+        }
+        BufferUtils.flip(buf);
+        return request.toBuilder().setData(ZeroByteStringHelper.wrap(buf)).build();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationRelay{node=" + this.node.getNodeId() + ", targets=" + this.queues.keySet() + '}';
+    }
+}
@@ -11,10 +11,19 @@ import com.alipay.sofa.jraft.error.RaftException;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.option.ReplicatorOptions;
 import com.alipay.sofa.jraft.rpc.*;
+import com.alipay.sofa.jraft.storage.LogManager;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotReader;
 import com.alipay.sofa.jraft.util.*;
+import com.alipay.sofa.jraft.util.compress.CompressType;
+import com.alipay.sofa.jraft.util.concurrent.DefaultFixedThreadsExecutorGroupFactory;
+import com.alipay.sofa.jraft.util.concurrent.FixedThreadsExecutorGroup;
+import com.alipay.sofa.jraft.util.concurrent.SingleThreadExecutor;
 import com.alipay.sofa.jraft.util.internal.ThrowUtil;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 import com.google.protobuf.ZeroByteStringHelper;
@@ -23,9 +32,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.PriorityQueue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -78,6 +89,8 @@ public class Replicator implements ThreadId.OnError {
     private long waitId = -1L;
     //复制器状态阻塞时要用到的定时器
     private ScheduledFuture<?> blockTimer;
+    //学习者复制器被限流的时候，等待令牌足够之后继续发送日志的定时器
+    private ScheduledFuture<?> throttleTimer;
     //复制器对象阻塞的次数
     private volatile long blockCounter = 0;
     //复制器对象给跟随者发送的每一条请求的序号，这个序号是随着请求递增的
@@ -92,15 +105,27 @@ public class Replicator implements ThreadId.OnError {
     private int requiredNextSeq = 0;
     //当前Pipeline队列的版本号
     private int version = 0;
-    //所有发给跟随者的请求的信息都会被包装到Inflight对象中，在还没有收到对应的响应前，请求会一直存放在这个队列中
-    //请求的响应被处理了，才会将请求从队列中移除
-    //每次添加Inflight对象，都会从队列尾部添加，这样序号越小的Inflight对象，就会放在队首了
-    private final java.util.ArrayDeque<Inflight> inflights = new ArrayDeque<>();
-    //这个成员变量会被记录最后发送给跟随者的请求，也可以说是最新的请求
-    private Inflight rpcInFly;
-    //响应队列，从跟随者收到的没一个响应都会先放到这个相应队列中
-    //因为收到的每一个响应的序号可能并不能和要求的请求序号一一对应，所以总要有地方存放这些响应
-    private final PriorityQueue<RpcResponse> pendingResponses = new PriorityQueue<>(50);
+    //所有发给跟随者的请求的信息都会被放到Inflight对象中，在还没有收到对应的响应前，请求会一直存放在这个环形数组中
+    //请求的响应被处理了，才会将请求从数组中移除，收到的响应也存放在请求所在的槽位中，数组的下标由请求序号决定
+    private final InflightRing inflights;
+    //inflights队列中所有请求携带的日志数据的总字节数
+    private volatile long inflightBytes;
+    //inflights队列中的请求计入复制内存预算的字节数，使用共享批次的请求由批次缓存计入预算，不算在这里面
+    private long budgetBytes;
+    //复制窗口，决定了还可以不可以继续发送日志请求，以及每个请求最多可以携带多少日志数据
+    private final ReplicationWindow window;
+    //复制器监控指标在指标注册器中的名称
+    private final String metricName;
+    //复制器专属的单线程执行器，响应回调，定时任务，新日志通知这些事件都放到这个执行器中按顺序处理，为null的时候在触发事件的线程中直接处理
+    private final SingleThreadExecutor eventExecutor;
+    //节点的复制内存预算，请求携带的日志字节数会计入预算
+    private final ReplicationMemoryBudget memoryBudget;
+    //学习者复制的带宽限流器，只有学习者复制器并且限制了带宽的时候才不为null
+    private final LearnerReplicationThrottle learnerThrottle;
+    //给这个跟随者转发日志的中继节点，没有配置中继复制的时候为null
+    private final PeerId relayPeer;
+    //通过中继节点转发失败之后，在这个时间之前直接给跟随者发送日志
+    private volatile long relayFallbackUntilMs;
     //心跳请求连续失败次数
     private int consecutiveErrorTimes = 0;
     //快照读取器
@@ -137,6 +162,72 @@ public class Replicator implements ThreadId.OnError {
         this.timerManager = replicatorOptions.getTimerManager();
         this.raftOptions = raftOptions;
         this.rpcService = replicatorOptions.getRaftRpcService();
+        this.window = replicatorOptions.getNode().getServiceFactory().createReplicationWindow(raftOptions);
+        this.metricName = "replicator-" + replicatorOptions.getGroupId() + "/" + replicatorOptions.getPeerId();
+        this.inflights = new InflightRing(raftOptions.getMaxReplicatorInflightMsgs());
+        final boolean learner = replicatorOptions.getReplicatorType().isLearner();
+        //学习者复制器使用单独的执行器组，学习者追赶日志的时候不会占用跟随者复制器的执行器线程
+        this.eventExecutor = raftOptions.isEnableReplicatorEventExecutor() ? (learner ? LearnerEventExecutorsHolder.EXECUTORS
+            .next() : EventExecutorsHolder.EXECUTORS.next()) : null;
+        this.memoryBudget = replicatorOptions.getNode().getReplicationMemoryBudget();
+        this.learnerThrottle = learner ? replicatorOptions.getNode().getLearnerReplicationThrottle() : null;
+        this.relayPeer = findRelayPeer(replicatorOptions);
+    }
+
+    //从节点配置的中继复制拓扑中找到给这个跟随者转发日志的中继节点，中继节点是跟随者自己或者领导者自己的时候不使用中继
+    private static PeerId findRelayPeer(final ReplicatorOptions replicatorOptions) {
+        final PeerId relay = replicatorOptions.getNode().getOptions().getReplicationRelays()
+            .get(replicatorOptions.getPeerId());
+        if (relay == null || relay.equals(replicatorOptions.getPeerId())
+            || relay.equals(replicatorOptions.getServerId())) {
+            return null;
+        }
+        return relay;
+    }
+
+    //是否通过中继节点转发日志，转发失败之后的一段时间内直接给跟随者发送
+    private boolean isRelayEnabled() {
+        return this.relayPeer != null && Utils.monotonicMs() >= this.relayFallbackUntilMs;
+    }
+
+    //所有复制器共享的事件执行器组，第一次使用的时候才创建
+    private static class EventExecutorsHolder {
+        static final FixedThreadsExecutorGroup EXECUTORS = DefaultFixedThreadsExecutorGroupFactory.INSTANCE
+                                                             .newExecutorGroup(Utils.REPLICATOR_EVENT_THREADS,
+                                                                 "JRaft-Replicator-Event-Executor-",
+                                                                 Utils.MAX_APPEND_ENTRIES_TASKS_PER_THREAD, true);
+    }
+
+    //学习者复制器共享的事件执行器组，线程数量比跟随者的少，第一次添加学习者的时候才创建
+    private static class LearnerEventExecutorsHolder {
+        static final FixedThreadsExecutorGroup EXECUTORS = DefaultFixedThreadsExecutorGroupFactory.INSTANCE
+                                                             .newExecutorGroup(
+                                                                 Math.max(2, Utils.REPLICATOR_EVENT_THREADS / 4),
+                                                                 "JRaft-Learner-Event-Executor-",
+                                                                 Utils.MAX_APPEND_ENTRIES_TASKS_PER_THREAD, true);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：把复制器的事件交给复制器专属的单线程执行器处理，复制器就像一个actor，所有事件都在同一个线程中排队执行
+     * 触发事件的Bolt回调线程，定时器线程和日志管理器的刷盘线程只负责把事件放到队列中，不会再因为复制器的锁被其他复制器的工作阻塞
+     * 事件在执行器线程中仍然会获取ThreadId的锁，因为NodeImpl这些外部调用者还是直接通过锁来操作复制器，但是这时候几乎不会有竞争了
+     * 执行器的队列满了或者已经关闭的时候，就在当前线程中直接处理事件
+     */
+    static void dispatch(final ThreadId id, final Runnable event) {
+        final Replicator r = id == null ? null : (Replicator) id.getData();
+        final SingleThreadExecutor executor = r == null ? null : r.eventExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(event);
+                return;
+            } catch (final RejectedExecutionException e) {
+                LOG.warn("Replicator {} event executor is busy, run the event in current thread.", r);
+            }
+        }
+        event.run();
     }
 
 
@@ -218,37 +309,79 @@ public class Replicator implements ThreadId.OnError {
      * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
      * @author：陈清风扬
      * @date:2023/12/14
-     * @方法描述：该类的对象封装的就是每一个发送给跟随者请求的信息
+     * @方法描述：该类的对象封装的就是每一个发送给跟随者请求的信息，从跟随者节点收到的响应也会存放在对应请求的对象中
+     * 这些对象是InflightRing预先创建好的槽位，会被反复使用，所以成员变量都不是final的
      */
     static class Inflight {
         //本次请求中发送的日志条目的数量
-        final int count;
+        int               count;
         //本批次日志的第一条日志的索引
-        final long startIndex;
+        long              startIndex;
         //本批次发送日志的总字节大小
-        final int size;
+        int               size;
+        //本批次日志数据由这个复制器计入复制内存预算的字节数，使用共享批次的请求为0
+        int               budgetSize;
         //请求所对应的Future对象
-        final Future<Message> rpcFuture;
+        Future<Message>   rpcFuture;
         //发送的请求的类型，也许是传输日志请求，也许是安装快照请求
-        final RequestType requestType;
+        RequestType       requestType;
         //本次发送请求的请求序号
-        final int seq;
-        //构造方法
-        public Inflight(final RequestType requestType, final long startIndex, final int count, final int size,
-                        final int seq, final Future<Message> rpcFuture) {
-            super();
+        int               seq;
+        //这个槽位当前是否存放着一个还没有处理完的请求，Inflight对象存放在InflightRing中反复使用
+        boolean           inUse;
+        //是否已经收到了响应，响应可能会乱序到达，收到之后先存放在这里，等前面的响应都处理完了再处理
+        boolean           hasResponse;
+        //响应的状态
+        Status            status;
+        //与响应对应的请求
+        Message           request;
+        //从跟随者节点接收到的响应
+        Message           response;
+        //请求发送的时间
+        long              rpcSendTime;
+        //响应对应的请求类型
+        RequestType       responseType;
+
+        //在InflightRing的槽位中存放一个新的请求
+        void reset(final RequestType requestType, final long startIndex, final int count, final int size,
+                   final int budgetSize, final int seq, final Future<Message> rpcFuture) {
             this.seq = seq;
             this.requestType = requestType;
             this.count = count;
             this.startIndex = startIndex;
             this.size = size;
+            this.budgetSize = budgetSize;
             this.rpcFuture = rpcFuture;
+            this.inUse = true;
+            this.hasResponse = false;
+        }
+
+        //收到了这个请求的响应
+        void setResponse(final RequestType responseType, final Status status, final Message request,
+                         final Message response, final long rpcSendTime) {
+            this.responseType = responseType;
+            this.status = status;
+            this.request = request;
+            this.response = response;
+            this.rpcSendTime = rpcSendTime;
+            this.hasResponse = true;
+        }
+
+        //请求处理完了，释放槽位，只清空引用类型的字段，日志索引这些字段要留给处理响应的方法使用
+        void release() {
+            this.inUse = false;
+            this.hasResponse = false;
+            this.rpcFuture = null;
+            this.status = null;
+            this.request = null;
+            this.response = null;
         }
 
         @Override
         public String toString() {
             return "Inflight [count=" + this.count + ", startIndex=" + this.startIndex + ", size=" + this.size
-                    + ", rpcFuture=" + this.rpcFuture + ", requestType=" + this.requestType + ", seq=" + this.seq + "]";
+                    + ", rpcFuture=" + this.rpcFuture + ", requestType=" + this.requestType + ", seq=" + this.seq
+                    + ", hasResponse=" + this.hasResponse + ", status=" + this.status + "]";
         }
 
         //判断本次请求是否发送了日志条目
@@ -259,52 +392,31 @@ public class Replicator implements ThreadId.OnError {
 
     /**
      * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
-     * @author：陈清风扬
-     * @date:2023/12/14
-     * @方法描述：从跟随者节点收到的响应会被包装到这个类的对象中，在包装的时候就会给每个响应分配好响应序号了
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：每个复制器的监控指标，包括复制窗口大小，平滑后的往返时间，未收到响应的请求数量和日志字节数
      */
-    static class RpcResponse implements Comparable<RpcResponse> {
-        //响应的状态
-        final Status status;
-        //与相应对应的请求
-        final Message request;
-        //从跟随者节点接收到的响应
-        final Message response;
-        //请求发送的时间
-        final long rpcSendTime;
-        //响应序号
-        final int seq;
-        //本次相应对应的请求类型
-        final RequestType requestType;
-
-        //构造方法
-        public RpcResponse(final RequestType reqType, final int seq, final Status status, final Message request,
-                           final Message response, final long rpcSendTime) {
-            super();
-            this.requestType = reqType;
-            this.seq = seq;
-            this.status = status;
-            this.request = request;
-            this.response = response;
-            this.rpcSendTime = rpcSendTime;
-        }
+    private static final class ReplicatorMetricSet implements MetricSet {
 
-        @Override
-        public String toString() {
-            return "RpcResponse [status=" + this.status + ", request=" + this.request + ", response=" + this.response
-                    + ", rpcSendTime=" + this.rpcSendTime + ", seq=" + this.seq + ", requestType=" + this.requestType
-                    + "]";
+        private final Replicator r;
+
+        ReplicatorMetricSet(final Replicator r) {
+            this.r = r;
         }
 
-        //将RpcResponse对象存放到pendingResponses队列时，会使用这方法进行对比
         @Override
-        public int compareTo(final RpcResponse o) {
-            return Integer.compare(this.seq, o.seq);
+        public Map<String, Metric> getMetrics() {
+            final Map<String, Metric> gauges = new HashMap<>();
+            gauges.put("next-index", (Gauge<Long>) () -> this.r.nextIndex);
+            gauges.put("window-bytes", (Gauge<Long>) this.r.window::getWindowBytes);
+            gauges.put("rtt-ms", (Gauge<Long>) this.r.window::getSmoothedRttMs);
+            gauges.put("inflight-bytes", (Gauge<Long>) () -> this.r.inflightBytes);
+            return gauges;
         }
     }
 
-    //获取存放所有请求信息队列的方法
-    ArrayDeque<Inflight> getInflights() {
+    //获取存放所有请求信息的环形数组的方法
+    InflightRing getInflights() {
         return this.inflights;
     }
 
@@ -332,6 +444,12 @@ public class Replicator implements ThreadId.OnError {
             LOG.error("Fail to init sending channel to {}.", opts.getPeerId());
             return null;
         }
+        //注册复制器的监控指标，可以看到每个跟随者的复制窗口，往返时间和未收到响应的日志字节数
+        final MetricRegistry metricRegistry = opts.getNode().getNodeMetrics().getMetricRegistry();
+        if (metricRegistry != null) {
+            metricRegistry.removeMatching(MetricFilter.startsWith(r.metricName));
+            metricRegistry.register(r.metricName, new ReplicatorMetricSet(r));
+        }
         //创建ThreadId句柄对象，这个对象持有了刚才创建的复制器对象
         r.id = new ThreadId(r, r);
         //这里的代码很有意思，直接解释的话就是给当前复制器对象上了一个锁
@@ -383,7 +501,7 @@ public class Replicator implements ThreadId.OnError {
     //发送心跳消息的方法，在该方法内部会调用setError方法，在setError方法内部会调用发送心跳消息的方法
     private static void onTimeout(final ThreadId id) {
         if (id != null) {
-            id.setError(RaftError.ETIMEDOUT.getNumber());
+            dispatch(id, () -> id.setError(RaftError.ETIMEDOUT.getNumber()));
         } else {
             LOG.warn("Replicator id is null when timeout, maybe it's destroyed.");
         }
@@ -603,65 +721,131 @@ public class Replicator implements ThreadId.OnError {
             //填充失败就安装快照
             installSnapshot();
             return false;
-        }//定义一个ByteBufferCollector对象，要发送的所有日志条目中的data都会放到这个对象中
+        }//通过中继节点转发的请求只携带日志元信息，日志数据由中继节点用自己本地的日志填充
+        final boolean relayed = isRelayEnabled();
+        //定义一个ByteBufferCollector对象，要发送的所有日志条目中的data都会放到这个对象中
         ByteBufferCollector dataBuf = null;
         //得到单次可以发送给跟随者的日志条目的最大值
         final int maxEntriesSize = this.raftOptions.getMaxEntriesSize();
-        //得到一个RecyclableByteBufferList对象，因为要发送的日志条目会先放到RecyclableByteBufferList对象中
-        //RecyclableByteBufferList对象其实继承了ArrayList，所以可以先把要发送的日志条目中的
-        //data放到集合的数组中，然后再从数组中放到上面创建的ByteBufferCollector对象中
-        final RecyclableByteBufferList byteBufList = RecyclableByteBufferList.newInstance();
-        try {//开始在一个循环中封装要发送的日志条目了
-            for (int i = 0; i < maxEntriesSize; i++) {
-                //创建封装日志元信息的对象，注意，每一个要发送的日志条目对象都对应着一个元信息对象
-                //这些日志条目对象的元信息对象会构成一个元信息集合，最后会被放到AppendEntriesRequest请求中
-                //发送给跟随者
-                final RaftOutter.EntryMeta.Builder emb = RaftOutter.EntryMeta.newBuilder();
-                //准备发送日志，在prepareEntry方法中，会把日志条目的元信息和日志条目的data分开存放
-                //元信息存放到emb对象中，data存放到byteBufList集合的数组中
-                if (!prepareEntry(nextSendingIndex, i, emb, byteBufList)) {
-                    //准备失败就意味着没有日志可以发送了，直接退出循环即可
-                    break;
-                }//在这里把本批次发送的日志条目的元信息集合设置到AppendEntriesRequest请求中
-                rb.addEntries(emb.build());
+        //得到本次请求最多可以携带的日志数据字节数，这个值由复制窗口决定，不会超过maxBodySize
+        int maxBodySize = this.window.getMaxRequestBytes(this.inflightBytes);
+        //学习者复制器要先申请令牌，申请到的令牌数量就是这个请求最多可以携带的字节数，令牌不够就等待一会再发送
+        int throttledBytes = 0;
+        if (this.learnerThrottle != null) {
+            throttledBytes = this.learnerThrottle.acquire(maxBodySize);
+            if (throttledBytes <= 0) {
+                waitThrottle();
+                return false;
+            }
+            maxBodySize = throttledBytes;
+        }
+        //先从共享的批次缓存中查找其他复制器已经构建好的同一批日志，找到了就直接复用元信息集合和日志数据
+        final ReplicationBatchCache batchCache = this.options.getNode().getReplicationBatchCache();
+        ReplicationBatchCache.Batch batch = null;
+        if (batchCache != null) {
+            //这一次想要发送的日志条数，领导者有多少日志就发送多少，但是不能超过maxEntriesSize，缓存中条数相同的批次才能复用
+            final long count = Math.min(maxEntriesSize,
+                this.options.getLogManager().getLastLogIndex() - nextSendingIndex + 1);
+            if (count > 0) {
+                batch = batchCache.acquire(this.options.getTerm(), nextSendingIndex, (int) count, maxBodySize);
+                this.options.getNode().getNodeMetrics()
+                    .recordTimes(batch != null ? "replicate-batch-cache-hit" : "replicate-batch-cache-miss", 1);
             }
-            //如果AppendEntriesRequest对象发现在经历了上面的填充日志信息的循环后
-            //自己根本没有获得任何日志条目，就意味着领导者目前根本没哟日志可以发送给跟随者
-            if (rb.getEntriesCount() == 0) {
-                //判断是否需要安装快照
-                if (nextSendingIndex < this.options.getLogManager().getFirstLogIndex()) {
-                    installSnapshot();
+        }
+        //最后一条日志的数据在原始数据中的起始位置，放入批次缓存的时候要用到
+        int lastEntryOffset = 0;
+        if (batch != null) {
+            rb.addAllEntries(batch.metas);
+            if (batch.data != null && !relayed) {
+                rb.setData(batch.data);
+                if (batch.compressType != CompressType.NONE.getNumber()) {
+                    rb.setCompressType(batch.compressType);
+                }
+            }
+        } else {
+            //得到一个RecyclableByteBufferList对象，因为要发送的日志条目会先放到RecyclableByteBufferList对象中
+            //RecyclableByteBufferList对象其实继承了ArrayList，所以可以先把要发送的日志条目中的
+            //data放到集合的数组中，然后再从数组中放到上面创建的ByteBufferCollector对象中
+            final RecyclableByteBufferList byteBufList = RecyclableByteBufferList.newInstance();
+            try {//先从日志管理器中把本批次要发送的日志一次性读取出来，内存中没有的日志会从日志存储器中批量读取
+                //这样跟随者落后很多的时候，就不用一条一条地从硬盘中读取日志了
+                final List<LogEntry> entries = this.options.getLogManager().getEntries(nextSendingIndex, maxEntriesSize,
+                        maxBodySize);
+                //开始在一个循环中封装要发送的日志条目了
+                for (int i = 0; i < entries.size(); i++) {
+                    //创建封装日志元信息的对象，注意，每一个要发送的日志条目对象都对应着一个元信息对象
+                    //这些日志条目对象的元信息对象会构成一个元信息集合，最后会被放到AppendEntriesRequest请求中
+                    //发送给跟随者
+                    final RaftOutter.EntryMeta.Builder emb = RaftOutter.EntryMeta.newBuilder();
+                    //准备发送日志，在prepareEntry方法中，会把日志条目的元信息和日志条目的data分开存放
+                    //元信息存放到emb对象中，data存放到byteBufList集合的数组中
+                    final int offset = byteBufList.getCapacity();
+                    if (!prepareEntry(nextSendingIndex + i, entries.get(i), emb, byteBufList, maxBodySize)) {
+                        //准备失败就意味着没有日志可以发送了，直接退出循环即可
+                        break;
+                    }//在这里把本批次发送的日志条目的元信息集合设置到AppendEntriesRequest请求中
+                    rb.addEntries(emb.build());
+                    lastEntryOffset = offset;
+                }
+                //如果AppendEntriesRequest对象发现在经历了上面的填充日志信息的循环后
+                //自己根本没有获得任何日志条目，就意味着领导者目前根本没哟日志可以发送给跟随者
+                if (rb.getEntriesCount() == 0) {
+                    //没有发送请求，申请到的令牌全部退回
+                    if (this.learnerThrottle != null) {
+                        this.learnerThrottle.settle(throttledBytes, 0);
+                    }
+                    //判断是否需要安装快照
+                    if (nextSendingIndex < this.options.getLogManager().getFirstLogIndex()) {
+                        installSnapshot();
+                        return false;
+                    }
+                    //如果领导者内部真的没有日志，这时候就可以让复制器向日志管理器组件提交一个回调方法
+                    //等有日志了就通知复制器对象继续发送日志，具体的逻辑就在下面的方法中
+                    waitMoreEntries(nextSendingIndex);
+                    //因为没有日志可发送，这里就直接退出当前方法了
                     return false;
+                }//在上面的for循环中，每一个日志条目对象的data都放到了byteBufList集合中
+                //这个集合中的数据还没有放到AppendEntriesRequest请求请求中呢，接下来的操作就是将所有的
+                //data放到AppendEntriesRequest请求对象中
+                //先判断byteBuffer集合中是否存放了数据
+                if (byteBufList.getCapacity() > 0 && !relayed) {
+                    //如果存放了就根据集合中存放的总的数据的大小创建一个ByteBufferCollector对象
+                    //ByteBufferCollector对象终于要派上用场了
+                    dataBuf = ByteBufferCollector.allocateByRecyclers(byteBufList.getCapacity());
+                    //遍历这个byteBufList集合
+                    for (final ByteBuffer b : byteBufList) {
+                        //把集合中的每个data对象都存放到ByteBufferCollector对象的内部成员变量bytebuffer中
+                        dataBuf.put(b);
+                    }//得到ByteBufferCollector对象内部的ByteBuffer对象，这时候，这个ByteBuffer对象已经存放了所有日志条目的data
+                    final ByteBuffer buf = dataBuf.getBuffer();
+                    //设置ByteBuffer读模式
+                    BufferUtils.flip(buf);
+                    //在ZeroByteStringHelper的帮助细把ByteBuffer中的数据读取到ByteString对象中，这是protobuf协议传输数据用到的对象
+                    //然后把ByteString对象设置到请求中，开启了压缩的话设置的就是压缩后的数据
+                    setRequestData(rb, buf);
                 }
-                //如果领导者内部真的没有日志，这时候就可以让复制器向日志管理器组件提交一个回调方法
-                //等有日志了就通知复制器对象继续发送日志，具体的逻辑就在下面的方法中
-                waitMoreEntries(nextSendingIndex);
-                //因为没有日志可发送，这里就直接退出当前方法了
-                return false;
-            }//在上面的for循环中，每一个日志条目对象的data都放到了byteBufList集合中
-            //这个集合中的数据还没有放到AppendEntriesRequest请求请求中呢，接下来的操作就是将所有的
-            //data放到AppendEntriesRequest请求对象中
-            //先判断byteBuffer集合中是否存放了数据
-            if (byteBufList.getCapacity() > 0) {
-                //如果存放了就根据集合中存放的总的数据的大小创建一个ByteBufferCollector对象
-                //ByteBufferCollector对象终于要派上用场了
-                dataBuf = ByteBufferCollector.allocateByRecyclers(byteBufList.getCapacity());
-                //遍历这个byteBufList集合
-                for (final ByteBuffer b : byteBufList) {
-                    //把集合中的每个data对象都存放到ByteBufferCollector对象的内部成员变量bytebuffer中
-                    dataBuf.put(b);
-                }//得到ByteBufferCollector对象内部的ByteBuffer对象，这时候，这个ByteBuffer对象已经存放了所有日志条目的data
-                final ByteBuffer buf = dataBuf.getBuffer();
-                //设置ByteBuffer读模式
-                BufferUtils.flip(buf);
-                //在ZeroByteStringHelper的帮助细把ByteBuffer中的数据读取到ByteString对象中，这是protobuf协议传输数据用到的对象
-                //然后把ByteString对象设置到请求中
-                rb.setData(ZeroByteStringHelper.wrap(buf));
+            } finally {//在这里将RecyclableByteBufferList对象回收到对象池中
+                RecycleUtil.recycle(byteBufList);
             }
-        } finally {//在这里将RecyclableByteBufferList对象回收到对象池中
-            RecycleUtil.recycle(byteBufList);
-        }//构建AppendEntriesRequest请求对象，接下来就要开始发送请求了
+        }
+        //构建AppendEntriesRequest请求对象，接下来就要开始发送请求了
         final RpcRequests.AppendEntriesRequest request = rb.build();
+        //统计领导者发送日志的字节数，通过中继节点转发的请求不携带日志数据，所以开启中继之后这个值会明显变小
+        final NodeMetrics nodeMetrics = this.options.getNode().getNodeMetrics();
+        if (nodeMetrics.isEnabled()) {
+            nodeMetrics.recordTimes("replicate-send-bytes", request.getSerializedSize());
+        }
+        if (this.learnerThrottle != null) {
+            this.learnerThrottle.settle(throttledBytes, request.getData().size());
+        }
+        //学习者的批次比跟随者的大，放到缓存中跟随者也用不上，还会把跟随者的批次挤出去，所以学习者不放入缓存
+        if (batch == null && batchCache != null && !this.options.getReplicatorType().isLearner() && !relayed) {
+            //把自己构建的批次放到缓存中，请求中的元信息集合是不可变的，可以直接共享
+            batch = batchCache.new Batch(this.options.getTerm(), nextSendingIndex, lastEntryOffset,
+                request.getEntriesList(), request.hasData() ? request.getData() : null, request.getCompressType(),
+                dataBuf);
+            batchCache.publish(batch);
+        }
         System.out.println(request.getEntriesCount()+"领导者要想跟随者节点发送日志了！！！！！！！！！！！");
         if (LOG.isDebugEnabled()) {
             LOG.debug(
@@ -674,8 +858,8 @@ public class Replicator implements ThreadId.OnError {
         this.statInfo.firstLogIndex = rb.getPrevLogIndex() + 1;
         //本批次发送的日志的最后一条日志的索引
         this.statInfo.lastLogIndex = rb.getPrevLogIndex() + rb.getEntriesCount();
-        //得到ByteBufferCollector对象，用于收到响应后的回收
-        final Recyclable recyclable = dataBuf;
+        //得到ByteBufferCollector对象，用于收到响应后的回收，使用了批次缓存的话，收到响应后释放的是批次的引用
+        final Recyclable recyclable = batch != null ? batch : dataBuf;
         //记录发送请求的时间
         final long monotonicSendTimeMs = Utils.monotonicMs();
         //得到版本号
@@ -685,47 +869,129 @@ public class Replicator implements ThreadId.OnError {
         //自增发送请求的次数
         this.appendEntriesCounter++;
         Future<Message> rpcFuture = null;
-        try {//发送请求给跟随者
-            rpcFuture = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(), request, -1,
-                    new RpcResponseClosureAdapter<RpcRequests.AppendEntriesResponse>() {
+        try {//配置了中继节点的话把请求交给中继节点转发，否则直接发送请求给跟随者
+            if (relayed) {
+                rpcFuture = sendRelayEntries(request, recyclable, seq, v, monotonicSendTimeMs);
+            } else {
+                rpcFuture = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(), request, -1,
+                        new RpcResponseClosureAdapter<RpcRequests.AppendEntriesResponse>() {
 
-                        @Override
-                        public void run(final Status status) {
-                            //该方法会在收到AppendEntriesResponse响应后被回调
-                            //在这里回收了ByteBufferCollector对象，在源码中就是在这里回收的
-                            //但是在这里回收的意义是什么呢？在发送了请求后立刻回收好像也没什么
-                            //如果本批次日志没有发送成功，直接再次发送就行了，在源码中为这行代码写了行注释
-                            //意思是可以把这个对象的回收提前到请求发送成功之后
-                            RecycleUtil.recycle(recyclable);
-                            //这个方法会在接收到响应后被回调，这里把本次请求的类型，复制器对象本身，响应状态码，本次请求对象，得到的响应
-                            //请求序号，版本号，本次请求发送的时间都传到方法中了
-                            onRpcReturned(Replicator.this.id, RequestType.AppendEntries, status, request, getResponse(),
-                                    seq, v, monotonicSendTimeMs);
-                        }
-                    });
+                            @Override
+                            public void run(final Status status) {
+                                //该方法会在收到AppendEntriesResponse响应后被回调
+                                //在这里回收了ByteBufferCollector对象，在源码中就是在这里回收的
+                                //但是在这里回收的意义是什么呢？在发送了请求后立刻回收好像也没什么
+                                //如果本批次日志没有发送成功，直接再次发送就行了，在源码中为这行代码写了行注释
+                                //意思是可以把这个对象的回收提前到请求发送成功之后
+                                RecycleUtil.recycle(recyclable);
+                                //这个方法会在接收到响应后被回调，这里把本次请求的类型，复制器对象本身，响应状态码，本次请求对象，得到的响应
+                                //请求序号，版本号，本次请求发送的时间都传到方法中了
+                                //响应交给复制器专属的执行器处理，这样Bolt的回调线程不会阻塞在复制器的锁上
+                                final RpcRequests.AppendEntriesResponse response = getResponse();
+                                dispatch(Replicator.this.id, () -> onRpcReturned(Replicator.this.id,
+                                        RequestType.AppendEntries, status, request, response, seq, v, monotonicSendTimeMs));
+                            }
+                        });
+            }
         } catch (final Throwable t) {
             RecycleUtil.recycle(recyclable);
             ThrowUtil.throwException(t);
         }
-        //把本次请求的信息添加到inflights队列中
-        addInflight(RequestType.AppendEntries, nextSendingIndex, request.getEntriesCount(), request.getData().size(),
-                seq, rpcFuture);
+        //把本次请求的信息添加到inflights队列中，日志数据来自共享批次的话，批次缓存已经把它计入预算了，这里不再重复计入
+        final int dataSize = request.getData().size();
+        addInflight(RequestType.AppendEntries, nextSendingIndex, request.getEntriesCount(), dataSize,
+                batch != null ? 0 : dataSize, seq, rpcFuture);
         return true;
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：把只携带日志元信息的请求发给中继节点，中继节点填充日志数据后转发给跟随者，再把跟随者的响应放到中继响应中回复回来
+     * 请求会和其他复制器发给同一个中继节点的请求合并成一个中继请求发送，取出跟随者的响应之后，和直接发送请求收到响应一样交给onRpcReturned处理，所以日志提交的判断不受影响
+     * 中继节点回复了错误或者请求失败的时候，这个请求按照失败处理，复制器会发送探针请求重新开始复制，并且在一段时间内直接给跟随者发送日志
+     */
+    private Future<Message> sendRelayEntries(final RpcRequests.AppendEntriesRequest request,
+                                             final Recyclable recyclable, final int seq, final int v,
+                                             final long monotonicSendTimeMs) {
+        //中继节点最多等待replicationRelayWaitTimeoutMs收到对应的日志，再用一个选举超时时间转发给跟随者，领导者的超时时间要覆盖这两段时间
+        final int timeoutMs = this.options.getElectionTimeoutMs() + this.raftOptions.getReplicationRelayWaitTimeoutMs();
+        //发给同一个中继节点的请求交给合并器，和其他复制器的请求合并成一个中继请求发送
+        return RelayRequestBatcher.getInstance().submit(this.rpcService, this.options.getServerId().getEndpoint(),
+            this.relayPeer.getEndpoint(), request, timeoutMs, this.raftOptions.getMaxReplicationRelayBatch(),
+            new RpcResponseClosureAdapter<RpcRequests.AppendEntriesResponse>() {
+
+                @Override
+                public void run(final Status status) {
+                    RecycleUtil.recycle(recyclable);
+                    //请求被取消说明复制器已经重置了，不是中继节点的问题
+                    if (!status.isOk() && status.getCode() != RaftError.ECANCELED.getNumber()) {
+                        onRelayFailed(status);
+                    }
+                    final RpcRequests.AppendEntriesResponse response = getResponse();
+                    dispatch(Replicator.this.id, () -> onRpcReturned(Replicator.this.id, RequestType.AppendEntries,
+                        status, request, response, seq, v, monotonicSendTimeMs));
+                }
+            });
+    }
+
+    //中继转发失败，接下来的一段时间内直接给跟随者发送日志
+    private void onRelayFailed(final Status status) {
+        final long fallbackMs = this.raftOptions.getReplicationRelayFallbackMs();
+        this.relayFallbackUntilMs = Utils.monotonicMs() + fallbackMs;
+        this.options.getNode().getNodeMetrics().recordTimes("replicate-relay-fallback-times", 1);
+        LOG.warn("Replicator {} fail to relay entries through {}, send entries directly in the next {} ms, status={}.",
+            this.options.getPeerId(), this.relayPeer, fallbackMs, status);
+    }
+
+
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：把本批次日志的数据设置到请求中，如果开启了压缩，并且数据超过了压缩阈值，就把压缩后的数据设置到请求中
+     * 同时在请求中设置压缩类型，跟随者会根据压缩类型和每条日志元信息中的数据长度解压。压缩后的数据不比原始数据小的时候就直接发送原始数据
+     */
+    private void setRequestData(final RpcRequests.AppendEntriesRequest.Builder rb, final ByteBuffer buf) {
+        final CompressType compressType = this.raftOptions.getReplicationCompressType();
+        final int rawLen = buf.remaining();
+        if (compressType == CompressType.NONE || rawLen < this.raftOptions.getReplicationCompressThreshold()) {
+            rb.setData(ZeroByteStringHelper.wrap(buf));
+            return;
+        }
+        final long startNs = System.nanoTime();
+        final ByteBuffer compressed = compressType.getCompressor().compress(buf);
+        final NodeMetrics metrics = this.options.getNode().getNodeMetrics();
+        metrics.recordSize("replicate-compress-cpu-us", (System.nanoTime() - startNs) / 1000);
+        metrics.recordSize("replicate-compress-raw-bytes", rawLen);
+        if (compressed == null) {
+            //数据几乎不可压缩，直接发送原始数据
+            metrics.recordSize("replicate-compress-bytes", rawLen);
+            metrics.recordSize("replicate-compress-ratio-percent", 100);
+            rb.setData(ZeroByteStringHelper.wrap(buf));
+            return;
+        }
+        metrics.recordSize("replicate-compress-bytes", compressed.remaining());
+        metrics.recordSize("replicate-compress-ratio-percent", compressed.remaining() * 100L / rawLen);
+        rb.setData(ZeroByteStringHelper.wrap(compressed));
+        rb.setCompressType(compressType.getNumber());
+    }
 
     /**
      * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
      * @author：陈清风扬
      * @date:2023/12/14
-     * @方法描述：该方法的作用就是把一次请求的信息封装到一个Inflight对象中，然后把Inflight对象存放到inflights队列中
+     * @方法描述：该方法的作用就是把一次请求的信息存放到inflights环形数组中，size计入复制窗口，budgetSize计入复制内存预算
      */
     private void addInflight(final RequestType reqType, final long startIndex, final int count, final int size,
-                             final int seq, final Future<Message> rpcInfly) {
-        //记录最新发送给跟随者节点的请求
-        this.rpcInFly = new Inflight(reqType, startIndex, count, size, seq, rpcInfly);
-        this.inflights.add(this.rpcInFly);
+                             final int budgetSize, final int seq, final Future<Message> rpcInfly) {
+        //请求放到请求序号对应的槽位中，不需要创建新的对象
+        this.inflights.add(reqType, startIndex, count, size, budgetSize, seq, rpcInfly);
+        this.inflightBytes += size;
+        this.budgetBytes += budgetSize;
+        this.memoryBudget.acquire(budgetSize);
     }
 
 
@@ -734,17 +1000,14 @@ public class Replicator implements ThreadId.OnError {
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
      * @Date:2023/12/8
      * @Description:在该方法中，会把日志条目的元信息和日志条目的data分开存放，日志条目的元信息存放到emb对象中，data存放到byteBufList集合的数组中
-     * nextSendingIndex代表下一条要发送的日志索引，offset就是从外层方法传进来的那个i，初始值为0
+     * logIndex代表要发送的日志索引，entry就是外层方法从日志管理器中批量读取到的日志条目
      */
-    boolean prepareEntry(final long nextSendingIndex, final int offset, final RaftOutter.EntryMeta.Builder emb,
-                         final RecyclableByteBufferList dateBuffer) {
+    boolean prepareEntry(final long logIndex, final LogEntry entry, final RaftOutter.EntryMeta.Builder emb,
+                         final RecyclableByteBufferList dateBuffer, final int maxBodySize) {
         //判断dateBuffer集合中存放的数据的字节总量是否已经超过了最大值
-        if (dateBuffer.getCapacity() >= this.raftOptions.getMaxBodySize()) {
+        if (dateBuffer.getCapacity() >= maxBodySize) {
             return false;
-        } //得到要发送的下一条日志的索引，offset就是外层方法中的i，是从0开始的
-        final long logIndex = nextSendingIndex + offset;
-        //根据索引获取日志条目对象，这里就会从内存中获取日志
-        final LogEntry entry = this.options.getLogManager().getEntry(logIndex);
+        }
         if (entry == null) {
             //没有日志则返回false
             return false;
@@ -826,14 +1089,20 @@ public class Replicator implements ThreadId.OnError {
         //如果inflights队列中有太多请求，就意味着还有很多请求没有收到跟随者节点的响应，可能是在网络中阻塞了
         //也可能是跟随者节点还没有处理完请求，跟随者节点压力比较大
         //总之，只要inflights队列中未收到相应的请求太多，就直接返回—1，返回-1就不会再发送日志给跟随者了
-        if (this.inflights.size() > this.raftOptions.getMaxReplicatorInflightMsgs()) {
+        //具体的判断交给复制窗口，自适应窗口除了请求数量，还会限制未收到响应的日志字节数
+        if (!this.window.canSend(this.inflights.size(), this.inflightBytes)) {
+            return -1L;
+        }
+        //节点的复制内存超过预算了，只要还有未收到响应的请求就先不发送新的请求，等收到响应释放内存之后再继续发送
+        if (this.memoryBudget.isExceeded()) {
             return -1L;
         }
         //判断最新的请求是否不为空，并且判断最新的请求是不是发送日志的请求
-        if (this.rpcInFly != null && this.rpcInFly.isSendingLogEntries()) {
+        final Inflight rpcInFly = this.inflights.peekLast();
+        if (rpcInFly != null && rpcInFly.isSendingLogEntries()) {
             //如果rpcInFly不为空，并且在请求中发送了一批日志，就直接用这批请求的第一条日志索引加上本批日志数量
             //这样就得到了要发送的下一条日志索引
-            return this.rpcInFly.startIndex + this.rpcInFly.count;
+            return rpcInFly.startIndex + rpcInFly.count;
         }
         return -1L;
     }
@@ -855,7 +1124,11 @@ public class Replicator implements ThreadId.OnError {
                 return;
             } //向日志管理器提交一个回调方法，日志管理器的wait方法会返回一个waitID
             this.waitId = this.options.getLogManager().wait(nextWaitIndex - 1,
-                    (arg, errorCode) -> continueSending((ThreadId) arg, errorCode), this.id);
+                    (arg, errorCode) -> {
+                        //日志管理器是在刷盘线程中通知复制器的，交给复制器专属的执行器处理，刷盘线程就不用等待复制器的锁了
+                        dispatch((ThreadId) arg, () -> continueSending((ThreadId) arg, errorCode));
+                        return true;
+                    }, this.id);
             //设置当前复制器的运行状态
             this.statInfo.runningState = RunningState.IDLE;
         } finally {
@@ -945,13 +1218,24 @@ public class Replicator implements ThreadId.OnError {
                         @Override
                         public void run(final Status status) {
                             //在创建的新的回调方法中，收到心跳响应之后，会回调这个方法，在这个方法中会提交下一个心跳消息任务给全局定时器
-                            onHeartbeatReturned(Replicator.this.id, status, request, getResponse(), monotonicSendTimeMs);
+                            final RpcRequests.AppendEntriesResponse response = getResponse();
+                            dispatch(Replicator.this.id, () -> onHeartbeatReturned(Replicator.this.id, status,
+                                    request, response, monotonicSendTimeMs));
                         }
                     };
                 }
-                //发送心跳消息
-                this.heartbeatInFly = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(), request,
-                        this.options.getElectionTimeoutMs() / 2, heartbeatDone);
+                if (heartBeatClosure == null && this.raftOptions.isEnableHeartbeatCoalescing()) {
+                    //定时发送的心跳消息交给合并器，和其他复制组发往同一个节点的心跳消息一起发送
+                    //外部传入了回调方法的心跳消息一般是读请求或者领导权转移触发的，对延迟比较敏感，所以还是单独发送
+                    this.heartbeatInFly = HeartbeatCoalescer.getInstance().submit(this.rpcService,
+                            this.options.getServerId().getEndpoint(), this.options.getPeerId().getEndpoint(), request,
+                            this.options.getElectionTimeoutMs() / 2, this.raftOptions.getHeartbeatCoalesceDelayMs(),
+                            this.raftOptions.getMaxHeartbeatCoalesceBatch(), heartbeatDone);
+                } else {
+                    //发送心跳消息
+                    this.heartbeatInFly = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(), request,
+                            this.options.getElectionTimeoutMs() / 2, heartbeatDone);
+                }
             } else {
                 //走到这里意味着不是心跳消息，而是探针消息
                 rb.setData(ByteString.EMPTY);
@@ -981,13 +1265,15 @@ public class Replicator implements ThreadId.OnError {
 
                             @Override
                             public void run(final Status status) {
-                                onRpcReturned(Replicator.this.id, RequestType.AppendEntries, status, request,
-                                        getResponse(), seq, stateVersion, monotonicSendTimeMs);
+                                final RpcRequests.AppendEntriesResponse response = getResponse();
+                                dispatch(Replicator.this.id, () -> onRpcReturned(Replicator.this.id,
+                                        RequestType.AppendEntries, status, request, response, seq, stateVersion,
+                                        monotonicSendTimeMs));
                             }
 
                         });
                 //把这个请求的信息存放到inflights队列中
-                addInflight(RequestType.AppendEntries, this.nextIndex, 0, 0, seq, rpcFuture);
+                addInflight(RequestType.AppendEntries, this.nextIndex, 0, 0, 0, seq, rpcFuture);
             }
             LOG.debug("Node {} send HeartbeatRequest to {} term {} lastCommittedIndex {}", this.options.getNode()
                     .getNodeId(), this.options.getPeerId(), this.options.getTerm(), rb.getCommittedIndex());
@@ -1041,20 +1327,23 @@ public class Replicator implements ThreadId.OnError {
             id.unlock();
             return;
         }
-        //这里得到的是当前复制器对象的存放跟随者响应的队列
-        final PriorityQueue<RpcResponse> holdingQueue = r.pendingResponses;
-        //将接收到这这个响应放到响应队列中，这里看到，这个响应会被包装到RpcResponse对象中，然后把RpcResponse对象放到响应队列中
-        //响应的序号其实就是请求序号，这个逻辑在调用onRpcReturned方法的外层方法中可以看到
-        //这里还要注意，这个holdingQueue是一个优先级队列，存放RpcResponse对象的时候，是会按照响应序号排序的
-        holdingQueue.add(new RpcResponse(reqType, seq, status, request, response, rpcSendTime));
-        //这里判断一下响应队列中存放的响应是不是超过了配置的最大值，如果超过了，就意味着肯定有之前某个请求一直没有收到响应
+        //根据请求序号把响应直接放到对应请求的槽位中，不需要再创建对象，也不需要排序
+        //找不到对应的请求说明请求已经被处理过了，或者请求还没有放到数组中，这时候只能忽略这个响应
+        final InflightRing inflights = r.inflights;
+        if (!inflights.setResponse(seq, reqType, status, request, response, rpcSendTime)) {
+            LOG.debug("Replicator {} ignore response because request not found, seq={}, status={}.", r, seq, status);
+            id.unlock();
+            return;
+        }
+        //这里判断一下已经收到但是还没有处理的响应是不是超过了配置的最大值，如果超过了，就意味着肯定有之前某个请求一直没有收到响应
         //因为只有处理了之前请求的响应，才会处理后面请求的响应
-        if (holdingQueue.size() > r.raftOptions.getMaxReplicatorInflightMsgs()) {
+        if (inflights.getRespondedCount() > r.raftOptions.getMaxReplicatorInflightMsgs()) {
             LOG.warn("Too many pending responses {} for replicator {}, maxReplicatorInflightMsgs={}",
-                    holdingQueue.size(), r.options.getPeerId(), r.raftOptions.getMaxReplicatorInflightMsgs());
-            //这时候进行了下面一些操作，首先通过resetInflights方法重置了存放请求队列和响应队列
+                    inflights.getRespondedCount(), r.options.getPeerId(), r.raftOptions.getMaxReplicatorInflightMsgs());
+            //这时候进行了下面一些操作，首先通过resetInflights方法重置了存放请求和响应的数组
             //并且会增加版本号，这样一来，旧的请求就都会被丢弃了，然后会重新发送一个探针消息，和跟随者节点确认一下节点状态
             //更新要发送给跟随者节点的下一条日志索引
+            r.window.onCongestion();
             r.resetInflights();
             //这里就是设置当前复制器状态为发送探针消息状态
             r.setState(State.Probe);
@@ -1074,17 +1363,13 @@ public class Replicator implements ThreadId.OnError {
         }
         try {//定义一个局部变量，记录本次循环处理的相应的个数
             int processed = 0;
-            //开始遍历队列
-            while (!holdingQueue.isEmpty()) {
-                //从响应队列中获得序号最小的那个响应，holdingQueue是优先级队列，排在队首的响应肯定是序号最小的响应
-                //注意，现在处理的响应很可能并不是本次收到的响应，收到的响应直接就放到相应队列中了
-                //然后根据序号由小到大依次处理
-                final RpcResponse queuedPipelinedResponse = holdingQueue.peek();
-                //判断这个响应的序号是不是等于要求处理的这个请求序号，如果不相等，说明本次接收到的响应不符合要求
-                //也就不能处理，否则会造成日志处理混乱，注意啊，这里是第一次遇到不相等的时候，就会退出循环
-                //但是之前循环了那么多次，也许每一次的响应序号和要求的请求序号都匹配上了
-                //那就会直接处理这个响应，然后记录处理相应的个数
-                if (queuedPipelinedResponse.seq != r.requiredNextSeq) {
+            while (true) {
+                //根据要求处理的请求序号直接找到对应的槽位，注意，现在处理的响应很可能并不是本次收到的响应
+                //收到的响应直接就放到槽位中了，然后根据序号由小到大依次处理
+                final Inflight inflight = inflights.get(r.requiredNextSeq);
+                //要求处理的请求还没有收到响应，就不能处理后面的响应，否则会造成日志处理混乱，注意啊，这里是第一次遇到还没有响应的时候，就会退出循环
+                //但是之前循环了那么多次，也许每一次都找到了响应，那就会直接处理这个响应，然后记录处理相应的个数
+                if (inflight == null || !inflight.hasResponse) {
                     //这里判断一下，如果在这次循环中成功处理响应了，就记录日志
                     if (processed > 0) {
                         if (isLogDebugEnabled) {
@@ -1099,50 +1384,27 @@ public class Replicator implements ThreadId.OnError {
                         id.unlock();
                         return;
                     }
-                }//从响应队列中，把匹配成功的响应从队列中删除，上面已经获得响应了
-                holdingQueue.remove();
+                }
                 //自增处理响应的次数
                 processed++;
-                //从请求队列中取出队首的请求，按理说，这时候请求和响应已经匹配上了
-                //取出的时候，就会把请求从队列中移除了
-                final Inflight inflight = r.pollInflight();
-                //对请求进行判空处理，如果这里是null，说明请求队列是空的
-                if (inflight == null) {
-                    //如果为空，说明请求已经被处理过了，或者根本就没有发过请求
-                    //可这里怎么会为空呢？是一个兜底操作吗？
-                    if (isLogDebugEnabled) {
-                        sb.append("ignore response because request not found: ")
-                                .append(queuedPipelinedResponse)
-                                .append(",\n");
-                    }
-                    continue;
-                }
-                //再次校验请求与响应的序号是否相等，这里怎么会不相等呢？不相等前面不就白判断了吗？
-                //也是一个兜底操作吗？除非inflights队列中的请求移除不及时？
-                if (inflight.seq != queuedPipelinedResponse.seq) {
-                    LOG.warn(
-                            "Replicator {} response sequence out of order, expect {}, but it is {}, reset state to try again.",
-                            r, inflight.seq, queuedPipelinedResponse.seq);
-                    //重置队列
-                    r.resetInflights();
-                    r.setState(State.Probe);
-                    continueSendEntries = false;
-                    //这里的这个方法就是设置一个定时器，在超过了设定时间后，再让当前复制器向跟随者节点发送探针消息
-                    //然后再判断是否可以继续发送日志，一般这个方法都是在跟随者节点出问题时才会被调用，但是在当前的if分支中，跟随着节点会出什么问题呢？
-                    r.block(Utils.nowMs(), RaftError.EREQUEST.getNumber());
-                    return;
-                }
+                //先取出槽位中的响应，再把请求从数组中移除，移除之后槽位中的引用就被清空了
+                final RequestType responseType = inflight.responseType;
+                final Status responseStatus = inflight.status;
+                final Message queuedRequest = inflight.request;
+                final Message queuedResponse = inflight.response;
+                final long queuedSendTime = inflight.rpcSendTime;
+                r.pollInflight(inflight);
                 try {//这里就是根据具体的请求类型，其实也就是响应类型来处理具体的响应了
-                    switch (queuedPipelinedResponse.requestType) {
+                    switch (responseType) {
                         case AppendEntries://复制日志请求收到的响应就交给下面这个方法处理
-                            continueSendEntries = onAppendEntriesReturned(id, inflight, queuedPipelinedResponse.status,
-                                    (RpcRequests.AppendEntriesRequest) queuedPipelinedResponse.request,
-                                    (RpcRequests.AppendEntriesResponse) queuedPipelinedResponse.response, rpcSendTime, startTimeMs, r);
+                            continueSendEntries = onAppendEntriesReturned(id, inflight, responseStatus,
+                                    (RpcRequests.AppendEntriesRequest) queuedRequest,
+                                    (RpcRequests.AppendEntriesResponse) queuedResponse, queuedSendTime, startTimeMs, r);
                             break;
                         case Snapshot://如果是安装快照操作的响应，就调用这个方法处理
-                            continueSendEntries = onInstallSnapshotReturned(id, r, queuedPipelinedResponse.status,
-                                    (RpcRequests.InstallSnapshotRequest) queuedPipelinedResponse.request,
-                                    (RpcRequests.InstallSnapshotResponse) queuedPipelinedResponse.response);
+                            continueSendEntries = onInstallSnapshotReturned(id, r, responseStatus,
+                                    (RpcRequests.InstallSnapshotRequest) queuedRequest,
+                                    (RpcRequests.InstallSnapshotResponse) queuedResponse);
                             break;
                     }
                 } finally {
@@ -1173,14 +1435,55 @@ public class Replicator implements ThreadId.OnError {
 
 
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：根据跟随者返回的冲突任期和冲突索引计算下一条要发送的日志索引，这就是raft论文中提到的快速回退优化
+     * 如果领导者的日志中也有冲突任期的日志，就从领导者这个任期的最后一条日志的下一条开始发送，否则就从跟随者冲突任期的第一条日志开始发送
+     * 跟随者没有prevLogIndex这条日志的时候冲突任期为0，直接从冲突索引开始发送。日志的任期是随着索引递增的，所以这里使用二分查找
+     * 每个冲突的任期只需要一次往返就能跳过，不用每次只回退一条日志
+     */
+    static long findNextIndexByConflict(final LogManager logManager, final long prevLogIndex, final long conflictTerm,
+                                        final long conflictIndex) {
+        long nextIndex = conflictIndex;
+        if (conflictTerm > 0) {
+            //找到领导者日志中任期小于等于冲突任期的最后一条日志
+            long lo = logManager.getFirstLogIndex();
+            long hi = prevLogIndex;
+            long found = -1;
+            while (lo <= hi) {
+                final long mid = lo + ((hi - lo) >>> 1);
+                if (logManager.getTerm(mid) <= conflictTerm) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (found > 0 && logManager.getTerm(found) == conflictTerm) {
+                nextIndex = found + 1;
+            }
+        }
+        //不管怎么计算，都必须比这次请求的下一条日志小，保证每次都能向前推进，同时索引最小是1
+        return Math.max(1, Math.min(nextIndex, prevLogIndex));
+    }
+
     /**
      * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
      * @author：陈清风扬
      * @date:2023/12/14
-     * @方法描述：从请求队列中获取请求的方法
+     * @方法描述：把已经处理完响应的请求从环形数组中移除的方法
      */
-    private Inflight pollInflight() {
-        return this.inflights.poll();
+    private void pollInflight(final Inflight inflight) {
+        //请求已经被清空了，字节数和预算也已经一起释放了
+        if (!inflight.inUse) {
+            return;
+        }
+        this.inflights.remove(inflight);
+        this.inflightBytes -= inflight.size;
+        this.budgetBytes -= inflight.budgetSize;
+        this.memoryBudget.release(inflight.budgetSize);
     }
 
 
@@ -1193,9 +1496,11 @@ public class Replicator implements ThreadId.OnError {
     void resetInflights() {
         //自增版本号
         this.version++;
-        //清空请求和响应队列
+        //清空请求和响应
         this.inflights.clear();
-        this.pendingResponses.clear();
+        this.memoryBudget.release(this.budgetBytes);
+        this.budgetBytes = 0;
+        this.inflightBytes = 0;
         //更新请求序号
         final int rs = Math.max(this.reqSeq, this.requiredNextSeq);
         //得到下一个要分配的请求序号
@@ -1237,8 +1542,52 @@ public class Replicator implements ThreadId.OnError {
     }
 
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：学习者复制器申请不到令牌的时候调用这个方法，等到令牌足够之后再继续发送日志
+     * 这里不能复用block方法，block方法超时之后会发送探针请求，会把还没有收到响应的请求全部清空
+     */
+    private void waitThrottle() {
+        if (this.throttleTimer == null) {
+            final long waitMs = Math.max(1, this.learnerThrottle.getWaitMs());
+            this.statInfo.runningState = RunningState.BLOCKING;
+            try {
+                this.throttleTimer = this.timerManager.schedule(() -> onThrottleTimeout(this.id), waitMs,
+                    TimeUnit.MILLISECONDS);
+            } catch (final Exception e) {
+                LOG.error("Fail to add throttle timer", e);
+            }
+        }
+        unlockId();
+    }
+
+    static void onThrottleTimeout(final ThreadId id) {
+        if (id == null) {
+            return;
+        }
+        dispatch(id, () -> {
+            final Replicator r = (Replicator) id.lock();
+            if (r == null) {
+                return;
+            }
+            r.throttleTimer = null;
+            //等待期间复制器可能已经开始发送探针请求或者安装快照了，这时候由那些流程负责继续发送日志
+            if (r.state != State.Replicate) {
+                id.unlock();
+                return;
+            }
+            r.sendEntries();
+        });
+    }
+
     static void onBlockTimeout(final ThreadId arg) {
-        //在一个线程池中执行onBlockTimeoutInNewThread方法
+        //在复制器专属的执行器中执行onBlockTimeoutInNewThread方法，没有开启的话就在一个线程池中执行
+        if (arg != null && ((Replicator) arg.getData()).eventExecutor != null) {
+            dispatch(arg, () -> onBlockTimeoutInNewThread(arg));
+            return;
+        }
         RpcUtils.runInThread(() -> onBlockTimeoutInNewThread(arg));
     }
 
@@ -1307,6 +1656,8 @@ public class Replicator implements ThreadId.OnError {
                         .append(status);
                 LOG.debug(sb.toString());
             }
+            //请求失败了，可能是超时，也可能是连接断开，缩小复制窗口
+            r.window.onCongestion();
             r.resetInflights();
             r.setState(State.Probe);
             //复制器对象阻塞一会，然后再向跟随者节点发送请求
@@ -1324,7 +1675,8 @@ public class Replicator implements ThreadId.OnError {
                     sb.append(" is busy, sleep, errorMsg='")
                             .append(response.getErrorResponse().getErrorMsg()).append("'");
                     LOG.debug(sb.toString());
-                }//重置当前复制器对象的状态
+                }//跟随者繁忙，缩小复制窗口，然后重置当前复制器对象的状态
+                r.window.onCongestion();
                 r.setState(State.Probe);
                 r.resetInflights();
                 r.block(startTimeMs, status.getCode());
@@ -1362,7 +1714,13 @@ public class Replicator implements ThreadId.OnError {
             //下面是复制日志的对应响应，大家应该还记得，这个方法在发送探针消息和复制日志请求，收到响应后都会被回调
             //判断跟随者的要接收的下一条日志是否比领导者要发送的下一条日志索引小
             //如果小则意味着跟随者节点进度落后
-            if (response.getLastLogIndex() + 1 < r.nextIndex) {
+            //如果跟随者在响应中返回了冲突任期和冲突索引，就直接根据这两个值跳到合适的位置，一次跳过整个冲突的任期
+            if (response.hasConflictIndex()) {
+                r.nextIndex = findNextIndexByConflict(r.options.getLogManager(), request.getPrevLogIndex(),
+                        response.getConflictTerm(), response.getConflictIndex());
+                LOG.debug("Peer={} conflictTerm={} conflictIndex={}, reset nextIndex to {}", r.options.getPeerId(),
+                        response.getConflictTerm(), response.getConflictIndex(), r.nextIndex);
+            } else if (response.getLastLogIndex() + 1 < r.nextIndex) {
                 LOG.debug("LastLogIndex at peer={} is {}", r.options.getPeerId(), response.getLastLogIndex());
                 //这里就把下一条要发送的日志索引设置为跟随者节点的，
                 r.nextIndex = response.getLastLogIndex() + 1;
@@ -1408,6 +1766,8 @@ public class Replicator implements ThreadId.OnError {
         final int entriesSize = request.getEntriesCount();
         //如果数量大于0，就说明这次的请求肯定是日志复制的请求，并且也成功了
         if (entriesSize > 0) {
+            //日志请求成功了，根据这个请求的字节数和往返时间调整复制窗口
+            r.window.onAck(inflight.size, Utils.monotonicMs() - rpcSendTime);
             //判断当前复制器对象对应的身份是不是跟随者
             if (r.options.getReplicatorType().isFollower()) {
                 //如果是的话，就要在领导者判断发送成功的日志是否收到过半投票了
@@ -1526,12 +1886,13 @@ public class Replicator implements ThreadId.OnError {
 
                         @Override
                         public void run(final Status status) {
-                            onRpcReturned(Replicator.this.id, RequestType.Snapshot, status, request, getResponse(), seq,
-                                    stateVersion, monotonicSendTimeMs);
+                            final RpcRequests.InstallSnapshotResponse response = getResponse();
+                            dispatch(Replicator.this.id, () -> onRpcReturned(Replicator.this.id, RequestType.Snapshot,
+                                    status, request, response, seq, stateVersion, monotonicSendTimeMs));
                         }
                     });
             //为该请求创建Inflight对象，并把该对象添加到inflights队列中
-            addInflight(RequestType.Snapshot, this.nextIndex, 0, 0, seq, rpcFuture);
+            addInflight(RequestType.Snapshot, this.nextIndex, 0, 0, 0, seq, rpcFuture);
         } finally {
             if (doUnlock) {
                 unlockId();
@@ -1629,15 +1990,11 @@ public class Replicator implements ThreadId.OnError {
         final Replicator r = (Replicator) data;
         if (errorCode == RaftError.ESTOP.getNumber()) {
             try {
-                for (final Inflight inflight : r.inflights) {
-                    if (inflight != r.rpcInFly) {
+                r.inflights.forEach(inflight -> {
+                    if (inflight.rpcFuture != null) {
                         inflight.rpcFuture.cancel(true);
                     }
-                }
-                if (r.rpcInFly != null) {
-                    r.rpcInFly.rpcFuture.cancel(true);
-                    r.rpcInFly = null;
-                }
+                });
                 if (r.heartbeatInFly != null) {
                     r.heartbeatInFly.cancel(true);
                     r.heartbeatInFly = null;
@@ -1650,6 +2007,10 @@ public class Replicator implements ThreadId.OnError {
                     r.blockTimer.cancel(true);
                     r.blockTimer = null;
                 }
+                if (r.throttleTimer != null) {
+                    r.throttleTimer.cancel(true);
+                    r.throttleTimer = null;
+                }
                 if (r.waitId >= 0) {
                     r.options.getLogManager().removeWaiter(r.waitId);
                 }
@@ -1690,7 +2051,7 @@ public class Replicator implements ThreadId.OnError {
             done.setMaxMargin(maxMargin);
             //下面就是向定时任务管理器提交了一个定时任务，当追赶进度超时后，就会执行onCatchUpTimedOut方法
             if (dueTime > 0) {
-                done.setTimer(r.timerManager.schedule(() -> onCatchUpTimedOut(id), dueTime - Utils.nowMs(),
+                done.setTimer(r.timerManager.schedule(() -> dispatch(id, () -> onCatchUpTimedOut(id)), dueTime - Utils.nowMs(),
                         TimeUnit.MILLISECONDS));
             }
             //这里才会把从外层方法传递过来的回调对象赋值给当前复制器对象的catchUpClosure成员变量
@@ -1775,6 +2136,14 @@ public class Replicator implements ThreadId.OnError {
         final ThreadId savedId = this.id;
         LOG.info("Replicator {} is going to quit", savedId);
         releaseReader();
+        //复制器销毁之后不会再处理还没有收到的响应，所以这里把请求占用的预算全部释放
+        this.memoryBudget.release(this.budgetBytes);
+        this.budgetBytes = 0;
+        this.inflightBytes = 0;
+        final MetricRegistry metricRegistry = this.options.getNode().getNodeMetrics().getMetricRegistry();
+        if (metricRegistry != null) {
+            metricRegistry.removeMatching(MetricFilter.startsWith(this.metricName));
+        }
         setState(State.Destroyed);
         savedId.unlockAndDestroy();
         this.id = null;
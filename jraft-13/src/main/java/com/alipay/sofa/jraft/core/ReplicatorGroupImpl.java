@@ -49,6 +49,8 @@ public class ReplicatorGroupImpl implements ReplicatorGroup {
     //选举超时时间
     private int electionTimeoutMs = -1;
     private RaftOptions raftOptions;
+    //学习者复制器使用的配置参数，批次大小和未收到响应的请求数量使用学习者专属的配置
+    private RaftOptions learnerRaftOptions;
     //表明每一个节点身份的Map，相对于领导者而言，其他的节点可能是跟随者，也可能是一个学习者，这个Map中存放着映射关系
     //这个是节点出现异常的Map映射
     private final Map<PeerId, ReplicatorType> failureReplicators = new ConcurrentHashMap<>();
@@ -59,6 +61,10 @@ public class ReplicatorGroupImpl implements ReplicatorGroup {
         this.dynamicTimeoutMs = opts.getHeartbeatTimeoutMs();
         this.electionTimeoutMs = opts.getElectionTimeoutMs();
         this.raftOptions = opts.getRaftOptions();
+        this.learnerRaftOptions = this.raftOptions.copy();
+        this.learnerRaftOptions.setMaxEntriesSize(this.raftOptions.getLearnerMaxEntriesSize());
+        this.learnerRaftOptions.setMaxBodySize(this.raftOptions.getLearnerMaxBodySize());
+        this.learnerRaftOptions.setMaxReplicatorInflightMsgs(this.raftOptions.getLearnerMaxInflightMsgs());
         this.commonOptions = new ReplicatorOptions();
         this.commonOptions.setDynamicHeartBeatTimeoutMs(this.dynamicTimeoutMs);
         this.commonOptions.setElectionTimeoutMs(this.electionTimeoutMs);
@@ -175,7 +181,8 @@ public class ReplicatorGroupImpl implements ReplicatorGroup {
             }
         }
         //在这里真正创建了一个复制器对象，虽然返回了一个ThreadId对象，但是该对象内部持有者复制器对象
-        final ThreadId rid = Replicator.start(opts, this.raftOptions);
+        final ThreadId rid = Replicator.start(opts, replicatorType.isLearner() ? this.learnerRaftOptions
+                : this.raftOptions);
         //如果复制器对象创建失败则返回false
         if (rid == null) {
             LOG.error("Fail to start replicator to peer={}, replicatorType={}.", peer, replicatorType);
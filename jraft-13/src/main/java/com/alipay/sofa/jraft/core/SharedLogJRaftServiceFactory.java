@@ -0,0 +1,36 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.impl.SharedRocksDBLogStorage;
+import com.alipay.sofa.jraft.util.Requires;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/9
+ * @方法描述：使用共享日志引擎的JRaft服务工厂，一个进程中要运行很多raft组的时候，用户可以把这个工厂设置到NodeOptions中
+ * 这样所有使用这个工厂的节点的日志都会存放在enginePath目录下的同一个RocksDB数据库中，元数据和快照还是和默认工厂一样
+ */
+public class SharedLogJRaftServiceFactory extends DefaultJRaftServiceFactory {
+
+    //共享日志引擎的目录
+    private final String enginePath;
+
+    public SharedLogJRaftServiceFactory(final String enginePath) {
+        Requires.requireTrue(StringUtils.isNotBlank(enginePath), "Blank shared log engine path.");
+        this.enginePath = enginePath;
+    }
+
+    //日志存储器的uri在这里只是作为组标识使用，日志真正存放在共享引擎的目录中
+    @Override
+    public LogStorage createLogStorage(final String uri, final RaftOptions raftOptions) {
+        Requires.requireTrue(StringUtils.isNotBlank(uri), "Blank log storage uri.");
+        return new SharedRocksDBLogStorage(uri, this.enginePath, raftOptions);
+    }
+
+    public String getEnginePath() {
+        return this.enginePath;
+    }
+}
@@ -37,6 +37,9 @@ public class LogEntry implements Checksum {
     private long checksum;
     //是否有校验和
     private boolean hasChecksum;
+    //日志在内存中实际占用的data字节数，-1表示就是data的长度。跟随者的日志data是请求字节数组的只读切片
+    //只要还有一条日志引用着这个字节数组，整个数组都不会被回收，所以内存缓存统计字节数的时候要使用这个值
+    private int retainedBytes = -1;
 
     public List<PeerId> getLearners() {
         return this.learners;
@@ -165,6 +168,14 @@ public class LogEntry implements Checksum {
         this.data = data;
     }
 
+    public int getRetainedBytes() {
+        return this.retainedBytes;
+    }
+
+    public void setRetainedBytes(final int retainedBytes) {
+        this.retainedBytes = retainedBytes;
+    }
+
     @Override
     public String toString() {
         return "LogEntry [type=" + this.type + ", id=" + this.id + ", peers=" + this.peers + ", oldPeers="
@@ -1,10 +1,13 @@
 package com.alipay.sofa.jraft.entity.codec;
 
 import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
 import com.alipay.sofa.jraft.entity.codec.v2.V2Decoder;
+import com.alipay.sofa.jraft.entity.codec.v3.LogEntryV3CodecFactory;
+import com.alipay.sofa.jraft.entity.codec.v3.V3Decoder;
 
 
-
+//根据日志的魔数自动选择解码器，V3格式的日志交给V3解码器，其他的都交给V2解码器，这样切换到V3编码之后，之前落盘的V2日志仍然可以读取
 public class AutoDetectDecoder implements LogEntryDecoder {
 
     private AutoDetectDecoder() {
@@ -18,7 +21,18 @@ public class AutoDetectDecoder implements LogEntryDecoder {
         if (bs == null || bs.length < 1) {
             return null;
         }
+        if (LogEntryV3CodecFactory.isV3(bs)) {
+            return V3Decoder.INSTANCE.decode(bs);
+        }
         return V2Decoder.INSTANCE.decode(bs);
     }
 
-}
\ No newline at end of file
+    @Override
+    public LogId decodeLogId(final byte[] bs) {
+        if (LogEntryV3CodecFactory.isV3(bs)) {
+            return V3Decoder.INSTANCE.decodeLogId(bs);
+        }
+        return V2Decoder.INSTANCE.decodeLogId(bs);
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.alipay.sofa.jraft.entity.codec;
+
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import com.alipay.sofa.jraft.util.compress.CompressType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：给日志落盘加上压缩功能的编解码器工厂，它包装了用户配置的编解码器工厂。业务日志的数据超过阈值的时候
+ * 编码器会把原来编码器编码出来的整条日志压缩，然后加上一个压缩头部，格式是[魔数 2字节][压缩类型 1字节][原始长度 4字节][任期 8字节][索引 8字节][压缩后的数据]
+ * 头部带上日志ID之后，日志存储器重建任期索引的时候不需要解压日志。之前的压缩头部没有日志ID，魔数是MAGIC_BYTES，解码的时候两种头部都支持
+ * 解码器读到带有压缩头部的日志就先解压再交给原来的解码器，没有压缩头部的日志直接交给原来的解码器
+ * 所以即使关闭了压缩，之前落盘的压缩日志仍然可以读取，日志管理器在初始化日志存储器的时候总是会使用这个工厂包装用户的工厂
+ */
+public class CompressedLogEntryCodecFactory implements LogEntryCodecFactory {
+
+    //没有日志ID的压缩头部的魔数，第二个字节和V2，V3的魔数都不一样，现在的编码器不再写这种头部，只用来读取之前落盘的日志
+    public static final byte[] MAGIC_BYTES         = new byte[] { (byte) 0xBB, (byte) 0xC1 };
+    //没有日志ID的压缩头部的长度
+    public static final int    HEADER_SIZE         = MAGIC_BYTES.length + 1 + 4;
+    //带有日志ID的压缩头部的魔数
+    public static final byte[] MAGIC_BYTES_WITH_ID = new byte[] { (byte) 0xBB, (byte) 0xC2 };
+    //带有日志ID的压缩头部中任期的偏移量，任期后面就是索引
+    public static final int    TERM_OFFSET         = HEADER_SIZE;
+    public static final int    INDEX_OFFSET        = TERM_OFFSET + 8;
+    //带有日志ID的压缩头部的长度
+    public static final int    HEADER_WITH_ID_SIZE = INDEX_OFFSET + 8;
+
+    private final LogEntryCodecFactory delegate;
+    private final LogEntryEncoder      encoder;
+    private final LogEntryDecoder      decoder;
+
+    public CompressedLogEntryCodecFactory(final LogEntryCodecFactory delegate, final CompressType compressType,
+                                          final int threshold) {
+        this.delegate = delegate;
+        this.encoder = compressType == null || compressType == CompressType.NONE ? delegate.encoder()
+            : new CompressedEncoder(delegate.encoder(), compressType, threshold);
+        this.decoder = new CompressedDecoder(delegate.decoder());
+    }
+
+    @Override
+    public LogEntryEncoder encoder() {
+        return this.encoder;
+    }
+
+    @Override
+    public LogEntryDecoder decoder() {
+        return this.decoder;
+    }
+
+    public LogEntryCodecFactory getDelegate() {
+        return this.delegate;
+    }
+
+    //判断字节数组是不是带有压缩头部的日志，两种压缩头部都算
+    public static boolean isCompressed(final byte[] bs) {
+        return hasLogId(bs)
+               || (bs != null && bs.length >= HEADER_SIZE && bs[0] == MAGIC_BYTES[0] && bs[1] == MAGIC_BYTES[1]);
+    }
+
+    //判断字节数组是不是带有日志ID的压缩头部的日志
+    public static boolean hasLogId(final byte[] bs) {
+        return bs != null && bs.length >= HEADER_WITH_ID_SIZE && bs[0] == MAGIC_BYTES_WITH_ID[0]
+               && bs[1] == MAGIC_BYTES_WITH_ID[1];
+    }
+
+    //解压带有压缩头部的日志，得到原来编码器编码出来的字节数组，压缩类型未知或者数据损坏就返回null
+    static byte[] decompress(final byte[] bs) {
+        final CompressType type = CompressType.forNumber(bs[MAGIC_BYTES.length]);
+        final int rawLen = Bits.getInt(bs, MAGIC_BYTES.length + 1);
+        if (type == null || type == CompressType.NONE || rawLen < 0) {
+            return null;
+        }
+        final int headerSize = hasLogId(bs) ? HEADER_WITH_ID_SIZE : HEADER_SIZE;
+        try {
+            final ByteBuffer raw = type.getCompressor().decompress(
+                ByteBuffer.wrap(bs, headerSize, bs.length - headerSize), rawLen);
+            return raw.array();
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static class CompressedEncoder implements LogEntryEncoder {
+
+        private final LogEntryEncoder delegate;
+        private final CompressType    compressType;
+        private final int             threshold;
+
+        CompressedEncoder(final LogEntryEncoder delegate, final CompressType compressType, final int threshold) {
+            this.delegate = delegate;
+            this.compressType = compressType;
+            this.threshold = threshold;
+        }
+
+        //只压缩数据足够大的业务日志，配置变更日志总是保持原样
+        private boolean shouldCompress(final LogEntry log) {
+            return log.getType() == EnumOutter.EntryType.ENTRY_TYPE_DATA && log.getData() != null
+                   && log.getData().remaining() >= this.threshold;
+        }
+
+        //压缩原来编码器编码出来的日志，压缩之后没有变小就返回null
+        private ByteBuffer compress(final byte[] raw) {
+            final ByteBuffer compressed = this.compressType.getCompressor().compress(ByteBuffer.wrap(raw));
+            if (compressed == null || compressed.remaining() + HEADER_WITH_ID_SIZE >= raw.length) {
+                return null;
+            }
+            return compressed;
+        }
+
+        private void writeHeader(final ByteBuffer buf, final LogEntry log, final int rawLen) {
+            buf.put(MAGIC_BYTES_WITH_ID);
+            buf.put((byte) this.compressType.getNumber());
+            buf.putInt(rawLen);
+            buf.putLong(log.getId().getTerm());
+            buf.putLong(log.getId().getIndex());
+        }
+
+        @Override
+        public byte[] encode(final LogEntry log) {
+            final byte[] raw = this.delegate.encode(log);
+            if (!shouldCompress(log)) {
+                return raw;
+            }
+            final ByteBuffer compressed = compress(raw);
+            if (compressed == null) {
+                return raw;
+            }
+            final byte[] ret = new byte[HEADER_WITH_ID_SIZE + compressed.remaining()];
+            writeHeader(ByteBuffer.wrap(ret), log, raw.length);
+            compressed.get(ret, HEADER_WITH_ID_SIZE, compressed.remaining());
+            return ret;
+        }
+
+        //不需要压缩的日志交给原来编码器的直接编码方法，开启日志压缩之后直接编码落盘的功能仍然有效
+        //需要压缩的日志只能先编码成字节数组再压缩，压缩头部和压缩后的数据直接写入out的buffer中，不再创建结果数组
+        @Override
+        public void encode(final LogEntry log, final ByteBufferCollector out) {
+            if (!shouldCompress(log)) {
+                this.delegate.encode(log, out);
+                return;
+            }
+            final byte[] raw = this.delegate.encode(log);
+            final ByteBuffer compressed = compress(raw);
+            if (compressed == null) {
+                out.put(raw);
+                return;
+            }
+            final ByteBuffer buf = out.getBuffer(HEADER_WITH_ID_SIZE + compressed.remaining());
+            writeHeader(buf, log, raw.length);
+            buf.put(compressed);
+        }
+    }
+
+    private static class CompressedDecoder implements LogEntryDecoder {
+
+        private final LogEntryDecoder delegate;
+
+        CompressedDecoder(final LogEntryDecoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public LogEntry decode(final byte[] bs) {
+            if (!isCompressed(bs)) {
+                return this.delegate.decode(bs);
+            }
+            final byte[] raw = decompress(bs);
+            return raw != null ? this.delegate.decode(raw) : null;
+        }
+
+        //新的压缩头部中带有日志ID，直接读取，不需要解压，只有之前落盘的没有日志ID的压缩日志才需要解压
+        @Override
+        public LogId decodeLogId(final byte[] bs) {
+            if (hasLogId(bs)) {
+                return new LogId(Bits.getLong(bs, INDEX_OFFSET), Bits.getLong(bs, TERM_OFFSET));
+            }
+            if (!isCompressed(bs)) {
+                return this.delegate.decodeLogId(bs);
+            }
+            final byte[] raw = decompress(bs);
+            return raw != null ? this.delegate.decodeLogId(raw) : null;
+        }
+    }
+}
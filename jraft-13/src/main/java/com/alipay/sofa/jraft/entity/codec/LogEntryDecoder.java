@@ -1,9 +1,16 @@
 package com.alipay.sofa.jraft.entity.codec;
 
 import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
 
 //解码器接口
 public interface LogEntryDecoder {
 
     LogEntry decode(byte[] bs);
+
+    //只解码日志ID，默认实现就是解码整条日志，固定格式的解码器可以重写这个方法直接读取日志ID
+    default LogId decodeLogId(final byte[] bs) {
+        final LogEntry entry = decode(bs);
+        return entry != null ? entry.getId() : null;
+    }
 }
@@ -2,10 +2,17 @@ package com.alipay.sofa.jraft.entity.codec;
 
 
 import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
 
 //编码器接口
 public interface LogEntryEncoder {
 
 
     byte[] encode(LogEntry log);
-}
\ No newline at end of file
+
+    //把日志编码后从out当前的位置开始写入，默认实现就是把encode方法得到的字节数组复制进去
+    //编码器可以重写这个方法，直接把日志序列化到out的buffer中，省去中间的字节数组
+    default void encode(final LogEntry log, final ByteBufferCollector out) {
+        out.put(encode(log));
+    }
+}
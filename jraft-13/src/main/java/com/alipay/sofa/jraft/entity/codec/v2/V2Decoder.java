@@ -2,15 +2,18 @@ package com.alipay.sofa.jraft.entity.codec.v2;
 
 import com.alipay.sofa.jraft.JRaftUtils;
 import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
 import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
 import com.alipay.sofa.jraft.util.AsciiStringUtil;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.ZeroByteStringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,6 +110,62 @@ public class V2Decoder implements LogEntryDecoder {
         }
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：只解码日志ID，日志存储器启动的时候重建任期索引就只需要日志ID。这里不再把整条日志解析成PBLogEntry对象
+     * 而是按照protobuf的编码格式逐个读取字段，读到任期和索引就返回，其他字段直接跳过，日志的data和节点信息都不会被解析
+     * 编码的时候字段是按照编号顺序写入的，任期和索引的编号是2和3，所以一般只需要读取日志开头的几个字节
+     */
+    @Override
+    public LogId decodeLogId(final byte[] bs) {
+        if (bs == null || bs.length < LogEntryV2CodecFactory.HEADER_SIZE) {
+            return null;
+        }
+        for (int i = 0; i < LogEntryV2CodecFactory.MAGIC_BYTES.length; i++) {
+            if (bs[i] != LogEntryV2CodecFactory.MAGIC_BYTES[i]) {
+                return null;
+            }
+        }
+        if (bs[LogEntryV2CodecFactory.MAGIC_BYTES.length] != LogEntryV2CodecFactory.VERSION) {
+            return null;
+        }
+        final CodedInputStream input = CodedInputStream.newInstance(bs, LogEntryV2CodecFactory.HEADER_SIZE,
+            bs.length - LogEntryV2CodecFactory.HEADER_SIZE);
+        long term = 0;
+        long index = 0;
+        boolean hasTerm = false;
+        boolean hasIndex = false;
+        try {
+            while (!hasTerm || !hasIndex) {
+                final int tag = input.readTag();
+                if (tag == 0) {
+                    break;
+                }
+                switch (tag >>> 3) {
+                    case LogOutter.PBLogEntry.TERM_FIELD_NUMBER:
+                        term = input.readInt64();
+                        hasTerm = true;
+                        break;
+                    case LogOutter.PBLogEntry.INDEX_FIELD_NUMBER:
+                        index = input.readInt64();
+                        hasIndex = true;
+                        break;
+                    default:
+                        if (!input.skipField(tag)) {
+                            return null;
+                        }
+                }
+            }
+        } catch (final IOException e) {
+            LOG.error("Fail to decode log id from pb log entry", e);
+            return null;
+        }
+        //和解析整条日志一样，缺少的字段按照默认值0处理
+        return new LogId(index, term);
+    }
+
     private V2Decoder() {
     }
 }
@@ -6,12 +6,16 @@ import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
 import com.alipay.sofa.jraft.error.LogEntryCorruptedException;
 import com.alipay.sofa.jraft.util.AsciiStringUtil;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
 import com.alipay.sofa.jraft.util.Requires;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
 import com.google.protobuf.ZeroByteStringHelper;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -130,6 +134,107 @@ public class V2Encoder implements LogEntryEncoder {
         }
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：直接把日志序列化到out的buffer中，编码结果和上面的encode方法完全一样，所以解码器不需要任何改动
+     * 这里没有使用PBLogEntry的构建器，而是按照PBLogEntry.writeTo方法中字段的顺序手动写入每个字段，这样业务日志在编码的时候
+     * 就不会创建构建器，PBLogEntry对象和结果字节数组了，只有配置变更日志才需要先把节点信息编码成字节数组
+     * 注意，这里没有使用CodedOutputStream.newInstance(ByteBuffer)，当前版本的protobuf在高版本JDK上操作直接内存会使用错误的内存地址
+     * 所以字段的tag和varint都是在下面的方法中按照protobuf的编码规则直接写入buffer的
+     */
+    @Override
+    public void encode(final LogEntry log, final ByteBufferCollector out) {
+        Requires.requireNonNull(log, "Null log");
+        final LogId logId = log.getId();
+        final List<byte[]> peers = encodePeers(log.getPeers());
+        final List<byte[]> oldPeers = encodePeers(log.getOldPeers());
+        final List<byte[]> learners = encodePeers(log.getLearners());
+        final List<byte[]> oldLearners = encodePeers(log.getOldLearners());
+        final ByteBuffer data = log.getData();
+        final int dataLen = data != null ? data.remaining() : 0;
+        //先计算出消息体的长度，计算方式和PBLogEntry.getSerializedSize方法一致
+        int bodyLen = CodedOutputStream.computeEnumSize(1, log.getType().getNumber())
+                      + CodedOutputStream.computeInt64Size(2, logId.getTerm())
+                      + CodedOutputStream.computeInt64Size(3, logId.getIndex());
+        bodyLen += computePeersSize(4, peers) + computePeersSize(5, oldPeers);
+        bodyLen += CodedOutputStream.computeTagSize(6) + CodedOutputStream.computeUInt32SizeNoTag(dataLen) + dataLen;
+        if (log.hasChecksum()) {
+            bodyLen += CodedOutputStream.computeInt64Size(7, log.getChecksum());
+        }
+        bodyLen += computePeersSize(8, learners) + computePeersSize(9, oldLearners);
+        //保证buffer中剩余的空间足够存放编码后的日志
+        final ByteBuffer buf = out.getBuffer(LogEntryV2CodecFactory.HEADER_SIZE + bodyLen);
+        buf.put(LogEntryV2CodecFactory.MAGIC_BYTES);
+        buf.put(LogEntryV2CodecFactory.VERSION);
+        buf.put(LogEntryV2CodecFactory.RESERVED);
+        //枚举和int64字段都是varint编码，枚举值如果是负数也会按照64位扩展，这和protobuf的规则一致
+        writeVarintField(buf, 1, log.getType().getNumber());
+        writeVarintField(buf, 2, logId.getTerm());
+        writeVarintField(buf, 3, logId.getIndex());
+        writePeers(buf, 4, peers);
+        writePeers(buf, 5, oldPeers);
+        writeTag(buf, 6, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        writeVarint(buf, dataLen);
+        if (dataLen > 0) {
+            buf.put(data.slice());
+        }
+        if (log.hasChecksum()) {
+            writeVarintField(buf, 7, log.getChecksum());
+        }
+        writePeers(buf, 8, learners);
+        writePeers(buf, 9, oldLearners);
+    }
+
+    private static void writeTag(final ByteBuffer buf, final int fieldNumber, final int wireType) {
+        writeVarint(buf, (fieldNumber << 3) | wireType);
+    }
+
+    private static void writeVarintField(final ByteBuffer buf, final int fieldNumber, final long value) {
+        writeTag(buf, fieldNumber, WireFormat.WIRETYPE_VARINT);
+        writeVarint(buf, value);
+    }
+
+    private static void writeVarint(final ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    private static List<byte[]> encodePeers(final List<PeerId> peers) {
+        if (!hasPeers(peers)) {
+            return null;
+        }
+        final List<byte[]> ret = new ArrayList<>(peers.size());
+        for (final PeerId peer : peers) {
+            ret.add(AsciiStringUtil.unsafeEncode(peer.toString()));
+        }
+        return ret;
+    }
+
+    private static int computePeersSize(final int fieldNumber, final List<byte[]> peers) {
+        int size = 0;
+        if (peers != null) {
+            for (final byte[] peer : peers) {
+                size += CodedOutputStream.computeByteArraySize(fieldNumber, peer);
+            }
+        }
+        return size;
+    }
+
+    private static void writePeers(final ByteBuffer buf, final int fieldNumber, final List<byte[]> peers) {
+        if (peers != null) {
+            for (final byte[] peer : peers) {
+                writeTag(buf, fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                writeVarint(buf, peer.length);
+                buf.put(peer);
+            }
+        }
+    }
+
     private V2Encoder() {
     }
 }
@@ -0,0 +1,67 @@
+package com.alipay.sofa.jraft.entity.codec.v3;
+
+import com.alipay.sofa.jraft.entity.codec.AutoDetectDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryCodecFactory;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+
+/**
+ * V3 log entry codec implementation, format:
+ *
+ *   0  1     2      3     4       5 ... 12   13 ... 20   21 ... 28    29 ... 32
+ *  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *  |Magic|Version| Type | Flags |   Term    |   Index   | Checksum  | Data len |
+ *  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *  | Data ...                                                                   |
+ *  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *  | Peers, oldPeers, learners, oldLearners (configuration entries only)        |
+ *  +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+ *
+ * Each peer list is a 2-byte count followed by 2-byte length prefixed ascii peer strings.
+ */
+//V3版本的编解码器工厂，业务日志只有一个固定长度的头部和日志内容，不再使用protobuf的PBLogEntry封装
+//只有配置变更日志才会在日志内容后面编码集群节点信息。默认的服务工厂还是使用V2编解码器，因为老版本的程序读不了V3格式的日志
+//用户可以重写JRaftServiceFactory的createLogEntryCodecFactory方法返回这个工厂，解码器是AutoDetectDecoder，所以已经落盘的V2日志仍然可以读取
+public class LogEntryV3CodecFactory implements LogEntryCodecFactory {
+
+    private static final LogEntryV3CodecFactory INSTANCE      = new LogEntryV3CodecFactory();
+
+    public static LogEntryV3CodecFactory getInstance() {
+        return INSTANCE;
+    }
+
+    //魔数，第二个字节和V2的魔数不一样，解码器就是根据这个字节判断日志是哪个版本编码的
+    public static final byte[] MAGIC_BYTES    = new byte[] { (byte) 0xBB, (byte) 0xD3 };
+    //版本号
+    public static final byte   VERSION        = 1;
+    //flags中表示日志有校验和的标志位
+    public static final byte   FLAG_CHECKSUM  = 0x01;
+    //下面是头部中各个字段的偏移量
+    public static final int    TYPE_OFFSET     = MAGIC_BYTES.length + 1;
+    public static final int    FLAGS_OFFSET    = TYPE_OFFSET + 1;
+    public static final int    TERM_OFFSET     = FLAGS_OFFSET + 1;
+    public static final int    INDEX_OFFSET    = TERM_OFFSET + 8;
+    public static final int    CHECKSUM_OFFSET = INDEX_OFFSET + 8;
+    public static final int    DATA_LEN_OFFSET = CHECKSUM_OFFSET + 8;
+    //头部的长度
+    public static final int    HEADER_SIZE     = DATA_LEN_OFFSET + 4;
+
+    //判断字节数组是不是V3格式编码的日志
+    public static boolean isV3(final byte[] bs) {
+        return bs != null && bs.length >= HEADER_SIZE && bs[0] == MAGIC_BYTES[0] && bs[1] == MAGIC_BYTES[1]
+               && bs[2] == VERSION;
+    }
+
+    @Override
+    public LogEntryEncoder encoder() {
+        return V3Encoder.INSTANCE;
+    }
+
+    @Override
+    public LogEntryDecoder decoder() {
+        return AutoDetectDecoder.INSTANCE;
+    }
+
+    private LogEntryV3CodecFactory() {
+    }
+}
@@ -0,0 +1,110 @@
+package com.alipay.sofa.jraft.entity.codec.v3;
+
+import com.alipay.sofa.jraft.JRaftUtils;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.util.AsciiStringUtil;
+import com.alipay.sofa.jraft.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：V3版本的日志解码器，头部的字段都在固定的偏移量上，所以解码的时候只读取需要的字段
+ * 日志内容直接包装成字节数组的一个切片，不会复制，只有配置变更日志才会解析节点信息
+ * 如果只需要日志ID，可以调用decodeLogId方法，这样连LogEntry对象都不用创建
+ */
+public class V3Decoder implements LogEntryDecoder {
+
+    private static final Logger   LOG      = LoggerFactory.getLogger(V3Decoder.class);
+
+    public static final V3Decoder INSTANCE = new V3Decoder();
+
+    @Override
+    public LogEntry decode(final byte[] bs) {
+        if (!LogEntryV3CodecFactory.isV3(bs)) {
+            return null;
+        }
+        final EnumOutter.EntryType type = EnumOutter.EntryType.forNumber(bs[LogEntryV3CodecFactory.TYPE_OFFSET]);
+        final int dataLen = Bits.getInt(bs, LogEntryV3CodecFactory.DATA_LEN_OFFSET);
+        if (type == null || dataLen < 0 || LogEntryV3CodecFactory.HEADER_SIZE + dataLen > bs.length) {
+            LOG.error("Fail to decode v3 log entry, type={}, dataLen={}, length={}.",
+                bs[LogEntryV3CodecFactory.TYPE_OFFSET], dataLen, bs.length);
+            return null;
+        }
+        final LogEntry log = new LogEntry(type);
+        log.getId().setTerm(Bits.getLong(bs, LogEntryV3CodecFactory.TERM_OFFSET));
+        log.getId().setIndex(Bits.getLong(bs, LogEntryV3CodecFactory.INDEX_OFFSET));
+        if ((bs[LogEntryV3CodecFactory.FLAGS_OFFSET] & LogEntryV3CodecFactory.FLAG_CHECKSUM) != 0) {
+            log.setChecksum(Bits.getLong(bs, LogEntryV3CodecFactory.CHECKSUM_OFFSET));
+        }
+        if (dataLen > 0) {
+            //这里得到的是字节数组的一个切片，和字节数组共享同一块内存
+            log.setData(ByteBuffer.wrap(bs, LogEntryV3CodecFactory.HEADER_SIZE, dataLen).slice());
+        }
+        if (type == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
+            try {
+                decodePeers(log, bs, LogEntryV3CodecFactory.HEADER_SIZE + dataLen);
+            } catch (final IndexOutOfBoundsException e) {
+                LOG.error("Fail to decode peers of v3 log entry {}.", log.getId(), e);
+                return null;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：只解码日志ID，日志存储器启动的时候重建任期索引就只需要日志ID
+     */
+    @Override
+    public LogId decodeLogId(final byte[] bs) {
+        if (!LogEntryV3CodecFactory.isV3(bs)) {
+            return null;
+        }
+        return new LogId(Bits.getLong(bs, LogEntryV3CodecFactory.INDEX_OFFSET), Bits.getLong(bs,
+            LogEntryV3CodecFactory.TERM_OFFSET));
+    }
+
+    //解码节点信息，依次是peers，oldPeers，learners，oldLearners
+    private static void decodePeers(final LogEntry log, final byte[] bs, final int offset) {
+        final int[] pos = new int[] { offset };
+        log.setPeers(decodePeerList(bs, pos));
+        log.setOldPeers(decodePeerList(bs, pos));
+        log.setLearners(decodePeerList(bs, pos));
+        log.setOldLearners(decodePeerList(bs, pos));
+    }
+
+    private static List<PeerId> decodePeerList(final byte[] bs, final int[] pos) {
+        final int count = Bits.getShort(bs, pos[0]);
+        pos[0] += 2;
+        if (count <= 0) {
+            return null;
+        }
+        final List<PeerId> peers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int len = Bits.getShort(bs, pos[0]);
+            pos[0] += 2;
+            if (len < 0 || pos[0] + len > bs.length) {
+                throw new IndexOutOfBoundsException("Invalid peer length: " + len);
+            }
+            peers.add(JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bs, pos[0], len)));
+            pos[0] += len;
+        }
+        return peers;
+    }
+
+    private V3Decoder() {
+    }
+}
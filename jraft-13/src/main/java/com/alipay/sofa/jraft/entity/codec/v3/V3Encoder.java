@@ -0,0 +1,120 @@
+package com.alipay.sofa.jraft.entity.codec.v3;
+
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.util.AsciiStringUtil;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import com.alipay.sofa.jraft.util.Requires;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：V3版本的日志编码器，格式见LogEntryV3CodecFactory上面的注释，业务日志编码的时候只需要写一个固定长度的头部和日志内容
+ */
+public class V3Encoder implements LogEntryEncoder {
+
+    public static final V3Encoder INSTANCE = new V3Encoder();
+
+    @Override
+    public byte[] encode(final LogEntry log) {
+        Requires.requireNonNull(log, "Null log");
+        final List<List<byte[]>> peers = encodePeers(log);
+        final ByteBuffer data = log.getData();
+        final int dataLen = data != null ? data.remaining() : 0;
+        final byte[] ret = new byte[LogEntryV3CodecFactory.HEADER_SIZE + dataLen + computePeersSize(peers)];
+        write(log, peers, ByteBuffer.wrap(ret));
+        return ret;
+    }
+
+    @Override
+    public void encode(final LogEntry log, final ByteBufferCollector out) {
+        Requires.requireNonNull(log, "Null log");
+        final List<List<byte[]>> peers = encodePeers(log);
+        final ByteBuffer data = log.getData();
+        final int dataLen = data != null ? data.remaining() : 0;
+        write(log, peers, out.getBuffer(LogEntryV3CodecFactory.HEADER_SIZE + dataLen + computePeersSize(peers)));
+    }
+
+    //把日志写入到buf中，buf剩余的空间一定是足够的
+    private static void write(final LogEntry log, final List<List<byte[]>> peers, final ByteBuffer buf) {
+        final LogId logId = log.getId();
+        final ByteBuffer data = log.getData();
+        final int dataLen = data != null ? data.remaining() : 0;
+        buf.put(LogEntryV3CodecFactory.MAGIC_BYTES);
+        buf.put(LogEntryV3CodecFactory.VERSION);
+        buf.put((byte) log.getType().getNumber());
+        buf.put(log.hasChecksum() ? LogEntryV3CodecFactory.FLAG_CHECKSUM : 0);
+        buf.putLong(logId.getTerm());
+        buf.putLong(logId.getIndex());
+        buf.putLong(log.hasChecksum() ? log.getChecksum() : 0L);
+        buf.putInt(dataLen);
+        if (dataLen > 0) {
+            buf.put(data.slice());
+        }
+        if (peers != null) {
+            for (final List<byte[]> list : peers) {
+                buf.putShort((short) (list != null ? list.size() : 0));
+                if (list != null) {
+                    for (final byte[] peer : list) {
+                        buf.putShort((short) peer.length);
+                        buf.put(peer);
+                    }
+                }
+            }
+        }
+    }
+
+    //只有配置变更日志才会编码节点信息，依次是peers，oldPeers，learners，oldLearners
+    private static List<List<byte[]>> encodePeers(final LogEntry log) {
+        if (log.getType() != EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
+            return null;
+        }
+        final List<List<byte[]>> ret = new ArrayList<>(4);
+        ret.add(encodePeerList(log.getPeers()));
+        ret.add(encodePeerList(log.getOldPeers()));
+        ret.add(encodePeerList(log.getLearners()));
+        ret.add(encodePeerList(log.getOldLearners()));
+        return ret;
+    }
+
+    private static List<byte[]> encodePeerList(final List<PeerId> peers) {
+        if (peers == null || peers.isEmpty()) {
+            return null;
+        }
+        Requires.requireTrue(peers.size() <= Short.MAX_VALUE, "Too many peers: %d", peers.size());
+        final List<byte[]> ret = new ArrayList<>(peers.size());
+        for (final PeerId peer : peers) {
+            final byte[] bs = AsciiStringUtil.unsafeEncode(peer.toString());
+            Requires.requireTrue(bs.length <= Short.MAX_VALUE, "Peer string too long: %s", peer);
+            ret.add(bs);
+        }
+        return ret;
+    }
+
+    private static int computePeersSize(final List<List<byte[]>> peers) {
+        if (peers == null) {
+            return 0;
+        }
+        int size = 0;
+        for (final List<byte[]> list : peers) {
+            size += 2;
+            if (list != null) {
+                for (final byte[] peer : list) {
+                    size += 2 + peer.length;
+                }
+            }
+        }
+        return size;
+    }
+
+    private V3Encoder() {
+    }
+}
@@ -1,5 +1,6 @@
 package com.alipay.sofa.jraft.option;
 
+import com.alipay.sofa.jraft.ApplyPartitioner;
 import com.alipay.sofa.jraft.Closure;
 import com.alipay.sofa.jraft.StateMachine;
 import com.alipay.sofa.jraft.closure.ClosureQueue;
@@ -17,6 +18,25 @@ public class FSMCallerOptions {
     private NodeImpl node;
 
     private int disruptorBufferSize = 1024;
+    //并行应用日志的通道数量和分区器，从NodeOptions中传递过来
+    private int applyLanes;
+    private ApplyPartitioner applyPartitioner;
+
+    public int getApplyLanes() {
+        return this.applyLanes;
+    }
+
+    public void setApplyLanes(int applyLanes) {
+        this.applyLanes = applyLanes;
+    }
+
+    public ApplyPartitioner getApplyPartitioner() {
+        return this.applyPartitioner;
+    }
+
+    public void setApplyPartitioner(ApplyPartitioner applyPartitioner) {
+        this.applyPartitioner = applyPartitioner;
+    }
 
     public int getDisruptorBufferSize() {
         return this.disruptorBufferSize;
@@ -0,0 +1,8 @@
+package com.alipay.sofa.jraft.option;
+
+
+//日志存储器的类型，DefaultJRaftServiceFactory会根据这个类型创建对应的日志存储器
+//RocksDB就是默认的RocksDBLogStorage，Segment就是基于预分配的分段文件和内存映射的SegmentLogStorage
+public enum LogStorageType {
+    RocksDB, Segment
+}
@@ -1,15 +1,20 @@
 package com.alipay.sofa.jraft.option;
 
 import com.alipay.remoting.util.StringUtils;
+import com.alipay.sofa.jraft.ApplyPartitioner;
 import com.alipay.sofa.jraft.JRaftServiceFactory;
 import com.alipay.sofa.jraft.StateMachine;
 import com.alipay.sofa.jraft.conf.Configuration;
 import com.alipay.sofa.jraft.core.ElectionPriority;
+import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.storage.SnapshotThrottle;
 import com.alipay.sofa.jraft.util.Copiable;
 import com.alipay.sofa.jraft.util.JRaftServiceLoader;
 import com.alipay.sofa.jraft.util.Utils;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
  * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -92,6 +97,52 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
     //索引的差值小于1000，也就是下面这个成员变量的值，那我们就可以说当前节点已经追上了领导者节点的进度
     private int catchupMargin = 1000;
 
+    //中继复制的拓扑，key是跟随者，value是给这个跟随者转发日志的中继节点，通常是和跟随者在同一个机房的另一个跟随者
+    //领导者发给这些跟随者的日志复制请求只携带日志元信息，由中继节点用自己的日志填充数据之后转发，这样领导者只需要给远端机房发送一份日志数据
+    //复制组中的每个节点都可能成为领导者，所以每个节点都要配置同样的拓扑
+    private Map<PeerId, PeerId> replicationRelays = new HashMap<>();
+
+    public Map<PeerId, PeerId> getReplicationRelays() {
+        return this.replicationRelays;
+    }
+
+    public void setReplicationRelays(final Map<PeerId, PeerId> replicationRelays) {
+        this.replicationRelays = replicationRelays;
+    }
+
+    //指定给跟随者peer转发日志的中继节点
+    public void addReplicationRelay(final PeerId peer, final PeerId relay) {
+        this.replicationRelays.put(peer, relay);
+    }
+
+    //并行应用日志的通道数量，小于等于1的时候不开启并行应用，日志还是在状态机线程中按顺序应用
+    private int applyLanes = 0;
+
+    //并行应用日志时使用的分区器，冲突键相同的日志会在同一个通道中按顺序应用，开启并行应用的时候必须设置
+    private ApplyPartitioner applyPartitioner;
+
+    public int getApplyLanes() {
+        return this.applyLanes;
+    }
+
+    public void setApplyLanes(final int applyLanes) {
+        this.applyLanes = applyLanes;
+    }
+
+    public ApplyPartitioner getApplyPartitioner() {
+        return this.applyPartitioner;
+    }
+
+    public void setApplyPartitioner(final ApplyPartitioner applyPartitioner) {
+        this.applyPartitioner = applyPartitioner;
+    }
+
+    //开启并行应用日志，状态机的onApply方法会在多个线程中被同时调用，每次调用传入的迭代器只包含一个通道的日志
+    public void enableParallelApply(final int applyLanes, final ApplyPartitioner applyPartitioner) {
+        this.applyLanes = applyLanes;
+        this.applyPartitioner = applyPartitioner;
+    }
+
     public int getCatchupMargin() {
         return this.catchupMargin;
     }
@@ -364,6 +415,9 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
         nodeOptions.setRpcProcessorThreadPoolSize(super.getRpcProcessorThreadPoolSize());
         nodeOptions.setEnableRpcChecksum(super.isEnableRpcChecksum());
         nodeOptions.setMetricRegistry(super.getMetricRegistry());
+        nodeOptions.setReplicationRelays(new HashMap<>(this.replicationRelays));
+        nodeOptions.setApplyLanes(this.applyLanes);
+        nodeOptions.setApplyPartitioner(this.applyPartitioner);
 
         return nodeOptions;
     }
@@ -379,7 +433,9 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
                 + this.raftRpcThreadPoolSize + ", enableMetrics=" + this.enableMetrics + ", " +
                 ", sharedElectionTimer=" + this.sharedElectionTimer + ", sharedVoteTimer="
                 + this.sharedVoteTimer + ", sharedStepDownTimer=" + this.sharedStepDownTimer + ", sharedSnapshotTimer="
-                + this.sharedSnapshotTimer + ", serviceFactory=" + this.serviceFactory + ", " +
+                + this.sharedSnapshotTimer + ", serviceFactory=" + this.serviceFactory + ", replicationRelays="
+                + this.replicationRelays + ", applyLanes=" + this.applyLanes + ", applyPartitioner="
+                + this.applyPartitioner + ", " +
                 " raftOptions=" + this.raftOptions + "} " + super.toString();
     }
 }
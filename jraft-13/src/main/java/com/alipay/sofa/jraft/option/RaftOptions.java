@@ -2,6 +2,7 @@ package com.alipay.sofa.jraft.option;
 
 import com.alipay.sofa.jraft.util.Copiable;
 import com.alipay.sofa.jraft.util.RpcFactoryHelper;
+import com.alipay.sofa.jraft.util.compress.CompressType;
 
 /**
  * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
@@ -59,11 +60,313 @@ public class RaftOptions implements Copiable<RaftOptions> {
 
     private ReadOnlyOption readOnlyOptions = ReadOnlyOption.ReadOnlySafe;
 
+    //日志存储器的类型，默认使用RocksDB存储日志
+    private LogStorageType logStorageType = LogStorageType.RocksDB;
+    //使用分段日志存储器时，每一个分段数据文件预分配的大小，默认64MB
+    private int logSegmentSize = 64 * 1024 * 1024;
+    //使用分段日志存储器时，每一个分段文件最多可以存放的日志条目数量，这个值决定了偏移量索引文件的大小
+    private int logSegmentMaxEntries = 1024 * 1024;
+
+    //日志管理器内存中缓存的日志占用的最大字节数，超过这个值就会淘汰最旧的已经落盘的日志，默认64MB
+    private long logEntryCacheMaxBytes = 64 * 1024 * 1024;
+    //使用共享日志引擎时，是否开启跨组的组提交，开启后多个raft组的日志会合并成一次同步写落盘
+    private boolean enableLogGroupCommit = false;
+    //日志落盘的时候是否把日志直接编码到池化的直接内存中，再通过RocksDB的ByteBuffer接口写入批处理，这样可以避免每条日志都创建key和value字节数组
+    private boolean enableDirectLogEncoding = true;
+    //领导者发送给跟随者的日志数据使用的压缩算法，默认不压缩
+    private CompressType replicationCompressType = CompressType.NONE;
+    //一批日志数据的总大小超过这个值才会压缩
+    private int replicationCompressThreshold = 4 * 1024;
+    //落盘的日志使用的压缩算法，默认不压缩，只会压缩业务日志
+    private CompressType logStorageCompressType = CompressType.NONE;
+    //业务日志的数据超过这个值才会在落盘前压缩
+    private int logStorageCompressThreshold = 4 * 1024;
+    //是否开启自适应的复制窗口，开启后复制器会根据往返时间和响应情况动态调整未收到响应的日志字节数上限
+    private boolean enableAdaptiveReplicationWindow = false;
+    //自适应复制窗口的初始大小
+    private int replicationWindowInitBytes = 1024 * 1024;
+    //自适应复制窗口的最小值
+    private int replicationWindowMinBytes = 64 * 1024;
+    //自适应复制窗口的最大值
+    private int replicationWindowMaxBytes = 64 * 1024 * 1024;
+    //领导者所有复制器共享的日志批次缓存最多存放的批次数量，设置为0就不使用批次缓存
+    private int replicationBatchCacheSize = 64;
+    //是否把同一对节点之间不同复制组的心跳消息合并成一个请求发送，滚动升级的时候要等所有节点都支持了批量心跳请求再开启
+    private boolean enableHeartbeatCoalescing = false;
+    //合并心跳消息时最多等待的毫秒数，等待期间其他复制组发往同一个节点的心跳消息会被放到同一个请求中
+    private int heartbeatCoalesceDelayMs = 5;
+    //一个批量心跳请求中最多包含的心跳消息数量，达到这个数量会立刻发送
+    private int maxHeartbeatCoalesceBatch = 256;
+    //是否让复制器在专属的单线程执行器中处理响应回调，定时任务这些事件，关闭之后这些事件在触发它们的线程中直接处理
+    //事件在执行器线程中仍然要获取复制器的ThreadId锁，开启之后只是不在触发事件的线程中等待这个锁，默认关闭
+    private boolean enableReplicatorEventExecutor = false;
+    //跟随者是否把同一个领导者连续发送过来的多个日志复制请求合并成一次落盘，落盘成功后再按照顺序给每个请求回复响应
+    private boolean enableFollowerAppendCoalescing = false;
+    //跟随者合并日志复制请求时，一批最多包含的日志条数，达到这个数量会立刻落盘
+    private int maxFollowerAppendCoalesceEntries = 1024;
+    //跟随者合并日志复制请求时，一批最多包含的日志数据字节数，达到这个大小会立刻落盘
+    private int maxFollowerAppendCoalesceBytes = 4 * 1024 * 1024;
+    //领导者为复制日志占用的内存预算，包括复制器未收到响应的请求和内存中缓存的日志，超过之后拒绝新的业务请求，默认为0不限制
+    private long replicationMemoryBudgetBytes = 0;
+    //节点上所有学习者复制器每秒最多发送的日志字节数，设置为0不限制，学习者追赶日志的时候不会和多数派的日志复制争抢带宽
+    private long learnerReplicationMaxBytesPerSecond = 0;
+    //学习者复制器一个请求最多携带的日志条数，学习者不参与投票，所以用更大的批次换取吞吐量
+    private int learnerMaxEntriesSize = 4096;
+    //学习者复制器一个请求最多携带的日志数据字节数
+    private int learnerMaxBodySize = 2 * 1024 * 1024;
+    //学习者复制器最多可以有多少个未收到响应的请求
+    private int learnerMaxInflightMsgs = 32;
+    //中继节点转发请求之前等待自己收到对应日志的最长时间，超时之后给领导者回复错误响应
+    private int replicationRelayWaitTimeoutMs = 1000;
+    //通过中继节点转发失败之后，复制器改为直接给跟随者发送日志的时间，过了这段时间再重新尝试中继转发
+    private int replicationRelayFallbackMs = 10000;
+    //领导者发给同一个中继节点的请求合并成一个批量请求发送，一个批量请求最多包含的日志复制请求数量
+    private int maxReplicationRelayBatch = 64;
 
 
     //下面都是一些get/set方法
 
 
+    public int getReplicationRelayWaitTimeoutMs() {
+        return this.replicationRelayWaitTimeoutMs;
+    }
+
+    public void setReplicationRelayWaitTimeoutMs(final int replicationRelayWaitTimeoutMs) {
+        this.replicationRelayWaitTimeoutMs = replicationRelayWaitTimeoutMs;
+    }
+
+    public int getReplicationRelayFallbackMs() {
+        return this.replicationRelayFallbackMs;
+    }
+
+    public void setReplicationRelayFallbackMs(final int replicationRelayFallbackMs) {
+        this.replicationRelayFallbackMs = replicationRelayFallbackMs;
+    }
+
+    public int getMaxReplicationRelayBatch() {
+        return this.maxReplicationRelayBatch;
+    }
+
+    public void setMaxReplicationRelayBatch(final int maxReplicationRelayBatch) {
+        this.maxReplicationRelayBatch = maxReplicationRelayBatch;
+    }
+
+    public long getLearnerReplicationMaxBytesPerSecond() {
+        return this.learnerReplicationMaxBytesPerSecond;
+    }
+
+    public void setLearnerReplicationMaxBytesPerSecond(final long learnerReplicationMaxBytesPerSecond) {
+        this.learnerReplicationMaxBytesPerSecond = learnerReplicationMaxBytesPerSecond;
+    }
+
+    public int getLearnerMaxEntriesSize() {
+        return this.learnerMaxEntriesSize;
+    }
+
+    public void setLearnerMaxEntriesSize(final int learnerMaxEntriesSize) {
+        this.learnerMaxEntriesSize = learnerMaxEntriesSize;
+    }
+
+    public int getLearnerMaxBodySize() {
+        return this.learnerMaxBodySize;
+    }
+
+    public void setLearnerMaxBodySize(final int learnerMaxBodySize) {
+        this.learnerMaxBodySize = learnerMaxBodySize;
+    }
+
+    public int getLearnerMaxInflightMsgs() {
+        return this.learnerMaxInflightMsgs;
+    }
+
+    public void setLearnerMaxInflightMsgs(final int learnerMaxInflightMsgs) {
+        this.learnerMaxInflightMsgs = learnerMaxInflightMsgs;
+    }
+
+    public long getReplicationMemoryBudgetBytes() {
+        return this.replicationMemoryBudgetBytes;
+    }
+
+    public void setReplicationMemoryBudgetBytes(final long replicationMemoryBudgetBytes) {
+        this.replicationMemoryBudgetBytes = replicationMemoryBudgetBytes;
+    }
+
+    public boolean isEnableFollowerAppendCoalescing() {
+        return this.enableFollowerAppendCoalescing;
+    }
+
+    public void setEnableFollowerAppendCoalescing(final boolean enableFollowerAppendCoalescing) {
+        this.enableFollowerAppendCoalescing = enableFollowerAppendCoalescing;
+    }
+
+    public int getMaxFollowerAppendCoalesceEntries() {
+        return this.maxFollowerAppendCoalesceEntries;
+    }
+
+    public void setMaxFollowerAppendCoalesceEntries(final int maxFollowerAppendCoalesceEntries) {
+        this.maxFollowerAppendCoalesceEntries = maxFollowerAppendCoalesceEntries;
+    }
+
+    public int getMaxFollowerAppendCoalesceBytes() {
+        return this.maxFollowerAppendCoalesceBytes;
+    }
+
+    public void setMaxFollowerAppendCoalesceBytes(final int maxFollowerAppendCoalesceBytes) {
+        this.maxFollowerAppendCoalesceBytes = maxFollowerAppendCoalesceBytes;
+    }
+
+    public boolean isEnableReplicatorEventExecutor() {
+        return this.enableReplicatorEventExecutor;
+    }
+
+    public void setEnableReplicatorEventExecutor(final boolean enableReplicatorEventExecutor) {
+        this.enableReplicatorEventExecutor = enableReplicatorEventExecutor;
+    }
+
+    public boolean isEnableHeartbeatCoalescing() {
+        return this.enableHeartbeatCoalescing;
+    }
+
+    public void setEnableHeartbeatCoalescing(final boolean enableHeartbeatCoalescing) {
+        this.enableHeartbeatCoalescing = enableHeartbeatCoalescing;
+    }
+
+    public int getHeartbeatCoalesceDelayMs() {
+        return this.heartbeatCoalesceDelayMs;
+    }
+
+    public void setHeartbeatCoalesceDelayMs(final int heartbeatCoalesceDelayMs) {
+        this.heartbeatCoalesceDelayMs = heartbeatCoalesceDelayMs;
+    }
+
+    public int getMaxHeartbeatCoalesceBatch() {
+        return this.maxHeartbeatCoalesceBatch;
+    }
+
+    public void setMaxHeartbeatCoalesceBatch(final int maxHeartbeatCoalesceBatch) {
+        this.maxHeartbeatCoalesceBatch = maxHeartbeatCoalesceBatch;
+    }
+
+    public int getReplicationBatchCacheSize() {
+        return this.replicationBatchCacheSize;
+    }
+
+    public void setReplicationBatchCacheSize(final int replicationBatchCacheSize) {
+        this.replicationBatchCacheSize = replicationBatchCacheSize;
+    }
+
+    public boolean isEnableAdaptiveReplicationWindow() {
+        return this.enableAdaptiveReplicationWindow;
+    }
+
+    public void setEnableAdaptiveReplicationWindow(final boolean enableAdaptiveReplicationWindow) {
+        this.enableAdaptiveReplicationWindow = enableAdaptiveReplicationWindow;
+    }
+
+    public int getReplicationWindowInitBytes() {
+        return this.replicationWindowInitBytes;
+    }
+
+    public void setReplicationWindowInitBytes(final int replicationWindowInitBytes) {
+        this.replicationWindowInitBytes = replicationWindowInitBytes;
+    }
+
+    public int getReplicationWindowMinBytes() {
+        return this.replicationWindowMinBytes;
+    }
+
+    public void setReplicationWindowMinBytes(final int replicationWindowMinBytes) {
+        this.replicationWindowMinBytes = replicationWindowMinBytes;
+    }
+
+    public int getReplicationWindowMaxBytes() {
+        return this.replicationWindowMaxBytes;
+    }
+
+    public void setReplicationWindowMaxBytes(final int replicationWindowMaxBytes) {
+        this.replicationWindowMaxBytes = replicationWindowMaxBytes;
+    }
+
+    public CompressType getReplicationCompressType() {
+        return this.replicationCompressType;
+    }
+
+    public void setReplicationCompressType(final CompressType replicationCompressType) {
+        this.replicationCompressType = replicationCompressType;
+    }
+
+    public int getReplicationCompressThreshold() {
+        return this.replicationCompressThreshold;
+    }
+
+    public void setReplicationCompressThreshold(final int replicationCompressThreshold) {
+        this.replicationCompressThreshold = replicationCompressThreshold;
+    }
+
+    public CompressType getLogStorageCompressType() {
+        return this.logStorageCompressType;
+    }
+
+    public void setLogStorageCompressType(final CompressType logStorageCompressType) {
+        this.logStorageCompressType = logStorageCompressType;
+    }
+
+    public int getLogStorageCompressThreshold() {
+        return this.logStorageCompressThreshold;
+    }
+
+    public void setLogStorageCompressThreshold(final int logStorageCompressThreshold) {
+        this.logStorageCompressThreshold = logStorageCompressThreshold;
+    }
+
+    public boolean isEnableDirectLogEncoding() {
+        return this.enableDirectLogEncoding;
+    }
+
+    public void setEnableDirectLogEncoding(final boolean enableDirectLogEncoding) {
+        this.enableDirectLogEncoding = enableDirectLogEncoding;
+    }
+
+    public boolean isEnableLogGroupCommit() {
+        return this.enableLogGroupCommit;
+    }
+
+    public void setEnableLogGroupCommit(final boolean enableLogGroupCommit) {
+        this.enableLogGroupCommit = enableLogGroupCommit;
+    }
+
+    public long getLogEntryCacheMaxBytes() {
+        return this.logEntryCacheMaxBytes;
+    }
+
+    public void setLogEntryCacheMaxBytes(final long logEntryCacheMaxBytes) {
+        this.logEntryCacheMaxBytes = logEntryCacheMaxBytes;
+    }
+
+    public LogStorageType getLogStorageType() {
+        return this.logStorageType;
+    }
+
+    public void setLogStorageType(final LogStorageType logStorageType) {
+        this.logStorageType = logStorageType;
+    }
+
+    public int getLogSegmentSize() {
+        return this.logSegmentSize;
+    }
+
+    public void setLogSegmentSize(final int logSegmentSize) {
+        this.logSegmentSize = logSegmentSize;
+    }
+
+    public int getLogSegmentMaxEntries() {
+        return this.logSegmentMaxEntries;
+    }
+
+    public void setLogSegmentMaxEntries(final int logSegmentMaxEntries) {
+        this.logSegmentMaxEntries = logSegmentMaxEntries;
+    }
+
     public ReadOnlyOption getReadOnlyOptions() {
         return this.readOnlyOptions;
     }
@@ -246,6 +549,36 @@ public class RaftOptions implements Copiable<RaftOptions> {
         raftOptions.setDisruptorPublishEventWaitTimeoutSecs(this.disruptorPublishEventWaitTimeoutSecs);
         raftOptions.setEnableLogEntryChecksum(this.enableLogEntryChecksum);
         raftOptions.setStartupOldStorage(this.startupOldStorage);
+        raftOptions.setLogStorageType(this.logStorageType);
+        raftOptions.setLogSegmentSize(this.logSegmentSize);
+        raftOptions.setLogSegmentMaxEntries(this.logSegmentMaxEntries);
+        raftOptions.setLogEntryCacheMaxBytes(this.logEntryCacheMaxBytes);
+        raftOptions.setEnableLogGroupCommit(this.enableLogGroupCommit);
+        raftOptions.setEnableDirectLogEncoding(this.enableDirectLogEncoding);
+        raftOptions.setReplicationCompressType(this.replicationCompressType);
+        raftOptions.setReplicationCompressThreshold(this.replicationCompressThreshold);
+        raftOptions.setLogStorageCompressType(this.logStorageCompressType);
+        raftOptions.setLogStorageCompressThreshold(this.logStorageCompressThreshold);
+        raftOptions.setEnableAdaptiveReplicationWindow(this.enableAdaptiveReplicationWindow);
+        raftOptions.setReplicationWindowInitBytes(this.replicationWindowInitBytes);
+        raftOptions.setReplicationWindowMinBytes(this.replicationWindowMinBytes);
+        raftOptions.setReplicationWindowMaxBytes(this.replicationWindowMaxBytes);
+        raftOptions.setReplicationBatchCacheSize(this.replicationBatchCacheSize);
+        raftOptions.setEnableHeartbeatCoalescing(this.enableHeartbeatCoalescing);
+        raftOptions.setHeartbeatCoalesceDelayMs(this.heartbeatCoalesceDelayMs);
+        raftOptions.setMaxHeartbeatCoalesceBatch(this.maxHeartbeatCoalesceBatch);
+        raftOptions.setEnableReplicatorEventExecutor(this.enableReplicatorEventExecutor);
+        raftOptions.setEnableFollowerAppendCoalescing(this.enableFollowerAppendCoalescing);
+        raftOptions.setMaxFollowerAppendCoalesceEntries(this.maxFollowerAppendCoalesceEntries);
+        raftOptions.setMaxFollowerAppendCoalesceBytes(this.maxFollowerAppendCoalesceBytes);
+        raftOptions.setReplicationMemoryBudgetBytes(this.replicationMemoryBudgetBytes);
+        raftOptions.setLearnerReplicationMaxBytesPerSecond(this.learnerReplicationMaxBytesPerSecond);
+        raftOptions.setLearnerMaxEntriesSize(this.learnerMaxEntriesSize);
+        raftOptions.setLearnerMaxBodySize(this.learnerMaxBodySize);
+        raftOptions.setLearnerMaxInflightMsgs(this.learnerMaxInflightMsgs);
+        raftOptions.setReplicationRelayWaitTimeoutMs(this.replicationRelayWaitTimeoutMs);
+        raftOptions.setReplicationRelayFallbackMs(this.replicationRelayFallbackMs);
+        raftOptions.setMaxReplicationRelayBatch(this.maxReplicationRelayBatch);
         return raftOptions;
     }
 
@@ -260,6 +593,34 @@ public class RaftOptions implements Copiable<RaftOptions> {
                 + disruptorBufferSize + ", disruptorPublishEventWaitTimeoutSecs=" + disruptorPublishEventWaitTimeoutSecs
                 + ", enableLogEntryChecksum=" + enableLogEntryChecksum + "," +
                 " maxReadIndexLag=" + maxReadIndexLag + ", stepDownWhenVoteTimedout=" + stepDownWhenVoteTimedout
-                + ", startUpOldStorage=" + startupOldStorage + '}';
+                + ", startUpOldStorage=" + startupOldStorage + ", logStorageType=" + logStorageType
+                + ", logSegmentSize=" + logSegmentSize + ", logSegmentMaxEntries=" + logSegmentMaxEntries
+                + ", logEntryCacheMaxBytes=" + logEntryCacheMaxBytes
+                + ", enableLogGroupCommit=" + enableLogGroupCommit
+                + ", enableDirectLogEncoding=" + enableDirectLogEncoding
+                + ", replicationCompressType=" + replicationCompressType
+                + ", replicationCompressThreshold=" + replicationCompressThreshold
+                + ", logStorageCompressType=" + logStorageCompressType
+                + ", logStorageCompressThreshold=" + logStorageCompressThreshold
+                + ", enableAdaptiveReplicationWindow=" + enableAdaptiveReplicationWindow
+                + ", replicationWindowInitBytes=" + replicationWindowInitBytes
+                + ", replicationWindowMinBytes=" + replicationWindowMinBytes
+                + ", replicationWindowMaxBytes=" + replicationWindowMaxBytes
+                + ", replicationBatchCacheSize=" + replicationBatchCacheSize
+                + ", enableHeartbeatCoalescing=" + enableHeartbeatCoalescing
+                + ", heartbeatCoalesceDelayMs=" + heartbeatCoalesceDelayMs
+                + ", maxHeartbeatCoalesceBatch=" + maxHeartbeatCoalesceBatch
+                + ", enableReplicatorEventExecutor=" + enableReplicatorEventExecutor
+                + ", enableFollowerAppendCoalescing=" + enableFollowerAppendCoalescing
+                + ", maxFollowerAppendCoalesceEntries=" + maxFollowerAppendCoalesceEntries
+                + ", maxFollowerAppendCoalesceBytes=" + maxFollowerAppendCoalesceBytes
+                + ", replicationMemoryBudgetBytes=" + replicationMemoryBudgetBytes
+                + ", learnerReplicationMaxBytesPerSecond=" + learnerReplicationMaxBytesPerSecond
+                + ", learnerMaxEntriesSize=" + learnerMaxEntriesSize
+                + ", learnerMaxBodySize=" + learnerMaxBodySize
+                + ", learnerMaxInflightMsgs=" + learnerMaxInflightMsgs
+                + ", replicationRelayWaitTimeoutMs=" + replicationRelayWaitTimeoutMs
+                + ", replicationRelayFallbackMs=" + replicationRelayFallbackMs
+                + ", maxReplicationRelayBatch=" + maxReplicationRelayBatch + '}';
     }
 }
@@ -32,4 +32,14 @@ public interface RaftClientService extends ClientService {
 
     Future<Message> readIndex(final Endpoint endpoint, final RpcRequests.ReadIndexRequest request, final int timeoutMs,
                               final RpcResponseClosure<RpcRequests.ReadIndexResponse> done);
+
+    //把多个复制组发往同一个节点的心跳消息放到一个请求中发送
+    Future<Message> batchHeartbeat(final Endpoint endpoint, final RpcRequests.BatchHeartbeatRequest request,
+                                   final int timeoutMs,
+                                   final RpcResponseClosure<RpcRequests.BatchHeartbeatResponse> done);
+
+    //把发往跟随者的日志复制请求交给中继节点转发，中继节点用自己本地的日志填充日志数据
+    Future<Message> relayAppendEntries(final Endpoint endpoint, final RpcRequests.RelayAppendEntriesRequest request,
+                                       final int timeoutMs,
+                                       final RpcResponseClosure<RpcRequests.RelayAppendEntriesResponse> done);
 }
@@ -71,6 +71,8 @@ public class RaftRpcServerFactory {
         rpcServer.registerProcessor(new InstallSnapshotRequestProcessor(raftExecutor));
         rpcServer.registerProcessor(new RequestVoteRequestProcessor(raftExecutor));
         rpcServer.registerProcessor(new ReadIndexRequestProcessor(raftExecutor));
+        rpcServer.registerProcessor(new BatchHeartbeatRequestProcessor(raftExecutor));
+        rpcServer.registerProcessor(new RelayAppendEntriesRequestProcessor());
         rpcServer.registerProcessor(new PingRequestProcessor());
 
         //cli service
@@ -8352,6 +8352,16 @@ public final class RpcRequests {
      * <code>optional bytes data = 9;</code>
      */
     com.google.protobuf.ByteString getData();
+    /**
+     * <code>optional int32 compress_type = 10;</code>
+     */
+    boolean hasCompressType();
+
+    /**
+     * <code>optional int32 compress_type = 10;</code>
+     */
+    int getCompressType();
+
   }
 
   /**
@@ -8377,6 +8387,7 @@ public final class RpcRequests {
       entries_ = java.util.Collections.emptyList();
       committedIndex_ = 0L;
       data_ = com.google.protobuf.ByteString.EMPTY;
+      compressType_ = 0;
     }
 
     @Override
@@ -8460,6 +8471,11 @@ public final class RpcRequests {
               data_ = input.readBytes();
               break;
             }
+            case 80: {
+              bitField0_ |= 0x00000100;
+              compressType_ = input.readInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -8732,6 +8748,23 @@ public final class RpcRequests {
       return data_;
     }
 
+    public static final int COMPRESS_TYPE_FIELD_NUMBER = 10;
+    private int compressType_;
+
+    /**
+     * <code>optional int32 compress_type = 10;</code>
+     */
+    public boolean hasCompressType() {
+      return ((bitField0_ & 0x00000100) == 0x00000100);
+    }
+
+    /**
+     * <code>optional int32 compress_type = 10;</code>
+     */
+    public int getCompressType() {
+      return compressType_;
+    }
+
     private byte memoizedIsInitialized = -1;
 
     public final boolean isInitialized() {
@@ -8807,6 +8840,9 @@ public final class RpcRequests {
       if (((bitField0_ & 0x00000080) == 0x00000080)) {
         output.writeBytes(9, data_);
       }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        output.writeInt32(10, compressType_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -8843,6 +8879,9 @@ public final class RpcRequests {
       if (((bitField0_ & 0x00000080) == 0x00000080)) {
         size += com.google.protobuf.CodedOutputStream.computeBytesSize(9, data_);
       }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        size += com.google.protobuf.CodedOutputStream.computeInt32Size(10, compressType_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -8892,6 +8931,10 @@ public final class RpcRequests {
       if (hasData()) {
         result = result && getData().equals(other.getData());
       }
+      result = result && (hasCompressType() == other.hasCompressType());
+      if (hasCompressType()) {
+        result = result && (getCompressType() == other.getCompressType());
+      }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -8939,6 +8982,10 @@ public final class RpcRequests {
         hash = (37 * hash) + DATA_FIELD_NUMBER;
         hash = (53 * hash) + getData().hashCode();
       }
+      if (hasCompressType()) {
+        hash = (37 * hash) + COMPRESS_TYPE_FIELD_NUMBER;
+        hash = (53 * hash) + getCompressType();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -9090,6 +9137,8 @@ public final class RpcRequests {
         bitField0_ = (bitField0_ & ~0x00000080);
         data_ = com.google.protobuf.ByteString.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000100);
+        compressType_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000200);
         return this;
       }
 
@@ -9155,6 +9204,10 @@ public final class RpcRequests {
           to_bitField0_ |= 0x00000080;
         }
         result.data_ = data_;
+        if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
+          to_bitField0_ |= 0x00000100;
+        }
+        result.compressType_ = compressType_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -9253,6 +9306,9 @@ public final class RpcRequests {
         if (other.hasData()) {
           setData(other.getData());
         }
+        if (other.hasCompressType()) {
+          setCompressType(other.getCompressType());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -9965,6 +10021,42 @@ public final class RpcRequests {
         return this;
       }
 
+      private int compressType_;
+
+      /**
+       * <code>optional int32 compress_type = 10;</code>
+       */
+      public boolean hasCompressType() {
+        return ((bitField0_ & 0x00000200) == 0x00000200);
+      }
+
+      /**
+       * <code>optional int32 compress_type = 10;</code>
+       */
+      public int getCompressType() {
+        return compressType_;
+      }
+
+      /**
+       * <code>optional int32 compress_type = 10;</code>
+       */
+      public Builder setCompressType(int value) {
+        bitField0_ |= 0x00000200;
+        compressType_ = value;
+        onChanged();
+        return this;
+      }
+
+      /**
+       * <code>optional int32 compress_type = 10;</code>
+       */
+      public Builder clearCompressType() {
+        bitField0_ = (bitField0_ & ~0x00000200);
+        compressType_ = 0;
+        onChanged();
+        return this;
+      }
+
       public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
       }
@@ -10060,6 +10152,26 @@ public final class RpcRequests {
      * <code>optional .jraft.ErrorResponse errorResponse = 99;</code>
      */
     ErrorResponseOrBuilder getErrorResponseOrBuilder();
+    /**
+     * <code>optional int64 conflict_term = 4;</code>
+     */
+    boolean hasConflictTerm();
+
+    /**
+     * <code>optional int64 conflict_term = 4;</code>
+     */
+    long getConflictTerm();
+
+    /**
+     * <code>optional int64 conflict_index = 5;</code>
+     */
+    boolean hasConflictIndex();
+
+    /**
+     * <code>optional int64 conflict_index = 5;</code>
+     */
+    long getConflictIndex();
+
   }
 
   /**
@@ -10079,6 +10191,8 @@ public final class RpcRequests {
       term_ = 0L;
       success_ = false;
       lastLogIndex_ = 0L;
+      conflictTerm_ = 0L;
+      conflictIndex_ = 0L;
     }
 
     @Override
@@ -10139,6 +10253,16 @@ public final class RpcRequests {
               bitField0_ |= 0x00000008;
               break;
             }
+            case 32: {
+              bitField0_ |= 0x00000010;
+              conflictTerm_ = input.readInt64();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000020;
+              conflictIndex_ = input.readInt64();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -10239,6 +10363,40 @@ public final class RpcRequests {
               : errorResponse_;
     }
 
+    public static final int CONFLICT_TERM_FIELD_NUMBER = 4;
+    private long conflictTerm_;
+
+    /**
+     * <code>optional int64 conflict_term = 4;</code>
+     */
+    public boolean hasConflictTerm() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+
+    /**
+     * <code>optional int64 conflict_term = 4;</code>
+     */
+    public long getConflictTerm() {
+      return conflictTerm_;
+    }
+
+    public static final int CONFLICT_INDEX_FIELD_NUMBER = 5;
+    private long conflictIndex_;
+
+    /**
+     * <code>optional int64 conflict_index = 5;</code>
+     */
+    public boolean hasConflictIndex() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+
+    /**
+     * <code>optional int64 conflict_index = 5;</code>
+     */
+    public long getConflictIndex() {
+      return conflictIndex_;
+    }
+
     private byte memoizedIsInitialized = -1;
 
     public final boolean isInitialized() {
@@ -10279,6 +10437,12 @@ public final class RpcRequests {
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         output.writeMessage(99, getErrorResponse());
       }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeInt64(4, conflictTerm_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeInt64(5, conflictIndex_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -10300,6 +10464,12 @@ public final class RpcRequests {
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         size += com.google.protobuf.CodedOutputStream.computeMessageSize(99, getErrorResponse());
       }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream.computeInt64Size(4, conflictTerm_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream.computeInt64Size(5, conflictIndex_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -10332,6 +10502,14 @@ public final class RpcRequests {
       if (hasErrorResponse()) {
         result = result && getErrorResponse().equals(other.getErrorResponse());
       }
+      result = result && (hasConflictTerm() == other.hasConflictTerm());
+      if (hasConflictTerm()) {
+        result = result && (getConflictTerm() == other.getConflictTerm());
+      }
+      result = result && (hasConflictIndex() == other.hasConflictIndex());
+      if (hasConflictIndex()) {
+        result = result && (getConflictIndex() == other.getConflictIndex());
+      }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -10359,6 +10537,14 @@ public final class RpcRequests {
         hash = (37 * hash) + ERRORRESPONSE_FIELD_NUMBER;
         hash = (53 * hash) + getErrorResponse().hashCode();
       }
+      if (hasConflictTerm()) {
+        hash = (37 * hash) + CONFLICT_TERM_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(getConflictTerm());
+      }
+      if (hasConflictIndex()) {
+        hash = (37 * hash) + CONFLICT_INDEX_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(getConflictIndex());
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -10500,6 +10686,10 @@ public final class RpcRequests {
           errorResponseBuilder_.clear();
         }
         bitField0_ = (bitField0_ & ~0x00000008);
+        conflictTerm_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        conflictIndex_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000020);
         return this;
       }
 
@@ -10544,6 +10734,14 @@ public final class RpcRequests {
         } else {
           result.errorResponse_ = errorResponseBuilder_.build();
         }
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.conflictTerm_ = conflictTerm_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.conflictIndex_ = conflictIndex_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -10599,6 +10797,12 @@ public final class RpcRequests {
         if (other.hasErrorResponse()) {
           mergeErrorResponse(other.getErrorResponse());
         }
+        if (other.hasConflictTerm()) {
+          setConflictTerm(other.getConflictTerm());
+        }
+        if (other.hasConflictIndex()) {
+          setConflictIndex(other.getConflictIndex());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -10867,6 +11071,78 @@ public final class RpcRequests {
         return errorResponseBuilder_;
       }
 
+      private long conflictTerm_;
+
+      /**
+       * <code>optional int64 conflict_term = 4;</code>
+       */
+      public boolean hasConflictTerm() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+
+      /**
+       * <code>optional int64 conflict_term = 4;</code>
+       */
+      public long getConflictTerm() {
+        return conflictTerm_;
+      }
+
+      /**
+       * <code>optional int64 conflict_term = 4;</code>
+       */
+      public Builder setConflictTerm(long value) {
+        bitField0_ |= 0x00000010;
+        conflictTerm_ = value;
+        onChanged();
+        return this;
+      }
+
+      /**
+       * <code>optional int64 conflict_term = 4;</code>
+       */
+      public Builder clearConflictTerm() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        conflictTerm_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private long conflictIndex_;
+
+      /**
+       * <code>optional int64 conflict_index = 5;</code>
+       */
+      public boolean hasConflictIndex() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+
+      /**
+       * <code>optional int64 conflict_index = 5;</code>
+       */
+      public long getConflictIndex() {
+        return conflictIndex_;
+      }
+
+      /**
+       * <code>optional int64 conflict_index = 5;</code>
+       */
+      public Builder setConflictIndex(long value) {
+        bitField0_ |= 0x00000020;
+        conflictIndex_ = value;
+        onChanged();
+        return this;
+      }
+
+      /**
+       * <code>optional int64 conflict_index = 5;</code>
+       */
+      public Builder clearConflictIndex() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        conflictIndex_ = 0L;
+        onChanged();
+        return this;
+      }
+
       public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
       }
@@ -14777,6 +15053,3086 @@ public final class RpcRequests {
 
   }
 
+  public interface BatchHeartbeatRequestOrBuilder extends
+          // @@protoc_insertion_point(interface_extends:jraft.BatchHeartbeatRequest)
+          com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index);
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    int getRequestsCount();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index);
+  }
+
+  /**
+   * Protobuf type {@code jraft.BatchHeartbeatRequest}
+   */
+  public static final class BatchHeartbeatRequest extends com.google.protobuf.GeneratedMessageV3 implements
+          // @@protoc_insertion_point(message_implements:jraft.BatchHeartbeatRequest)
+          BatchHeartbeatRequestOrBuilder {
+    private static final long serialVersionUID = 0L;
+
+    // Use BatchHeartbeatRequest.newBuilder() to construct.
+    private BatchHeartbeatRequest(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+
+    private BatchHeartbeatRequest() {
+      requests_ = java.util.Collections.emptyList();
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet getUnknownFields() {
+      return this.unknownFields;
+    }
+
+    private BatchHeartbeatRequest(com.google.protobuf.CodedInputStream input,
+                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields = com.google.protobuf.UnknownFieldSet
+              .newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+                requests_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              requests_.add(input.readMessage(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.PARSER,
+                      extensionRegistry));
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+          requests_ = java.util.Collections.unmodifiableList(requests_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+
+    public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+      return RpcRequests.internal_static_jraft_BatchHeartbeatRequest_descriptor;
+    }
+
+    protected FieldAccessorTable internalGetFieldAccessorTable() {
+      return RpcRequests.internal_static_jraft_BatchHeartbeatRequest_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(BatchHeartbeatRequest.class,
+                      Builder.class);
+    }
+
+    public static final int REQUESTS_FIELD_NUMBER = 1;
+    private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> requests_;
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList() {
+      return requests_;
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList() {
+      return requests_;
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public int getRequestsCount() {
+      return requests_.size();
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index) {
+      return requests_.get(index);
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index) {
+      return requests_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1)
+        return true;
+      if (isInitialized == 0)
+        return false;
+
+      for (int i = 0; i < getRequestsCount(); i++) {
+        if (!getRequests(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output) throws java.io.IOException {
+      for (int i = 0; i < requests_.size(); i++) {
+        output.writeMessage(1, requests_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1)
+        return size;
+
+      size = 0;
+      for (int i = 0; i < requests_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream.computeMessageSize(1, requests_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof BatchHeartbeatRequest)) {
+        return super.equals(obj);
+      }
+      BatchHeartbeatRequest other = (BatchHeartbeatRequest) obj;
+
+      boolean result = true;
+      result = result && getRequestsList().equals(other.getRequestsList());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getRequestsCount() > 0) {
+        hash = (37 * hash) + REQUESTS_FIELD_NUMBER;
+        hash = (53 * hash) + getRequestsList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static BatchHeartbeatRequest parseFrom(java.nio.ByteBuffer data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(java.nio.ByteBuffer data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(com.google.protobuf.ByteString data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(com.google.protobuf.ByteString data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(byte[] data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(byte[] data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(java.io.InputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public static BatchHeartbeatRequest parseDelimitedFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatRequest parseDelimitedFrom(java.io.InputStream input,
+                                           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input,
+              extensionRegistry);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(com.google.protobuf.CodedInputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatRequest parseFrom(com.google.protobuf.CodedInputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() {
+      return newBuilder();
+    }
+
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+
+    public static Builder newBuilder(BatchHeartbeatRequest prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+
+    /**
+     * Protobuf type {@code jraft.BatchHeartbeatRequest}
+     */
+    public static final class Builder extends com.google.protobuf.GeneratedMessageV3.Builder<Builder>
+            implements
+            // @@protoc_insertion_point(builder_implements:jraft.BatchHeartbeatRequest)
+            BatchHeartbeatRequestOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatRequest_descriptor;
+      }
+
+      protected FieldAccessorTable internalGetFieldAccessorTable() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatRequest_fieldAccessorTable
+                .ensureFieldAccessorsInitialized(BatchHeartbeatRequest.class,
+                        Builder.class);
+      }
+
+      // Construct using .RpcRequests.BatchHeartbeatRequest.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders) {
+          getRequestsFieldBuilder();
+        }
+      }
+
+      public Builder clear() {
+        super.clear();
+        if (requestsBuilder_ == null) {
+          requests_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          requestsBuilder_.clear();
+        }
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor getDescriptorForType() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatRequest_descriptor;
+      }
+
+      public BatchHeartbeatRequest getDefaultInstanceForType() {
+        return BatchHeartbeatRequest.getDefaultInstance();
+      }
+
+      public BatchHeartbeatRequest build() {
+        BatchHeartbeatRequest result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public BatchHeartbeatRequest buildPartial() {
+        BatchHeartbeatRequest result = new BatchHeartbeatRequest(
+                this);
+        if (requestsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001)) {
+            requests_ = java.util.Collections.unmodifiableList(requests_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.requests_ = requests_;
+        } else {
+          result.requests_ = requestsBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+
+      public Builder setField(com.google.protobuf.Descriptors.FieldDescriptor field, Object value) {
+        return (Builder) super.setField(field, value);
+      }
+
+      public Builder clearField(com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+
+      public Builder clearOneof(com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+
+      public Builder setRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field, int index,
+                                      Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+
+      public Builder addRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field,
+                                      Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof BatchHeartbeatRequest) {
+          return mergeFrom((BatchHeartbeatRequest) other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(BatchHeartbeatRequest other) {
+        if (other == BatchHeartbeatRequest.getDefaultInstance())
+          return this;
+        if (requestsBuilder_ == null) {
+          if (!other.requests_.isEmpty()) {
+            if (requests_.isEmpty()) {
+              requests_ = other.requests_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureRequestsIsMutable();
+              requests_.addAll(other.requests_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.requests_.isEmpty()) {
+            if (requestsBuilder_.isEmpty()) {
+              requestsBuilder_.dispose();
+              requestsBuilder_ = null;
+              requests_ = other.requests_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              requestsBuilder_ = com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ? getRequestsFieldBuilder()
+                      : null;
+            } else {
+              requestsBuilder_.addAllMessages(other.requests_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        for (int i = 0; i < getRequestsCount(); i++) {
+          if (!getRequests(i).isInitialized()) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.CodedInputStream input,
+                               com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws java.io.IOException {
+        BatchHeartbeatRequest parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (BatchHeartbeatRequest) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+
+      private int bitField0_;
+
+      private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> requests_ = java.util.Collections
+              .emptyList();
+
+      private void ensureRequestsIsMutable() {
+        if (!((bitField0_ & 0x00000001) == 0x00000001)) {
+          requests_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest>(requests_);
+          bitField0_ |= 0x00000001;
+        }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> requestsBuilder_;
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList() {
+        if (requestsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(requests_);
+        } else {
+          return requestsBuilder_.getMessageList();
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public int getRequestsCount() {
+        if (requestsBuilder_ == null) {
+          return requests_.size();
+        } else {
+          return requestsBuilder_.getCount();
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index) {
+        if (requestsBuilder_ == null) {
+          return requests_.get(index);
+        } else {
+          return requestsBuilder_.getMessage(index);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder setRequests(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.set(index, value);
+          onChanged();
+        } else {
+          requestsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder setRequests(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.add(value);
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.add(index, value);
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.add(builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addAllRequests(Iterable<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> values) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(values, requests_);
+          onChanged();
+        } else {
+          requestsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder clearRequests() {
+        if (requestsBuilder_ == null) {
+          requests_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          requestsBuilder_.clear();
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder removeRequests(int index) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.remove(index);
+          onChanged();
+        } else {
+          requestsBuilder_.remove(index);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder getRequestsBuilder(int index) {
+        return getRequestsFieldBuilder().getBuilder(index);
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index) {
+        if (requestsBuilder_ == null) {
+          return requests_.get(index);
+        } else {
+          return requestsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList() {
+        if (requestsBuilder_ != null) {
+          return requestsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(requests_);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder addRequestsBuilder() {
+        return getRequestsFieldBuilder().addBuilder(
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder addRequestsBuilder(int index) {
+        return getRequestsFieldBuilder().addBuilder(index,
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder> getRequestsBuilderList() {
+        return getRequestsFieldBuilder().getBuilderList();
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsFieldBuilder() {
+        if (requestsBuilder_ == null) {
+          requestsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder>(
+                  requests_, ((bitField0_ & 0x00000001) == 0x00000001), getParentForChildren(), isClean());
+          requests_ = null;
+        }
+        return requestsBuilder_;
+      }
+
+      public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+      // @@protoc_insertion_point(builder_scope:jraft.BatchHeartbeatRequest)
+    }
+
+    // @@protoc_insertion_point(class_scope:jraft.BatchHeartbeatRequest)
+    private static final BatchHeartbeatRequest DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new BatchHeartbeatRequest();
+    }
+
+    public static BatchHeartbeatRequest getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated
+    public static final com.google.protobuf.Parser<BatchHeartbeatRequest> PARSER = new com.google.protobuf.AbstractParser<BatchHeartbeatRequest>() {
+      public BatchHeartbeatRequest parsePartialFrom(com.google.protobuf.CodedInputStream input,
+                                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BatchHeartbeatRequest(input,
+                extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<BatchHeartbeatRequest> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<BatchHeartbeatRequest> getParserForType() {
+      return PARSER;
+    }
+
+    public BatchHeartbeatRequest getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface BatchHeartbeatResponseOrBuilder extends
+          // @@protoc_insertion_point(interface_extends:jraft.BatchHeartbeatResponse)
+          com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index);
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    int getResponsesCount();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList();
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index);
+  }
+
+  /**
+   * Protobuf type {@code jraft.BatchHeartbeatResponse}
+   */
+  public static final class BatchHeartbeatResponse extends com.google.protobuf.GeneratedMessageV3 implements
+          // @@protoc_insertion_point(message_implements:jraft.BatchHeartbeatResponse)
+          BatchHeartbeatResponseOrBuilder {
+    private static final long serialVersionUID = 0L;
+
+    // Use BatchHeartbeatResponse.newBuilder() to construct.
+    private BatchHeartbeatResponse(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+
+    private BatchHeartbeatResponse() {
+      responses_ = java.util.Collections.emptyList();
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet getUnknownFields() {
+      return this.unknownFields;
+    }
+
+    private BatchHeartbeatResponse(com.google.protobuf.CodedInputStream input,
+                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields = com.google.protobuf.UnknownFieldSet
+              .newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+                responses_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              responses_.add(input.readMessage(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.PARSER,
+                      extensionRegistry));
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+          responses_ = java.util.Collections.unmodifiableList(responses_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+
+    public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+      return RpcRequests.internal_static_jraft_BatchHeartbeatResponse_descriptor;
+    }
+
+    protected FieldAccessorTable internalGetFieldAccessorTable() {
+      return RpcRequests.internal_static_jraft_BatchHeartbeatResponse_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(BatchHeartbeatResponse.class,
+                      Builder.class);
+    }
+
+    public static final int RESPONSES_FIELD_NUMBER = 1;
+    private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> responses_;
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList() {
+      return responses_;
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList() {
+      return responses_;
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public int getResponsesCount() {
+      return responses_.size();
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index) {
+      return responses_.get(index);
+    }
+
+    /**
+     * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index) {
+      return responses_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1)
+        return true;
+      if (isInitialized == 0)
+        return false;
+
+      for (int i = 0; i < getResponsesCount(); i++) {
+        if (!getResponses(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output) throws java.io.IOException {
+      for (int i = 0; i < responses_.size(); i++) {
+        output.writeMessage(1, responses_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1)
+        return size;
+
+      size = 0;
+      for (int i = 0; i < responses_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream.computeMessageSize(1, responses_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof BatchHeartbeatResponse)) {
+        return super.equals(obj);
+      }
+      BatchHeartbeatResponse other = (BatchHeartbeatResponse) obj;
+
+      boolean result = true;
+      result = result && getResponsesList().equals(other.getResponsesList());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getResponsesCount() > 0) {
+        hash = (37 * hash) + RESPONSES_FIELD_NUMBER;
+        hash = (53 * hash) + getResponsesList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static BatchHeartbeatResponse parseFrom(java.nio.ByteBuffer data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(java.nio.ByteBuffer data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(com.google.protobuf.ByteString data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(com.google.protobuf.ByteString data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(byte[] data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(byte[] data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(java.io.InputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public static BatchHeartbeatResponse parseDelimitedFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatResponse parseDelimitedFrom(java.io.InputStream input,
+                                           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input,
+              extensionRegistry);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(com.google.protobuf.CodedInputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static BatchHeartbeatResponse parseFrom(com.google.protobuf.CodedInputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() {
+      return newBuilder();
+    }
+
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+
+    public static Builder newBuilder(BatchHeartbeatResponse prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+
+    /**
+     * Protobuf type {@code jraft.BatchHeartbeatResponse}
+     */
+    public static final class Builder extends com.google.protobuf.GeneratedMessageV3.Builder<Builder>
+            implements
+            // @@protoc_insertion_point(builder_implements:jraft.BatchHeartbeatResponse)
+            BatchHeartbeatResponseOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatResponse_descriptor;
+      }
+
+      protected FieldAccessorTable internalGetFieldAccessorTable() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatResponse_fieldAccessorTable
+                .ensureFieldAccessorsInitialized(BatchHeartbeatResponse.class,
+                        Builder.class);
+      }
+
+      // Construct using .RpcRequests.BatchHeartbeatResponse.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders) {
+          getResponsesFieldBuilder();
+        }
+      }
+
+      public Builder clear() {
+        super.clear();
+        if (responsesBuilder_ == null) {
+          responses_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          responsesBuilder_.clear();
+        }
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor getDescriptorForType() {
+        return RpcRequests.internal_static_jraft_BatchHeartbeatResponse_descriptor;
+      }
+
+      public BatchHeartbeatResponse getDefaultInstanceForType() {
+        return BatchHeartbeatResponse.getDefaultInstance();
+      }
+
+      public BatchHeartbeatResponse build() {
+        BatchHeartbeatResponse result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public BatchHeartbeatResponse buildPartial() {
+        BatchHeartbeatResponse result = new BatchHeartbeatResponse(
+                this);
+        if (responsesBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001)) {
+            responses_ = java.util.Collections.unmodifiableList(responses_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.responses_ = responses_;
+        } else {
+          result.responses_ = responsesBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+
+      public Builder setField(com.google.protobuf.Descriptors.FieldDescriptor field, Object value) {
+        return (Builder) super.setField(field, value);
+      }
+
+      public Builder clearField(com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+
+      public Builder clearOneof(com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+
+      public Builder setRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field, int index,
+                                      Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+
+      public Builder addRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field,
+                                      Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof BatchHeartbeatResponse) {
+          return mergeFrom((BatchHeartbeatResponse) other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(BatchHeartbeatResponse other) {
+        if (other == BatchHeartbeatResponse.getDefaultInstance())
+          return this;
+        if (responsesBuilder_ == null) {
+          if (!other.responses_.isEmpty()) {
+            if (responses_.isEmpty()) {
+              responses_ = other.responses_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureResponsesIsMutable();
+              responses_.addAll(other.responses_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.responses_.isEmpty()) {
+            if (responsesBuilder_.isEmpty()) {
+              responsesBuilder_.dispose();
+              responsesBuilder_ = null;
+              responses_ = other.responses_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              responsesBuilder_ = com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ? getResponsesFieldBuilder()
+                      : null;
+            } else {
+              responsesBuilder_.addAllMessages(other.responses_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        for (int i = 0; i < getResponsesCount(); i++) {
+          if (!getResponses(i).isInitialized()) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.CodedInputStream input,
+                               com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws java.io.IOException {
+        BatchHeartbeatResponse parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (BatchHeartbeatResponse) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+
+      private int bitField0_;
+
+      private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> responses_ = java.util.Collections
+              .emptyList();
+
+      private void ensureResponsesIsMutable() {
+        if (!((bitField0_ & 0x00000001) == 0x00000001)) {
+          responses_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse>(responses_);
+          bitField0_ |= 0x00000001;
+        }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> responsesBuilder_;
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList() {
+        if (responsesBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(responses_);
+        } else {
+          return responsesBuilder_.getMessageList();
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public int getResponsesCount() {
+        if (responsesBuilder_ == null) {
+          return responses_.size();
+        } else {
+          return responsesBuilder_.getCount();
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index) {
+        if (responsesBuilder_ == null) {
+          return responses_.get(index);
+        } else {
+          return responsesBuilder_.getMessage(index);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder setResponses(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.set(index, value);
+          onChanged();
+        } else {
+          responsesBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder setResponses(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.add(value);
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.add(index, value);
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.add(builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addAllResponses(Iterable<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> values) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(values, responses_);
+          onChanged();
+        } else {
+          responsesBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder clearResponses() {
+        if (responsesBuilder_ == null) {
+          responses_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          responsesBuilder_.clear();
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder removeResponses(int index) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.remove(index);
+          onChanged();
+        } else {
+          responsesBuilder_.remove(index);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder getResponsesBuilder(int index) {
+        return getResponsesFieldBuilder().getBuilder(index);
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index) {
+        if (responsesBuilder_ == null) {
+          return responses_.get(index);
+        } else {
+          return responsesBuilder_.getMessageOrBuilder(index);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList() {
+        if (responsesBuilder_ != null) {
+          return responsesBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(responses_);
+        }
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder addResponsesBuilder() {
+        return getResponsesFieldBuilder().addBuilder(
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder addResponsesBuilder(int index) {
+        return getResponsesFieldBuilder().addBuilder(index,
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated .jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder> getResponsesBuilderList() {
+        return getResponsesFieldBuilder().getBuilderList();
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesFieldBuilder() {
+        if (responsesBuilder_ == null) {
+          responsesBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder>(
+                  responses_, ((bitField0_ & 0x00000001) == 0x00000001), getParentForChildren(), isClean());
+          responses_ = null;
+        }
+        return responsesBuilder_;
+      }
+
+      public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+      // @@protoc_insertion_point(builder_scope:jraft.BatchHeartbeatResponse)
+    }
+
+    // @@protoc_insertion_point(class_scope:jraft.BatchHeartbeatResponse)
+    private static final BatchHeartbeatResponse DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new BatchHeartbeatResponse();
+    }
+
+    public static BatchHeartbeatResponse getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated
+    public static final com.google.protobuf.Parser<BatchHeartbeatResponse> PARSER = new com.google.protobuf.AbstractParser<BatchHeartbeatResponse>() {
+      public BatchHeartbeatResponse parsePartialFrom(com.google.protobuf.CodedInputStream input,
+                                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BatchHeartbeatResponse(input,
+                extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<BatchHeartbeatResponse> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<BatchHeartbeatResponse> getParserForType() {
+      return PARSER;
+    }
+
+    public BatchHeartbeatResponse getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface RelayAppendEntriesRequestOrBuilder extends
+          // @@protoc_insertion_point(interface_extends:jraft.RelayAppendEntriesRequest)
+          com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList();
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index);
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    int getRequestsCount();
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList();
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index);
+  }
+
+  /**
+   * Protobuf type {@code jraft.RelayAppendEntriesRequest}
+   */
+  public static final class RelayAppendEntriesRequest extends com.google.protobuf.GeneratedMessageV3 implements
+          // @@protoc_insertion_point(message_implements:jraft.RelayAppendEntriesRequest)
+          RelayAppendEntriesRequestOrBuilder {
+    private static final long serialVersionUID = 0L;
+
+    // Use RelayAppendEntriesRequest.newBuilder() to construct.
+    private RelayAppendEntriesRequest(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+
+    private RelayAppendEntriesRequest() {
+      requests_ = java.util.Collections.emptyList();
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet getUnknownFields() {
+      return this.unknownFields;
+    }
+
+    private RelayAppendEntriesRequest(com.google.protobuf.CodedInputStream input,
+                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields = com.google.protobuf.UnknownFieldSet
+              .newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+                requests_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              requests_.add(input.readMessage(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.PARSER,
+                      extensionRegistry));
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+          requests_ = java.util.Collections.unmodifiableList(requests_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+
+    public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+      return RpcRequests.internal_static_jraft_RelayAppendEntriesRequest_descriptor;
+    }
+
+    protected FieldAccessorTable internalGetFieldAccessorTable() {
+      return RpcRequests.internal_static_jraft_RelayAppendEntriesRequest_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(RelayAppendEntriesRequest.class,
+                      Builder.class);
+    }
+
+    public static final int REQUESTS_FIELD_NUMBER = 1;
+    private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> requests_;
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList() {
+      return requests_;
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList() {
+      return requests_;
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public int getRequestsCount() {
+      return requests_.size();
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index) {
+      return requests_.get(index);
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index) {
+      return requests_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1)
+        return true;
+      if (isInitialized == 0)
+        return false;
+
+      for (int i = 0; i < getRequestsCount(); i++) {
+        if (!getRequests(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output) throws java.io.IOException {
+      for (int i = 0; i < requests_.size(); i++) {
+        output.writeMessage(1, requests_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1)
+        return size;
+
+      size = 0;
+      for (int i = 0; i < requests_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream.computeMessageSize(1, requests_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof RelayAppendEntriesRequest)) {
+        return super.equals(obj);
+      }
+      RelayAppendEntriesRequest other = (RelayAppendEntriesRequest) obj;
+
+      boolean result = true;
+      result = result && getRequestsList().equals(other.getRequestsList());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getRequestsCount() > 0) {
+        hash = (37 * hash) + REQUESTS_FIELD_NUMBER;
+        hash = (53 * hash) + getRequestsList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(java.nio.ByteBuffer data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(java.nio.ByteBuffer data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(com.google.protobuf.ByteString data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(com.google.protobuf.ByteString data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(byte[] data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(byte[] data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(java.io.InputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesRequest parseDelimitedFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesRequest parseDelimitedFrom(java.io.InputStream input,
+                                           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input,
+              extensionRegistry);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(com.google.protobuf.CodedInputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesRequest parseFrom(com.google.protobuf.CodedInputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() {
+      return newBuilder();
+    }
+
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+
+    public static Builder newBuilder(RelayAppendEntriesRequest prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+
+    /**
+     * Protobuf type {@code jraft.RelayAppendEntriesRequest}
+     */
+    public static final class Builder extends com.google.protobuf.GeneratedMessageV3.Builder<Builder>
+            implements
+            // @@protoc_insertion_point(builder_implements:jraft.RelayAppendEntriesRequest)
+            RelayAppendEntriesRequestOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesRequest_descriptor;
+      }
+
+      protected FieldAccessorTable internalGetFieldAccessorTable() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesRequest_fieldAccessorTable
+                .ensureFieldAccessorsInitialized(RelayAppendEntriesRequest.class,
+                        Builder.class);
+      }
+
+      // Construct using .RpcRequests.RelayAppendEntriesRequest.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders) {
+          getRequestsFieldBuilder();
+        }
+      }
+
+      public Builder clear() {
+        super.clear();
+        if (requestsBuilder_ == null) {
+          requests_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          requestsBuilder_.clear();
+        }
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor getDescriptorForType() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesRequest_descriptor;
+      }
+
+      public RelayAppendEntriesRequest getDefaultInstanceForType() {
+        return RelayAppendEntriesRequest.getDefaultInstance();
+      }
+
+      public RelayAppendEntriesRequest build() {
+        RelayAppendEntriesRequest result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public RelayAppendEntriesRequest buildPartial() {
+        RelayAppendEntriesRequest result = new RelayAppendEntriesRequest(
+                this);
+        if (requestsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001)) {
+            requests_ = java.util.Collections.unmodifiableList(requests_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.requests_ = requests_;
+        } else {
+          result.requests_ = requestsBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+
+      public Builder setField(com.google.protobuf.Descriptors.FieldDescriptor field, Object value) {
+        return (Builder) super.setField(field, value);
+      }
+
+      public Builder clearField(com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+
+      public Builder clearOneof(com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+
+      public Builder setRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field, int index,
+                                      Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+
+      public Builder addRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field,
+                                      Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof RelayAppendEntriesRequest) {
+          return mergeFrom((RelayAppendEntriesRequest) other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(RelayAppendEntriesRequest other) {
+        if (other == RelayAppendEntriesRequest.getDefaultInstance())
+          return this;
+        if (requestsBuilder_ == null) {
+          if (!other.requests_.isEmpty()) {
+            if (requests_.isEmpty()) {
+              requests_ = other.requests_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureRequestsIsMutable();
+              requests_.addAll(other.requests_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.requests_.isEmpty()) {
+            if (requestsBuilder_.isEmpty()) {
+              requestsBuilder_.dispose();
+              requestsBuilder_ = null;
+              requests_ = other.requests_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              requestsBuilder_ = com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ? getRequestsFieldBuilder()
+                      : null;
+            } else {
+              requestsBuilder_.addAllMessages(other.requests_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        for (int i = 0; i < getRequestsCount(); i++) {
+          if (!getRequests(i).isInitialized()) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.CodedInputStream input,
+                               com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws java.io.IOException {
+        RelayAppendEntriesRequest parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (RelayAppendEntriesRequest) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+
+      private int bitField0_;
+
+      private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> requests_ = java.util.Collections
+              .emptyList();
+
+      private void ensureRequestsIsMutable() {
+        if (!((bitField0_ & 0x00000001) == 0x00000001)) {
+          requests_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest>(requests_);
+          bitField0_ |= 0x00000001;
+        }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> requestsBuilder_;
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> getRequestsList() {
+        if (requestsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(requests_);
+        } else {
+          return requestsBuilder_.getMessageList();
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public int getRequestsCount() {
+        if (requestsBuilder_ == null) {
+          return requests_.size();
+        } else {
+          return requestsBuilder_.getCount();
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest getRequests(int index) {
+        if (requestsBuilder_ == null) {
+          return requests_.get(index);
+        } else {
+          return requestsBuilder_.getMessage(index);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder setRequests(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.set(index, value);
+          onChanged();
+        } else {
+          requestsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder setRequests(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.add(value);
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest value) {
+        if (requestsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureRequestsIsMutable();
+          requests_.add(index, value);
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.add(builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addRequests(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder builderForValue) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          requestsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder addAllRequests(Iterable<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest> values) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(values, requests_);
+          onChanged();
+        } else {
+          requestsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder clearRequests() {
+        if (requestsBuilder_ == null) {
+          requests_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          requestsBuilder_.clear();
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public Builder removeRequests(int index) {
+        if (requestsBuilder_ == null) {
+          ensureRequestsIsMutable();
+          requests_.remove(index);
+          onChanged();
+        } else {
+          requestsBuilder_.remove(index);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder getRequestsBuilder(int index) {
+        return getRequestsFieldBuilder().getBuilder(index);
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder getRequestsOrBuilder(int index) {
+        if (requestsBuilder_ == null) {
+          return requests_.get(index);
+        } else {
+          return requestsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsOrBuilderList() {
+        if (requestsBuilder_ != null) {
+          return requestsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(requests_);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder addRequestsBuilder() {
+        return getRequestsFieldBuilder().addBuilder(
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder addRequestsBuilder(int index) {
+        return getRequestsFieldBuilder().addBuilder(index,
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesRequest requests = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder> getRequestsBuilderList() {
+        return getRequestsFieldBuilder().getBuilderList();
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder> getRequestsFieldBuilder() {
+        if (requestsBuilder_ == null) {
+          requestsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestOrBuilder>(
+                  requests_, ((bitField0_ & 0x00000001) == 0x00000001), getParentForChildren(), isClean());
+          requests_ = null;
+        }
+        return requestsBuilder_;
+      }
+
+      public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+      // @@protoc_insertion_point(builder_scope:jraft.RelayAppendEntriesRequest)
+    }
+
+    // @@protoc_insertion_point(class_scope:jraft.RelayAppendEntriesRequest)
+    private static final RelayAppendEntriesRequest DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new RelayAppendEntriesRequest();
+    }
+
+    public static RelayAppendEntriesRequest getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated
+    public static final com.google.protobuf.Parser<RelayAppendEntriesRequest> PARSER = new com.google.protobuf.AbstractParser<RelayAppendEntriesRequest>() {
+      public RelayAppendEntriesRequest parsePartialFrom(com.google.protobuf.CodedInputStream input,
+                                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws com.google.protobuf.InvalidProtocolBufferException {
+        return new RelayAppendEntriesRequest(input,
+                extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<RelayAppendEntriesRequest> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<RelayAppendEntriesRequest> getParserForType() {
+      return PARSER;
+    }
+
+    public RelayAppendEntriesRequest getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface RelayAppendEntriesResponseOrBuilder extends
+          // @@protoc_insertion_point(interface_extends:jraft.RelayAppendEntriesResponse)
+          com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList();
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index);
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    int getResponsesCount();
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList();
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index);
+  }
+
+  /**
+   * Protobuf type {@code jraft.RelayAppendEntriesResponse}
+   */
+  public static final class RelayAppendEntriesResponse extends com.google.protobuf.GeneratedMessageV3 implements
+          // @@protoc_insertion_point(message_implements:jraft.RelayAppendEntriesResponse)
+          RelayAppendEntriesResponseOrBuilder {
+    private static final long serialVersionUID = 0L;
+
+    // Use RelayAppendEntriesResponse.newBuilder() to construct.
+    private RelayAppendEntriesResponse(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+
+    private RelayAppendEntriesResponse() {
+      responses_ = java.util.Collections.emptyList();
+    }
+
+    @Override
+    public final com.google.protobuf.UnknownFieldSet getUnknownFields() {
+      return this.unknownFields;
+    }
+
+    private RelayAppendEntriesResponse(com.google.protobuf.CodedInputStream input,
+                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields = com.google.protobuf.UnknownFieldSet
+              .newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+                responses_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              responses_.add(input.readMessage(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.PARSER,
+                      extensionRegistry));
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+          responses_ = java.util.Collections.unmodifiableList(responses_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+
+    public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+      return RpcRequests.internal_static_jraft_RelayAppendEntriesResponse_descriptor;
+    }
+
+    protected FieldAccessorTable internalGetFieldAccessorTable() {
+      return RpcRequests.internal_static_jraft_RelayAppendEntriesResponse_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(RelayAppendEntriesResponse.class,
+                      Builder.class);
+    }
+
+    public static final int RESPONSES_FIELD_NUMBER = 1;
+    private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> responses_;
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList() {
+      return responses_;
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList() {
+      return responses_;
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public int getResponsesCount() {
+      return responses_.size();
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index) {
+      return responses_.get(index);
+    }
+
+    /**
+     * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+     */
+    public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index) {
+      return responses_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1)
+        return true;
+      if (isInitialized == 0)
+        return false;
+
+      for (int i = 0; i < getResponsesCount(); i++) {
+        if (!getResponses(i).isInitialized()) {
+          memoizedIsInitialized = 0;
+          return false;
+        }
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output) throws java.io.IOException {
+      for (int i = 0; i < responses_.size(); i++) {
+        output.writeMessage(1, responses_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1)
+        return size;
+
+      size = 0;
+      for (int i = 0; i < responses_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream.computeMessageSize(1, responses_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof RelayAppendEntriesResponse)) {
+        return super.equals(obj);
+      }
+      RelayAppendEntriesResponse other = (RelayAppendEntriesResponse) obj;
+
+      boolean result = true;
+      result = result && getResponsesList().equals(other.getResponsesList());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getResponsesCount() > 0) {
+        hash = (37 * hash) + RESPONSES_FIELD_NUMBER;
+        hash = (53 * hash) + getResponsesList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(java.nio.ByteBuffer data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(java.nio.ByteBuffer data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(com.google.protobuf.ByteString data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(com.google.protobuf.ByteString data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(byte[] data)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(byte[] data,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(java.io.InputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public static RelayAppendEntriesResponse parseDelimitedFrom(java.io.InputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesResponse parseDelimitedFrom(java.io.InputStream input,
+                                           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseDelimitedWithIOException(PARSER, input,
+              extensionRegistry);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(com.google.protobuf.CodedInputStream input)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input);
+    }
+
+    public static RelayAppendEntriesResponse parseFrom(com.google.protobuf.CodedInputStream input,
+                                  com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3.parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() {
+      return newBuilder();
+    }
+
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+
+    public static Builder newBuilder(RelayAppendEntriesResponse prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @Override
+    protected Builder newBuilderForType(BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+
+    /**
+     * Protobuf type {@code jraft.RelayAppendEntriesResponse}
+     */
+    public static final class Builder extends com.google.protobuf.GeneratedMessageV3.Builder<Builder>
+            implements
+            // @@protoc_insertion_point(builder_implements:jraft.RelayAppendEntriesResponse)
+            RelayAppendEntriesResponseOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor getDescriptor() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesResponse_descriptor;
+      }
+
+      protected FieldAccessorTable internalGetFieldAccessorTable() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesResponse_fieldAccessorTable
+                .ensureFieldAccessorsInitialized(RelayAppendEntriesResponse.class,
+                        Builder.class);
+      }
+
+      // Construct using .RpcRequests.RelayAppendEntriesResponse.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders) {
+          getResponsesFieldBuilder();
+        }
+      }
+
+      public Builder clear() {
+        super.clear();
+        if (responsesBuilder_ == null) {
+          responses_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          responsesBuilder_.clear();
+        }
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor getDescriptorForType() {
+        return RpcRequests.internal_static_jraft_RelayAppendEntriesResponse_descriptor;
+      }
+
+      public RelayAppendEntriesResponse getDefaultInstanceForType() {
+        return RelayAppendEntriesResponse.getDefaultInstance();
+      }
+
+      public RelayAppendEntriesResponse build() {
+        RelayAppendEntriesResponse result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public RelayAppendEntriesResponse buildPartial() {
+        RelayAppendEntriesResponse result = new RelayAppendEntriesResponse(
+                this);
+        if (responsesBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001)) {
+            responses_ = java.util.Collections.unmodifiableList(responses_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.responses_ = responses_;
+        } else {
+          result.responses_ = responsesBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+
+      public Builder setField(com.google.protobuf.Descriptors.FieldDescriptor field, Object value) {
+        return (Builder) super.setField(field, value);
+      }
+
+      public Builder clearField(com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+
+      public Builder clearOneof(com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+
+      public Builder setRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field, int index,
+                                      Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+
+      public Builder addRepeatedField(com.google.protobuf.Descriptors.FieldDescriptor field,
+                                      Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof RelayAppendEntriesResponse) {
+          return mergeFrom((RelayAppendEntriesResponse) other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(RelayAppendEntriesResponse other) {
+        if (other == RelayAppendEntriesResponse.getDefaultInstance())
+          return this;
+        if (responsesBuilder_ == null) {
+          if (!other.responses_.isEmpty()) {
+            if (responses_.isEmpty()) {
+              responses_ = other.responses_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureResponsesIsMutable();
+              responses_.addAll(other.responses_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.responses_.isEmpty()) {
+            if (responsesBuilder_.isEmpty()) {
+              responsesBuilder_.dispose();
+              responsesBuilder_ = null;
+              responses_ = other.responses_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              responsesBuilder_ = com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ? getResponsesFieldBuilder()
+                      : null;
+            } else {
+              responsesBuilder_.addAllMessages(other.responses_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        for (int i = 0; i < getResponsesCount(); i++) {
+          if (!getResponses(i).isInitialized()) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.CodedInputStream input,
+                               com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws java.io.IOException {
+        RelayAppendEntriesResponse parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (RelayAppendEntriesResponse) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+
+      private int bitField0_;
+
+      private java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> responses_ = java.util.Collections
+              .emptyList();
+
+      private void ensureResponsesIsMutable() {
+        if (!((bitField0_ & 0x00000001) == 0x00000001)) {
+          responses_ = new java.util.ArrayList<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse>(responses_);
+          bitField0_ |= 0x00000001;
+        }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> responsesBuilder_;
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> getResponsesList() {
+        if (responsesBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(responses_);
+        } else {
+          return responsesBuilder_.getMessageList();
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public int getResponsesCount() {
+        if (responsesBuilder_ == null) {
+          return responses_.size();
+        } else {
+          return responsesBuilder_.getCount();
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse getResponses(int index) {
+        if (responsesBuilder_ == null) {
+          return responses_.get(index);
+        } else {
+          return responsesBuilder_.getMessage(index);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder setResponses(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.set(index, value);
+          onChanged();
+        } else {
+          responsesBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder setResponses(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.add(value);
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(int index, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse value) {
+        if (responsesBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureResponsesIsMutable();
+          responses_.add(index, value);
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.add(builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addResponses(int index,
+                              com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder builderForValue) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          responsesBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder addAllResponses(Iterable<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse> values) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(values, responses_);
+          onChanged();
+        } else {
+          responsesBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder clearResponses() {
+        if (responsesBuilder_ == null) {
+          responses_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          responsesBuilder_.clear();
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public Builder removeResponses(int index) {
+        if (responsesBuilder_ == null) {
+          ensureResponsesIsMutable();
+          responses_.remove(index);
+          onChanged();
+        } else {
+          responsesBuilder_.remove(index);
+        }
+        return this;
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder getResponsesBuilder(int index) {
+        return getResponsesFieldBuilder().getBuilder(index);
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder getResponsesOrBuilder(int index) {
+        if (responsesBuilder_ == null) {
+          return responses_.get(index);
+        } else {
+          return responsesBuilder_.getMessageOrBuilder(index);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<? extends com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesOrBuilderList() {
+        if (responsesBuilder_ != null) {
+          return responsesBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(responses_);
+        }
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder addResponsesBuilder() {
+        return getResponsesFieldBuilder().addBuilder(
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder addResponsesBuilder(int index) {
+        return getResponsesFieldBuilder().addBuilder(index,
+                com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.getDefaultInstance());
+      }
+
+      /**
+       * <code>repeated jraft.AppendEntriesResponse responses = 1;</code>
+       */
+      public java.util.List<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder> getResponsesBuilderList() {
+        return getResponsesFieldBuilder().getBuilderList();
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder> getResponsesFieldBuilder() {
+        if (responsesBuilder_ == null) {
+          responsesBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse.Builder, com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponseOrBuilder>(
+                  responses_, ((bitField0_ & 0x00000001) == 0x00000001), getParentForChildren(), isClean());
+          responses_ = null;
+        }
+        return responsesBuilder_;
+      }
+
+      public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+      // @@protoc_insertion_point(builder_scope:jraft.RelayAppendEntriesResponse)
+    }
+
+    // @@protoc_insertion_point(class_scope:jraft.RelayAppendEntriesResponse)
+    private static final RelayAppendEntriesResponse DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new RelayAppendEntriesResponse();
+    }
+
+    public static RelayAppendEntriesResponse getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @Deprecated
+    public static final com.google.protobuf.Parser<RelayAppendEntriesResponse> PARSER = new com.google.protobuf.AbstractParser<RelayAppendEntriesResponse>() {
+      public RelayAppendEntriesResponse parsePartialFrom(com.google.protobuf.CodedInputStream input,
+                                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+              throws com.google.protobuf.InvalidProtocolBufferException {
+        return new RelayAppendEntriesResponse(input,
+                extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<RelayAppendEntriesResponse> parser() {
+      return PARSER;
+    }
+
+    @Override
+    public com.google.protobuf.Parser<RelayAppendEntriesResponse> getParserForType() {
+      return PARSER;
+    }
+
+    public RelayAppendEntriesResponse getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
   private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_PingRequest_descriptor;
   private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_PingRequest_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_ErrorResponse_descriptor;
@@ -14807,6 +18163,14 @@ public final class RpcRequests {
   private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_ReadIndexRequest_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_ReadIndexResponse_descriptor;
   private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_ReadIndexResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_BatchHeartbeatRequest_descriptor;
+  private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_BatchHeartbeatRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_BatchHeartbeatResponse_descriptor;
+  private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_BatchHeartbeatResponse_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_RelayAppendEntriesRequest_descriptor;
+  private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_RelayAppendEntriesRequest_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor                internal_static_jraft_RelayAppendEntriesResponse_descriptor;
+  private static final com.google.protobuf.GeneratedMessageV3.FieldAccessorTable internal_static_jraft_RelayAppendEntriesResponse_fieldAccessorTable;
 
   public static com.google.protobuf.Descriptors.FileDescriptor getDescriptor() {
     return descriptor;
@@ -14836,28 +18200,37 @@ public final class RpcRequests {
             + "\003\022\017\n\007granted\030\002 \002(\010\022+\n\rerrorResponse\030c \001("
             + "\0132\024.jraft.ErrorResponse\"R\n\032AppendEntries"
             + "RequestHeader\022\020\n\010group_id\030\001 \002(\t\022\021\n\tserve"
-            + "r_id\030\002 \002(\t\022\017\n\007peer_id\030\003 \002(\t\"\323\001\n\024AppendEn"
+            + "r_id\030\002 \002(\t\022\017\n\007peer_id\030\003 \002(\t\"\352\001\n\024AppendEn"
             + "triesRequest\022\020\n\010group_id\030\001 \002(\t\022\021\n\tserver"
             + "_id\030\002 \002(\t\022\017\n\007peer_id\030\003 \002(\t\022\014\n\004term\030\004 \002(\003"
             + "\022\025\n\rprev_log_term\030\005 \002(\003\022\026\n\016prev_log_inde"
             + "x\030\006 \002(\003\022!\n\007entries\030\007 \003(\0132\020.jraft.EntryMe"
             + "ta\022\027\n\017committed_index\030\010 \002(\003\022\014\n\004data\030\t \001("
-            + "\014\"{\n\025AppendEntriesResponse\022\014\n\004term\030\001 \002(\003"
-            + "\022\017\n\007success\030\002 \002(\010\022\026\n\016last_log_index\030\003 \001("
-            + "\003\022+\n\rerrorResponse\030c \001(\0132\024.jraft.ErrorRe"
-            + "sponse\"i\n\016GetFileRequest\022\021\n\treader_id\030\001 "
-            + "\002(\003\022\020\n\010filename\030\002 \002(\t\022\r\n\005count\030\003 \002(\003\022\016\n\006"
-            + "offset\030\004 \002(\003\022\023\n\013read_partly\030\005 \001(\010\"l\n\017Get"
-            + "FileResponse\022\013\n\003eof\030\001 \002(\010\022\014\n\004data\030\002 \002(\014\022"
-            + "\021\n\tread_size\030\003 \001(\003\022+\n\rerrorResponse\030c \001("
-            + "\0132\024.jraft.ErrorResponse\"\207\001\n\020ReadIndexReq"
-            + "uest\022\020\n\010group_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002("
-            + "\t\022\017\n\007entries\030\003 \003(\014\022\017\n\007peer_id\030\004 \001(\t\022,\n\017r"
-            + "eadOnlyOptions\030\005 \001(\0162\023.jraft.ReadOnlyTyp"
-            + "e\"`\n\021ReadIndexResponse\022\r\n\005index\030\001 \002(\003\022\017\n"
-            + "\007success\030\002 \002(\010\022+\n\rerrorResponse\030c \001(\0132\024."
-            + "jraft.ErrorResponseB(\n\031com.alipay.sofa.j"
-            + "raft.rpcB\013RpcRequests" };
+            + "\014\022\025\n\rcompress_type\030\n \001(\005\"\252\001\n\025AppendEntri"
+            + "esResponse\022\014\n\004term\030\001 \002(\003\022\017\n\007success\030\002 \002("
+            + "\010\022\026\n\016last_log_index\030\003 \001(\003\022+\n\rerrorRespon"
+            + "se\030c \001(\0132\024.jraft.ErrorResponse\022\025\n\rconfli"
+            + "ct_term\030\004 \001(\003\022\026\n\016conflict_index\030\005 \001(\003\"i\n"
+            + "\016GetFileRequest\022\021\n\treader_id\030\001 \002(\003\022\020\n\010fi"
+            + "lename\030\002 \002(\t\022\r\n\005count\030\003 \002(\003\022\016\n\006offset\030\004 "
+            + "\002(\003\022\023\n\013read_partly\030\005 \001(\010\"l\n\017GetFileRespo"
+            + "nse\022\013\n\003eof\030\001 \002(\010\022\014\n\004data\030\002 \002(\014\022\021\n\tread_s"
+            + "ize\030\003 \001(\003\022+\n\rerrorResponse\030c \001(\0132\024.jraft"
+            + ".ErrorResponse\"\207\001\n\020ReadIndexRequest\022\020\n\010g"
+            + "roup_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002(\t\022\017\n\007entr"
+            + "ies\030\003 \003(\014\022\017\n\007peer_id\030\004 \001(\t\022,\n\017readOnlyOp"
+            + "tions\030\005 \001(\0162\023.jraft.ReadOnlyType\"`\n\021Read"
+            + "IndexResponse\022\r\n\005index\030\001 \002(\003\022\017\n\007success\030"
+            + "\002 \002(\010\022+\n\rerrorResponse\030c \001(\0132\024.jraft.Err"
+            + "orResponse\"F\n\025BatchHeartbeatRequest\022-\n\010r"
+            + "equests\030\001 \003(\0132\033.jraft.AppendEntriesReque"
+            + "st\"I\n\026BatchHeartbeatResponse\022/\n\tresponse"
+            + "s\030\001 \003(\0132\034.jraft.AppendEntriesResponse\"J\n"
+            + "\031RelayAppendEntriesRequest\022-\n\010requests\030\001"
+            + " \003(\0132\033.jraft.AppendEntriesRequest\"M\n\032Rel"
+            + "ayAppendEntriesResponse\022/\n\tresponses\030\001 \003"
+            + "(\0132\034.jraft.AppendEntriesResponseB(\n\031com."
+            + "alipay.sofa.jraft.rpcB\013RpcRequests" };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner = new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
       public com.google.protobuf.ExtensionRegistry assignDescriptors(com.google.protobuf.Descriptors.FileDescriptor root) {
         descriptor = root;
@@ -14906,11 +18279,11 @@ public final class RpcRequests {
     internal_static_jraft_AppendEntriesRequest_descriptor = getDescriptor().getMessageTypes().get(9);
     internal_static_jraft_AppendEntriesRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_AppendEntriesRequest_descriptor, new String[] { "GroupId", "ServerId",
-            "PeerId", "Term", "PrevLogTerm", "PrevLogIndex", "Entries", "CommittedIndex", "Data", });
+            "PeerId", "Term", "PrevLogTerm", "PrevLogIndex", "Entries", "CommittedIndex", "Data", "CompressType", });
     internal_static_jraft_AppendEntriesResponse_descriptor = getDescriptor().getMessageTypes().get(10);
     internal_static_jraft_AppendEntriesResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_AppendEntriesResponse_descriptor, new String[] { "Term", "Success",
-            "LastLogIndex", "ErrorResponse", });
+            "LastLogIndex", "ErrorResponse", "ConflictTerm", "ConflictIndex", });
     internal_static_jraft_GetFileRequest_descriptor = getDescriptor().getMessageTypes().get(11);
     internal_static_jraft_GetFileRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_GetFileRequest_descriptor, new String[] { "ReaderId", "Filename", "Count",
@@ -14927,6 +18300,18 @@ public final class RpcRequests {
     internal_static_jraft_ReadIndexResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_ReadIndexResponse_descriptor, new String[] { "Index", "Success",
             "ErrorResponse", });
+    internal_static_jraft_BatchHeartbeatRequest_descriptor = getDescriptor().getMessageTypes().get(15);
+    internal_static_jraft_BatchHeartbeatRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+            internal_static_jraft_BatchHeartbeatRequest_descriptor, new String[] { "Requests", });
+    internal_static_jraft_BatchHeartbeatResponse_descriptor = getDescriptor().getMessageTypes().get(16);
+    internal_static_jraft_BatchHeartbeatResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+            internal_static_jraft_BatchHeartbeatResponse_descriptor, new String[] { "Responses", });
+    internal_static_jraft_RelayAppendEntriesRequest_descriptor = getDescriptor().getMessageTypes().get(17);
+    internal_static_jraft_RelayAppendEntriesRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+            internal_static_jraft_RelayAppendEntriesRequest_descriptor, new String[] { "Requests", });
+    internal_static_jraft_RelayAppendEntriesResponse_descriptor = getDescriptor().getMessageTypes().get(18);
+    internal_static_jraft_RelayAppendEntriesResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+            internal_static_jraft_RelayAppendEntriesResponse_descriptor, new String[] { "Responses", });
     com.alipay.sofa.jraft.entity.RaftOutter.getDescriptor();
     com.alipay.sofa.jraft.entity.EnumOutter.getDescriptor();
   }
@@ -0,0 +1,97 @@
+package com.alipay.sofa.jraft.rpc.impl.core;
+
+import com.alipay.sofa.jraft.Node;
+import com.alipay.sofa.jraft.NodeManager;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.rpc.RaftServerService;
+import com.alipay.sofa.jraft.rpc.RpcRequestClosure;
+import com.alipay.sofa.jraft.rpc.RpcRequestProcessor;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.util.RpcFactoryHelper;
+import com.google.protobuf.Message;
+
+import java.util.concurrent.Executor;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：处理批量心跳请求的处理器，一个进程中部署了很多复制组的时候，两个节点之间每个复制组都要定时发送心跳消息
+ * 领导者会把发往同一个节点的心跳消息合并成一个BatchHeartbeatRequest请求，这个处理器把请求中的心跳消息逐个交给对应复制组的节点处理
+ * 心跳消息在NodeImpl的handleAppendEntriesRequest方法中是同步处理的，所以处理完之后按照请求中的顺序把响应放到批量响应中回复即可
+ * 某个复制组的节点不存在或者处理出错的时候，对应位置上的响应会携带errorResponse，不影响其他复制组的心跳消息
+ */
+public class BatchHeartbeatRequestProcessor extends RpcRequestProcessor<RpcRequests.BatchHeartbeatRequest> {
+
+    public BatchHeartbeatRequestProcessor(Executor executor) {
+        super(executor, RpcRequests.BatchHeartbeatResponse.getDefaultInstance());
+    }
+
+    @Override
+    public Message processRequest(final RpcRequests.BatchHeartbeatRequest request, final RpcRequestClosure done) {
+        final RpcRequests.BatchHeartbeatResponse.Builder rb = RpcRequests.BatchHeartbeatResponse.newBuilder();
+        for (final RpcRequests.AppendEntriesRequest heartbeat : request.getRequestsList()) {
+            rb.addResponses(processHeartbeat(heartbeat, done));
+        }
+        return rb.build();
+    }
+
+    //处理单个复制组的心跳消息，返回的一定是AppendEntriesResponse，出错的时候把错误信息放到errorResponse中
+    private RpcRequests.AppendEntriesResponse processHeartbeat(final RpcRequests.AppendEntriesRequest request,
+                                                               final RpcRequestClosure done) {
+        //只有心跳消息才能合并发送，日志复制请求和探针请求需要保证顺序，必须通过AppendEntriesRequestProcessor处理
+        if (request.getEntriesCount() != 0 || request.hasData()) {
+            return errorResponse(RaftError.EINVAL, "Not a heartbeat request, group: %s", request.getGroupId());
+        }
+        final PeerId peer = new PeerId();
+        if (!peer.parse(request.getPeerId())) {
+            return errorResponse(RaftError.EINVAL, "Fail to parse peerId: %s", request.getPeerId());
+        }
+        final Node node = NodeManager.getInstance().get(request.getGroupId(), peer);
+        if (node == null) {
+            return errorResponse(RaftError.ENOENT, "Peer id not found: %s, group: %s", request.getPeerId(),
+                request.getGroupId());
+        }
+        try {
+            final Message response = ((RaftServerService) node).handleAppendEntriesRequest(request, done);
+            if (response instanceof RpcRequests.AppendEntriesResponse) {
+                return (RpcRequests.AppendEntriesResponse) response;
+            }
+            if (response instanceof RpcRequests.ErrorResponse) {
+                return toAppendEntriesResponse((RpcRequests.ErrorResponse) response);
+            }
+            return errorResponse(RaftError.EINTERNAL, "Unexpected heartbeat response, group: %s",
+                request.getGroupId());
+        } catch (final Throwable t) {
+            LOG.error("Fail to handle heartbeat request {} in batch.", request, t);
+            return errorResponse(RaftError.EINTERNAL, "handleRequest internal error");
+        }
+    }
+
+    static RpcRequests.AppendEntriesResponse errorResponse(final RaftError error, final String fmt,
+                                                           final Object... args) {
+        return toAppendEntriesResponse((RpcRequests.ErrorResponse) RpcFactoryHelper.responseFactory()
+            .newResponse(RpcRequests.AppendEntriesResponse.getDefaultInstance(), error, fmt, args));
+    }
+
+    static RpcRequests.AppendEntriesResponse errorResponse(final Status status) {
+        return toAppendEntriesResponse((RpcRequests.ErrorResponse) RpcFactoryHelper.responseFactory()
+            .newResponse(RpcRequests.AppendEntriesResponse.getDefaultInstance(), status));
+    }
+
+    //批量响应中只能存放AppendEntriesResponse，所以把错误响应放到errorResponse字段中，term和success是必填字段
+    private static RpcRequests.AppendEntriesResponse toAppendEntriesResponse(final RpcRequests.ErrorResponse error) {
+        return RpcRequests.AppendEntriesResponse.newBuilder()
+            .setTerm(0)
+            .setSuccess(false)
+            .setErrorResponse(error)
+            .build();
+    }
+
+    @Override
+    public String interest() {
+        return RpcRequests.BatchHeartbeatRequest.class.getName();
+    }
+}
@@ -0,0 +1,129 @@
+package com.alipay.sofa.jraft.rpc.impl.core;
+
+import com.alipay.sofa.jraft.JRaftUtils;
+import com.alipay.sofa.jraft.Node;
+import com.alipay.sofa.jraft.NodeManager;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.core.NodeImpl;
+import com.alipay.sofa.jraft.core.ReplicationRelay;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.rpc.RpcRequestClosure;
+import com.alipay.sofa.jraft.rpc.RpcRequestProcessor;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.util.Utils;
+import com.alipay.sofa.jraft.util.concurrent.MpscSingleThreadExecutor;
+import com.alipay.sofa.jraft.util.concurrent.SingleThreadExecutor;
+import com.google.protobuf.Message;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：处理中继日志复制请求的处理器，中继节点收到领导者发来的请求之后，把请求中的每个日志复制请求交给本地节点的中继复制组件转发给目标跟随者
+ * 所有请求的响应都收到之后，按照请求中的顺序把目标跟随者的响应放到批量响应中回复给领导者，转发失败的时候对应位置上的响应会携带errorResponse
+ * 转发给跟随者的请求必须和领导者发送的顺序一样，所以这个处理器使用进程共享的单线程执行器，而不是处理其他请求的线程池
+ */
+public class RelayAppendEntriesRequestProcessor extends RpcRequestProcessor<RpcRequests.RelayAppendEntriesRequest> {
+
+    //进程中所有中继请求处理器共享的单线程执行器，第一次收到中继请求的时候才创建，线程是守护线程
+    //每创建一个RpcServer就会创建一个处理器，如果每个处理器都创建自己的执行器，服务器关闭之后执行器的线程也不会退出
+    private static class ExecutorHolder {
+        static final SingleThreadExecutor EXECUTOR = new MpscSingleThreadExecutor(
+                                                       Utils.MAX_APPEND_ENTRIES_TASKS_PER_THREAD,
+                                                       JRaftUtils
+                                                           .createThreadFactory("JRaft-Relay-AppendEntries-Processor"));
+    }
+
+    //bolt在处理请求之前才会获取处理器的执行器，这里把获取执行器延迟到ExecutorHolder中
+    private static final Executor LAZY_EXECUTOR = task -> ExecutorHolder.EXECUTOR.execute(task);
+
+    public RelayAppendEntriesRequestProcessor() {
+        super(LAZY_EXECUTOR, RpcRequests.RelayAppendEntriesResponse.getDefaultInstance());
+    }
+
+    @Override
+    public Message processRequest(final RpcRequests.RelayAppendEntriesRequest request, final RpcRequestClosure done) {
+        final int count = request.getRequestsCount();
+        final RpcRequests.AppendEntriesResponse[] responses = new RpcRequests.AppendEntriesResponse[count];
+        final AtomicInteger remaining = new AtomicInteger(count);
+        if (count == 0) {
+            return RpcRequests.RelayAppendEntriesResponse.getDefaultInstance();
+        }
+        for (int i = 0; i < count; i++) {
+            final int idx = i;
+            relay(request.getRequests(i), response -> {
+                responses[idx] = response;
+                if (remaining.decrementAndGet() == 0) {
+                    final RpcRequests.RelayAppendEntriesResponse.Builder rb = RpcRequests.RelayAppendEntriesResponse
+                        .newBuilder();
+                    for (final RpcRequests.AppendEntriesResponse resp : responses) {
+                        rb.addResponses(resp);
+                    }
+                    done.sendResponse(rb.build());
+                }
+            });
+        }
+        return null;
+    }
+
+    //转发单个日志复制请求，不管成功还是失败，最后都会把一个AppendEntriesResponse交给callback
+    private void relay(final RpcRequests.AppendEntriesRequest request,
+                       final Consumer<RpcRequests.AppendEntriesResponse> callback) {
+        final ReplicationRelay relay = findRelay(request);
+        if (relay == null) {
+            callback.accept(BatchHeartbeatRequestProcessor.errorResponse(RaftError.ENOENT,
+                "No relay node found for group: %s", request.getGroupId()));
+            return;
+        }
+        try {
+            relay.relay(request, new RpcResponseClosureAdapter<RpcRequests.AppendEntriesResponse>() {
+
+                @Override
+                public void run(final Status status) {
+                    if (status.isOk() && getResponse() != null) {
+                        callback.accept(getResponse());
+                    } else {
+                        callback.accept(BatchHeartbeatRequestProcessor.errorResponse(status));
+                    }
+                }
+            });
+        } catch (final Throwable t) {
+            LOG.error("Fail to relay AppendEntriesRequest {}.", request, t);
+            callback.accept(BatchHeartbeatRequestProcessor.errorResponse(RaftError.EINTERNAL,
+                "handleRequest internal error"));
+        }
+    }
+
+    //在本进程中找到这个复制组的中继节点，中继节点不能是目标跟随者本身，尽量也不要是发送请求的领导者
+    private static ReplicationRelay findRelay(final RpcRequests.AppendEntriesRequest request) {
+        final List<Node> nodes = NodeManager.getInstance().getNodesByGroupId(request.getGroupId());
+        if (nodes == null) {
+            return null;
+        }
+        final PeerId target = PeerId.parsePeer(request.getPeerId());
+        final PeerId leader = PeerId.parsePeer(request.getServerId());
+        NodeImpl candidate = null;
+        for (final Node node : nodes) {
+            if (!(node instanceof NodeImpl) || node.getNodeId().getPeerId().equals(target)) {
+                continue;
+            }
+            if (!node.getNodeId().getPeerId().equals(leader)) {
+                return ((NodeImpl) node).getReplicationRelay();
+            }
+            candidate = (NodeImpl) node;
+        }
+        return candidate != null ? candidate.getReplicationRelay() : null;
+    }
+
+    @Override
+    public String interest() {
+        return RpcRequests.RelayAppendEntriesRequest.class.getName();
+    }
+}
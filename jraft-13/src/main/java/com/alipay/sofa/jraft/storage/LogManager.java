@@ -71,6 +71,10 @@ public interface LogManager extends Lifecycle<LogManagerOptions>, Describer {
     //根据索引获得指定日志条目
     LogEntry getEntry(final long index);
 
+    //批量获得从fromIndex开始的连续日志条目，最多maxCount条，日志data的总字节数达到maxBytes就停止
+    //返回的集合为空表示fromIndex对应的日志不存在
+    List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes);
+
     //根据日志索引获得对应任期的方法
     long getTerm(final long index);
 
@@ -85,6 +89,9 @@ public interface LogManager extends Lifecycle<LogManagerOptions>, Describer {
     //得到最后一条日志索引的方法
     long getLastLogIndex();
 
+    //得到内存中缓存的日志占用的字节数
+    long getMemoryLogBytes();
+
     //得到最后一条日志的索引，这个方法和上面方法的区别是
     //当调用这个方法的时候，如果方法参数isFlush为true
     //就会讲内存中的日志刷新到硬盘中，然后返回最新的最后一条日志的索引
@@ -26,11 +26,17 @@ public interface LogStorage extends Lifecycle<LogStorageOptions>, Storage {
     //根据索引得到指定日志的方法
     LogEntry getEntry(final long index);
 
+    //从fromIndex开始批量读取连续的日志，最多读取maxCount条，读取到的日志data的总字节数达到maxBytes就停止
+    //只要fromIndex对应的日志存在，至少会返回一条日志，遇到不存在的日志就停止读取
+    List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes);
+
     boolean truncatePrefix(final long firstIndexKept);
 
     boolean truncateSuffix(final long firstIndexKept);
 
-    //根据日志索引得到对应日志任期的方法
+    //根据日志索引得到对应日志任期的方法，实现类要保证这个方法不需要解码整条日志
+    //这个方法读不到日志的校验和，所以不会校验日志是否损坏，开启了enableLogEntryChecksum的时候日志管理器会改用getEntry读取任期
+    //需要校验日志的地方应该使用getEntry方法，这个方法和源码中一样仍然标记为过时
     @Deprecated
     long getTerm(final long index);
 
@@ -0,0 +1,94 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.util.BufferUtils;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：把日志直接编码到直接内存中然后写入RocksDB批处理的写入器。之前每条日志落盘的时候都要创建一个key字节数组
+ * 编码器还要创建PBLogEntry对象和存放结果的字节数组，日志写入速度很高的时候这些就是最主要的内存分配来源
+ * 这个类从对象池中得到一个使用直接内存的ByteBufferCollector，每条日志的key和value都依次写入到这块内存中
+ * 然后使用RocksDB的ByteBuffer接口放入批处理，批处理会把数据复制到自己内部，所以这块内存可以马上被下一条日志复用
+ * 一个写入器只在一次批处理中使用，用完之后一定要调用release方法把收集器归还到对象池中
+ */
+public class DirectLogEntryWriter {
+
+    //收集器初始的容量
+    private static final int          INIT_BUFFER_SIZE = 4 * 1024;
+
+    private final LogEntryEncoder     encoder;
+    //key的前缀，共享日志引擎中就是8字节的组前缀，普通的RocksDB日志存储器没有前缀
+    private final byte[]              keyPrefix;
+    private final int                 keySize;
+    private ByteBufferCollector       collector;
+    //创建视图时收集器的buffer
+    private ByteBuffer                viewSource;
+    //下面两个都是收集器buffer的视图，分别指向key和value，只有收集器扩容之后才会重新创建
+    private ByteBuffer                keyView;
+    private ByteBuffer                valueView;
+
+    public DirectLogEntryWriter(final LogEntryEncoder encoder, final byte[] keyPrefix) {
+        this.encoder = encoder;
+        this.keyPrefix = keyPrefix;
+        this.keySize = keyPrefix.length + 8;
+        this.collector = ByteBufferCollector.allocateDirectByRecyclers(INIT_BUFFER_SIZE);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：把一条日志编码之后放到批处理的dataHandle列族中，如果confHandle不为null，就在confHandle列族中也存放一份
+     */
+    public void put(final WriteBatch batch, final LogEntry entry, final ColumnFamilyHandle dataHandle,
+                    final ColumnFamilyHandle confHandle) throws RocksDBException {
+        ByteBuffer buf = this.collector.getBuffer();
+        BufferUtils.clear(buf);
+        buf = this.collector.getBuffer(this.keySize);
+        buf.put(this.keyPrefix);
+        buf.putLong(entry.getId().getIndex());
+        this.encoder.encode(entry, this.collector);
+        //编码的时候收集器可能扩容了，所以这里要重新获取buffer
+        buf = this.collector.getBuffer();
+        final int end = buf.position();
+        if (this.viewSource != buf) {
+            this.viewSource = buf;
+            this.keyView = buf.duplicate();
+            this.valueView = buf.duplicate();
+        }
+        putView(batch, dataHandle, end);
+        if (confHandle != null) {
+            putView(batch, confHandle, end);
+        }
+    }
+
+    private void putView(final WriteBatch batch, final ColumnFamilyHandle handle, final int end)
+                                                                                                 throws RocksDBException {
+        BufferUtils.clear(this.keyView);
+        BufferUtils.limit(this.keyView, this.keySize);
+        BufferUtils.clear(this.valueView);
+        BufferUtils.limit(this.valueView, end);
+        BufferUtils.position(this.valueView, this.keySize);
+        batch.put(handle, this.keyView, this.valueView);
+    }
+
+    //把收集器归还到对象池中
+    public void release() {
+        if (this.collector != null) {
+            this.collector.recycle();
+            this.collector = null;
+            this.viewSource = null;
+            this.keyView = null;
+            this.valueView = null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.core.NodeMetrics;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.util.Utils;
+import org.rocksdb.WriteBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：跨raft组的组提交写入器，每个共享日志引擎最多有一个。每个日志管理器的disruptor线程在AppendBatcher刷盘的时候
+ * 不再自己执行db.write，而是把要落盘的日志提交到这个写入器的队列中，然后等待写入完成。写入器只有一个线程，它每次把队列中
+ * 所有组的日志合并到一个WriteBatch中，执行一次同步写，也就是只做一次fsync，然后依次回调每个组的StableClosure
+ * 这样很多raft组运行在同一块硬盘上的时候，fsync的次数就不会随着组的数量成倍增加了
+ */
+public class GroupCommitLogWriter {
+
+    private static final Logger LOG                = LoggerFactory.getLogger(GroupCommitLogWriter.class);
+
+    //一次组提交最多合并的请求数量
+    private static final int    MAX_BATCH_REQUESTS = 1024;
+
+    //组提交请求，每个请求就是一个组的一次刷盘
+    private static class Request {
+        final SharedRocksDBLogStorage storage;
+        final List<LogEntry>          entries;
+        final NodeMetrics             nodeMetrics;
+        //写入完成后在写入器线程中执行的回调，参数表示写入是否成功
+        final Consumer<Boolean>       done;
+        final long                    enqueueMs = Utils.monotonicMs();
+        final CountDownLatch          latch     = new CountDownLatch(1);
+        //请求是否已经结束，写入器线程和停止写入器的线程都可能结束请求，只有第一次结束有效
+        final AtomicBoolean           completed = new AtomicBoolean();
+        volatile boolean              success;
+
+        Request(final SharedRocksDBLogStorage storage, final List<LogEntry> entries, final NodeMetrics nodeMetrics,
+                final Consumer<Boolean> done) {
+            this.storage = storage;
+            this.entries = entries;
+            this.nodeMetrics = nodeMetrics;
+            this.done = done;
+        }
+    }
+
+    private final SharedRocksDBLogEngine engine;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread                 thread;
+    private volatile boolean             stopped;
+    //写入器线程正在落盘的请求，停止写入器的时候如果同步写迟迟不返回，这些请求也会以失败结束
+    private volatile Request[]           committing;
+
+    public GroupCommitLogWriter(final SharedRocksDBLogEngine engine) {
+        this.engine = engine;
+        this.thread = new Thread(this::run, "JRaft-GroupCommit-" + engine.getPath());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：提交一批日志，这个方法会一直阻塞到这批日志落盘并且done回调执行完毕，这样同一个组的日志落盘和截断日志等操作的顺序不会被打乱
+     * 请求放入队列之后要再检查一次写入器是否停止了，因为写入器可能在检查和入队之间停止，并且已经清空了队列，这时候没有人会结束这个请求
+     */
+    public boolean append(final SharedRocksDBLogStorage storage, final List<LogEntry> entries,
+                          final NodeMetrics nodeMetrics, final Consumer<Boolean> done) {
+        final Request request = new Request(storage, entries, nodeMetrics, done);
+        if (this.stopped) {
+            complete(request, false);
+            return false;
+        }
+        this.queue.add(request);
+        //请求还在队列中说明写入器线程没有取走它，直接以失败结束，被写入器线程取走的请求由写入器线程结束
+        if (this.stopped && this.queue.remove(request)) {
+            complete(request, false);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                request.latch.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return request.success;
+    }
+
+    private void run() {
+        final List<Request> batch = new ArrayList<>(MAX_BATCH_REQUESTS);
+        while (!this.stopped) {
+            try {
+                final Request first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, MAX_BATCH_REQUESTS - 1);
+                this.committing = batch.toArray(new Request[0]);
+                commit(batch);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final Throwable t) {
+                LOG.error("Unexpected error in group commit writer of {}.", this.engine.getPath(), t);
+            } finally {
+                this.committing = null;
+                batch.clear();
+            }
+        }
+        //写入器停止之后，队列中剩下的请求全部以失败结束
+        Request request;
+        while ((request = this.queue.poll()) != null) {
+            complete(request, false);
+        }
+    }
+
+    //把一批请求合并成一次同步写，每个请求填充批处理之前设置一个保存点，某个组填充失败的时候只回滚这个组写入的内容
+    //这个组的请求单独以失败结束，其他组的日志照常落盘
+    private void commit(final List<Request> batch) {
+        final long startMs = Utils.monotonicMs();
+        int entriesCount = 0;
+        final boolean[] filled = new boolean[batch.size()];
+        boolean success;
+        try (final WriteBatch writeBatch = new WriteBatch()) {
+            for (int i = 0; i < batch.size(); i++) {
+                final Request request = batch.get(i);
+                writeBatch.setSavePoint();
+                try {
+                    request.storage.fillBatch(request.entries, writeBatch);
+                    writeBatch.popSavePoint();
+                    filled[i] = true;
+                    entriesCount += request.entries.size();
+                } catch (final Throwable t) {
+                    LOG.error("Fail to fill group commit request of {} in shared log engine {}.",
+                        request.storage.getPath(), this.engine.getPath(), t);
+                    writeBatch.rollbackToSavePoint();
+                }
+            }
+            if (entriesCount > 0) {
+                this.engine.getDb().write(this.engine.getWriteOptions(), writeBatch);
+            }
+            success = true;
+        } catch (final Throwable t) {
+            LOG.error("Fail to group commit {} requests in shared log engine {}.", batch.size(),
+                this.engine.getPath(), t);
+            success = false;
+        }
+        final long writeMs = Utils.monotonicMs() - startMs;
+        for (int i = 0; i < batch.size(); i++) {
+            final Request request = batch.get(i);
+            final boolean ok = success && filled[i];
+            if (ok) {
+                request.storage.onEntriesAppended(request.entries);
+            }
+            if (request.nodeMetrics != null) {
+                request.nodeMetrics.recordLatency("group-commit-write", writeMs);
+                request.nodeMetrics.recordLatency("group-commit-wait", Utils.monotonicMs() - request.enqueueMs);
+                request.nodeMetrics.recordSize("group-commit-batch-groups", batch.size());
+                request.nodeMetrics.recordSize("group-commit-batch-entries", entriesCount);
+            }
+            complete(request, ok);
+        }
+    }
+
+    private static void complete(final Request request, final boolean success) {
+        if (!request.completed.compareAndSet(false, true)) {
+            return;
+        }
+        request.success = success;
+        try {
+            request.done.accept(success);
+        } catch (final Throwable t) {
+            LOG.error("Fail to run group commit callback.", t);
+        } finally {
+            request.latch.countDown();
+        }
+    }
+
+    //停止写入器，等待写入器线程结束，超时之后写入器线程可能还卡在同步写上，这时候把正在落盘的请求和队列中剩下的请求都以失败结束
+    //否则等待这些请求的日志管理器disruptor线程会一直阻塞下去
+    public void shutdown() {
+        this.stopped = true;
+        try {
+            this.thread.join(1000);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!this.thread.isAlive()) {
+            return;
+        }
+        LOG.warn("Group commit writer of {} did not stop in time, fail all pending requests.", this.engine.getPath());
+        final Request[] inflight = this.committing;
+        if (inflight != null) {
+            for (final Request request : inflight) {
+                complete(request, false);
+            }
+        }
+        Request request;
+        while ((request = this.queue.poll()) != null) {
+            complete(request, false);
+        }
+    }
+}
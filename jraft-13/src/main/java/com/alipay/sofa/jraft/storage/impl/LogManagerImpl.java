@@ -6,6 +6,7 @@ import com.alipay.sofa.jraft.conf.ConfigurationEntry;
 import com.alipay.sofa.jraft.conf.ConfigurationManager;
 import com.alipay.sofa.jraft.core.NodeMetrics;
 import com.alipay.sofa.jraft.entity.*;
+import com.alipay.sofa.jraft.entity.codec.CompressedLogEntryCodecFactory;
 import com.alipay.sofa.jraft.error.LogEntryCorruptedException;
 import com.alipay.sofa.jraft.error.RaftError;
 import com.alipay.sofa.jraft.error.RaftException;
@@ -14,6 +15,7 @@ import com.alipay.sofa.jraft.option.LogStorageOptions;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.LogManager;
 import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.LogEntryCache;
 import com.alipay.sofa.jraft.util.*;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
@@ -77,8 +79,10 @@ public class LogManagerImpl implements LogManager {
     //最新的快照日志ID
     private volatile LogId lastSnapshotId = new LogId(0, 0);
     //下面这个成员变量是用来在内存中缓存条目日志对象的，所有的日志条目对象都会先缓存到内存里
-    //然后就直接开始向跟随者传输日志了
-    private final SegmentList<LogEntry> logsInMemory = new SegmentList<>(true);
+    //然后就直接开始向跟随者传输日志了，缓存的日志占用的字节数有上限，超过上限就淘汰最旧的已经落盘的日志
+    private LogEntryCache logsInMemory;
+    //开启了跨组的组提交时使用的日志存储器，为null表示没有开启组提交
+    private SharedRocksDBLogStorage groupCommitStorage;
     //又一个Disruptor框架，从NodeImpl的executeApplyingTasks方法中传递过来的批量日志
     //最终会被这个Disruptor异步落盘，但是这个disruptor并不只是处理日志落盘事件，还处理其他的一些事件
     //这些事件后面会慢慢重构完整
@@ -147,6 +151,7 @@ public class LogManagerImpl implements LogManager {
             this.groupId = opts.getGroupId();
             this.raftOptions = opts.getRaftOptions();
             this.nodeMetrics = opts.getNodeMetrics();
+            this.logsInMemory = new LogEntryCache(this.raftOptions.getLogEntryCacheMaxBytes());
             this.logStorage = opts.getLogStorage();
             this.configManager = opts.getConfigurationManager();
             //在这里创建一个封装日志存储器需要的参数对象
@@ -156,12 +161,18 @@ public class LogManagerImpl implements LogManager {
             lsOpts.setConfigurationManager(this.configManager);
             //设置编解码工厂，这个编解码工厂会交给日志管理器使用，当日志管理器将日志落盘
             //或者是从数据库读取日志时，就会用到这个编解码工厂提供的编解码器进行编码和解码
-            lsOpts.setLogEntryCodecFactory(opts.getLogEntryCodecFactory());
+            //这里总是会包装一层支持压缩的编解码工厂，这样即使关闭了落盘压缩，之前压缩过的日志也可以正常读取
+            lsOpts.setLogEntryCodecFactory(new CompressedLogEntryCodecFactory(opts.getLogEntryCodecFactory(),
+                this.raftOptions.getLogStorageCompressType(), this.raftOptions.getLogStorageCompressThreshold()));
             //初始化日志存储器
             if (!this.logStorage.init(lsOpts)) {
                 //初始化失败则报错
                 LOG.error("Fail to init logStorage");
                 return false;
+            }
+            //使用共享日志引擎并且开启了组提交的话，日志落盘就交给共享引擎的组提交写入器
+            if (this.raftOptions.isEnableLogGroupCommit() && this.logStorage instanceof SharedRocksDBLogStorage) {
+                this.groupCommitStorage = (SharedRocksDBLogStorage) this.logStorage;
             }//下面就是简单的赋值操作了
             this.firstLogIndex = this.logStorage.getFirstLogIndex();
             this.lastLogIndex = this.logStorage.getLastLogIndex();
@@ -428,24 +439,15 @@ public class LogManagerImpl implements LogManager {
         LogId flush() {
             //判断是否有数据
             if (this.size > 0) {
-                //将日志落盘的真正方法
-                this.lastId = appendToStorage(this.toAppend);
-                //这里开始遍历storage集合，得到每一个封装了回调方法的对象
-                for (int i = 0; i < this.size; i++) {
-                    this.storage.get(i).getEntries().clear();
-                    Status st = null;
-                    try {
-                        if (LogManagerImpl.this.hasError) {
-                            //得到结果状态码
-                            st = new Status(RaftError.EIO, "Corrupted LogStorage");
-                        } else {
-                            st = Status.OK();
-                        }//在这里回调了StableClosure对象中的方法
-                        this.storage.get(i).run(st);
-                    } catch (Throwable t) {
-                        LOG.error("Fail to run closure with status: {}.", st, t);
-                    }
-                }//下面就是重置缓冲区的一些操作
+                if (LogManagerImpl.this.groupCommitStorage != null) {
+                    //开启了组提交，日志会和其他组的日志合并落盘，回调方法在组提交写入器的线程中执行
+                    this.lastId = appendToStorageWithGroupCommit(this.toAppend, this::runClosures);
+                } else {
+                    //将日志落盘的真正方法
+                    this.lastId = appendToStorage(this.toAppend);
+                    runClosures();
+                }
+                //下面就是重置缓冲区的一些操作
                 this.toAppend.clear();
                 this.storage.clear();
             }
@@ -453,11 +455,76 @@ public class LogManagerImpl implements LogManager {
             this.bufferSize = 0;
             return this.lastId;
         }
+
+        //日志落盘之后回调缓冲区中所有的StableClosure
+        private void runClosures() {
+            //这里开始遍历storage集合，得到每一个封装了回调方法的对象
+            for (int i = 0; i < this.size; i++) {
+                this.storage.get(i).getEntries().clear();
+                Status st = null;
+                try {
+                    if (LogManagerImpl.this.hasError) {
+                        //得到结果状态码
+                        st = new Status(RaftError.EIO, "Corrupted LogStorage");
+                    } else {
+                        st = Status.OK();
+                    }//在这里回调了StableClosure对象中的方法
+                    this.storage.get(i).run(st);
+                } catch (Throwable t) {
+                    LOG.error("Fail to run closure with status: {}.", st, t);
+                }
+            }
+        }
     }
 
 
 
 
+    //向检测组件记录本次落盘的日志数量和日志内容的总字节数
+    private void recordAppendSize(final List<LogEntry> toAppend) {
+        final int entriesCount = toAppend.size();
+        this.nodeMetrics.recordSize("append-logs-count", entriesCount);
+        int writtenSize = 0;
+        for (int i = 0; i < entriesCount; i++) {
+            //得到每一个日志条目
+            final LogEntry entry = toAppend.get(i);
+            //记录日志条目内容大小
+            writtenSize += entry.getData() != null ? entry.getData().remaining() : 0;
+        }
+        this.nodeMetrics.recordSize("append-logs-bytes", writtenSize);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：通过共享引擎的组提交写入器落盘日志，这个方法会阻塞到日志落盘，并且afterAppended回调在写入器线程中执行完毕
+     * 返回值和appendToStorage方法一样，是落盘的最后一条日志ID，落盘失败返回null
+     */
+    private LogId appendToStorageWithGroupCommit(final List<LogEntry> toAppend, final Runnable afterAppended) {
+        if (this.hasError) {
+            afterAppended.run();
+            return null;
+        }
+        final long startMs = Utils.monotonicMs();
+        try {
+            recordAppendSize(toAppend);
+            final LogId lastId = toAppend.get(toAppend.size() - 1).getId();
+            final boolean success = this.groupCommitStorage.appendEntriesWithGroupCommit(toAppend, this.nodeMetrics,
+                    ok -> {
+                        if (!ok) {
+                            LOG.error("**Critical error**, fail to group commit log entries, toAppend={}",
+                                    toAppend.size());
+                            reportError(RaftError.EIO.getNumber(), "Fail to append log entries");
+                        }
+                        afterAppended.run();
+                    });
+            return success ? lastId : null;
+        } finally {
+            this.nodeMetrics.recordLatency("append-logs", Utils.monotonicMs() - startMs);
+        }
+    }
+
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -471,18 +538,8 @@ public class LogManagerImpl implements LogManager {
             final long startMs = Utils.monotonicMs();
             //得到要刷新的日志条目数量
             final int entriesCount = toAppend.size();
-            //向检测组件记录数据，这里其实不用关心和这个nodeMetrics有关的操作
-            //我忘了删掉这方面的代码了
-            this.nodeMetrics.recordSize("append-logs-count", entriesCount);
             try {
-                int writtenSize = 0;
-                for (int i = 0; i < entriesCount; i++) {
-                    //得到每一个日志条目
-                    final LogEntry entry = toAppend.get(i);
-                    //记录日志条目内容大小
-                    writtenSize += entry.getData() != null ? entry.getData().remaining() : 0;
-                }
-                this.nodeMetrics.recordSize("append-logs-bytes", writtenSize);
+                recordAppendSize(toAppend);
                 //在这里把日志落盘了，使用的日志存储器落盘的，返回的是落盘到数据库的日志条目的数量
                 final int nAppent = this.logStorage.appendEntries(toAppend);
                 if (nAppent != entriesCount) {
@@ -748,7 +805,7 @@ public class LogManagerImpl implements LogManager {
                     lastIndexKept);
             return;
         }//先从内存缓存日志的组件中删除日志
-        this.logsInMemory.removeFromLastWhen(entry -> entry.getId().getIndex() > lastIndexKept);
+        this.logsInMemory.truncateSuffix(lastIndexKept);
         this.lastLogIndex = lastIndexKept;
         final long lastTermKept = unsafeGetTerm(lastIndexKept);
         Requires.requireTrue(this.lastLogIndex == 0 || lastTermKept != 0);
@@ -796,20 +853,17 @@ public class LogManagerImpl implements LogManager {
         if (id == null) {
             return;
         }
-        LogId clearId;
         this.writeLock.lock();
         try {
             if (id.compareTo(this.diskId) < 0) {
                 return;
             }//设置最后一条日志ID
             this.diskId = id;
-            clearId = this.diskId.compareTo(this.appliedId) <= 0 ? this.diskId : this.appliedId;
         } finally {
             this.writeLock.unlock();
         }
-        if (clearId != null) {
-            clearMemoryLogs(clearId);
-        }
+        //新的日志落盘之后就可以被淘汰了
+        clearMemoryLogs();
     }
 
 
@@ -829,39 +883,7 @@ public class LogManagerImpl implements LogManager {
      * @Description:第三版本新添加的方法，从内存中获取日志的方法
      */
     protected LogEntry getEntryFromMemory(final long index) {
-        LogEntry entry = null;
-        if (!this.logsInMemory.isEmpty()) {
-            //获取内存中的第一条日志索引
-            final long firstIndex = this.logsInMemory.peekFirst().getId().getIndex();
-            //获取内存中最后一条日志索引
-            final long lastIndex = this.logsInMemory.peekLast().getId().getIndex();
-            //如果日志的数量和内存中的不想等就报错
-            if (lastIndex - firstIndex + 1 != this.logsInMemory.size()) {
-                throw new IllegalStateException(String.format("lastIndex=%d,firstIndex=%d,logsInMemory=[%s]",
-                        lastIndex, firstIndex, descLogsInMemory()));
-            }//校验合规后从内存中获得索引对应的日志
-            if (index >= firstIndex && index <= lastIndex) {
-                entry = this.logsInMemory.get((int) (index - firstIndex));
-            }
-        }
-        return entry;
-    }
-
-    //描述内存中存储日志详情的方法，该方法最后会返回拼接好的字符串，字符串展示的就是内存中存放日志的详细信息
-    private String descLogsInMemory() {
-        final StringBuilder sb = new StringBuilder();
-        boolean wasFirst = true;
-        for (int i = 0; i < this.logsInMemory.size(); i++) {
-            LogEntry logEntry = this.logsInMemory.get(i);
-            if (!wasFirst) {
-                sb.append(",");
-            } else {
-                wasFirst = false;
-            }
-            sb.append("<id:(").append(logEntry.getId().getTerm()).append(",").append(logEntry.getId().getIndex())
-                    .append("),type:").append(logEntry.getType()).append(">");
-        }
-        return sb.toString();
+        return this.logsInMemory.get(index);
     }
 
 
@@ -903,6 +925,78 @@ public class LogManagerImpl implements LogManager {
         return entry;
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：批量获得从fromIndex开始的连续日志条目，和getEntry方法一样，先从内存中获取，内存中没有的日志
+     * 再通过日志存储器的getEntries方法一次性读取出来，这样跟随者追赶日志，或者状态机落后太多的时候，就不用一条一条地去硬盘读取日志了
+     */
+    @Override
+    public List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(Math.max(maxCount, 0), 256));
+        long index = fromIndex;
+        long bytes = 0;
+        long lastIndex;
+        this.readLock.lock();
+        try {
+            if (maxCount <= 0 || fromIndex > this.lastLogIndex || fromIndex < this.firstLogIndex) {
+                return entries;
+            }
+            //本次最多读取到的日志索引
+            lastIndex = Math.min(this.lastLogIndex, fromIndex + maxCount - 1);
+        } finally {
+            this.readLock.unlock();
+        }
+        while (index <= lastIndex && bytes < maxBytes) {
+            //内存中第一条日志的索引，比这个索引小的日志就要去日志存储器中读取了
+            long memFirstIndex;
+            this.readLock.lock();
+            try {
+                LogEntry entry;
+                while (index <= lastIndex && bytes < maxBytes && (entry = getEntryFromMemory(index)) != null) {
+                    entries.add(entry);
+                    bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                    index++;
+                }
+                memFirstIndex = this.logsInMemory.isEmpty() ? lastIndex + 1 : this.logsInMemory.peekFirst().getId()
+                    .getIndex();
+            } finally {
+                this.readLock.unlock();
+            }
+            if (index > lastIndex || bytes >= maxBytes) {
+                break;
+            }
+            //从日志存储器中批量读取内存中没有的日志
+            final long storageLastIndex = memFirstIndex > index ? Math.min(memFirstIndex - 1, lastIndex) : lastIndex;
+            final List<LogEntry> stored = this.logStorage.getEntries(index, (int) (storageLastIndex - index + 1),
+                maxBytes - bytes);
+            if (stored.isEmpty()) {
+                reportError(RaftError.EIO.getNumber(), "Corrupted entry at index=%d, not found", index);
+                break;
+            }
+            for (final LogEntry entry : stored) {
+                //开启了校验和功能的话，要校验一下从日志存储器中读取到的日志是否有损坏
+                if (this.raftOptions.isEnableLogEntryChecksum() && entry.isCorrupted()) {
+                    final String msg = String.format(
+                        "Corrupted entry at index=%d, term=%d, expectedChecksum=%d, realChecksum=%d", entry.getId()
+                            .getIndex(), entry.getId().getTerm(), entry.getChecksum(), entry.checksum());
+                    reportError(RaftError.EIO.getNumber(), msg);
+                    if (entries.isEmpty()) {
+                        throw new LogEntryCorruptedException(msg);
+                    }
+                    //前面已经读到的日志是完好的，先把它们返回，下一次读取损坏的日志时再抛出异常
+                    return entries;
+                }
+                entries.add(entry);
+                bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                index++;
+            }
+        }
+        return entries;
+    }
+
+
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -1069,7 +1163,7 @@ public class LogManagerImpl implements LogManager {
      */
     private boolean truncatePrefix(final long firstIndexKept, final Lock lock) {
         //先从缓存组件中删除索引比firstIndexKept小的日志
-        this.logsInMemory.removeFromFirstWhen(entry -> entry.getId().getIndex() < firstIndexKept);
+        this.logsInMemory.truncatePrefix(firstIndexKept);
         Requires.requireTrue(firstIndexKept >= this.firstLogIndex,
                 "Try to truncate logs before %d, but the firstLogIndex is %d", firstIndexKept, this.firstLogIndex);
         //这里就是给内存中的第一条日志的索引赋值，这里我还是解释一下吧，这个firstIndexKept实际上快照记录的日志索引+1，这个逻辑是很清楚的吧
@@ -1156,11 +1250,14 @@ public class LogManagerImpl implements LogManager {
      * @Description:从日志存储器中获得指定索引日志的任期
      */
     private long getTermFromLogStorage(final long index) {
-        //从日志存储器中获得指定索引对应的日志条目
+        if (!this.raftOptions.isEnableLogEntryChecksum()) {
+            //日志存储器在内存中维护了日志任期的索引，没有开启校验和的时候不需要再把整条日志读出来解码了
+            return this.logStorage.getTerm(index);
+        }
+        //开启了校验和，就要把日志条目读出来，通过对校验和来判断日志是否有损坏，损坏的日志的任期不能使用
         final LogEntry entry = this.logStorage.getEntry(index);
         if (entry != null) {
-            //通过对校验和来判断日志是否有存坏
-            if (this.raftOptions.isEnableLogEntryChecksum() && entry.isCorrupted()) {
+            if (entry.isCorrupted()) {
                 final String msg = String.format(
                         "The log entry is corrupted, index=%d, term=%d, expectedChecksum=%d, realChecksum=%d", entry
                                 .getId().getIndex(), entry.getId().getTerm(), entry.getChecksum(), entry.checksum());
@@ -1205,6 +1302,11 @@ public class LogManagerImpl implements LogManager {
     }
 
 
+    @Override
+    public long getMemoryLogBytes() {
+        return this.logsInMemory.getBytes();
+    }
+
     @Override
     public long getLastLogIndex() {
         return getLastLogIndex(false);
@@ -1373,29 +1475,29 @@ public class LogManagerImpl implements LogManager {
      */
     @Override
     public void setAppliedId(final LogId appliedId) {
-        LogId clearId;
         this.writeLock.lock();
         try {
             if (appliedId.compareTo(this.appliedId) < 0) {
                 return;
             }
+            //应用成功的日志不再立刻从内存中移除，内存中的日志只按照占用的字节数淘汰，最新的日志留在内存中供复制器读取
             this.appliedId = appliedId.copy();
-            clearId = this.diskId.compareTo(this.appliedId) <= 0 ? this.diskId : this.appliedId;
         } finally {
             this.writeLock.unlock();
         }
-        if (clearId != null) {
-            //设置成功之后，就可以把应用成功的日志从内存中移除了
-            clearMemoryLogs(clearId);
-        }
     }
 
 
 
-    private void clearMemoryLogs(final LogId id) {
+    //内存中的日志只在占用的字节数超过上限之后淘汰，从最旧的日志开始，只有已经落盘的日志才会被淘汰
+    //已经落盘的日志即使还没有应用到状态机也可以淘汰，被淘汰的日志会从日志存储器中读取
+    private void clearMemoryLogs() {
         this.writeLock.lock();
         try {
-            this.logsInMemory.removeFromFirstWhen(entry -> entry.getId().compareTo(id) <= 0);
+            final int evicted = this.logsInMemory.evict(this.diskId.getIndex());
+            if (evicted > 0) {
+                this.nodeMetrics.recordSize("log-cache-evicted-count", evicted);
+            }
         } finally {
             this.writeLock.unlock();
         }
@@ -11,6 +11,7 @@ import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
 import com.alipay.sofa.jraft.option.LogStorageOptions;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.LogTermIndex;
 import com.alipay.sofa.jraft.util.*;
 import org.rocksdb.*;
 import org.slf4j.Logger;
@@ -81,12 +82,19 @@ public class RocksDBLogStorage implements LogStorage, Describer {
     private LogEntryEncoder logEntryEncoder;
     //日志解码器
     private LogEntryDecoder logEntryDecoder;
+    //日志任期的内存索引，有了这个索引，getTerm方法就不用再从数据库中读取整条日志并解码了
+    private final LogTermIndex termIndex = new LogTermIndex();
+    //是否把日志直接编码到池化的直接内存中再写入批处理
+    private final boolean directEncoding;
+    //日志的key没有前缀
+    private static final byte[] EMPTY_KEY_PREFIX = new byte[0];
 
     //构造方法
     public RocksDBLogStorage(final String path, final RaftOptions raftOptions) {
         super();
         this.path = path;
         this.sync = raftOptions.isSync();
+        this.directEncoding = raftOptions.isEnableDirectLogEncoding();
     }
 
 
@@ -193,6 +201,8 @@ public class RocksDBLogStorage implements LogStorage, Describer {
         openDB(columnFamilyDescriptors);
         //加载数据到配置管理器中
         load(confManager);
+        //重建日志任期的内存索引
+        loadTermIndex();
         //下面这个方法中返回true，表示数据库初始化和数据已经加载完成了
         return onInitLoaded();
     }
@@ -321,6 +331,33 @@ public class RocksDBLogStorage implements LogStorage, Describer {
     }
 
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：遍历defaultHandle列族中的所有日志，重建日志任期的内存索引，这个操作只在数据库初始化的时候执行一次
+     * 之后日志追加和截断的时候都会同步维护这个索引
+     */
+    private void loadTermIndex() {
+        checkState();
+        this.termIndex.clear();
+        try (final RocksIterator it = this.db.newIterator(this.defaultHandle, this.totalOrderReadOptions)) {
+            it.seekToFirst();
+            while (it.isValid()) {
+                //只需要日志ID，不用解码整条日志
+                final LogId id = this.logEntryDecoder.decodeLogId(it.value());
+                if (id != null) {
+                    this.termIndex.append(id.getIndex(), id.getTerm());
+                } else {
+                    LOG.warn("Fail to decode log entry at index {} when loading term index.", Bits.getLong(it.key(), 0));
+                }
+                it.next();
+            }
+        }
+        LOG.info("Loaded term index in data path: {}, {}.", this.path, this.termIndex);
+    }
+
+
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -336,6 +373,20 @@ public class RocksDBLogStorage implements LogStorage, Describer {
         //执行批处理方法，executeBatch就是批处理方法
         //executeBatch方法的参数就是使用lambda表达式创建了一个批处理模版对象
         final boolean ret = executeBatch(batch -> {
+            if (this.directEncoding) {
+                //直接编码到直接内存中，不再为每条日志创建key和value字节数组
+                final DirectLogEntryWriter writer = new DirectLogEntryWriter(this.logEntryEncoder, EMPTY_KEY_PREFIX);
+                try {
+                    for (int i = 0; i < entriesCount; i++) {
+                        final LogEntry entry = entries.get(i);
+                        final boolean isConf = entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION;
+                        writer.put(batch, entry, this.defaultHandle, isConf ? this.confHandle : null);
+                    }
+                } finally {
+                    writer.release();
+                }
+                return;
+            }
             for (int i = 0; i < entriesCount; i++) {
                 final LogEntry entry = entries.get(i);
                 if (entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
@@ -347,7 +398,11 @@ public class RocksDBLogStorage implements LogStorage, Describer {
                 }
             }
         });
-        if (ret) {//操作成功，返回本次落盘日志的数量
+        if (ret) {//操作成功，维护日志任期索引，然后返回本次落盘日志的数量
+            for (int i = 0; i < entriesCount; i++) {
+                final LogId id = entries.get(i).getId();
+                this.termIndex.append(id.getIndex(), id.getTerm());
+            }
             return entriesCount;
         } else {
             return 0;
@@ -494,6 +549,8 @@ public class RocksDBLogStorage implements LogStorage, Describer {
                 //把新的第一条日志的索引记录在内存中
                 setFirstLogIndex(firstIndexKept);
             }
+            //截断日志任期索引
+            this.termIndex.truncatePrefix(firstIndexKept);
             //在下面这个方法中执行了清楚数据库中旧日志的操作
             truncatePrefixInBackground(startIndex, firstIndexKept);
             return ret;
@@ -568,6 +625,8 @@ public class RocksDBLogStorage implements LogStorage, Describer {
                         getKeyBytes(getLastLogIndex() + 1));
                 this.db.deleteRange(this.confHandle, this.writeOptions, getKeyBytes(lastIndexKept + 1),
                         getKeyBytes(getLastLogIndex() + 1));
+                //截断日志任期索引
+                this.termIndex.truncateSuffix(lastIndexKept);
             }
             return true;
         } catch (final RocksDBException e) {
@@ -668,6 +727,52 @@ public class RocksDBLogStorage implements LogStorage, Describer {
     }
 
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：批量读取从fromIndex开始的连续日志，只需要用迭代器seek一次，然后顺序遍历就行了
+     * 跟随者落后很多的时候，复制器就不用一条一条地从数据库中get日志了
+     */
+    @Override
+    public List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxCount, 256));
+        if (maxCount <= 0) {
+            return entries;
+        }
+        this.readLock.lock();
+        try {
+            if (this.hasLoadFirstLogIndex && fromIndex < this.firstLogIndex) {
+                return entries;
+            }
+            checkState();
+            try (final RocksIterator it = this.db.newIterator(this.defaultHandle, this.totalOrderReadOptions)) {
+                long expectedIndex = fromIndex;
+                long bytes = 0;
+                for (it.seek(getKeyBytes(fromIndex)); it.isValid() && entries.size() < maxCount && bytes < maxBytes; it.next()) {
+                    //数据库中的日志必须是连续的，遇到断层就停止读取
+                    if (Bits.getLong(it.key(), 0) != expectedIndex) {
+                        break;
+                    }
+                    final byte[] bs = it.value();
+                    final LogEntry entry = this.logEntryDecoder.decode(bs);
+                    if (entry == null) {
+                        LOG.error("Bad log entry format for index={}, the log data is: {}.", expectedIndex,
+                            BytesUtil.toHex(bs));
+                        break;
+                    }
+                    entries.add(entry);
+                    bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                    expectedIndex++;
+                }
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+        return entries;
+    }
+
+
     /**
      * @author:B站UP主陈清风扬，从零带你写框架系列教程的作者，个人微信号：chenqingfengyangjj。
      * @Description:系列教程目前包括手写Netty，XXL-JOB，Spring，RocketMq，Javac，JVM等课程。
@@ -749,7 +854,11 @@ public class RocksDBLogStorage implements LogStorage, Describer {
     @Override
     public boolean appendEntry(final LogEntry entry) {
         if (entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
-            return executeBatch(batch -> addConfBatch(entry, batch));
+            final boolean ret = executeBatch(batch -> addConfBatch(entry, batch));
+            if (ret) {
+                this.termIndex.append(entry.getId().getIndex(), entry.getId().getTerm());
+            }
+            return ret;
         } else {
             this.readLock.lock();
             try {
@@ -761,6 +870,7 @@ public class RocksDBLogStorage implements LogStorage, Describer {
                 final byte[] valueBytes = this.logEntryEncoder.encode(entry);
                 final byte[] newValueBytes = valueBytes;
                 this.db.put(this.defaultHandle, this.writeOptions, getKeyBytes(logIndex), newValueBytes);
+                this.termIndex.append(logIndex, entry.getId().getTerm());
                 return true;
             } catch (final RocksDBException e) {
                 LOG.error("Fail to append entry.", e);
@@ -773,9 +883,17 @@ public class RocksDBLogStorage implements LogStorage, Describer {
 
 
 
-    //根据日志索引获得对应任期的方法
+    //根据日志索引获得对应任期的方法，先从日志任期的内存索引中查找，只有索引没有覆盖到这条日志的时候
+    //才会从数据库中读取整条日志
     @Override
     public long getTerm(final long index) {
+        if (this.hasLoadFirstLogIndex && index < this.firstLogIndex) {
+            return 0;
+        }
+        final long term = this.termIndex.getTerm(index);
+        if (term >= 0) {
+            return term;
+        }
         final LogEntry entry = getEntry(index);
         if (entry != null) {
             return entry.getId().getTerm();
@@ -0,0 +1,549 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.conf.ConfigurationEntry;
+import com.alipay.sofa.jraft.conf.ConfigurationManager;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.option.LogStorageOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.SegmentFile;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.Describer;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import com.alipay.sofa.jraft.util.Utils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/8
+ * @方法描述：基于分段文件的日志存储器，这个类是RocksDBLogStorage的另一种实现。raft日志本身就是严格顺序追加的
+ * 所以完全没必要让每一条日志都经过RocksDB的memtable，WAL，以及后台的compaction，这个存储器把日志顺序写入预分配好的分段文件中
+ * 每个分段文件都有一个映射到内存的偏移量索引，根据日志索引就可以直接定位到日志在文件中的位置
+ * truncatePrefix的时候直接删除整个分段文件，truncateSuffix的时候只截断最后几个分段的尾部，完全没有compaction
+ * 第一条日志的索引会单独存放在目录下的meta文件中，作用和RocksDBLogStorage中的FIRST_LOG_IDX_KEY一样
+ */
+public class SegmentLogStorage implements LogStorage, Describer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentLogStorage.class);
+
+    //存放第一条日志索引的文件名
+    private static final String META_FILE_NAME = "meta";
+
+    private String groupId;
+    //日志要存放的本地目录
+    private final String path;
+    //写操作后是否要立即刷盘
+    private final boolean sync;
+    //每个分段数据文件的大小
+    private final int segmentSize;
+    //每个分段最多存放的日志条目数量
+    private final int segmentMaxEntries;
+    //日志目录
+    private File dir;
+    //所有的分段文件，按照第一条日志的索引从小到大排列，最后一个分段就是正在写入的分段
+    private final List<SegmentFile> segments = new ArrayList<>();
+    //读写锁，修改segments集合的时候要使用写锁
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final Lock readLock = this.readWriteLock.readLock();
+    private final Lock writeLock = this.readWriteLock.writeLock();
+    //第一条日志的索引，默认为1
+    private volatile long firstLogIndex = 1;
+    //日志编码器
+    private LogEntryEncoder logEntryEncoder;
+    //日志解码器
+    private LogEntryDecoder logEntryDecoder;
+    //存储器是否已经初始化
+    private volatile boolean initialized;
+
+    public SegmentLogStorage(final String path, final RaftOptions raftOptions) {
+        super();
+        this.path = path;
+        this.sync = raftOptions.isSync();
+        this.segmentSize = raftOptions.getLogSegmentSize();
+        this.segmentMaxEntries = raftOptions.getLogSegmentMaxEntries();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：初始化方法，打开目录下所有的分段文件，恢复第一条日志的索引，并且把配置日志加载到配置管理器中
+     */
+    @Override
+    public boolean init(final LogStorageOptions opts) {
+        Requires.requireNonNull(opts.getConfigurationManager(), "Null conf manager");
+        Requires.requireNonNull(opts.getLogEntryCodecFactory(), "Null log entry codec factory");
+        this.groupId = opts.getGroupId();
+        this.writeLock.lock();
+        try {
+            if (this.initialized) {
+                LOG.warn("SegmentLogStorage init() in {} already.", this.path);
+                return true;
+            }
+            this.logEntryDecoder = opts.getLogEntryCodecFactory().decoder();
+            this.logEntryEncoder = opts.getLogEntryCodecFactory().encoder();
+            Requires.requireNonNull(this.logEntryDecoder, "Null log entry decoder");
+            Requires.requireNonNull(this.logEntryEncoder, "Null log entry encoder");
+            this.dir = new File(this.path);
+            if (this.dir.exists() && !this.dir.isDirectory()) {
+                throw new IllegalStateException("Invalid log path, it's a regular file: " + this.path);
+            }
+            FileUtils.forceMkdir(this.dir);
+            openSegments();
+            loadFirstLogIndex();
+            load(opts.getConfigurationManager());
+            this.initialized = true;
+            return true;
+        } catch (final IOException e) {
+            LOG.error("Fail to init SegmentLogStorage, path={}.", this.path, e);
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    //打开目录下所有的分段文件，文件名就是分段中第一条日志的索引
+    private void openSegments() throws IOException {
+        final File[] files = this.dir.listFiles((d, name) -> name.endsWith(SegmentFile.DATA_FILE_SUFFIX));
+        final List<Long> firstIndexes = new ArrayList<>();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                try {
+                    firstIndexes.add(Long.parseLong(name.substring(0,
+                        name.length() - SegmentFile.DATA_FILE_SUFFIX.length())));
+                } catch (final NumberFormatException e) {
+                    LOG.warn("Unknown file {} in log path {}, ignore it.", name, this.path);
+                }
+            }
+        }
+        Collections.sort(firstIndexes);
+        for (final long index : firstIndexes) {
+            final SegmentFile segment = SegmentFile.open(this.dir, index);
+            //前一个分段的日志和当前分段的日志有重叠，说明上次截断日志的时候宕机了，以后一个分段为准
+            final SegmentFile last = lastSegment();
+            if (last != null && last.getLastLogIndex() >= index) {
+                last.truncateSuffix(index - 1);
+            }
+            this.segments.add(segment);
+        }
+        //去掉所有的空分段，截断重叠日志之后前一个分段也可能变成空的，空分段留在中间会让二分查找和顺序读取找错分段
+        //末尾的空分段去掉之后，下一次追加日志的时候会重新创建
+        final Iterator<SegmentFile> it = this.segments.iterator();
+        while (it.hasNext()) {
+            final SegmentFile segment = it.next();
+            if (segment.getCount() == 0) {
+                segment.destroy();
+                it.remove();
+            }
+        }
+    }
+
+    //从meta文件中加载第一条日志的索引，如果meta文件不存在，就以第一个分段的第一条日志索引为准
+    private void loadFirstLogIndex() throws IOException {
+        final File metaFile = new File(this.dir, META_FILE_NAME);
+        if (metaFile.exists()) {
+            final byte[] bs = Files.readAllBytes(metaFile.toPath());
+            if (bs.length == 8) {
+                this.firstLogIndex = Bits.getLong(bs, 0);
+                return;
+            }
+            LOG.warn("Invalid meta file {} in log path {}.", metaFile, this.path);
+        }
+        final SegmentFile first = this.segments.isEmpty() ? null : this.segments.get(0);
+        this.firstLogIndex = first != null ? first.getFirstLogIndex() : 1L;
+    }
+
+    //把第一条日志的索引持久化到meta文件中，先写临时文件，再原子替换
+    private boolean saveFirstLogIndex(final long firstLogIndex) {
+        final File tmp = new File(this.dir, META_FILE_NAME + ".tmp");
+        final byte[] vs = new byte[8];
+        Bits.putLong(vs, 0, firstLogIndex);
+        try {
+            try (final FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(vs);
+                if (this.sync) {
+                    out.getFD().sync();
+                }
+            }
+            return Utils.atomicMoveFile(tmp, new File(this.dir, META_FILE_NAME), this.sync);
+        } catch (final IOException e) {
+            LOG.error("Fail to save first log index {} in {}.", firstLogIndex, this.path, e);
+            return false;
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：把配置日志加载到配置管理器中，分段文件中每条日志记录都带着日志类型，所以只需要解码配置日志就行了
+     */
+    private void load(final ConfigurationManager confManager) {
+        if (confManager == null) {
+            return;
+        }
+        for (final SegmentFile segment : this.segments) {
+            final long start = Math.max(segment.getFirstLogIndex(), this.firstLogIndex);
+            for (long index = start; index <= segment.getLastLogIndex(); index++) {
+                if (segment.readType(index) != EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION_VALUE) {
+                    continue;
+                }
+                final byte[] bs = segment.read(index);
+                final LogEntry entry = bs != null ? this.logEntryDecoder.decode(bs) : null;
+                if (entry == null) {
+                    LOG.warn("Fail to decode conf entry at index {} in log path {}.", index, this.path);
+                    continue;
+                }
+                final ConfigurationEntry confEntry = new ConfigurationEntry();
+                confEntry.setId(new LogId(entry.getId().getIndex(), entry.getId().getTerm()));
+                confEntry.setConf(new Configuration(entry.getPeers(), entry.getLearners()));
+                if (entry.getOldPeers() != null) {
+                    confEntry.setOldConf(new Configuration(entry.getOldPeers(), entry.getOldLearners()));
+                }
+                confManager.add(confEntry);
+            }
+        }
+    }
+
+    private SegmentFile lastSegment() {
+        return this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+    }
+
+    //二分查找包含指定索引的分段，调用这个方法前要先获得锁
+    private SegmentFile findSegment(final long index) {
+        int low = 0;
+        int high = this.segments.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final SegmentFile segment = this.segments.get(mid);
+            if (index < segment.getFirstLogIndex()) {
+                high = mid - 1;
+            } else if (index > segment.getLastLogIndex()) {
+                low = mid + 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getFirstLogIndex() {
+        return this.firstLogIndex;
+    }
+
+    //得到最后一条日志的索引，和RocksDBLogStorage一样，如果没有日志就返回0
+    @Override
+    public long getLastLogIndex() {
+        this.readLock.lock();
+        try {
+            final SegmentFile last = lastSegment();
+            if (last == null || last.getLastLogIndex() < this.firstLogIndex) {
+                return 0L;
+            }
+            return last.getLastLogIndex();
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：将一批日志追加到分段文件中，只有修改分段集合的时候才持有写锁，刷盘的时候持有读锁，这样刷盘期间读日志的线程不会被阻塞
+     */
+    @Override
+    public int appendEntries(final List<LogEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        final int entriesCount = entries.size();
+        int appended = 0;
+        final List<SegmentFile> written = new ArrayList<>(2);
+        this.writeLock.lock();
+        try {
+            if (!this.initialized) {
+                LOG.warn("SegmentLogStorage not initialized or destroyed in data path: {}.", this.path);
+                return 0;
+            }
+            for (; appended < entriesCount; appended++) {
+                final SegmentFile segment = doAppend(entries.get(appended));
+                if (segment == null) {
+                    break;
+                }
+                if (written.isEmpty() || written.get(written.size() - 1) != segment) {
+                    written.add(segment);
+                }
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (this.sync && !written.isEmpty()) {
+            this.readLock.lock();
+            try {
+                for (final SegmentFile segment : written) {
+                    if (this.segments.contains(segment)) {
+                        segment.sync();
+                    }
+                }
+            } finally {
+                this.readLock.unlock();
+            }
+        }
+        return appended;
+    }
+
+    //把一条日志写入到分段中，返回写入的分段，返回null表示写入失败
+    private SegmentFile doAppend(final LogEntry entry) {
+        final long index = entry.getId().getIndex();
+        SegmentFile segment = lastSegment();
+        if (segment != null && index <= segment.getLastLogIndex()) {
+            LOG.error("Fail to append entry at index {}, the last log index in {} is {}.", index, this.path,
+                segment.getLastLogIndex());
+            return null;
+        }
+        final byte[] content = this.logEntryEncoder.encode(entry);
+        try {
+            //日志索引和当前分段不连续，或者当前分段放不下了，就创建一个新的分段
+            if (segment == null || index != segment.getLastLogIndex() + 1 || !segment.hasRoom(content.length)) {
+                if (segment != null) {
+                    segment.sync();
+                }
+                segment = SegmentFile.create(this.dir, index,
+                    Math.max(this.segmentSize, SegmentFile.requiredSize(content.length)), this.segmentMaxEntries);
+                this.segments.add(segment);
+            }
+            segment.append((byte) entry.getType().getNumber(), entry.getId().getTerm(), content);
+            return segment;
+        } catch (final IOException e) {
+            LOG.error("Fail to create segment file for index {} in {}.", index, this.path, e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean appendEntry(final LogEntry entry) {
+        return appendEntries(Collections.singletonList(entry)) == 1;
+    }
+
+    //根据索引获得日志条目
+    @Override
+    public LogEntry getEntry(final long index) {
+        this.readLock.lock();
+        try {
+            if (index < this.firstLogIndex) {
+                return null;
+            }
+            final SegmentFile segment = findSegment(index);
+            if (segment == null) {
+                return null;
+            }
+            final byte[] bs = segment.read(index);
+            if (bs == null) {
+                return null;
+            }
+            final LogEntry entry = this.logEntryDecoder.decode(bs);
+            if (entry == null) {
+                LOG.error("Bad log entry format for index={} in data path: {}.", index, this.path);
+            }
+            return entry;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    //批量读取从fromIndex开始的连续日志，分段中的日志本来就是顺序存放的，所以只需要找一次分段，然后顺序读取就行了
+    @Override
+    public List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxCount, 256));
+        this.readLock.lock();
+        try {
+            if (maxCount <= 0 || fromIndex < this.firstLogIndex) {
+                return entries;
+            }
+            SegmentFile segment = findSegment(fromIndex);
+            long index = fromIndex;
+            long bytes = 0;
+            while (segment != null && entries.size() < maxCount && bytes < maxBytes) {
+                if (index > segment.getLastLogIndex()) {
+                    //当前分段读完了，继续读下一个分段
+                    final int next = this.segments.indexOf(segment) + 1;
+                    segment = next < this.segments.size() ? this.segments.get(next) : null;
+                    if (segment == null || segment.getFirstLogIndex() != index) {
+                        break;
+                    }
+                }
+                final byte[] bs = segment.read(index);
+                final LogEntry entry = bs != null ? this.logEntryDecoder.decode(bs) : null;
+                if (entry == null) {
+                    LOG.error("Bad log entry format for index={} in data path: {}.", index, this.path);
+                    break;
+                }
+                entries.add(entry);
+                bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                index++;
+            }
+            return entries;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    //根据日志索引获得对应的任期，任期就存放在日志记录头中，所以不需要解码整条日志
+    @Override
+    public long getTerm(final long index) {
+        this.readLock.lock();
+        try {
+            if (index < this.firstLogIndex) {
+                return 0;
+            }
+            final SegmentFile segment = findSegment(index);
+            if (segment == null) {
+                return 0;
+            }
+            final long term = segment.readTerm(index);
+            return term >= 0 ? term : 0;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：生成快照之后清除旧日志，先把新的第一条日志索引持久化，然后在后台线程中删除所有日志都在firstIndexKept之前的分段文件
+     * 包含firstIndexKept的那个分段会被保留，分段中旧的日志因为索引比firstLogIndex小，所以再也不会被读到
+     */
+    @Override
+    public boolean truncatePrefix(final long firstIndexKept) {
+        final boolean ret = saveFirstLogIndex(firstIndexKept);
+        if (ret) {
+            this.firstLogIndex = firstIndexKept;
+        }
+        ThreadPoolsFactory.runInThread(this.groupId, () -> {
+            final long startMs = Utils.monotonicMs();
+            int removed = 0;
+            this.writeLock.lock();
+            try {
+                while (!this.segments.isEmpty() && this.segments.get(0).getLastLogIndex() < firstIndexKept) {
+                    this.segments.remove(0).destroy();
+                    removed++;
+                }
+            } finally {
+                this.writeLock.unlock();
+                LOG.info("Truncated prefix logs in data path: {} before log index {}, removed {} segments, cost {} ms.",
+                    this.path, firstIndexKept, removed, Utils.monotonicMs() - startMs);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：移除lastIndexKept之后的日志，第一条日志就在lastIndexKept之后的分段直接删除，包含lastIndexKept的分段截断尾部
+     */
+    @Override
+    public boolean truncateSuffix(final long lastIndexKept) {
+        this.writeLock.lock();
+        try {
+            SegmentFile last;
+            while ((last = lastSegment()) != null && last.getFirstLogIndex() > lastIndexKept) {
+                this.segments.remove(this.segments.size() - 1).destroy();
+            }
+            if (last != null) {
+                last.truncateSuffix(lastIndexKept);
+            }
+            return true;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    //重置日志存储器，删除所有的分段，然后从nextLogIndex开始重新存放日志
+    @Override
+    public boolean reset(final long nextLogIndex) {
+        if (nextLogIndex <= 0) {
+            throw new IllegalArgumentException("Invalid next log index.");
+        }
+        LogEntry entry = getEntry(nextLogIndex);
+        this.writeLock.lock();
+        try {
+            for (final SegmentFile segment : this.segments) {
+                segment.destroy();
+            }
+            this.segments.clear();
+            if (!saveFirstLogIndex(nextLogIndex)) {
+                return false;
+            }
+            this.firstLogIndex = nextLogIndex;
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (entry == null) {
+            entry = new LogEntry();
+            entry.setType(EnumOutter.EntryType.ENTRY_TYPE_NO_OP);
+            entry.setId(new LogId(nextLogIndex, 0));
+            LOG.warn("Entry not found for nextLogIndex {} when reset in data path: {}.", nextLogIndex, this.path);
+        }
+        return appendEntry(entry);
+    }
+
+    @Override
+    public void shutdown() {
+        this.writeLock.lock();
+        try {
+            if (!this.initialized) {
+                return;
+            }
+            for (final SegmentFile segment : this.segments) {
+                segment.sync();
+                segment.close();
+            }
+            this.segments.clear();
+            this.initialized = false;
+            LOG.info("SegmentLogStorage closed, the log path is: {}.", this.path);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void describe(final Printer out) {
+        this.readLock.lock();
+        try {
+            out.print("  firstLogIndex: ").println(this.firstLogIndex);
+            out.print("  segments: ").println(this.segments.size());
+            for (final SegmentFile segment : this.segments) {
+                out.print("    ").println(segment);
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.Describer;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.Utils;
+import org.apache.commons.io.FileUtils;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/9
+ * @方法描述：多个raft组共享的RocksDB日志引擎。每一个RocksDBLogStorage都会打开一个自己的数据库，有自己的WAL和后台线程
+ * 如果一个进程中运行了几千个raft组，这些资源根本扛不住，而且每个组都要单独fsync。这个类让同一个目录下的所有raft组共用一个数据库
+ * 每个raft组在注册的时候会分配一个8字节的组前缀，日志的key就是[组前缀 8字节][日志索引 8字节]，不同组的日志在key空间里互不重叠
+ * 多个组并发写入的时候，RocksDB会把同一时刻的写请求合并成一个写组，只执行一次WAL的fsync
+ * 数据库中有三个列族，default列族存放所有日志，Configuration列族存放配置日志，Meta列族存放组前缀的分配信息和每个组的第一条日志索引
+ * 引擎是按照目录共享的，使用引用计数管理，最后一个日志存储器关闭的时候才会真正关闭数据库
+ */
+public class SharedRocksDBLogEngine implements Describer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedRocksDBLogEngine.class);
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    //存放配置日志的列族名称
+    private static final byte[]                               CONF_CF_NAME         = Utils.getBytes("Configuration");
+    //存放元数据的列族名称
+    private static final byte[]                               META_CF_NAME         = Utils.getBytes("Meta");
+    //下一个可以分配的组前缀在Meta列族中的key
+    private static final byte[]                               NEXT_GROUP_PREFIX_KEY = Utils.getBytes("meta/nextGroupPrefix");
+    //组前缀在Meta列族中的key的前缀，后面拼接的就是组的标识
+    private static final String                               GROUP_PREFIX_KEY      = "group/";
+    //每个组第一条日志索引在Meta列族中的key的前缀，后面拼接的就是8字节的组前缀
+    private static final String                               FIRST_LOG_IDX_KEY     = "firstLogIndex/";
+
+    //所有已经打开的引擎，key就是数据库目录
+    private static final Map<String, SharedRocksDBLogEngine> ENGINES              = new HashMap<>();
+
+    //数据库目录
+    private final String                                      path;
+    //写数据后是否要立即刷盘
+    private final boolean                                     sync;
+    private RocksDB                                           db;
+    private DBOptions                                         dbOptions;
+    private WriteOptions                                      writeOptions;
+    private ReadOptions                                       totalOrderReadOptions;
+    private final List<ColumnFamilyOptions>                   cfOptions            = new ArrayList<>();
+    //存放所有日志的列族句柄
+    private ColumnFamilyHandle                                defaultHandle;
+    //存放配置日志的列族句柄
+    private ColumnFamilyHandle                                confHandle;
+    //存放元数据的列族句柄
+    private ColumnFamilyHandle                                metaHandle;
+    //引用计数，也就是正在使用这个引擎的日志存储器的数量
+    private int                                               refCount;
+    //跨组的组提交写入器，只有开启了组提交的日志存储器第一次使用的时候才会创建
+    private GroupCommitLogWriter                              groupCommitWriter;
+
+    private SharedRocksDBLogEngine(final String path, final boolean sync) {
+        this.path = path;
+        this.sync = sync;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：得到指定目录的共享引擎，如果引擎还没有打开就打开它，每调用一次这个方法，引用计数就加1
+     * 注意，是否同步刷盘是由第一个打开引擎的日志存储器决定的
+     */
+    public static synchronized SharedRocksDBLogEngine acquire(final String path, final boolean sync)
+                                                                                                  throws RocksDBException,
+                                                                                                  IOException {
+        SharedRocksDBLogEngine engine = ENGINES.get(path);
+        if (engine == null) {
+            engine = new SharedRocksDBLogEngine(path, sync);
+            engine.open();
+            ENGINES.put(path, engine);
+        }
+        engine.refCount++;
+        return engine;
+    }
+
+    //释放引擎，引用计数减为0的时候关闭数据库
+    public static synchronized void release(final SharedRocksDBLogEngine engine) {
+        if (engine == null || engine.refCount <= 0) {
+            return;
+        }
+        if (--engine.refCount == 0) {
+            ENGINES.remove(engine.path);
+            engine.close();
+        }
+    }
+
+    private void open() throws RocksDBException, IOException {
+        final File dir = new File(this.path);
+        if (dir.exists() && !dir.isDirectory()) {
+            throw new IllegalStateException("Invalid log path, it's a regular file: " + this.path);
+        }
+        FileUtils.forceMkdir(dir);
+        this.dbOptions = RocksDBLogStorage.createDBOptions();
+        this.writeOptions = new WriteOptions();
+        this.writeOptions.setSync(this.sync);
+        this.totalOrderReadOptions = new ReadOptions();
+        this.totalOrderReadOptions.setTotalOrderSeek(true);
+        //列族的前缀提取器使用的是前8个字节，正好就是组前缀
+        final ColumnFamilyOptions cfOption = RocksDBLogStorage.createColumnFamilyOptions();
+        this.cfOptions.add(cfOption);
+        final List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, cfOption));
+        descriptors.add(new ColumnFamilyDescriptor(CONF_CF_NAME, cfOption));
+        descriptors.add(new ColumnFamilyDescriptor(META_CF_NAME, cfOption));
+        final List<ColumnFamilyHandle> handles = new ArrayList<>();
+        this.db = RocksDB.open(this.dbOptions, this.path, descriptors, handles);
+        assert (handles.size() == 3);
+        this.defaultHandle = handles.get(0);
+        this.confHandle = handles.get(1);
+        this.metaHandle = handles.get(2);
+        LOG.info("Shared log engine opened, the db path is: {}.", this.path);
+    }
+
+    private void close() {
+        //先停止组提交写入器，保证不会再有写操作
+        synchronized (this) {
+            if (this.groupCommitWriter != null) {
+                this.groupCommitWriter.shutdown();
+                this.groupCommitWriter = null;
+            }
+        }
+        //关闭的顺序很重要，先关闭列族句柄，再关闭数据库，最后关闭配置参数
+        this.defaultHandle.close();
+        this.confHandle.close();
+        this.metaHandle.close();
+        this.db.close();
+        for (final ColumnFamilyOptions opt : this.cfOptions) {
+            opt.close();
+        }
+        this.cfOptions.clear();
+        this.dbOptions.close();
+        this.writeOptions.close();
+        this.totalOrderReadOptions.close();
+        this.db = null;
+        LOG.info("Shared log engine closed, the db path is: {}.", this.path);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：注册一个组，返回这个组的前缀，同一个组标识重启后得到的前缀是不变的，因为分配信息持久化在Meta列族中
+     */
+    public synchronized long registerGroup(final String groupKey) throws RocksDBException {
+        Requires.requireNonNull(this.db, "Shared log engine not opened or closed");
+        final byte[] key = Utils.getBytes(GROUP_PREFIX_KEY + groupKey);
+        final byte[] bs = this.db.get(this.metaHandle, key);
+        if (bs != null) {
+            return Bits.getLong(bs, 0);
+        }
+        final byte[] next = this.db.get(this.metaHandle, NEXT_GROUP_PREFIX_KEY);
+        //组前缀从1开始分配
+        final long prefix = next != null ? Bits.getLong(next, 0) : 1L;
+        final byte[] vs = new byte[8];
+        final byte[] nextVs = new byte[8];
+        Bits.putLong(vs, 0, prefix);
+        Bits.putLong(nextVs, 0, prefix + 1);
+        try (final WriteBatch batch = new WriteBatch()) {
+            batch.put(this.metaHandle, key, vs);
+            batch.put(this.metaHandle, NEXT_GROUP_PREFIX_KEY, nextVs);
+            this.db.write(this.writeOptions, batch);
+        }
+        LOG.info("Registered group {} with prefix {} in shared log engine {}.", groupKey, prefix, this.path);
+        return prefix;
+    }
+
+    //得到组提交写入器，第一次调用的时候创建
+    public synchronized GroupCommitLogWriter getGroupCommitWriter() {
+        Requires.requireNonNull(this.db, "Shared log engine not opened or closed");
+        if (this.groupCommitWriter == null) {
+            this.groupCommitWriter = new GroupCommitLogWriter(this);
+        }
+        return this.groupCommitWriter;
+    }
+
+    //根据组前缀和日志索引得到日志的key
+    public static byte[] getKeyBytes(final long groupPrefix, final long index) {
+        final byte[] ks = new byte[16];
+        Bits.putLong(ks, 0, groupPrefix);
+        Bits.putLong(ks, 8, index);
+        return ks;
+    }
+
+    //得到一个组第一条日志索引在Meta列族中的key
+    public static byte[] getFirstLogIndexKey(final long groupPrefix) {
+        final byte[] head = Utils.getBytes(FIRST_LOG_IDX_KEY);
+        final byte[] ks = new byte[head.length + 8];
+        System.arraycopy(head, 0, ks, 0, head.length);
+        Bits.putLong(ks, head.length, groupPrefix);
+        return ks;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public RocksDB getDb() {
+        return this.db;
+    }
+
+    public WriteOptions getWriteOptions() {
+        return this.writeOptions;
+    }
+
+    public ReadOptions getTotalOrderReadOptions() {
+        return this.totalOrderReadOptions;
+    }
+
+    public ColumnFamilyHandle getDefaultHandle() {
+        return this.defaultHandle;
+    }
+
+    public ColumnFamilyHandle getConfHandle() {
+        return this.confHandle;
+    }
+
+    public ColumnFamilyHandle getMetaHandle() {
+        return this.metaHandle;
+    }
+
+    @Override
+    public void describe(final Printer out) {
+        synchronized (SharedRocksDBLogEngine.class) {
+            out.print("  sharedLogEngine: ").println(this.path);
+            out.print("  refCount: ").println(this.refCount);
+            try {
+                if (this.db != null) {
+                    out.println(this.db.getProperty("rocksdb.stats"));
+                }
+            } catch (final RocksDBException e) {
+                out.println(e);
+            }
+        }
+    }
+}
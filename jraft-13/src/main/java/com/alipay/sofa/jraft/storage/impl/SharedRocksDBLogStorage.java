@@ -0,0 +1,550 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.conf.ConfigurationEntry;
+import com.alipay.sofa.jraft.conf.ConfigurationManager;
+import com.alipay.sofa.jraft.core.NodeMetrics;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.option.LogStorageOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.LogTermIndex;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.BytesUtil;
+import com.alipay.sofa.jraft.util.Describer;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.ThreadPoolsFactory;
+import com.alipay.sofa.jraft.util.Utils;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/9
+ * @方法描述：使用共享日志引擎的日志存储器，功能和RocksDBLogStorage完全一样，区别就是日志并不存放在自己的数据库中
+ * 而是存放在SharedRocksDBLogEngine管理的共享数据库中，每个日志存储器都有自己的组前缀，所有的读写操作都只会访问自己前缀下的key
+ * 截断日志的时候使用的也是deleteRange，只不过范围被限制在自己的组前缀之内
+ * 组的标识使用的是日志存储器的路径，因为同一个进程中可能运行着同一个raft组的多个节点，只有路径是唯一的
+ */
+public class SharedRocksDBLogStorage implements LogStorage, Describer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedRocksDBLogStorage.class);
+
+    private String                 groupId;
+    //日志存储器的路径，作为组标识在共享引擎中注册
+    private final String           path;
+    //共享引擎的目录
+    private final String           enginePath;
+    //写操作后是否要立即刷盘
+    private final boolean          sync;
+    //共享引擎
+    private SharedRocksDBLogEngine engine;
+    //共享引擎分配给当前日志存储器的组前缀
+    private long                   groupPrefix;
+    //读写锁
+    private final ReadWriteLock    readWriteLock = new ReentrantReadWriteLock();
+    private final Lock             readLock      = this.readWriteLock.readLock();
+    private final Lock             writeLock     = this.readWriteLock.writeLock();
+    //第一条日志索引默认为1
+    private volatile long          firstLogIndex = 1;
+    //当前组最后一条日志的索引，初始化的时候从数据库中查找一次，之后在日志追加和截断的时候维护，没有日志的时候为0
+    private volatile long          lastLogIndex;
+    //日志编码器
+    private LogEntryEncoder        logEntryEncoder;
+    //日志解码器
+    private LogEntryDecoder        logEntryDecoder;
+    //日志任期的内存索引
+    private final LogTermIndex     termIndex     = new LogTermIndex();
+    //是否把日志直接编码到池化的直接内存中再写入批处理
+    private final boolean          directEncoding;
+
+    public SharedRocksDBLogStorage(final String path, final String enginePath, final RaftOptions raftOptions) {
+        super();
+        this.path = path;
+        this.enginePath = enginePath;
+        this.sync = raftOptions.isSync();
+        this.directEncoding = raftOptions.isEnableDirectLogEncoding();
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：初始化方法，打开共享引擎，注册组前缀，然后加载第一条日志索引，配置日志以及日志任期索引
+     */
+    @Override
+    public boolean init(final LogStorageOptions opts) {
+        Requires.requireNonNull(opts.getConfigurationManager(), "Null conf manager");
+        Requires.requireNonNull(opts.getLogEntryCodecFactory(), "Null log entry codec factory");
+        this.groupId = opts.getGroupId();
+        this.writeLock.lock();
+        try {
+            if (this.engine != null) {
+                LOG.warn("SharedRocksDBLogStorage init() in {} already.", this.path);
+                return true;
+            }
+            this.logEntryDecoder = opts.getLogEntryCodecFactory().decoder();
+            this.logEntryEncoder = opts.getLogEntryCodecFactory().encoder();
+            Requires.requireNonNull(this.logEntryDecoder, "Null log entry decoder");
+            Requires.requireNonNull(this.logEntryEncoder, "Null log entry encoder");
+            this.engine = SharedRocksDBLogEngine.acquire(this.enginePath, this.sync);
+            this.groupPrefix = this.engine.registerGroup(this.path);
+            loadFirstLogIndex();
+            loadLastLogIndex();
+            load(opts.getConfigurationManager());
+            loadTermIndex();
+            return true;
+        } catch (final RocksDBException | IOException e) {
+            LOG.error("Fail to init SharedRocksDBLogStorage, path={}, enginePath={}.", this.path, this.enginePath, e);
+            SharedRocksDBLogEngine.release(this.engine);
+            this.engine = null;
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private byte[] getKeyBytes(final long index) {
+        return SharedRocksDBLogEngine.getKeyBytes(this.groupPrefix, index);
+    }
+
+    //当前组key空间的上界，不包含在组内
+    private byte[] getGroupEndKey() {
+        return SharedRocksDBLogEngine.getKeyBytes(this.groupPrefix + 1, 0);
+    }
+
+    //判断key是否属于当前组
+    private boolean isGroupKey(final byte[] ks) {
+        return ks.length == 16 && Bits.getLong(ks, 0) == this.groupPrefix;
+    }
+
+    private void checkState() {
+        Requires.requireNonNull(this.engine, "Shared log engine not initialized or destroyed");
+    }
+
+    //从Meta列族中加载第一条日志索引，没有的话就以当前组的第一条日志为准
+    private void loadFirstLogIndex() throws RocksDBException {
+        final RocksDB db = this.engine.getDb();
+        final byte[] vs = db.get(this.engine.getMetaHandle(),
+            SharedRocksDBLogEngine.getFirstLogIndexKey(this.groupPrefix));
+        if (vs != null) {
+            this.firstLogIndex = Bits.getLong(vs, 0);
+            return;
+        }
+        try (final RocksIterator it = db.newIterator(this.engine.getDefaultHandle(),
+            this.engine.getTotalOrderReadOptions())) {
+            it.seek(getKeyBytes(0));
+            this.firstLogIndex = it.isValid() && isGroupKey(it.key()) ? Bits.getLong(it.key(), 8) : 1L;
+        }
+    }
+
+    //从当前组key空间的上界向前查找最后一条日志的索引，只在初始化的时候执行一次
+    private void loadLastLogIndex() {
+        try (final RocksIterator it = this.engine.getDb().newIterator(this.engine.getDefaultHandle(),
+            this.engine.getTotalOrderReadOptions())) {
+            it.seekForPrev(getKeyBytes(Long.MAX_VALUE));
+            this.lastLogIndex = it.isValid() && isGroupKey(it.key()) ? Bits.getLong(it.key(), 8) : 0L;
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：把当前组的配置日志加载到配置管理器中，只遍历Configuration列族中当前组前缀下的key
+     */
+    private void load(final ConfigurationManager confManager) {
+        try (final RocksIterator it = this.engine.getDb().newIterator(this.engine.getConfHandle(),
+            this.engine.getTotalOrderReadOptions())) {
+            for (it.seek(getKeyBytes(this.firstLogIndex)); it.isValid() && isGroupKey(it.key()); it.next()) {
+                final byte[] bs = it.value();
+                final LogEntry entry = this.logEntryDecoder.decode(bs);
+                if (entry == null) {
+                    LOG.warn("Fail to decode conf entry at index {}, the log data is: {}.", Bits.getLong(it.key(), 8),
+                        BytesUtil.toHex(bs));
+                    continue;
+                }
+                if (entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
+                    final ConfigurationEntry confEntry = new ConfigurationEntry();
+                    confEntry.setId(new LogId(entry.getId().getIndex(), entry.getId().getTerm()));
+                    confEntry.setConf(new Configuration(entry.getPeers(), entry.getLearners()));
+                    if (entry.getOldPeers() != null) {
+                        confEntry.setOldConf(new Configuration(entry.getOldPeers(), entry.getOldLearners()));
+                    }
+                    if (confManager != null) {
+                        confManager.add(confEntry);
+                    }
+                }
+            }
+        }
+    }
+
+    //遍历当前组的所有日志，重建日志任期的内存索引
+    private void loadTermIndex() {
+        this.termIndex.clear();
+        try (final RocksIterator it = this.engine.getDb().newIterator(this.engine.getDefaultHandle(),
+            this.engine.getTotalOrderReadOptions())) {
+            for (it.seek(getKeyBytes(this.firstLogIndex)); it.isValid() && isGroupKey(it.key()); it.next()) {
+                //只需要日志ID，不用解码整条日志
+                final LogId id = this.logEntryDecoder.decodeLogId(it.value());
+                if (id != null) {
+                    this.termIndex.append(id.getIndex(), id.getTerm());
+                } else {
+                    LOG.warn("Fail to decode log entry at index {} when loading term index.",
+                        Bits.getLong(it.key(), 8));
+                }
+            }
+        }
+        LOG.info("Loaded term index in shared log engine {} for {}, {}.", this.enginePath, this.path, this.termIndex);
+    }
+
+    //把第一条日志索引保存到Meta列族中
+    private boolean saveFirstLogIndex(final long firstLogIndex) {
+        this.readLock.lock();
+        try {
+            checkState();
+            final byte[] vs = new byte[8];
+            Bits.putLong(vs, 0, firstLogIndex);
+            this.engine.getDb().put(this.engine.getMetaHandle(), this.engine.getWriteOptions(),
+                SharedRocksDBLogEngine.getFirstLogIndexKey(this.groupPrefix), vs);
+            return true;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to save first log index {} in {}.", firstLogIndex, this.path, e);
+            return false;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getFirstLogIndex() {
+        return this.firstLogIndex;
+    }
+
+    //得到当前组最后一条日志的索引，和第一条日志索引一样直接返回缓存的值，不再每次都创建迭代器查找
+    @Override
+    public long getLastLogIndex() {
+        return this.lastLogIndex;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：把一批日志写入共享数据库，多个组同时调用这个方法的时候，RocksDB会把它们的写请求合并，只执行一次WAL的fsync
+     */
+    @Override
+    public int appendEntries(final List<LogEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        final int entriesCount = entries.size();
+        this.readLock.lock();
+        try (final WriteBatch batch = new WriteBatch()) {
+            if (this.engine == null) {
+                LOG.warn("Shared log engine not initialized or destroyed in data path: {}.", this.path);
+                return 0;
+            }
+            fillBatch(entries, batch);
+            this.engine.getDb().write(this.engine.getWriteOptions(), batch);
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to append entries in data path: {}.", this.path, e);
+            return 0;
+        } finally {
+            this.readLock.unlock();
+        }
+        onEntriesAppended(entries);
+        return entriesCount;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：通过共享引擎的组提交写入器落盘一批日志，这批日志会和其他组的日志合并成一次同步写，done回调会在写入器线程中执行
+     * 这个方法会阻塞到done回调执行完毕
+     */
+    public boolean appendEntriesWithGroupCommit(final List<LogEntry> entries, final NodeMetrics nodeMetrics,
+                                                final Consumer<Boolean> done) {
+        final SharedRocksDBLogEngine engine = this.engine;
+        if (engine == null) {
+            LOG.warn("Shared log engine not initialized or destroyed in data path: {}.", this.path);
+            done.accept(false);
+            return false;
+        }
+        return engine.getGroupCommitWriter().append(this, entries, nodeMetrics, done);
+    }
+
+    String getPath() {
+        return this.path;
+    }
+
+    //把一批日志添加到批处理中，组提交写入器也会调用这个方法把多个组的日志放到同一个批处理中
+    void fillBatch(final List<LogEntry> entries, final WriteBatch batch) throws RocksDBException {
+        checkState();
+        if (this.directEncoding) {
+            //日志的key以组前缀开头，所以把8字节的组前缀作为写入器的key前缀
+            final byte[] keyPrefix = new byte[8];
+            Bits.putLong(keyPrefix, 0, this.groupPrefix);
+            final DirectLogEntryWriter writer = new DirectLogEntryWriter(this.logEntryEncoder, keyPrefix);
+            try {
+                for (final LogEntry entry : entries) {
+                    final boolean isConf = entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION;
+                    writer.put(batch, entry, this.engine.getDefaultHandle(), isConf ? this.engine.getConfHandle()
+                        : null);
+                }
+            } finally {
+                writer.release();
+            }
+            return;
+        }
+        for (final LogEntry entry : entries) {
+            addToBatch(entry, batch);
+        }
+    }
+
+    //日志落盘成功之后维护日志任期索引和最后一条日志的索引
+    void onEntriesAppended(final List<LogEntry> entries) {
+        for (final LogEntry entry : entries) {
+            this.termIndex.append(entry.getId().getIndex(), entry.getId().getTerm());
+        }
+        if (!entries.isEmpty()) {
+            this.lastLogIndex = Math.max(this.lastLogIndex, entries.get(entries.size() - 1).getId().getIndex());
+        }
+    }
+
+    //把日志添加到批处理中，配置日志在Configuration列族中也要存放一份，这一点和RocksDBLogStorage一样
+    private void addToBatch(final LogEntry entry, final WriteBatch batch) throws RocksDBException {
+        final byte[] ks = getKeyBytes(entry.getId().getIndex());
+        final byte[] content = this.logEntryEncoder.encode(entry);
+        batch.put(this.engine.getDefaultHandle(), ks, content);
+        if (entry.getType() == EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION) {
+            batch.put(this.engine.getConfHandle(), ks, content);
+        }
+    }
+
+    @Override
+    public boolean appendEntry(final LogEntry entry) {
+        final List<LogEntry> entries = new ArrayList<>(1);
+        entries.add(entry);
+        return appendEntries(entries) == 1;
+    }
+
+    @Override
+    public LogEntry getEntry(final long index) {
+        this.readLock.lock();
+        try {
+            if (index < this.firstLogIndex || this.engine == null) {
+                return null;
+            }
+            final byte[] bs = this.engine.getDb().get(this.engine.getDefaultHandle(), getKeyBytes(index));
+            if (bs == null) {
+                return null;
+            }
+            final LogEntry entry = this.logEntryDecoder.decode(bs);
+            if (entry == null) {
+                LOG.error("Bad log entry format for index={}, the log data is: {}.", index, BytesUtil.toHex(bs));
+            }
+            return entry;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to get log entry at index {} in data path: {}.", index, this.path, e);
+            return null;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    //批量读取从fromIndex开始的连续日志，seek一次之后顺序遍历，遇到其他组的key或者日志不连续就停止
+    @Override
+    public List<LogEntry> getEntries(final long fromIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(Math.max(maxCount, 0), 256));
+        this.readLock.lock();
+        try {
+            if (maxCount <= 0 || fromIndex < this.firstLogIndex || this.engine == null) {
+                return entries;
+            }
+            try (final RocksIterator it = this.engine.getDb().newIterator(this.engine.getDefaultHandle(),
+                this.engine.getTotalOrderReadOptions())) {
+                long expectedIndex = fromIndex;
+                long bytes = 0;
+                for (it.seek(getKeyBytes(fromIndex)); it.isValid() && entries.size() < maxCount && bytes < maxBytes; it
+                    .next()) {
+                    final byte[] ks = it.key();
+                    if (!isGroupKey(ks) || Bits.getLong(ks, 8) != expectedIndex) {
+                        break;
+                    }
+                    final LogEntry entry = this.logEntryDecoder.decode(it.value());
+                    if (entry == null) {
+                        LOG.error("Bad log entry format for index={} in data path: {}.", expectedIndex, this.path);
+                        break;
+                    }
+                    entries.add(entry);
+                    bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                    expectedIndex++;
+                }
+            }
+            return entries;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getTerm(final long index) {
+        if (index < this.firstLogIndex) {
+            return 0;
+        }
+        final long term = this.termIndex.getTerm(index);
+        if (term >= 0) {
+            return term;
+        }
+        final LogEntry entry = getEntry(index);
+        return entry != null ? entry.getId().getTerm() : 0;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：生成快照之后清除旧日志，先持久化新的第一条日志索引，然后在后台线程中用deleteRange删除当前组firstIndexKept之前的日志
+     */
+    @Override
+    public boolean truncatePrefix(final long firstIndexKept) {
+        final long startIndex = this.firstLogIndex;
+        final boolean ret = saveFirstLogIndex(firstIndexKept);
+        if (ret) {
+            this.firstLogIndex = firstIndexKept;
+        }
+        //所有日志都在firstIndexKept之前的话，后台线程删除之后当前组就没有日志了
+        if (this.lastLogIndex < firstIndexKept) {
+            this.lastLogIndex = 0;
+        }
+        this.termIndex.truncatePrefix(firstIndexKept);
+        ThreadPoolsFactory.runInThread(this.groupId, () -> {
+            final long startMs = Utils.monotonicMs();
+            this.readLock.lock();
+            try {
+                if (this.engine == null) {
+                    return;
+                }
+                final RocksDB db = this.engine.getDb();
+                final byte[] startKey = getKeyBytes(0);
+                final byte[] endKey = getKeyBytes(firstIndexKept);
+                db.deleteRange(this.engine.getDefaultHandle(), this.engine.getWriteOptions(), startKey, endKey);
+                db.deleteRange(this.engine.getConfHandle(), this.engine.getWriteOptions(), startKey, endKey);
+            } catch (final RocksDBException e) {
+                LOG.error("Fail to truncatePrefix in data path: {}, firstIndexKept={}.", this.path, firstIndexKept, e);
+            } finally {
+                this.readLock.unlock();
+                LOG.info("Truncated prefix logs in shared log engine {} for {} from log index {} to {}, cost {} ms.",
+                    this.enginePath, this.path, startIndex, firstIndexKept, Utils.monotonicMs() - startMs);
+            }
+        });
+        return ret;
+    }
+
+    //移除lastIndexKept之后的日志，删除范围是当前组lastIndexKept + 1到组key空间的上界
+    @Override
+    public boolean truncateSuffix(final long lastIndexKept) {
+        this.readLock.lock();
+        try {
+            checkState();
+            final RocksDB db = this.engine.getDb();
+            final byte[] startKey = getKeyBytes(lastIndexKept + 1);
+            final byte[] endKey = getGroupEndKey();
+            db.deleteRange(this.engine.getDefaultHandle(), this.engine.getWriteOptions(), startKey, endKey);
+            db.deleteRange(this.engine.getConfHandle(), this.engine.getWriteOptions(), startKey, endKey);
+            this.termIndex.truncateSuffix(lastIndexKept);
+            this.lastLogIndex = Math.min(this.lastLogIndex, lastIndexKept);
+            return true;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to truncateSuffix {} in data path: {}.", lastIndexKept, this.path, e);
+            return false;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    //重置日志存储器，删除当前组的所有日志，然后从nextLogIndex开始重新存放日志
+    @Override
+    public boolean reset(final long nextLogIndex) {
+        if (nextLogIndex <= 0) {
+            throw new IllegalArgumentException("Invalid next log index.");
+        }
+        LogEntry entry = getEntry(nextLogIndex);
+        this.writeLock.lock();
+        try {
+            checkState();
+            final RocksDB db = this.engine.getDb();
+            final byte[] startKey = getKeyBytes(0);
+            final byte[] endKey = getGroupEndKey();
+            db.deleteRange(this.engine.getDefaultHandle(), this.engine.getWriteOptions(), startKey, endKey);
+            db.deleteRange(this.engine.getConfHandle(), this.engine.getWriteOptions(), startKey, endKey);
+            this.termIndex.clear();
+            this.lastLogIndex = 0;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to reset next log index in data path: {}.", this.path, e);
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (!saveFirstLogIndex(nextLogIndex)) {
+            return false;
+        }
+        this.firstLogIndex = nextLogIndex;
+        if (entry == null) {
+            entry = new LogEntry();
+            entry.setType(EnumOutter.EntryType.ENTRY_TYPE_NO_OP);
+            entry.setId(new LogId(nextLogIndex, 0));
+            LOG.warn("Entry not found for nextLogIndex {} when reset in data path: {}.", nextLogIndex, this.path);
+        }
+        return appendEntry(entry);
+    }
+
+    //关闭日志存储器，只是释放共享引擎，最后一个使用引擎的日志存储器关闭时才会真正关闭数据库
+    @Override
+    public void shutdown() {
+        this.writeLock.lock();
+        try {
+            if (this.engine == null) {
+                return;
+            }
+            SharedRocksDBLogEngine.release(this.engine);
+            this.engine = null;
+            LOG.info("SharedRocksDBLogStorage closed, the log path is: {}.", this.path);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void describe(final Printer out) {
+        this.readLock.lock();
+        try {
+            out.print("  groupPrefix: ").println(this.groupPrefix);
+            out.print("  firstLogIndex: ").println(this.firstLogIndex);
+            if (this.engine != null) {
+                this.engine.describe(out);
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.alipay.sofa.jraft.storage.log;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.util.SegmentList;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/9
+ * @方法描述：日志管理器在内存中缓存日志的组件，之前日志管理器直接使用SegmentList缓存日志，只有日志落盘并且应用到状态机之后才会清除
+ * 如果某个跟随者或者状态机非常慢，内存中的日志就会无限增长。这个类在SegmentList的基础上统计了缓存日志占用的字节数，一旦超过了上限
+ * 就从最旧的日志开始淘汰，最新的日志会一直留在内存中供复制器使用，被淘汰的日志之后会从日志存储器中读取
+ * 现在日志落盘并且应用之后也不会立刻从缓存中移除，除了快照截断和日志冲突截断，淘汰只发生在占用的字节数超过上限的时候
+ * 注意，只有已经落盘的日志才可以被淘汰，否则日志存储器中也读不到这条日志。另外，这个类并不是线程安全的，日志管理器在使用它的时候要加锁
+ */
+public class LogEntryCache {
+
+    //估算的每一条日志除了data之外占用的字节数，包括日志对象本身，日志ID，集群配置等等
+    private static final int            ENTRY_OVERHEAD = 64;
+
+    //存放日志的集合
+    private final SegmentList<LogEntry> entries        = new SegmentList<>(true);
+    //缓存日志最多可以占用的字节数
+    private final long                  maxBytes;
+    //当前缓存日志占用的字节数，修改的时候持有日志管理器的写锁，监控指标会在其他线程中读取
+    private volatile long               bytes;
+
+    public LogEntryCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    //估算一条日志占用的字节数，data是共享字节数组的切片时，使用日志记录的实际占用字节数
+    private static long sizeOf(final LogEntry entry) {
+        if (entry.getRetainedBytes() >= 0) {
+            return ENTRY_OVERHEAD + entry.getRetainedBytes();
+        }
+        return ENTRY_OVERHEAD + (entry.getData() != null ? entry.getData().remaining() : 0);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：把一批日志添加到缓存中，并且累加这些日志占用的字节数
+     * 这里不再把日志的data复制到堆外内存，每条日志单独申请直接内存太慢了，而且直接内存只能等GC之后由Cleaner释放
+     * 状态机和复制器拿到日志data之后可能还会持有它，所以也没办法安全地把直接内存池化复用
+     */
+    public void addAll(final List<LogEntry> list) {
+        for (final LogEntry entry : list) {
+            this.bytes += sizeOf(entry);
+        }
+        this.entries.addAll(list);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：根据日志索引从缓存中获取日志，缓存中没有就返回null
+     */
+    public LogEntry get(final long index) {
+        if (this.entries.isEmpty()) {
+            return null;
+        }
+        //获取缓存中的第一条日志索引
+        final long firstIndex = this.entries.peekFirst().getId().getIndex();
+        //获取缓存中最后一条日志索引
+        final long lastIndex = this.entries.peekLast().getId().getIndex();
+        //如果日志的数量和缓存中的不相等就报错
+        if (lastIndex - firstIndex + 1 != this.entries.size()) {
+            throw new IllegalStateException(String.format("lastIndex=%d,firstIndex=%d,logsInMemory=[%s]", lastIndex,
+                firstIndex, this));
+        }
+        if (index < firstIndex || index > lastIndex) {
+            return null;
+        }
+        return this.entries.get((int) (index - firstIndex));
+    }
+
+    //移除索引比firstIndexKept小的日志
+    public void truncatePrefix(final long firstIndexKept) {
+        removeFromFirstWhen(entry -> entry.getId().getIndex() < firstIndexKept);
+    }
+
+    private void removeFromFirstWhen(final Predicate<LogEntry> predicate) {
+        this.entries.removeFromFirstWhen(entry -> {
+            if (predicate.test(entry)) {
+                this.bytes -= sizeOf(entry);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    //移除索引比lastIndexKept大的日志
+    public void truncateSuffix(final long lastIndexKept) {
+        this.entries.removeFromLastWhen(entry -> {
+            if (entry.getId().getIndex() > lastIndexKept) {
+                this.bytes -= sizeOf(entry);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：缓存占用的字节数超过上限的时候，从最旧的日志开始淘汰，maxEvictableIndex就是已经落盘的最后一条日志的索引
+     * 比这个索引大的日志不能被淘汰，返回淘汰的日志数量
+     */
+    public int evict(final long maxEvictableIndex) {
+        if (this.bytes <= this.maxBytes) {
+            return 0;
+        }
+        final int before = this.entries.size();
+        this.entries.removeFromFirstWhen(entry -> {
+            if (this.bytes > this.maxBytes && entry.getId().getIndex() <= maxEvictableIndex) {
+                this.bytes -= sizeOf(entry);
+                return true;
+            }
+            return false;
+        });
+        return before - this.entries.size();
+    }
+
+    public void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    public LogEntry peekFirst() {
+        return this.entries.peekFirst();
+    }
+
+    public LogEntry peekLast() {
+        return this.entries.peekLast();
+    }
+
+    public boolean isEmpty() {
+        return this.entries.isEmpty();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < this.entries.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(this.entries.get(i).getId().getIndex());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.alipay.sofa.jraft.storage.log;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/9
+ * @方法描述：日志任期的内存索引，raft日志的任期是单调递增的，并且同一个任期的日志索引是连续的
+ * 所以只需要记录每一个任期是从哪条日志开始的，就可以知道任意一条日志的任期了，比如[(1,1),(57,2),(90,5)]
+ * 就表示索引1-56的日志任期为1，索引57-89的日志任期为2，索引90到lastIndex的日志任期为5
+ * 这样一来，日志存储器的getTerm方法就不用再从数据库中把整条日志读出来解码了，二分查找一下就能得到任期，没有IO，也不会创建对象
+ * 日志存储器在加载日志，追加日志，截断日志的时候都要同步维护这个索引
+ */
+public class LogTermIndex {
+
+    //每一个任期开始的日志索引，从小到大排列
+    private long[]            startIndexes = new long[16];
+    //和上面数组一一对应的任期
+    private long[]            terms        = new long[16];
+    //当前记录的任期区间的数量
+    private int               size;
+    //索引覆盖的最后一条日志的索引
+    private long              lastIndex;
+    //读多写少，使用StampedLock
+    private final StampedLock stampedLock  = new StampedLock();
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：记录一条新追加的日志，如果这条日志和上一条日志不连续，说明之前的日志都已经被截断或者重置了，直接清空索引重新开始记录
+     */
+    public void append(final long index, final long term) {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            if (this.size > 0 && index != this.lastIndex + 1) {
+                if (index <= this.lastIndex) {
+                    //追加的日志覆盖了旧的日志，先把旧日志截断
+                    doTruncateSuffix(index - 1);
+                } else {
+                    this.size = 0;
+                }
+            }
+            if (this.size == 0 || this.terms[this.size - 1] != term) {
+                ensureCapacity();
+                this.startIndexes[this.size] = index;
+                this.terms[this.size] = term;
+                this.size++;
+            }
+            this.lastIndex = index;
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (this.size == this.startIndexes.length) {
+            final int newCap = this.size << 1;
+            this.startIndexes = Arrays.copyOf(this.startIndexes, newCap);
+            this.terms = Arrays.copyOf(this.terms, newCap);
+        }
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/9
+     * @方法描述：根据日志索引得到日志的任期，如果这条日志不在索引的覆盖范围内，就返回-1，这时候日志存储器需要自己去硬盘中读取
+     */
+    public long getTerm(final long index) {
+        final long stamp = this.stampedLock.readLock();
+        try {
+            if (this.size == 0 || index < this.startIndexes[0] || index > this.lastIndex) {
+                return -1;
+            }
+            //二分查找最后一个开始索引小于等于index的任期区间
+            int low = 0;
+            int high = this.size - 1;
+            while (low < high) {
+                final int mid = (low + high + 1) >>> 1;
+                if (this.startIndexes[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return this.terms[low];
+        } finally {
+            this.stampedLock.unlockRead(stamp);
+        }
+    }
+
+    //截断lastIndexKept之后的日志对应的任期区间
+    public void truncateSuffix(final long lastIndexKept) {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            doTruncateSuffix(lastIndexKept);
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    private void doTruncateSuffix(final long lastIndexKept) {
+        while (this.size > 0 && this.startIndexes[this.size - 1] > lastIndexKept) {
+            this.size--;
+        }
+        if (this.size == 0) {
+            this.lastIndex = 0;
+            return;
+        }
+        this.lastIndex = Math.min(this.lastIndex, lastIndexKept);
+    }
+
+    //截断firstIndexKept之前的日志对应的任期区间
+    public void truncatePrefix(final long firstIndexKept) {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            if (this.size == 0) {
+                return;
+            }
+            if (firstIndexKept > this.lastIndex) {
+                this.size = 0;
+                this.lastIndex = 0;
+                return;
+            }
+            //找到第一个需要保留的任期区间，也就是下一个区间的开始索引大于firstIndexKept的区间
+            int from = 0;
+            while (from + 1 < this.size && this.startIndexes[from + 1] <= firstIndexKept) {
+                from++;
+            }
+            if (from > 0) {
+                System.arraycopy(this.startIndexes, from, this.startIndexes, 0, this.size - from);
+                System.arraycopy(this.terms, from, this.terms, 0, this.size - from);
+                this.size -= from;
+            }
+            this.startIndexes[0] = Math.max(this.startIndexes[0], firstIndexKept);
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    //清空索引
+    public void clear() {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            this.size = 0;
+            this.lastIndex = 0;
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    //得到当前记录的任期区间的数量
+    public int size() {
+        final long stamp = this.stampedLock.readLock();
+        try {
+            return this.size;
+        } finally {
+            this.stampedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final long stamp = this.stampedLock.readLock();
+        try {
+            final StringBuilder sb = new StringBuilder("LogTermIndex{ranges=[");
+            for (int i = 0; i < this.size; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append('(').append(this.startIndexes[i]).append(',').append(this.terms[i]).append(')');
+            }
+            return sb.append("], lastIndex=").append(this.lastIndex).append('}').toString();
+        } finally {
+            this.stampedLock.unlockRead(stamp);
+        }
+    }
+}
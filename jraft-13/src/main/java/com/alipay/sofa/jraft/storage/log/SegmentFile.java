@@ -0,0 +1,371 @@
+package com.alipay.sofa.jraft.storage.log;
+
+import com.alipay.sofa.jraft.util.BufferUtils;
+import com.alipay.sofa.jraft.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/8
+ * @方法描述：分段日志文件，一个分段由两个预分配好大小的文件组成，一个是存放日志内容的数据文件，一个是存放偏移量的索引文件
+ * 这两个文件都会被映射到内存中，日志只会顺序追加，数据文件的格式如下：
+ * 文件头：[魔数 4字节][该分段第一条日志索引 8字节]
+ * 每条日志记录：[记录魔数 1字节][日志类型 1字节][日志任期 8字节][日志内容长度 4字节][CRC32校验和 4字节][日志内容]
+ * 日志任期单独存放在记录头中，这样获取日志任期的时候直接读8个字节就行了，不需要把整条日志解码
+ * 校验和覆盖日志类型、任期、长度和日志内容，恢复分段的时候遇到第一条校验和不匹配的记录就停下，避免把写了一半的记录当成有效日志
+ * 数据文件中写入位置之后的内容一定是0，截断日志的时候会把截掉的记录清零，这样就算按照长度扫描数据文件也不会读到被截断的旧日志
+ * 索引文件就是一个int数组，第i个槽位存放的是索引为firstLogIndex + i的日志在数据文件中的偏移量，0代表该槽位还没有写入
+ */
+public class SegmentFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentFile.class);
+
+    //数据文件的魔数
+    public static final int    MAGIC               = 0x4A534547;
+    //数据文件头的长度
+    public static final int    HEADER_SIZE         = 4 + 8;
+    //每一条日志记录的魔数
+    public static final byte   RECORD_MAGIC        = (byte) 0x57;
+    //每一条日志记录的头部长度
+    public static final int    RECORD_HEADER_SIZE  = 1 + 1 + 8 + 4 + 4;
+    //日志任期在记录中的偏移量
+    private static final int   TERM_OFFSET         = 1 + 1;
+    //日志内容长度在记录中的偏移量
+    private static final int   LEN_OFFSET          = 1 + 1 + 8;
+    //校验和在记录中的偏移量
+    private static final int   CRC_OFFSET          = 1 + 1 + 8 + 4;
+    //清零数据文件时使用的全0数组
+    private static final byte[] ZERO_BYTES         = new byte[4096];
+    //索引文件中每个槽位的长度
+    public static final int    INDEX_SLOT_SIZE     = 4;
+    //数据文件的后缀
+    public static final String DATA_FILE_SUFFIX    = ".log";
+    //索引文件的后缀
+    public static final String INDEX_FILE_SUFFIX   = ".idx";
+
+    //该分段的第一条日志的索引
+    private final long         firstLogIndex;
+    //数据文件
+    private final File         dataFile;
+    //索引文件
+    private final File         indexFile;
+    //数据文件的大小
+    private final int          size;
+    //最多可以存放的日志条目数量
+    private final int          maxEntries;
+    //映射到内存中的数据文件
+    private MappedByteBuffer   dataBuffer;
+    //映射到内存中的索引文件
+    private MappedByteBuffer   indexBuffer;
+    //数据文件当前的写入位置
+    private volatile int       wrotePos;
+    //该分段中已经存放的日志条目的数量，这个成员变量是volatile的，读取日志的线程会先读这个变量，再去读映射的内存
+    private volatile int       count;
+
+    private SegmentFile(final File dir, final long firstLogIndex, final int size, final int maxEntries) {
+        this.firstLogIndex = firstLogIndex;
+        this.size = size;
+        this.maxEntries = maxEntries;
+        final String name = fileName(firstLogIndex);
+        this.dataFile = new File(dir, name + DATA_FILE_SUFFIX);
+        this.indexFile = new File(dir, name + INDEX_FILE_SUFFIX);
+    }
+
+    //分段文件名就是第一条日志的索引，补齐到20位，这样按名字排序也就是按索引排序
+    public static String fileName(final long firstLogIndex) {
+        return String.format("%020d", firstLogIndex);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：创建一个新的分段文件，数据文件和索引文件都会预分配好大小
+     */
+    public static SegmentFile create(final File dir, final long firstLogIndex, final int size,
+                                     final int maxEntries) throws IOException {
+        final SegmentFile segment = new SegmentFile(dir, firstLogIndex, size, maxEntries);
+        segment.map(true);
+        //写入文件头
+        segment.dataBuffer.putInt(0, MAGIC);
+        segment.dataBuffer.putLong(4, firstLogIndex);
+        segment.wrotePos = HEADER_SIZE;
+        segment.count = 0;
+        return segment;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：打开一个已经存在的分段文件，并且根据索引文件恢复写入位置和日志条目数量
+     * 如果节点在日志刷盘的过程中宕机了，最后几条日志可能是不完整的，这时候就从第一条不完整的日志开始截断
+     */
+    public static SegmentFile open(final File dir, final long firstLogIndex) throws IOException {
+        final String name = fileName(firstLogIndex);
+        final File dataFile = new File(dir, name + DATA_FILE_SUFFIX);
+        final File indexFile = new File(dir, name + INDEX_FILE_SUFFIX);
+        //这里使用文件本身的大小，因为配置参数可能在节点重启前后被修改了
+        final SegmentFile segment = new SegmentFile(dir, firstLogIndex, (int) dataFile.length(),
+            (int) (indexFile.length() / INDEX_SLOT_SIZE));
+        segment.map(false);
+        if (segment.dataBuffer.getInt(0) != MAGIC || segment.dataBuffer.getLong(4) != firstLogIndex) {
+            segment.close();
+            throw new IOException("Invalid segment file header: " + dataFile);
+        }
+        segment.recover();
+        return segment;
+    }
+
+    //把数据文件和索引文件映射到内存中
+    private void map(final boolean create) throws IOException {
+        this.dataBuffer = mapFile(this.dataFile, this.size, create);
+        this.indexBuffer = mapFile(this.indexFile, this.maxEntries * INDEX_SLOT_SIZE, create);
+    }
+
+    private static MappedByteBuffer mapFile(final File file, final int len, final boolean create) throws IOException {
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "rw"); final FileChannel fc = raf.getChannel()) {
+            if (create) {
+                //预分配文件大小
+                raf.setLength(len);
+            }
+            return fc.map(FileChannel.MapMode.READ_WRITE, 0, len);
+        }
+    }
+
+    //恢复分段的写入位置，遍历索引文件的槽位，直到遇到没有写入的槽位或者是不完整的日志记录
+    //不完整的记录和它之后的记录占用的数据都会被清零，索引槽位也会被清空
+    private void recover() {
+        int pos = HEADER_SIZE;
+        int n = 0;
+        for (; n < this.maxEntries; n++) {
+            final int offset = this.indexBuffer.getInt(n * INDEX_SLOT_SIZE);
+            if (offset == 0) {
+                break;
+            }
+            if (offset != pos || !isValidRecord(offset)) {
+                LOG.warn("Found incomplete log record at index {} in segment {}, truncate it.",
+                    this.firstLogIndex + n, this.dataFile);
+                break;
+            }
+            pos = offset + RECORD_HEADER_SIZE + this.dataBuffer.getInt(offset + LEN_OFFSET);
+        }
+        //把不完整的槽位清空，同时记下这些槽位指向的记录最远写到了哪里
+        int tailEnd = pos;
+        for (int i = n; i < this.maxEntries; i++) {
+            final int offset = this.indexBuffer.getInt(i * INDEX_SLOT_SIZE);
+            if (offset == 0) {
+                break;
+            }
+            if (offset >= HEADER_SIZE && offset + RECORD_HEADER_SIZE <= this.size) {
+                final int len = Math.max(0, this.dataBuffer.getInt(offset + LEN_OFFSET));
+                tailEnd = Math.max(tailEnd, (int) Math.min(this.size, (long) offset + RECORD_HEADER_SIZE + len));
+            }
+            this.indexBuffer.putInt(i * INDEX_SLOT_SIZE, 0);
+        }
+        //数据写了一半但是索引槽位还没写的时候宕机，写入位置上可能还残留着记录头，这里也一起清零
+        if (tailEnd > pos || (pos < this.size && this.dataBuffer.get(pos) != 0)) {
+            zero(pos, Math.max(tailEnd, Math.min(this.size, pos + RECORD_HEADER_SIZE)));
+        }
+        this.wrotePos = pos;
+        this.count = n;
+    }
+
+    private boolean isValidRecord(final int offset) {
+        if (offset + RECORD_HEADER_SIZE > this.size || this.dataBuffer.get(offset) != RECORD_MAGIC) {
+            return false;
+        }
+        final int len = this.dataBuffer.getInt(offset + LEN_OFFSET);
+        if (len < 0 || offset + RECORD_HEADER_SIZE + len > this.size) {
+            return false;
+        }
+        return this.dataBuffer.getInt(offset + CRC_OFFSET) == checksum(offset, len);
+    }
+
+    //计算记录的校验和，覆盖记录头中的日志类型、任期和长度，以及日志内容，不包括记录魔数和校验和本身
+    private int checksum(final int offset, final int len) {
+        final CRC32 crc32 = new CRC32();
+        final ByteBuffer buf = this.dataBuffer.duplicate();
+        BufferUtils.limit(buf, offset + CRC_OFFSET);
+        BufferUtils.position(buf, offset + 1);
+        crc32.update(buf);
+        BufferUtils.limit(buf, offset + RECORD_HEADER_SIZE + len);
+        BufferUtils.position(buf, offset + RECORD_HEADER_SIZE);
+        crc32.update(buf);
+        return (int) crc32.getValue();
+    }
+
+    //把数据文件中[from, to)范围内的内容清零
+    private void zero(final int from, final int to) {
+        final ByteBuffer buf = this.dataBuffer.duplicate();
+        BufferUtils.position(buf, from);
+        int remaining = to - from;
+        while (remaining > 0) {
+            final int n = Math.min(remaining, ZERO_BYTES.length);
+            buf.put(ZERO_BYTES, 0, n);
+            remaining -= n;
+        }
+    }
+
+    //判断该分段是否还能放下一条指定长度的日志
+    public boolean hasRoom(final int dataLen) {
+        return this.count < this.maxEntries && this.wrotePos + RECORD_HEADER_SIZE + dataLen <= this.size;
+    }
+
+    //计算一个能放下指定长度日志的分段文件的大小
+    public static int requiredSize(final int dataLen) {
+        return HEADER_SIZE + RECORD_HEADER_SIZE + dataLen;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：追加一条日志到分段中，这个方法只会被日志管理器的disruptor线程调用，所以不用考虑并发写的问题
+     * 注意，一定是先写数据再写索引，最后修改count，这样读线程看到count增加之后，数据一定已经写好了
+     * 校验和是在日志内容写进映射内存之后再计算的，所以恢复分段的时候重新计算出来的校验和和这里是一致的
+     */
+    public void append(final byte type, final long term, final byte[] data) {
+        final int pos = this.wrotePos;
+        final ByteBuffer buf = this.dataBuffer.duplicate();
+        BufferUtils.position(buf, pos);
+        buf.put(RECORD_MAGIC);
+        buf.put(type);
+        buf.putLong(term);
+        buf.putInt(data.length);
+        buf.putInt(0);
+        buf.put(data);
+        this.dataBuffer.putInt(pos + CRC_OFFSET, checksum(pos, data.length));
+        this.indexBuffer.putInt(this.count * INDEX_SLOT_SIZE, pos);
+        this.wrotePos = pos + RECORD_HEADER_SIZE + data.length;
+        this.count = this.count + 1;
+    }
+
+    //根据日志索引得到日志记录在数据文件中的偏移量，返回-1表示不存在
+    private int offsetOf(final long index) {
+        if (index < this.firstLogIndex || index >= this.firstLogIndex + this.count) {
+            return -1;
+        }
+        return this.indexBuffer.getInt((int) (index - this.firstLogIndex) * INDEX_SLOT_SIZE);
+    }
+
+    //读取指定索引的日志内容
+    public byte[] read(final long index) {
+        final int offset = offsetOf(index);
+        if (offset <= 0) {
+            return null;
+        }
+        final int len = this.dataBuffer.getInt(offset + LEN_OFFSET);
+        final byte[] bs = new byte[len];
+        final ByteBuffer buf = this.dataBuffer.duplicate();
+        BufferUtils.position(buf, offset + RECORD_HEADER_SIZE);
+        buf.get(bs);
+        return bs;
+    }
+
+    //读取指定索引的日志类型，返回-1表示不存在
+    public int readType(final long index) {
+        final int offset = offsetOf(index);
+        if (offset <= 0) {
+            return -1;
+        }
+        return this.dataBuffer.get(offset + 1);
+    }
+
+    //读取指定索引的日志任期，直接从记录头中读取，不需要解码日志，返回-1表示不存在
+    public long readTerm(final long index) {
+        final int offset = offsetOf(index);
+        if (offset <= 0) {
+            return -1;
+        }
+        return this.dataBuffer.getLong(offset + TERM_OFFSET);
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/8
+     * @方法描述：截断lastIndexKept之后的日志，其实就是把对应的索引槽位清空，然后回退写入位置
+     * 被截掉的记录也要清零，否则这些旧记录还留在数据文件中，之后按照长度扫描数据文件的时候可能把它们当成有效日志
+     */
+    public void truncateSuffix(final long lastIndexKept) {
+        final int keep = (int) Math.max(0, lastIndexKept - this.firstLogIndex + 1);
+        if (keep >= this.count) {
+            return;
+        }
+        final int newPos = this.indexBuffer.getInt(keep * INDEX_SLOT_SIZE);
+        final int oldCount = this.count;
+        this.count = keep;
+        for (int i = keep; i < oldCount; i++) {
+            this.indexBuffer.putInt(i * INDEX_SLOT_SIZE, 0);
+        }
+        zero(newPos, this.wrotePos);
+        this.wrotePos = newPos;
+        sync();
+    }
+
+    //把映射内存中的数据刷新到硬盘
+    public void sync() {
+        this.dataBuffer.force();
+        this.indexBuffer.force();
+    }
+
+    //关闭分段文件，也就是解除内存映射
+    public void close() {
+        if (this.dataBuffer != null) {
+            Utils.unmap(this.dataBuffer);
+            this.dataBuffer = null;
+        }
+        if (this.indexBuffer != null) {
+            Utils.unmap(this.indexBuffer);
+            this.indexBuffer = null;
+        }
+    }
+
+    //关闭并删除分段文件
+    public boolean destroy() {
+        close();
+        final boolean ret = this.dataFile.delete() & this.indexFile.delete();
+        if (!ret) {
+            LOG.warn("Fail to delete segment file {}.", this.dataFile);
+        }
+        return ret;
+    }
+
+    public long getFirstLogIndex() {
+        return this.firstLogIndex;
+    }
+
+    //该分段最后一条日志的索引，如果分段是空的，返回的就是firstLogIndex - 1
+    public long getLastLogIndex() {
+        return this.firstLogIndex + this.count - 1;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public int getWrotePos() {
+        return this.wrotePos;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentFile{" + "firstLogIndex=" + firstLogIndex + ", count=" + count + ", wrotePos=" + wrotePos
+               + ", size=" + size + '}';
+    }
+}
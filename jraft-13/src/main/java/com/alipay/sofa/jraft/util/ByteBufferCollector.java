@@ -19,6 +19,8 @@ public final class ByteBufferCollector implements Recyclable {
     private static final int MAX_CAPACITY_TO_RECYCLE = 4 * 1024 * 1024;
 
     private ByteBuffer buffer;
+    //是否使用直接内存，使用直接内存的收集器有自己单独的对象池
+    private final boolean direct;
 
     public int capacity() {
         return this.buffer != null ? this.buffer.capacity() : 0;
@@ -32,7 +34,11 @@ public final class ByteBufferCollector implements Recyclable {
 
     public void expandAtMost(final int atMostBytes) {
         if (this.buffer == null) {
-            this.buffer = Utils.allocate(atMostBytes);
+            this.buffer = allocateBuffer(atMostBytes);
+        } else if (this.direct) {
+            final int newCapacity = atMostBytes > Utils.RAFT_DATA_BUF_SIZE || atMostBytes <= 0 ? Utils.RAFT_DATA_BUF_SIZE
+                : atMostBytes;
+            this.buffer = expandDirect(this.buffer, newCapacity);
         } else {
             this.buffer = Utils.expandByteBufferAtMost(this.buffer, atMostBytes);
         }
@@ -42,15 +48,28 @@ public final class ByteBufferCollector implements Recyclable {
         return this.buffer != null && this.buffer.hasRemaining();
     }
 
-    private ByteBufferCollector(final int size, final Recyclers.Handle handle) {
+    private ByteBufferCollector(final int size, final boolean direct, final Recyclers.Handle handle) {
+        this.direct = direct;
         if (size > 0) {
-            this.buffer = Utils.allocate(size);
+            this.buffer = allocateBuffer(size);
         }
         this.handle = handle;
     }
 
+    private ByteBuffer allocateBuffer(final int size) {
+        return this.direct ? ByteBuffer.allocateDirect(size) : Utils.allocate(size);
+    }
+
+    //扩容直接内存，和Utils.expandByteBufferAtLeast的逻辑一样，只不过新的buffer也是直接内存
+    private static ByteBuffer expandDirect(final ByteBuffer buf, final int expandBytes) {
+        final ByteBuffer newBuf = ByteBuffer.allocateDirect(buf.capacity() + expandBytes);
+        BufferUtils.flip(buf);
+        newBuf.put(buf);
+        return newBuf;
+    }
+
     public static ByteBufferCollector allocate(final int size) {
-        return new ByteBufferCollector(size, Recyclers.NOOP_HANDLE);
+        return new ByteBufferCollector(size, false, Recyclers.NOOP_HANDLE);
     }
 
     public static ByteBufferCollector allocate() {
@@ -67,6 +86,19 @@ public final class ByteBufferCollector implements Recyclable {
         return allocateByRecyclers(Utils.RAFT_DATA_BUF_SIZE);
     }
 
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：从对象池中得到一个使用直接内存的收集器，日志落盘的时候会把日志直接编码到这个收集器的直接内存中
+     * 然后使用RocksDB的ByteBuffer接口写入批处理，这样每条日志就不用再创建一个新的字节数组了
+     */
+    public static ByteBufferCollector allocateDirectByRecyclers(final int size) {
+        final ByteBufferCollector collector = directRecyclers.get();
+        collector.reset(size);
+        return collector;
+    }
+
     public static int threadLocalCapacity() {
         return recyclers.threadLocalCapacity();
     }
@@ -77,10 +109,10 @@ public final class ByteBufferCollector implements Recyclable {
 
     private void reset(final int expectSize) {
         if (this.buffer == null) {
-            this.buffer = Utils.allocate(expectSize);
+            this.buffer = allocateBuffer(expectSize);
         } else {
             if (this.buffer.capacity() < expectSize) {
-                this.buffer = Utils.allocate(expectSize);
+                this.buffer = allocateBuffer(expectSize);
             }
         }
     }
@@ -91,16 +123,20 @@ public final class ByteBufferCollector implements Recyclable {
      * @Date:2023/12/8
      * @Description:根据指定容量获得buffer的方法
      */
-    private ByteBuffer getBuffer(final int expectSize) {
+    public ByteBuffer getBuffer(final int expectSize) {
         //如果成员变量buffer为null
         if (this.buffer == null) {
             //根据指定的容量获取一个新的buffer
-            this.buffer = Utils.allocate(expectSize);
+            this.buffer = allocateBuffer(expectSize);
         } else if (this.buffer.remaining() < expectSize) {
             //走到这里意味着buffer不为null，并且buffer中剩余的容量不足以存放
             //期望容量的数据，这时候就要创建一个新的容量更大的buffer，然后把新旧数据都存放到
             //新的buffer中
-            this.buffer = Utils.expandByteBufferAtLeast(this.buffer, expectSize);
+            if (this.direct) {
+                this.buffer = expandDirect(this.buffer, Math.max(expectSize, Utils.RAFT_DATA_BUF_SIZE));
+            } else {
+                this.buffer = Utils.expandByteBufferAtLeast(this.buffer, expectSize);
+            }
         }
         return this.buffer;
     }
@@ -136,7 +172,7 @@ public final class ByteBufferCollector implements Recyclable {
                 BufferUtils.clear(this.buffer);
             }
         }
-        return recyclers.recycle(this, handle);
+        return this.direct ? directRecyclers.recycle(this, handle) : recyclers.recycle(this, handle);
     }
 
     private transient final Recyclers.Handle handle;
@@ -146,7 +182,17 @@ public final class ByteBufferCollector implements Recyclable {
 
         @Override
         protected ByteBufferCollector newObject(final Handle handle) {
-            return new ByteBufferCollector(0, handle);
+            return new ByteBufferCollector(0, false, handle);
+        }
+    };
+
+    //使用直接内存的收集器的对象池
+    private static final Recyclers<ByteBufferCollector> directRecyclers = new Recyclers<ByteBufferCollector>(
+            Utils.MAX_COLLECTOR_SIZE_PER_THREAD) {
+
+        @Override
+        protected ByteBufferCollector newObject(final Handle handle) {
+            return new ByteBufferCollector(0, true, handle);
         }
     };
 }
@@ -56,15 +56,18 @@ public final class CrcUtil {
         if (rem <= 0) {
             return 0;
         }
-        // Currently we have not used DirectByteBuffer yet.
         if (buf.hasArray()) {
             return crc64(buf.array(), pos + buf.arrayOffset(), rem);
         }
-        final byte[] b = new byte[rem];
-        BufferUtils.mark(buf);
-        buf.get(b);
-        BufferUtils.reset(buf);
-        return crc64(b);
+        //直接内存和只读的buffer拿不到底层数组，这里按照绝对位置逐个字节计算，不再把数据复制到新的字节数组中
+        final CRC64 crc64 = CRC_64_THREAD_LOCAL.get();
+        final int limit = buf.limit();
+        for (int i = pos; i < limit; i++) {
+            crc64.update(buf.get(i));
+        }
+        final long ret = crc64.getValue();
+        crc64.reset();
+        return ret;
     }
 
     private CrcUtil() {
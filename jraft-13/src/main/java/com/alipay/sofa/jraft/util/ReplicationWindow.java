@@ -0,0 +1,30 @@
+package com.alipay.sofa.jraft.util;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：复制器使用的复制窗口，决定了Pipeline模式下复制器最多可以有多少还没收到响应的日志请求。每个复制器都有一个自己的窗口对象
+ * 这个接口的所有方法都是在复制器持有锁的时候调用的，所以实现类不需要考虑并发问题，只有get方法可能会被监控线程读取
+ * 用户可以重写JRaftServiceFactory的createReplicationWindow方法提供自己的实现
+ */
+public interface ReplicationWindow {
+
+    //判断复制器是否还可以发送新的日志请求，inflightCount和inflightBytes分别是还没有收到响应的请求数量和日志数据字节数
+    boolean canSend(final int inflightCount, final long inflightBytes);
+
+    //得到下一个日志请求最多可以携带的日志数据字节数
+    int getMaxRequestBytes(final long inflightBytes);
+
+    //跟随者成功处理了一个日志请求，bytes是这个请求中日志数据的字节数，rttMs是请求的往返时间
+    void onAck(final int bytes, final long rttMs);
+
+    //请求超时失败了，或者跟随者繁忙，窗口需要缩小
+    void onCongestion();
+
+    //得到当前窗口的字节数
+    long getWindowBytes();
+
+    //得到平滑后的往返时间，还没有收到过响应的时候返回0
+    long getSmoothedRttMs();
+}
@@ -3,6 +3,7 @@ package com.alipay.sofa.jraft.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
 
 
@@ -19,6 +20,8 @@ public class ThreadId {
     private final ReentrantLock lock = new ReentrantLock();
     private final OnError onError;
     private volatile boolean destroyed;
+    //ThreadId被销毁的时候打开，join方法在这上面等待
+    private final CountDownLatch destroyLatch = new CountDownLatch(1);
 
 
     public interface OnError {
@@ -57,10 +60,15 @@ public class ThreadId {
         this.lock.unlock();
     }
 
-    //让当前线程让出执行行权
+    //等待ThreadId被销毁，等待的线程会挂起，不再空转消耗CPU
     public void join() {
         while (!this.destroyed) {
-            ThreadHelper.onSpinWait();
+            try {
+                this.destroyLatch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
     }
 
@@ -74,6 +82,7 @@ public class ThreadId {
             return;
         }
         this.destroyed = true;
+        this.destroyLatch.countDown();
         unlock();
     }
 
@@ -74,6 +74,28 @@ public final class Utils {
                             16,
                             Ints.findNextPositivePowerOfTwo(cpus() * 2)));
 
+    /**
+     * Default size of the shared executor group that runs replicator events.
+     */
+    //所有复制器共享的事件执行器组中单线程执行器的数量，每个复制器固定使用其中一个执行器处理自己的事件
+    public static final int REPLICATOR_EVENT_THREADS = SystemPropertyUtil
+            .getInt(
+                    "jraft.replicator.event.threads",
+                    Math.max(
+                            8,
+                            Ints.findNextPositivePowerOfTwo(cpus())));
+
+    /**
+     * Default size of the shared executor group that runs parallel apply lanes.
+     */
+    //所有复制组的并行应用通道共享的执行器组中单线程执行器的数量，每个通道固定使用其中一个执行器
+    public static final int FSM_APPLY_LANE_THREADS = SystemPropertyUtil
+            .getInt(
+                    "jraft.fsm.apply.lane.threads",
+                    Math.max(
+                            4,
+                            Ints.findNextPositivePowerOfTwo(cpus())));
+
     /**
      * Default jraft max pending tasks of append-entries per thread, 65536 by default.
      */
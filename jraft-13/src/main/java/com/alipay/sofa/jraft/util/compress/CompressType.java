@@ -0,0 +1,43 @@
+package com.alipay.sofa.jraft.util.compress;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：压缩类型，number会写到请求和落盘的日志中，所以已经定义的number不能修改，新增压缩算法的时候在这里添加一个枚举值即可
+ */
+public enum CompressType {
+
+    //不压缩
+    NONE(0, null),
+    //JDK自带的deflate算法，压缩率高，但是比较耗费cpu，适合跨地域复制这种带宽是瓶颈的场景
+    DEFLATE(1, new DeflateCompressor()),
+    //LZ4块格式的快速压缩算法，压缩率比deflate低，但是速度快很多
+    LZ4(2, new Lz4Compressor());
+
+    private final int        number;
+    private final Compressor compressor;
+
+    CompressType(final int number, final Compressor compressor) {
+        this.number = number;
+        this.compressor = compressor;
+    }
+
+    public int getNumber() {
+        return this.number;
+    }
+
+    public Compressor getCompressor() {
+        return this.compressor;
+    }
+
+    //根据number得到压缩类型，未知的number返回null
+    public static CompressType forNumber(final int number) {
+        for (final CompressType type : values()) {
+            if (type.number == number) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.alipay.sofa.jraft.util.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：压缩器接口，领导者发送给跟随者的日志数据和落盘的日志都可以使用压缩器压缩，压缩器的实现必须是线程安全的
+ */
+public interface Compressor {
+
+    //压缩src中剩余的数据，不会改变src的position，如果压缩后的数据不比原始数据小，就返回null，这时候调用者应该直接使用原始数据
+    ByteBuffer compress(ByteBuffer src);
+
+    //解压src中剩余的数据，rawLen是原始数据的长度，不会改变src的position，数据损坏的时候抛出IllegalArgumentException
+    ByteBuffer decompress(ByteBuffer src, int rawLen);
+}
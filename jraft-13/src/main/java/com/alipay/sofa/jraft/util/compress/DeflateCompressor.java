@@ -0,0 +1,79 @@
+package com.alipay.sofa.jraft.util.compress;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：使用JDK自带的Deflater和Inflater实现的压缩器，不写zlib头部，每个线程缓存自己的Deflater和Inflater对象
+ */
+public class DeflateCompressor implements Compressor {
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(
+                                                            Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public ByteBuffer compress(final ByteBuffer src) {
+        final int len = src.remaining();
+        if (len == 0) {
+            return null;
+        }
+        final Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(toArray(src), arrayOffset(src), len);
+        deflater.finish();
+        //输出的缓冲区和原始数据一样大，压缩后的数据放不下就说明压缩没有意义了
+        final byte[] out = new byte[len];
+        int n = 0;
+        while (!deflater.finished() && n < out.length) {
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        if (!deflater.finished() || n >= len) {
+            return null;
+        }
+        return ByteBuffer.wrap(out, 0, n);
+    }
+
+    @Override
+    public ByteBuffer decompress(final ByteBuffer src, final int rawLen) {
+        final Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(toArray(src), arrayOffset(src), src.remaining());
+        final byte[] out = new byte[rawLen];
+        try {
+            int n = 0;
+            while (n < rawLen) {
+                final int r = inflater.inflate(out, n, rawLen - n);
+                if (r == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += r;
+            }
+            if (n != rawLen) {
+                throw new IllegalArgumentException("Invalid deflate data, expect " + rawLen + " bytes but got " + n);
+            }
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException("Invalid deflate data", e);
+        }
+        return ByteBuffer.wrap(out);
+    }
+
+    //得到存放src数据的数组，src不是堆内存的时候复制一份
+    static byte[] toArray(final ByteBuffer src) {
+        if (src.hasArray()) {
+            return src.array();
+        }
+        final byte[] bs = new byte[src.remaining()];
+        src.duplicate().get(bs);
+        return bs;
+    }
+
+    static int arrayOffset(final ByteBuffer src) {
+        return src.hasArray() ? src.arrayOffset() + src.position() : 0;
+    }
+}
@@ -0,0 +1,211 @@
+package com.alipay.sofa.jraft.util.compress;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：LZ4块格式的压缩器，这里没有引入lz4的依赖，而是实现了一个简单的贪心匹配版本，输出的数据就是标准的LZ4块格式
+ * 每一个序列都由token，字面量长度，字面量，匹配偏移量和匹配长度组成，token的高4位是字面量长度，低4位是匹配长度减4
+ * 按照LZ4的规定，最后5个字节一定是字面量，最后一个匹配必须在数据结尾12个字节之前开始
+ */
+public class Lz4Compressor implements Compressor {
+
+    private static final int              MIN_MATCH      = 4;
+    //最后一个匹配开始的位置距离数据结尾最少的字节数
+    private static final int              MF_LIMIT       = 12;
+    //最后这些字节一定是字面量
+    private static final int              LAST_LITERALS  = 5;
+    private static final int              MAX_DISTANCE   = 65535;
+    private static final int              HASH_LOG       = 12;
+    private static final int              RUN_MASK       = 15;
+
+    //每个线程缓存自己的哈希表，哈希表中存放的是4字节序列上一次出现的位置加1，0表示没有出现过
+    private static final ThreadLocal<int[]> HASH_TABLE   = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    //压缩后数据的最大长度
+    static int maxCompressedLength(final int len) {
+        return len + len / 255 + 16;
+    }
+
+    @Override
+    public ByteBuffer compress(final ByteBuffer src) {
+        final int len = src.remaining();
+        if (len == 0) {
+            return null;
+        }
+        final byte[] dst = new byte[maxCompressedLength(len)];
+        final int n = compress(DeflateCompressor.toArray(src), DeflateCompressor.arrayOffset(src), len, dst);
+        if (n >= len) {
+            return null;
+        }
+        return ByteBuffer.wrap(dst, 0, n);
+    }
+
+    @Override
+    public ByteBuffer decompress(final ByteBuffer src, final int rawLen) {
+        if (rawLen < 0) {
+            throw new IllegalArgumentException("Invalid lz4 raw length: " + rawLen);
+        }
+        final byte[] dst = new byte[rawLen];
+        decompress(DeflateCompressor.toArray(src), DeflateCompressor.arrayOffset(src), src.remaining(), dst);
+        return ByteBuffer.wrap(dst);
+    }
+
+    private static int hash(final int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(final byte[] bs, final int i) {
+        return (bs[i] & 0xff) | ((bs[i + 1] & 0xff) << 8) | ((bs[i + 2] & 0xff) << 16) | ((bs[i + 3] & 0xff) << 24);
+    }
+
+    static int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst) {
+        final int srcEnd = srcOff + srcLen;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        int anchor = srcOff;
+        int sp = srcOff;
+        int dp = 0;
+        if (srcLen > MF_LIMIT) {
+            final int[] table = HASH_TABLE.get();
+            Arrays.fill(table, 0);
+            while (sp < mfLimit) {
+                final int seq = readInt(src, sp);
+                final int h = hash(seq);
+                int ref = table[h] - 1;
+                table[h] = sp + 1;
+                if (ref < srcOff || sp - ref > MAX_DISTANCE || readInt(src, ref) != seq) {
+                    sp++;
+                    continue;
+                }
+                //向前扩展匹配
+                while (sp > anchor && ref > srcOff && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                //向后扩展匹配
+                int matchLen = MIN_MATCH;
+                while (sp + matchLen < matchLimit && src[sp + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+                dp = writeSequence(src, anchor, sp - anchor, dst, dp, sp - ref, matchLen);
+                sp += matchLen;
+                anchor = sp;
+            }
+        }
+        //剩下的数据全部作为最后一个序列的字面量
+        final int literalLen = srcEnd - anchor;
+        dp = writeLiteralLen(dst, dp, literalLen, 0);
+        System.arraycopy(src, anchor, dst, dp, literalLen);
+        return dp + literalLen;
+    }
+
+    private static int writeLiteralLen(final byte[] dst, int dp, final int literalLen, final int matchToken) {
+        if (literalLen >= RUN_MASK) {
+            dst[dp++] = (byte) ((RUN_MASK << 4) | matchToken);
+            dp = writeLen(dst, dp, literalLen - RUN_MASK);
+        } else {
+            dst[dp++] = (byte) ((literalLen << 4) | matchToken);
+        }
+        return dp;
+    }
+
+    private static int writeLen(final byte[] dst, int dp, int len) {
+        while (len >= 255) {
+            dst[dp++] = (byte) 255;
+            len -= 255;
+        }
+        dst[dp++] = (byte) len;
+        return dp;
+    }
+
+    private static int writeSequence(final byte[] src, final int literalOff, final int literalLen, final byte[] dst,
+                                     int dp, final int offset, final int matchLen) {
+        final int ml = matchLen - MIN_MATCH;
+        dp = writeLiteralLen(dst, dp, literalLen, Math.min(ml, RUN_MASK));
+        System.arraycopy(src, literalOff, dst, dp, literalLen);
+        dp += literalLen;
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+        if (ml >= RUN_MASK) {
+            dp = writeLen(dst, dp, ml - RUN_MASK);
+        }
+        return dp;
+    }
+
+    /**
+     * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+     * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+     * @date:2024/7/10
+     * @方法描述：解压LZ4块格式的数据，压缩数据可能是从硬盘或者网络中读到的损坏数据，所以每读一个字节都要检查是否超出了srcEnd
+     * 不能依赖数组越界异常，因为src的底层数组可能比这段数据长，越过srcEnd读到的是其他数据。数据不合法的时候抛出IllegalArgumentException
+     */
+    static void decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst) {
+        final int srcEnd = srcOff + srcLen;
+        final int dstLen = dst.length;
+        int sp = srcOff;
+        int dp = 0;
+        while (sp < srcEnd) {
+            final int token = src[sp++] & 0xff;
+            int literalLen = token >>> 4;
+            if (literalLen == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IllegalArgumentException("Invalid lz4 data, truncated literal length");
+                    }
+                    b = src[sp++] & 0xff;
+                    literalLen += b;
+                    //长度只能越来越大，超过了目标数组的长度就一定是损坏的数据，这样也不会发生整数溢出
+                    if (literalLen > dstLen) {
+                        throw new IllegalArgumentException("Invalid lz4 data, literal length out of bounds");
+                    }
+                } while (b == 255);
+            }
+            if (literalLen > srcEnd - sp || literalLen > dstLen - dp) {
+                throw new IllegalArgumentException("Invalid lz4 data, literal out of bounds");
+            }
+            System.arraycopy(src, sp, dst, dp, literalLen);
+            sp += literalLen;
+            dp += literalLen;
+            if (sp >= srcEnd) {
+                //最后一个序列只有字面量
+                break;
+            }
+            if (srcEnd - sp < 2) {
+                throw new IllegalArgumentException("Invalid lz4 data, truncated match offset");
+            }
+            final int offset = (src[sp] & 0xff) | ((src[sp + 1] & 0xff) << 8);
+            sp += 2;
+            int matchLen = token & RUN_MASK;
+            if (matchLen == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IllegalArgumentException("Invalid lz4 data, truncated match length");
+                    }
+                    b = src[sp++] & 0xff;
+                    matchLen += b;
+                    if (matchLen > dstLen) {
+                        throw new IllegalArgumentException("Invalid lz4 data, match length out of bounds");
+                    }
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+            int ref = dp - offset;
+            if (offset == 0 || ref < 0 || matchLen > dstLen - dp) {
+                throw new IllegalArgumentException("Invalid lz4 data, match out of bounds");
+            }
+            //匹配的数据可能和要写入的数据重叠，所以只能一个字节一个字节地复制
+            for (int i = 0; i < matchLen; i++) {
+                dst[dp++] = dst[ref++];
+            }
+        }
+        if (dp != dstLen) {
+            throw new IllegalArgumentException("Invalid lz4 data, decompressed " + dp + " bytes, expect " + dstLen);
+        }
+    }
+}
@@ -62,6 +62,11 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
     public abstract void report(final AcquireMode acquireMode, final Thread heldThread,
                                 final Collection<Thread> queuedThreads, final long blockedNanos);
 
+    //写锁释放的时候调用，heldNanos是这次持有写锁的时间，子类可以重写这个方法统计写锁的持有时间，默认什么也不做
+    //只有开启了锁检测，也就是maxBlockingTimeToReport大于0的时候才会调用这个方法
+    public void reportHeld(final AcquireMode acquireMode, final long heldNanos) {
+    }
+
     //提供读写锁功能的内部类
     static class RwLock extends ReentrantReadWriteLock {
 
@@ -74,6 +79,11 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
             super(fair);
         }
 
+        @Override
+        public int getWriteHoldCount() {
+            return super.getWriteHoldCount();
+        }
+
         @Override
         public Thread getOwner() {
             return super.getOwner();
@@ -91,6 +101,8 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
         private final RwLock      parent;
         private final Lock        delegate;
         private final long        maxBlockingNanos;
+        //写锁第一次被当前线程获取的时间，写锁是独占的，所以只有持有写锁的线程会访问这个值
+        private long              heldSinceNanos;
 
         LongHeldDetectingLock(AcquireMode mode, RwLock parent, long maxBlockingNanos) {
             this.mode = mode;
@@ -108,6 +120,7 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
             final Thread owner = this.parent.getOwner();
             try {//获取锁
                 this.delegate.lock();
+                onAcquired();
             } finally {//最后判断一下当前线程获取锁的时间是否超出预期了
                 final long elapsed = System.nanoTime() - start;
                 if (elapsed > this.maxBlockingNanos) {
@@ -124,6 +137,7 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
             final Thread owner = this.parent.getOwner();
             try {
                 this.delegate.lockInterruptibly();
+                onAcquired();
             } finally {
                 final long elapsed = System.nanoTime() - start;
                 if (elapsed > this.maxBlockingNanos) {
@@ -134,19 +148,41 @@ public abstract class LongHeldDetectingReadWriteLock implements ReadWriteLock {
 
         @Override
         public boolean tryLock() {
-            return this.delegate.tryLock();
+            if (this.delegate.tryLock()) {
+                onAcquired();
+                return true;
+            }
+            return false;
         }
 
         @Override
         public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
-            return this.delegate.tryLock(time, unit);
+            if (this.delegate.tryLock(time, unit)) {
+                onAcquired();
+                return true;
+            }
+            return false;
         }
 
         @Override
         public void unlock() {
+            //重入的写锁只在最外层释放的时候统计持有时间
+            if (this.mode == AcquireMode.Write && this.parent.getWriteHoldCount() == 1) {
+                final long heldNanos = System.nanoTime() - this.heldSinceNanos;
+                this.delegate.unlock();
+                reportHeld(this.mode, heldNanos);
+                return;
+            }
             this.delegate.unlock();
         }
 
+        //获取到写锁之后记录开始持有的时间，重入的时候不更新
+        private void onAcquired() {
+            if (this.mode == AcquireMode.Write && this.parent.getWriteHoldCount() == 1) {
+                this.heldSinceNanos = System.nanoTime();
+            }
+        }
+
         @Override
         public Condition newCondition() {
             return this.delegate.newCondition();
@@ -0,0 +1,180 @@
+package com.alipay.sofa.jraft.closure;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.error.RaftError;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：测试单生产者单消费者回调队列，包括环形数组回绕，数组满了之后链接新数组，以及清空队列和取出回调时回调的所有权
+ */
+public class SpscClosureQueueTest {
+
+    private static final String GROUP_ID = "spsc_test";
+
+    //记录自己被执行的次数和最后一次执行的状态
+    private static final class CountingClosure implements Closure {
+        final AtomicInteger   runs = new AtomicInteger();
+        final CountDownLatch  latch;
+        volatile Status       status;
+
+        CountingClosure(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run(final Status status) {
+            this.status = status;
+            this.runs.incrementAndGet();
+            if (this.latch != null) {
+                this.latch.countDown();
+            }
+        }
+    }
+
+    private static List<CountingClosure> append(final SpscClosureQueue queue, final int count,
+                                                final CountDownLatch latch) {
+        final List<CountingClosure> added = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final CountingClosure closure = new CountingClosure(latch);
+            queue.appendPendingClosure(closure);
+            added.add(closure);
+        }
+        return added;
+    }
+
+    //取出的回调和添加的回调是同一批对象，顺序也一样
+    private static void assertPopped(final List<CountingClosure> expected, final List<Closure> popped) {
+        assertEquals(expected.size(), popped.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), popped.get(i));
+        }
+    }
+
+    //消费者每次取走一部分回调，生产者复用取走的位置，序号在环形数组中回绕多圈之后日志索引和回调仍然对应
+    @Test
+    public void testWrapAround() {
+        final SpscClosureQueue queue = new SpscClosureQueue(GROUP_ID, 4);
+        queue.resetFirstIndex(1);
+        final List<Closure> popped = new ArrayList<>();
+        long nextIndex = 1;
+        for (int round = 0; round < 10; round++) {
+            final List<CountingClosure> added = append(queue, 3, null);
+            assertEquals(nextIndex, queue.popClosureUntil(nextIndex + 2, popped));
+            assertPopped(added, popped);
+            nextIndex += 3;
+        }
+        //队列为空的时候返回endIndex + 1
+        assertEquals(nextIndex, queue.popClosureUntil(nextIndex - 1, popped));
+        assertTrue(popped.isEmpty());
+    }
+
+    //数组满了之后链接一个容量翻倍的新数组，消费者跨越多个数组按照顺序取出回调
+    @Test
+    public void testChunkLink() {
+        final SpscClosureQueue queue = new SpscClosureQueue(GROUP_ID, 4);
+        queue.resetFirstIndex(10);
+        final List<CountingClosure> added = append(queue, 30, null);
+        final List<Closure> popped = new ArrayList<>();
+        //只取出一部分，跨过第一个数组的末尾
+        assertEquals(10, queue.popClosureUntil(15, popped));
+        assertPopped(added.subList(0, 6), popped);
+        //生产者继续添加，之后一次取出剩下的全部回调
+        added.addAll(append(queue, 10, null));
+        assertEquals(16, queue.popClosureUntil(49, popped));
+        assertPopped(added.subList(6, 40), popped);
+        //endIndex超出了队列的范围
+        append(queue, 1, null);
+        assertEquals(-1, queue.popClosureUntil(60, popped));
+    }
+
+    //清空队列的时候，还没有被取出的回调都在线程池中回复EPERM，已经被消费者取出的回调不会再被执行
+    @Test
+    public void testClearAndPopOwnership() throws InterruptedException {
+        final SpscClosureQueue queue = new SpscClosureQueue(GROUP_ID, 4);
+        queue.resetFirstIndex(1);
+        final CountDownLatch latch = new CountDownLatch(7);
+        final List<CountingClosure> added = append(queue, 10, latch);
+        final List<Closure> popped = new ArrayList<>();
+        assertEquals(1, queue.popClosureUntil(3, popped));
+        assertPopped(added.subList(0, 3), popped);
+        queue.clear();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < added.size(); i++) {
+            final CountingClosure closure = added.get(i);
+            if (i < 3) {
+                assertEquals(0, closure.runs.get());
+            } else {
+                assertEquals(1, closure.runs.get());
+                assertEquals(RaftError.EPERM, closure.status.getRaftError());
+            }
+        }
+        //被清空的回调不会再被消费者取出，消费者看到的队列是空的
+        assertEquals(11, queue.popClosureUntil(10, popped));
+        assertTrue(popped.isEmpty());
+        for (final CountingClosure closure : added) {
+            assertTrue(closure.runs.get() <= 1);
+        }
+    }
+
+    //清空队列之后消费者还没有执行的时候，重新成为领导者的投票箱继续添加回调，消费者从新的起始索引开始取出这些回调
+    @Test
+    public void testAppendAfterClearBeforePop() throws InterruptedException {
+        final SpscClosureQueue queue = new SpscClosureQueue(GROUP_ID, 4);
+        queue.resetFirstIndex(1);
+        final CountDownLatch latch = new CountDownLatch(4);
+        append(queue, 4, latch);
+        queue.clear();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        queue.resetFirstIndex(100);
+        final List<CountingClosure> added = append(queue, 12, null);
+        final List<Closure> popped = new ArrayList<>();
+        assertEquals(100, queue.popClosureUntil(111, popped));
+        assertPopped(added, popped);
+        for (final CountingClosure closure : added) {
+            assertEquals(0, closure.runs.get());
+            assertNull(closure.status);
+        }
+    }
+
+    //消费者按照清空之前的位置取出回调的同时清空队列，每个回调只会被执行一次，要么被消费者取出，要么被清空队列的操作回复EPERM
+    @Test
+    public void testConcurrentClearAndPop() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            final SpscClosureQueue queue = new SpscClosureQueue(GROUP_ID, 8);
+            queue.resetFirstIndex(1);
+            final List<CountingClosure> added = append(queue, 64, null);
+            final List<Closure> popped = new ArrayList<>();
+            final Thread consumer = new Thread(() -> queue.popClosureUntil(64, popped));
+            consumer.start();
+            queue.clear();
+            consumer.join();
+            for (final Closure closure : popped) {
+                if (closure != null) {
+                    closure.run(Status.OK());
+                }
+            }
+            final long deadline = System.currentTimeMillis() + 5000;
+            for (final CountingClosure closure : added) {
+                while (closure.runs.get() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(1, closure.runs.get());
+            }
+        }
+    }
+}
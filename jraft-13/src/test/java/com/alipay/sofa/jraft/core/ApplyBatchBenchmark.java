@@ -0,0 +1,177 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.Node;
+import com.alipay.sofa.jraft.RaftGroupService;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.Task;
+import com.alipay.sofa.jraft.option.ApplyTaskMode;
+import com.alipay.sofa.jraft.option.NodeOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.rpc.RaftRpcServerFactory;
+import com.alipay.sofa.jraft.rpc.RpcServer;
+import com.alipay.sofa.jraft.util.Endpoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：对比逐条调用Node.apply和调用Node.applyBatch一次提交一批指令的吞吐量，结果的单位是每毫秒提交的指令数量
+ * 启动一个单节点的raft组，每次调用提交BATCH_SIZE条指令，然后等待这些指令都应用到状态机，所以测出来的是从提交到应用的完整链路
+ * 日志不同步刷盘，避免硬盘的速度掩盖提交指令的开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApplyBatchBenchmark {
+
+    //每次调用提交的指令条数
+    private static final int    BATCH_SIZE = 256;
+
+    @Param({ "64", "1024" })
+    private int                 dataSize;
+
+    private File                dataPath;
+    private RpcServer           rpcServer;
+    private RaftGroupService    raftGroupService;
+    private Node                node;
+    private ByteBuffer          data;
+    private final Task[]        tasks      = new Task[BATCH_SIZE];
+    //状态不是成功的指令数量，测试结束的时候检查
+    private final AtomicInteger failures   = new AtomicInteger();
+
+    //什么也不做的状态机，只是消费日志
+    static final class NoopStateMachine extends StateMachineAdapter {
+        @Override
+        public void onApply(final Iterator iter) {
+            while (iter.hasNext()) {
+                if (iter.done() != null) {
+                    iter.done().run(Status.OK());
+                }
+                iter.next();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        //日志提交的链路上有教程中用来演示的控制台输出，这里丢弃掉，不让它们影响测试结果
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        }));
+        this.dataPath = Files.createTempDirectory("jraft-apply-bench").toFile();
+        final PeerId serverId = new PeerId("127.0.0.1", 18381);
+        final NodeOptions nodeOptions = new NodeOptions();
+        nodeOptions.setFsm(new NoopStateMachine());
+        nodeOptions.setLogUri(this.dataPath + "/log");
+        nodeOptions.setRaftMetaUri(this.dataPath + "/meta");
+        nodeOptions.setSnapshotUri(this.dataPath + "/snapshot");
+        nodeOptions.setInitialConf(new Configuration(Collections.singletonList(serverId)));
+        nodeOptions.setElectionTimeoutMs(300);
+        nodeOptions.setApplyTaskMode(ApplyTaskMode.Blocking);
+        final RaftOptions raftOptions = new RaftOptions();
+        raftOptions.setSync(false);
+        nodeOptions.setRaftOptions(raftOptions);
+        this.rpcServer = RaftRpcServerFactory.createRaftRpcServer(new Endpoint("127.0.0.1", 18381));
+        this.raftGroupService = new RaftGroupService("apply_bench", serverId, nodeOptions, this.rpcServer, true);
+        this.node = this.raftGroupService.start(false);
+        this.rpcServer.init(null);
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!this.node.isLeader()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Node is not elected as leader.");
+            }
+            Thread.sleep(50);
+        }
+        this.data = ByteBuffer.allocate(this.dataSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.raftGroupService.shutdown();
+        this.node.join();
+        this.rpcServer.shutdown();
+        if (this.failures.get() > 0) {
+            throw new IllegalStateException(this.failures.get() + " tasks failed.");
+        }
+    }
+
+    private Closure newDone(final CountDownLatch latch) {
+        return status -> {
+            if (!status.isOk()) {
+                this.failures.incrementAndGet();
+            }
+            latch.countDown();
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void singleApply() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        final Closure done = newDone(latch);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            this.node.apply(new Task(this.data.duplicate(), done));
+        }
+        latch.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchApply() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        final Closure done = newDone(latch);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            this.tasks[i] = new Task(this.data.duplicate(), done);
+        }
+        this.node.applyBatch(this.tasks);
+        latch.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(ApplyBatchBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}
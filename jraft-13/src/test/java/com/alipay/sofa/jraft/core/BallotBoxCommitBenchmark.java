@@ -0,0 +1,162 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.entity.Ballot;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.util.SegmentList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：对比投票箱判断日志提交的两种方式，每次调用先添加batchSize条日志，然后领导者和所有跟随者依次对这批日志投票
+ * legacyBallot是之前投票箱的写法，每条日志一个Ballot对象，每次投票遍历这批日志中的每一个Ballot对象
+ * matchIndex是现在投票箱使用的MatchIndexCommitTracker，每个节点只记录一个匹配索引
+ * 两种写法都和BallotBox一样在写锁中执行，这里直接使用提交跟踪器，没有经过BallotBox，是为了不把回调队列和状态机通知的开销算进来
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BallotBoxCommitBenchmark {
+
+    @Param({ "3", "5" })
+    private int                       peerCount;
+
+    @Param({ "1", "64", "1024" })
+    private int                       batchSize;
+
+    private Configuration             conf;
+    private PeerId[]                  peers;
+    private final StampedLock         stampedLock    = new StampedLock();
+
+    private final SegmentList<Ballot> pendingBallots = new SegmentList<>(false);
+    private long                      legacyPendingIndex;
+
+    private MatchIndexCommitTracker   commitTracker;
+    private long                      trackerPendingIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.conf = new Configuration();
+        this.peers = new PeerId[this.peerCount];
+        for (int i = 0; i < this.peerCount; i++) {
+            this.peers[i] = new PeerId("127.0.0.1", 8081 + i);
+            this.conf.addPeer(this.peers[i]);
+        }
+        this.legacyPendingIndex = 1;
+        this.commitTracker = new MatchIndexCommitTracker();
+        this.trackerPendingIndex = 1;
+    }
+
+    @Benchmark
+    public long legacyBallot() {
+        final long firstIndex = this.legacyPendingIndex + this.pendingBallots.size();
+        for (int i = 0; i < this.batchSize; i++) {
+            final Ballot bl = new Ballot();
+            bl.init(this.conf, null);
+            final long stamp = this.stampedLock.writeLock();
+            try {
+                this.pendingBallots.add(bl);
+            } finally {
+                this.stampedLock.unlockWrite(stamp);
+            }
+        }
+        final long lastIndex = firstIndex + this.batchSize - 1;
+        for (final PeerId peer : this.peers) {
+            legacyCommitAt(firstIndex, lastIndex, peer);
+        }
+        return this.legacyPendingIndex;
+    }
+
+    //之前BallotBox.commitAt的写法
+    private void legacyCommitAt(final long firstLogIndex, final long lastLogIndex, final PeerId peer) {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            if (lastLogIndex < this.legacyPendingIndex) {
+                return;
+            }
+            long lastCommittedIndex = 0;
+            final long startAt = Math.max(this.legacyPendingIndex, firstLogIndex);
+            Ballot.PosHint hint = new Ballot.PosHint();
+            for (long logIndex = startAt; logIndex <= lastLogIndex; logIndex++) {
+                final Ballot bl = this.pendingBallots.get((int) (logIndex - this.legacyPendingIndex));
+                hint = bl.grant(peer, hint);
+                if (bl.isGranted()) {
+                    lastCommittedIndex = logIndex;
+                }
+            }
+            if (lastCommittedIndex == 0) {
+                return;
+            }
+            this.pendingBallots.removeFromFirst((int) (lastCommittedIndex - this.legacyPendingIndex) + 1);
+            this.legacyPendingIndex = lastCommittedIndex + 1;
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Benchmark
+    public long matchIndex() {
+        final long firstIndex = this.trackerPendingIndex + this.commitTracker.size();
+        for (int i = 0; i < this.batchSize; i++) {
+            final long stamp = this.stampedLock.writeLock();
+            try {
+                this.commitTracker.append(this.trackerPendingIndex + this.commitTracker.size(), this.conf, null);
+            } finally {
+                this.stampedLock.unlockWrite(stamp);
+            }
+        }
+        final long lastIndex = firstIndex + this.batchSize - 1;
+        for (final PeerId peer : this.peers) {
+            trackerCommitAt(lastIndex, peer);
+        }
+        return this.trackerPendingIndex;
+    }
+
+    //现在BallotBox.commitAt的写法
+    private void trackerCommitAt(final long lastLogIndex, final PeerId peer) {
+        final long stamp = this.stampedLock.writeLock();
+        try {
+            if (lastLogIndex < this.trackerPendingIndex) {
+                return;
+            }
+            final long quorumIndex = this.commitTracker.grant(peer, lastLogIndex, this.trackerPendingIndex);
+            if (quorumIndex < this.trackerPendingIndex) {
+                return;
+            }
+            this.commitTracker.onCommitted(quorumIndex);
+            this.trackerPendingIndex = quorumIndex + 1;
+        } finally {
+            this.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(BallotBoxCommitBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}
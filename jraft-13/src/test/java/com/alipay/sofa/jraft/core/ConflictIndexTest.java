@@ -0,0 +1,96 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.storage.LogManager;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：测试日志冲突时的快速回退，领导者根据跟随者返回的冲突任期和冲突索引计算下一条要发送的日志索引，跟随者计算冲突任期的第一条日志索引
+ */
+public class ConflictIndexTest {
+
+    //创建一个日志管理器，日志从firstIndex开始，terms依次是每条日志的任期，范围之外的日志任期为0
+    private static LogManager mockLog(final long firstIndex, final long... terms) {
+        final LogManager logManager = Mockito.mock(LogManager.class);
+        Mockito.when(logManager.getFirstLogIndex()).thenReturn(firstIndex);
+        Mockito.when(logManager.getLastLogIndex()).thenReturn(firstIndex + terms.length - 1);
+        Mockito.when(logManager.getTerm(Mockito.anyLong())).thenAnswer(invocation -> {
+            final long index = (Long) invocation.getArguments()[0];
+            if (index < firstIndex || index >= firstIndex + terms.length) {
+                return 0L;
+            }
+            return terms[(int) (index - firstIndex)];
+        });
+        return logManager;
+    }
+
+    //领导者也有冲突任期的日志，从领导者这个任期的最后一条日志的下一条开始发送
+    @Test
+    public void testConflictTermExistsOnLeader() {
+        final LogManager logManager = mockLog(1, 1, 1, 1, 2, 2, 2, 4, 4, 4, 4);
+        assertEquals(7, Replicator.findNextIndexByConflict(logManager, 9, 2, 4));
+        assertEquals(4, Replicator.findNextIndexByConflict(logManager, 9, 1, 1));
+    }
+
+    //领导者没有冲突任期的日志，从跟随者冲突任期的第一条日志开始发送
+    @Test
+    public void testConflictTermMissingOnLeader() {
+        final LogManager logManager = mockLog(1, 1, 1, 1, 3, 3, 3);
+        assertEquals(4, Replicator.findNextIndexByConflict(logManager, 6, 2, 4));
+        //冲突任期比领导者所有日志的任期都大
+        assertEquals(5, Replicator.findNextIndexByConflict(logManager, 6, 5, 5));
+    }
+
+    //跟随者没有prevLogIndex这条日志，冲突任期为0，直接从冲突索引开始发送
+    @Test
+    public void testFollowerMissingPrevLog() {
+        final LogManager logManager = mockLog(1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2);
+        assertEquals(4, Replicator.findNextIndexByConflict(logManager, 9, 0, 4));
+    }
+
+    //不管冲突索引是多少，下一条要发送的日志都不能超过这次请求的prevLogIndex，并且最小是1
+    @Test
+    public void testClampToPrevLogIndex() {
+        final LogManager logManager = mockLog(1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2);
+        assertEquals(9, Replicator.findNextIndexByConflict(logManager, 9, 0, 20));
+        assertEquals(9, Replicator.findNextIndexByConflict(logManager, 9, 0, 10));
+        assertEquals(1, Replicator.findNextIndexByConflict(logManager, 9, 0, 0));
+        assertEquals(1, Replicator.findNextIndexByConflict(logManager, 0, 0, 1));
+        //冲突任期在领导者中的最后一条日志就是prevLogIndex的时候，结果也不能超过prevLogIndex
+        assertEquals(5, Replicator.findNextIndexByConflict(logManager, 5, 2, 3));
+    }
+
+    //冲突索引比领导者的第一条日志还小，领导者的日志已经被快照截断了，返回的索引小于第一条日志索引，复制器会给跟随者安装快照
+    @Test
+    public void testConflictIndexBelowFirstIndex() {
+        final LogManager logManager = mockLog(100, 5, 5, 5, 6, 6);
+        assertEquals(40, Replicator.findNextIndexByConflict(logManager, 104, 3, 40));
+        assertEquals(40, Replicator.findNextIndexByConflict(logManager, 104, 0, 40));
+        //冲突任期的日志只剩下一部分没有被截断，还是从这个任期在领导者中的最后一条日志的下一条开始发送
+        final LogManager truncated = mockLog(100, 3, 3, 4, 4);
+        assertEquals(102, Replicator.findNextIndexByConflict(truncated, 103, 3, 50));
+    }
+
+    //跟随者在本地日志中找到冲突任期的第一条日志索引
+    @Test
+    public void testFindFirstIndexOfTerm() {
+        final LogManager logManager = mockLog(1, 1, 1, 2, 2, 2, 3);
+        assertEquals(3, NodeImpl.findFirstIndexOfTerm(logManager, 2, 5));
+        assertEquals(3, NodeImpl.findFirstIndexOfTerm(logManager, 2, 3));
+        assertEquals(1, NodeImpl.findFirstIndexOfTerm(logManager, 1, 2));
+        assertEquals(6, NodeImpl.findFirstIndexOfTerm(logManager, 3, 6));
+    }
+
+    //冲突任期的日志一直延续到第一条日志之前，只能找到第一条日志
+    @Test
+    public void testFindFirstIndexOfTermAfterTruncatePrefix() {
+        final LogManager logManager = mockLog(100, 2, 2, 3);
+        assertEquals(100, NodeImpl.findFirstIndexOfTerm(logManager, 2, 101));
+        assertEquals(102, NodeImpl.findFirstIndexOfTerm(logManager, 3, 102));
+    }
+}
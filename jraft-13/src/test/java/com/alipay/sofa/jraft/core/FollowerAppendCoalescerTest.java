@@ -0,0 +1,188 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.storage.LogManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：测试跟随者的日志复制请求合并器，包括首尾相接的日志合并落盘，和日志管理器中的日志冲突，以及丢弃等待落盘的日志
+ * 日志管理器用一个记录每条日志任期的列表模拟，appendEntries和LogManagerImpl一样处理冲突，有冲突的时候截断冲突位置之后的日志
+ * 落盘任务在线程池中异步执行，所以每个测试都检查落盘之前和落盘之后合并器返回的最后一条日志索引是一样的
+ */
+public class FollowerAppendCoalescerTest {
+
+    private static final String   GROUP_ID = "coalescer_test";
+
+    //下标i存放索引为i + 1的日志的任期
+    private final List<Long>      terms    = new ArrayList<>();
+    private LogManager            logManager;
+    private FollowerAppendCoalescer coalescer;
+
+    @Before
+    public void setup() {
+        this.logManager = mock(LogManager.class);
+        when(this.logManager.getLastLogIndex()).thenAnswer(invocation -> {
+            synchronized (this.terms) {
+                return (long) this.terms.size();
+            }
+        });
+        when(this.logManager.getTerm(anyLong())).thenAnswer(invocation -> {
+            final long index = (Long) invocation.getArguments()[0];
+            synchronized (this.terms) {
+                return index >= 1 && index <= this.terms.size() ? this.terms.get((int) index - 1) : 0L;
+            }
+        });
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            final List<LogEntry> entries = (List<LogEntry>) invocation.getArguments()[0];
+            final LogManager.StableClosure done = (LogManager.StableClosure) invocation.getArguments()[1];
+            synchronized (this.terms) {
+                for (final LogEntry entry : entries) {
+                    final int pos = (int) entry.getId().getIndex() - 1;
+                    if (pos < this.terms.size()) {
+                        if (this.terms.get(pos) == entry.getId().getTerm()) {
+                            continue;
+                        }
+                        //和日志管理器一样，从冲突的位置开始截断之后的日志
+                        this.terms.subList(pos, this.terms.size()).clear();
+                    }
+                    this.terms.add(entry.getId().getTerm());
+                }
+            }
+            done.run(Status.OK());
+            return null;
+        }).when(this.logManager).appendEntries(any(), any());
+        //一批日志最多1024条，只有落盘任务或者flush方法会把日志交给日志管理器
+        this.coalescer = new FollowerAppendCoalescer(GROUP_ID, this.logManager, 1024, 1024 * 1024);
+    }
+
+    private void appendLocal(final long term, final int count) {
+        synchronized (this.terms) {
+            for (int i = 0; i < count; i++) {
+                this.terms.add(term);
+            }
+        }
+    }
+
+    private long localLastIndex() {
+        synchronized (this.terms) {
+            return this.terms.size();
+        }
+    }
+
+    private static List<LogEntry> entries(final long from, final long to, final long term) {
+        final List<LogEntry> entries = new ArrayList<>();
+        for (long index = from; index <= to; index++) {
+            final LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+            entry.setId(new LogId(index, term));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    //记录回调时的状态
+    private static final class RecordingClosure extends LogManager.StableClosure {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile Status      status;
+
+        RecordingClosure() {
+            super(null);
+        }
+
+        @Override
+        public void run(final Status status) {
+            this.status = status;
+            this.latch.countDown();
+        }
+
+        Status await() throws InterruptedException {
+            assertTrue(this.latch.await(5, TimeUnit.SECONDS));
+            return this.status;
+        }
+    }
+
+    //首尾相接的两个请求合并成一批日志，落盘之前就能看到这些日志的任期和最后一条日志索引
+    @Test
+    public void testAppend() throws InterruptedException {
+        appendLocal(1, 5);
+        final RecordingClosure first = new RecordingClosure();
+        final RecordingClosure second = new RecordingClosure();
+        this.coalescer.append(5, entries(6, 8, 1), first, 1);
+        this.coalescer.append(8, entries(9, 10, 1), second, 1);
+        assertEquals(10, this.coalescer.getLastLogIndex());
+        assertEquals(1, this.coalescer.getTerm(9));
+        this.coalescer.flush();
+        assertTrue(first.await().isOk());
+        assertTrue(second.await().isOk());
+        assertEquals(10, localLastIndex());
+        assertEquals(10, this.coalescer.getLastLogIndex());
+    }
+
+    //新领导者的日志和跟随者更长的旧日志冲突，落盘之后旧日志被截断，最后一条日志索引是这批日志的最后一条
+    @Test
+    public void testConflict() throws InterruptedException {
+        appendLocal(1, 5);
+        appendLocal(2, 5);
+        final RecordingClosure done = new RecordingClosure();
+        this.coalescer.append(5, entries(6, 7, 3), done, 3);
+        assertEquals(7, this.coalescer.getLastLogIndex());
+        this.coalescer.flush();
+        assertTrue(done.await().isOk());
+        assertEquals(7, localLastIndex());
+        assertEquals(7, this.coalescer.getLastLogIndex());
+        assertEquals(0, this.coalescer.getTerm(8));
+    }
+
+    //重复收到已经存在的日志，没有冲突，日志管理器不会截断后面的日志
+    @Test
+    public void testOverlapWithoutConflict() throws InterruptedException {
+        appendLocal(1, 10);
+        final RecordingClosure done = new RecordingClosure();
+        this.coalescer.append(5, entries(6, 7, 1), done, 1);
+        assertEquals(10, this.coalescer.getLastLogIndex());
+        this.coalescer.flush();
+        assertTrue(done.await().isOk());
+        assertEquals(10, localLastIndex());
+        assertEquals(10, this.coalescer.getLastLogIndex());
+    }
+
+    //节点进入新的任期之后丢弃等待落盘的日志，这些请求收到EPERM，之后的落盘任务也不会把它们交给日志管理器
+    @Test
+    public void testDiscard() throws InterruptedException {
+        appendLocal(1, 5);
+        final RecordingClosure done = new RecordingClosure();
+        this.coalescer.append(5, entries(6, 8, 1), done, 1);
+        this.coalescer.discard(2, new Status(RaftError.EPERM, "Term changed."));
+        assertEquals(RaftError.EPERM, done.await().getRaftError());
+        assertEquals(5, this.coalescer.getLastLogIndex());
+        this.coalescer.flush();
+        assertEquals(5, localLastIndex());
+        //旧任期的请求在discard之后才到达，落盘的时候也会被拒绝
+        final RecordingClosure stale = new RecordingClosure();
+        this.coalescer.append(5, entries(6, 6, 1), stale, 1);
+        this.coalescer.flush();
+        assertEquals(RaftError.EPERM, stale.await().getRaftError());
+        assertEquals(5, localLastIndex());
+    }
+}
@@ -0,0 +1,144 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.RaftOutter;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.util.BufferUtils;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ZeroByteStringHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：对比跟随者从AppendEntriesRequest中解析日志的两种方式，每次调用把一个请求中的所有日志都解析成日志条目对象
+ * copyEntries是之前NodeImpl.logEntryFromMeta的写法，每条日志分配一个新的字节数组，把数据复制出来
+ * sliceEntries是现在的写法，每条日志的数据都是请求字节数组的只读切片
+ * checksum为true的时候还会和开启enableLogEntryChecksum一样校验每条日志，只读切片拿不到底层数组，计算校验和时按绝对位置逐个字节读取
+ * 请求是从序列化之后的字节数组反序列化出来的，和跟随者收到的请求一样，运行的时候加上-prof gc参数可以看到每个请求分配的内存
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FollowerEntrySliceBenchmark {
+
+    //一个请求中的日志条数
+    private static final int               ENTRIES_COUNT = 1024;
+
+    @Param({ "64", "1024" })
+    private int                            dataSize;
+
+    @Param({ "false", "true" })
+    private boolean                        checksum;
+
+    private RpcRequests.AppendEntriesRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final RpcRequests.AppendEntriesRequest.Builder rb = RpcRequests.AppendEntriesRequest.newBuilder();
+        rb.setGroupId("slice_bench");
+        rb.setServerId("127.0.0.1:8081");
+        rb.setPeerId("127.0.0.1:8082");
+        rb.setTerm(1);
+        rb.setPrevLogTerm(1);
+        rb.setPrevLogIndex(0);
+        rb.setCommittedIndex(0);
+        final byte[] allData = new byte[ENTRIES_COUNT * this.dataSize];
+        ThreadLocalRandom.current().nextBytes(allData);
+        for (int i = 0; i < ENTRIES_COUNT; i++) {
+            final LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+            entry.setId(new LogId(i + 1, 1));
+            entry.setData(ByteBuffer.wrap(allData, i * this.dataSize, this.dataSize).slice());
+            rb.addEntries(RaftOutter.EntryMeta.newBuilder()
+                .setTerm(1)
+                .setType(EnumOutter.EntryType.ENTRY_TYPE_DATA)
+                .setDataLen(this.dataSize)
+                .setChecksum(entry.checksum()));
+        }
+        rb.setData(ByteString.copyFrom(allData));
+        //和跟随者一样，从网络上收到的字节数组反序列化出请求
+        this.request = RpcRequests.AppendEntriesRequest.parseFrom(rb.build().toByteArray());
+    }
+
+    //之前的写法，每条日志复制一份数据
+    @Benchmark
+    public void copyEntries(final Blackhole bh) {
+        final ByteBuffer allData = this.request.getData().asReadOnlyByteBuffer();
+        final List<RaftOutter.EntryMeta> entriesList = this.request.getEntriesList();
+        for (int i = 0; i < ENTRIES_COUNT; i++) {
+            final RaftOutter.EntryMeta meta = entriesList.get(i);
+            final LogEntry logEntry = newLogEntry(i + 1, meta);
+            final byte[] bs = new byte[(int) meta.getDataLen()];
+            allData.get(bs, 0, bs.length);
+            logEntry.setData(ByteBuffer.wrap(bs));
+            consume(bh, logEntry);
+        }
+    }
+
+    //现在的写法，每条日志的数据都是请求字节数组的只读切片
+    @Benchmark
+    public void sliceEntries(final Blackhole bh) {
+        final ByteBuffer allData = ByteBuffer.wrap(ZeroByteStringHelper.getByteArray(this.request.getData()));
+        final List<RaftOutter.EntryMeta> entriesList = this.request.getEntriesList();
+        for (int i = 0; i < ENTRIES_COUNT; i++) {
+            final RaftOutter.EntryMeta meta = entriesList.get(i);
+            final LogEntry logEntry = newLogEntry(i + 1, meta);
+            final int dataLen = (int) meta.getDataLen();
+            final ByteBuffer slice = allData.slice();
+            BufferUtils.limit(slice, dataLen);
+            BufferUtils.position(allData, allData.position() + dataLen);
+            logEntry.setRetainedBytes(dataLen);
+            logEntry.setData(slice.asReadOnlyBuffer());
+            consume(bh, logEntry);
+        }
+    }
+
+    private static LogEntry newLogEntry(final long index, final RaftOutter.EntryMeta meta) {
+        final LogEntry logEntry = new LogEntry();
+        logEntry.setId(new LogId(index, meta.getTerm()));
+        logEntry.setType(meta.getType());
+        logEntry.setChecksum(meta.getChecksum());
+        return logEntry;
+    }
+
+    private void consume(final Blackhole bh, final LogEntry logEntry) {
+        if (this.checksum && logEntry.isCorrupted()) {
+            throw new IllegalStateException("Corrupted log entry " + logEntry.getId());
+        }
+        bh.consume(logEntry);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(FollowerEntrySliceBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}
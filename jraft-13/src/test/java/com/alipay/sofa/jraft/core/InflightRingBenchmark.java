@@ -0,0 +1,175 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Status;
+import com.google.protobuf.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：对比复制器存放未收到响应的请求的两种方式，每次调用先发送inflightMsgs个请求，然后按照order指定的顺序收到这些请求的响应
+ * 每收到一个响应，就按照请求序号从小到大处理所有已经可以处理的响应，和Replicator.onRpcReturned方法一样
+ * legacyQueue是之前的写法，请求放在ArrayDeque中，乱序到达的响应包装成对象放在优先级队列中排序
+ * inflightRing是现在的写法，请求和响应都放在InflightRing中请求序号对应的槽位里
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InflightRingBenchmark {
+
+    @Param({ "256" })
+    private int                                  inflightMsgs;
+
+    //响应到达的顺序，ordered是按照请求的顺序，shuffled是随机打乱的顺序，reversed是完全倒序
+    @Param({ "ordered", "shuffled", "reversed" })
+    private String                               order;
+
+    //第i个到达的响应是这一轮中第arrival[i]个发送的请求的响应
+    private int[]                                arrival;
+    private final Status                         status = Status.OK();
+
+    private InflightRing                         ring;
+    private int                                  ringReqSeq;
+    private int                                  ringRequiredNextSeq;
+
+    private final ArrayDeque<LegacyInflight>     legacyInflights = new ArrayDeque<>();
+    private final PriorityQueue<LegacyResponse> legacyResponses = new PriorityQueue<>(50);
+    private int                                  legacyReqSeq;
+    private int                                  legacyRequiredNextSeq;
+
+    //之前复制器中的Inflight类，每个请求创建一个对象
+    static final class LegacyInflight {
+        final Replicator.RequestType requestType;
+        final long                   startIndex;
+        final int                    count;
+        final int                    size;
+        final int                    seq;
+
+        LegacyInflight(final Replicator.RequestType requestType, final long startIndex, final int count,
+                       final int size, final int seq) {
+            this.requestType = requestType;
+            this.startIndex = startIndex;
+            this.count = count;
+            this.size = size;
+            this.seq = seq;
+        }
+    }
+
+    //之前复制器中的RpcResponse类，每个响应创建一个对象，按照请求序号排序
+    static final class LegacyResponse implements Comparable<LegacyResponse> {
+        final Replicator.RequestType requestType;
+        final int                    seq;
+        final Status                 status;
+        final Message                request;
+        final Message                response;
+        final long                   rpcSendTime;
+
+        LegacyResponse(final Replicator.RequestType requestType, final int seq, final Status status,
+                       final Message request, final Message response, final long rpcSendTime) {
+            this.requestType = requestType;
+            this.seq = seq;
+            this.status = status;
+            this.request = request;
+            this.response = response;
+            this.rpcSendTime = rpcSendTime;
+        }
+
+        @Override
+        public int compareTo(final LegacyResponse o) {
+            return Integer.compare(this.seq, o.seq);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.arrival = new int[this.inflightMsgs];
+        for (int i = 0; i < this.inflightMsgs; i++) {
+            this.arrival[i] = "reversed".equals(this.order) ? this.inflightMsgs - 1 - i : i;
+        }
+        if ("shuffled".equals(this.order)) {
+            final Random random = new Random(42);
+            for (int i = this.inflightMsgs - 1; i > 0; i--) {
+                final int j = random.nextInt(i + 1);
+                final int tmp = this.arrival[i];
+                this.arrival[i] = this.arrival[j];
+                this.arrival[j] = tmp;
+            }
+        }
+        this.ring = new InflightRing(this.inflightMsgs);
+    }
+
+    @Benchmark
+    public int inflightRing() {
+        final int firstSeq = this.ringReqSeq;
+        for (int i = 0; i < this.inflightMsgs; i++) {
+            final int seq = this.ringReqSeq++;
+            this.ring.add(Replicator.RequestType.AppendEntries, seq, 1, 64, 64, seq, null);
+        }
+        int processed = 0;
+        for (final int k : this.arrival) {
+            this.ring.setResponse(firstSeq + k, Replicator.RequestType.AppendEntries, this.status, null, null, 0);
+            Replicator.Inflight inflight;
+            while ((inflight = this.ring.get(this.ringRequiredNextSeq)) != null && inflight.hasResponse) {
+                this.ring.remove(inflight);
+                this.ringRequiredNextSeq++;
+                processed++;
+            }
+        }
+        return processed;
+    }
+
+    @Benchmark
+    public int legacyQueue() {
+        final int firstSeq = this.legacyReqSeq;
+        for (int i = 0; i < this.inflightMsgs; i++) {
+            final int seq = this.legacyReqSeq++;
+            this.legacyInflights.add(new LegacyInflight(Replicator.RequestType.AppendEntries, seq, 1, 64, seq));
+        }
+        int processed = 0;
+        for (final int k : this.arrival) {
+            this.legacyResponses.add(new LegacyResponse(Replicator.RequestType.AppendEntries, firstSeq + k,
+                this.status, null, null, 0));
+            while (!this.legacyResponses.isEmpty() && this.legacyResponses.peek().seq == this.legacyRequiredNextSeq) {
+                this.legacyResponses.remove();
+                final LegacyInflight inflight = this.legacyInflights.poll();
+                if (inflight == null || inflight.seq != this.legacyRequiredNextSeq) {
+                    throw new IllegalStateException("Response out of order.");
+                }
+                this.legacyRequiredNextSeq++;
+                processed++;
+            }
+        }
+        return processed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(InflightRingBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.JRaftUtils;
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.entity.PeerId;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：测试投票箱的日志提交跟踪器，包括单一配置，配置变更期间的联合配置，学习者，以及多数派达成之后又失去的情况
+ * 每个测试都和投票箱一样使用跟踪器，grant返回值不小于pendingIndex的时候提交日志，然后调用onCommitted并且推进pendingIndex
+ */
+public class MatchIndexCommitTrackerTest {
+
+    private static final PeerId A = JRaftUtils.getPeerId("127.0.0.1:8081");
+    private static final PeerId B = JRaftUtils.getPeerId("127.0.0.1:8082");
+    private static final PeerId C = JRaftUtils.getPeerId("127.0.0.1:8083");
+    private static final PeerId D = JRaftUtils.getPeerId("127.0.0.1:8084");
+    private static final PeerId E = JRaftUtils.getPeerId("127.0.0.1:8085");
+
+    //和投票箱一样，维护等待提交的第一条日志索引
+    private final MatchIndexCommitTracker tracker      = new MatchIndexCommitTracker();
+    private long                          pendingIndex = 1;
+
+    private static Configuration conf(final PeerId... peers) {
+        final Configuration conf = new Configuration();
+        for (final PeerId peer : peers) {
+            conf.addPeer(peer);
+        }
+        return conf;
+    }
+
+    private void append(final long from, final long to, final Configuration conf, final Configuration oldConf) {
+        for (long index = from; index <= to; index++) {
+            this.tracker.append(index, conf, oldConf);
+        }
+    }
+
+    //节点持久化了lastLogIndex之前的日志，返回提交之后的pendingIndex - 1，也就是最后提交的日志索引
+    private long grant(final PeerId peer, final long lastLogIndex) {
+        final long quorumIndex = this.tracker.grant(peer, lastLogIndex, this.pendingIndex);
+        if (quorumIndex >= this.pendingIndex) {
+            this.tracker.onCommitted(quorumIndex);
+            this.pendingIndex = quorumIndex + 1;
+        }
+        return this.pendingIndex - 1;
+    }
+
+    //三个节点的单一配置，两个节点持久化之后日志就可以提交，提交的是两个节点中较小的匹配索引
+    @Test
+    public void testSingleConf() {
+        append(1, 10, conf(A, B, C), null);
+        assertEquals(10, this.tracker.size());
+        assertEquals(0, grant(A, 10));
+        assertEquals(6, grant(B, 6));
+        assertEquals(4, this.tracker.size());
+        //过期的响应不会让匹配索引回退
+        assertEquals(6, grant(B, 3));
+        assertEquals(8, grant(C, 8));
+        assertEquals(10, grant(B, 10));
+        assertTrue(this.tracker.isEmpty());
+        //全部提交之后继续添加同一个配置的日志
+        append(11, 12, conf(A, B, C), null);
+        assertEquals(2, this.tracker.size());
+        assertEquals(10, grant(A, 12));
+        assertEquals(12, grant(C, 12));
+    }
+
+    //联合配置期间新旧配置都要达到多数派，配置段要按照顺序提交
+    @Test
+    public void testJointConf() {
+        final Configuration oldConf = conf(A, B, C);
+        final Configuration newConf = conf(A, D, E);
+        append(1, 5, oldConf, null);
+        append(6, 8, newConf, oldConf);
+        append(9, 10, newConf, null);
+        assertEquals(10, this.tracker.size());
+        //旧配置的多数派持久化了所有日志，只能提交旧配置的配置段，联合配置的日志还需要新配置的多数派
+        assertEquals(0, grant(A, 10));
+        assertEquals(5, grant(B, 10));
+        assertEquals(5, grant(C, 10));
+        //新配置中D加入之后联合配置的两个多数派都达成了，最后一个配置段只需要新配置的多数派
+        assertEquals(7, grant(D, 7));
+        assertEquals(10, grant(D, 10));
+        assertTrue(this.tracker.isEmpty());
+    }
+
+    //联合配置中只有新配置达到多数派的时候不能提交
+    @Test
+    public void testJointConfNeedsOldQuorum() {
+        final Configuration oldConf = conf(A, B, C);
+        final Configuration newConf = conf(A, D, E);
+        append(1, 4, newConf, oldConf);
+        assertEquals(0, grant(A, 4));
+        assertEquals(0, grant(D, 4));
+        assertEquals(0, grant(E, 4));
+        assertEquals(4, grant(C, 4));
+    }
+
+    //学习者不在任何配置中，它的响应不会影响日志的提交
+    @Test
+    public void testLearners() {
+        final Configuration conf = conf(A, B, C);
+        conf.addLearner(D);
+        conf.addLearner(E);
+        append(1, 6, conf, null);
+        assertEquals(0, this.tracker.grant(D, 6, this.pendingIndex));
+        assertEquals(0, this.tracker.grant(E, 6, this.pendingIndex));
+        assertEquals(0, grant(A, 6));
+        assertEquals(6, this.tracker.size());
+        assertEquals(6, grant(B, 6));
+    }
+
+    //多数派达成之后，其中一个节点不再响应，之后的日志只有领导者自己持久化，不能再提交
+    //领导者下台之后跟踪器被重置，新任期中之前的匹配索引也不再算数
+    @Test
+    public void testQuorumReachedThenLost() {
+        append(1, 5, conf(A, B, C), null);
+        assertEquals(0, grant(A, 5));
+        assertEquals(5, grant(B, 5));
+        append(6, 10, conf(A, B, C), null);
+        assertEquals(5, grant(A, 10));
+        assertEquals(5, this.tracker.size());
+        //B之前的响应不能用于新的日志
+        assertEquals(5, grant(B, 5));
+        this.tracker.reset();
+        assertTrue(this.tracker.isEmpty());
+        this.pendingIndex = 11;
+        append(11, 12, conf(A, B, C), null);
+        assertEquals(10, grant(A, 12));
+        assertEquals(12, grant(C, 12));
+    }
+}
@@ -0,0 +1,232 @@
+package com.alipay.sofa.jraft.core;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.Node;
+import com.alipay.sofa.jraft.RaftGroupService;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.Task;
+import com.alipay.sofa.jraft.option.ApplyTaskMode;
+import com.alipay.sofa.jraft.option.NodeOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.rpc.RaftRpcServerFactory;
+import com.alipay.sofa.jraft.rpc.RpcServer;
+import com.alipay.sofa.jraft.util.Endpoint;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：测量开启中继复制之后领导者发送日志的字节数，在一个进程中启动四个节点的raft组，领导者在一个机房，另外三个跟随者在另一个机房
+ * relay为true的时候，其中一个跟随者是中继节点，另外两个跟随者的日志通过中继节点转发，relay为false的时候领导者直接给三个跟随者发送日志
+ * 每次调用提交BATCH_SIZE条指令并等待它们提交，egressBytesPerTask是领导者的复制器为每条指令发送的字节数，来自节点指标replicate-send-bytes
+ * 走的是Replicator和ReplicationRelay真实的发送链路，所以吞吐量也能看出中继转发带来的额外延迟
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelayEgressBenchmark {
+
+    //每次调用提交的指令条数
+    private static final int           BATCH_SIZE = 256;
+    //第一个端口是领导者，第二个是中继节点，剩下的是通过中继节点转发的跟随者
+    private static final int[]         PORTS      = { 18481, 18482, 18483, 18484 };
+
+    @Param({ "false", "true" })
+    private boolean                    relay;
+
+    @Param({ "64", "1024" })
+    private int                        dataSize;
+
+    private File                       dataPath;
+    private final List<RpcServer>      rpcServers = new ArrayList<>();
+    private final List<RaftGroupService> services = new ArrayList<>();
+    private final List<Node>           nodes      = new ArrayList<>();
+    private NodeImpl                   leader;
+    private ByteBuffer                 data;
+    //状态不是成功的指令数量，测试结束的时候检查
+    private final AtomicInteger        failures   = new AtomicInteger();
+
+    //统计每一轮测量中领导者发送的字节数和提交的指令数量
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Egress {
+        private long bytes;
+        private long tasks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.bytes = 0;
+            this.tasks = 0;
+        }
+
+        public double egressBytesPerTask() {
+            return this.tasks == 0 ? 0 : (double) this.bytes / this.tasks;
+        }
+    }
+
+    //什么也不做的状态机，只是消费日志
+    static final class NoopStateMachine extends StateMachineAdapter {
+        @Override
+        public void onApply(final Iterator iter) {
+            while (iter.hasNext()) {
+                if (iter.done() != null) {
+                    iter.done().run(Status.OK());
+                }
+                iter.next();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        //日志复制的链路上有教程中用来演示的控制台输出，这里丢弃掉，不让它们影响测试结果
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        }));
+        this.dataPath = Files.createTempDirectory("jraft-relay-bench").toFile();
+        final Configuration conf = new Configuration();
+        for (final int port : PORTS) {
+            conf.addPeer(new PeerId("127.0.0.1", port));
+        }
+        for (int i = 0; i < PORTS.length; i++) {
+            final PeerId serverId = new PeerId("127.0.0.1", PORTS[i]);
+            //RocksDB不会创建多级目录，这里先把每个节点的数据目录创建出来
+            final File nodePath = new File(this.dataPath, String.valueOf(PORTS[i]));
+            if (!nodePath.mkdirs()) {
+                throw new IllegalStateException("Fail to create " + nodePath);
+            }
+            final NodeOptions nodeOptions = new NodeOptions();
+            nodeOptions.setFsm(new NoopStateMachine());
+            nodeOptions.setLogUri(nodePath + "/log");
+            nodeOptions.setRaftMetaUri(nodePath + "/meta");
+            nodeOptions.setSnapshotUri(nodePath + "/snapshot");
+            nodeOptions.setInitialConf(conf.copy());
+            //领导者的选举超时时间最短，一般会最先发起选举
+            nodeOptions.setElectionTimeoutMs(i == 0 ? 300 : 1000 + i * 300);
+            nodeOptions.setApplyTaskMode(ApplyTaskMode.Blocking);
+            nodeOptions.setEnableMetrics(true);
+            if (this.relay) {
+                for (int j = 2; j < PORTS.length; j++) {
+                    nodeOptions.addReplicationRelay(new PeerId("127.0.0.1", PORTS[j]), new PeerId("127.0.0.1",
+                        PORTS[1]));
+                }
+            }
+            final RaftOptions raftOptions = new RaftOptions();
+            raftOptions.setSync(false);
+            nodeOptions.setRaftOptions(raftOptions);
+            final RpcServer rpcServer = RaftRpcServerFactory.createRaftRpcServer(new Endpoint("127.0.0.1", PORTS[i]));
+            final RaftGroupService service = new RaftGroupService("relay_bench", serverId, nodeOptions, rpcServer,
+                true);
+            this.nodes.add(service.start(false));
+            this.rpcServers.add(rpcServer);
+            this.services.add(service);
+        }
+        for (final RpcServer rpcServer : this.rpcServers) {
+            rpcServer.init(null);
+        }
+        final Node expected = this.nodes.get(0);
+        final long deadline = System.currentTimeMillis() + 20000;
+        while (!expected.isLeader()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Node " + expected.getNodeId() + " is not elected as leader.");
+            }
+            //其他节点成为了领导者，把领导权转移给第一个节点
+            for (final Node node : this.nodes) {
+                if (node != expected && node.isLeader()) {
+                    node.transferLeadershipTo(expected.getNodeId().getPeerId());
+                }
+            }
+            Thread.sleep(100);
+        }
+        this.leader = (NodeImpl) expected;
+        this.data = ByteBuffer.allocate(this.dataSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (final RaftGroupService service : this.services) {
+            service.shutdown();
+        }
+        for (final Node node : this.nodes) {
+            node.join();
+        }
+        for (final RpcServer rpcServer : this.rpcServers) {
+            rpcServer.shutdown();
+        }
+        if (this.failures.get() > 0) {
+            throw new IllegalStateException(this.failures.get() + " tasks failed.");
+        }
+    }
+
+    private long sentBytes() {
+        return this.leader.getNodeMetrics().getMetricRegistry().counter("replicate-send-bytes").getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void apply(final Egress egress) throws InterruptedException {
+        final long startBytes = sentBytes();
+        final CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        final Closure done = status -> {
+            if (!status.isOk()) {
+                this.failures.incrementAndGet();
+            }
+            latch.countDown();
+        };
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            this.leader.apply(new Task(this.data.duplicate(), done));
+        }
+        latch.await();
+        egress.bytes += sentBytes() - startBytes;
+        egress.tasks += BATCH_SIZE;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(RelayEgressBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,154 @@
+package com.alipay.sofa.jraft.storage.impl;
+
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.v2.V2Encoder;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.BufferUtils;
+import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @课程描述:从零带你写框架系列中的课程，整个系列包含netty，xxl-job，rocketmq，nacos，sofajraft，spring，springboot，disruptor，编译器，虚拟机等等。
+ * @author：陈清风扬，个人微信号：chenqingfengyangjj。
+ * @date:2024/7/10
+ * @方法描述：对比日志落盘时两种编码方式的性能，一种是V2Encoder编码成字节数组，再加上每条日志一个key字节数组放入批处理
+ * 另一种是DirectLogEntryWriter把key和日志直接编码到对象池中的直接内存，然后用ByteBuffer接口放入批处理
+ * 每次调用处理一批日志，和AppendBatcher刷盘时一样，运行的时候加上-prof gc参数可以看到每条日志分配的内存
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogEntryEncodeBenchmark {
+
+    //一批日志的条数
+    private static final int   BATCH_SIZE = 128;
+
+    @Param({ "64", "1024" })
+    private int                dataSize;
+
+    private LogEntry[]         entries;
+    private File               dbPath;
+    private RocksDB            db;
+    private ColumnFamilyHandle handle;
+    private WriteBatch         batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        RocksDB.loadLibrary();
+        this.entries = new LogEntry[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final byte[] data = new byte[this.dataSize];
+            ThreadLocalRandom.current().nextBytes(data);
+            final LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+            entry.setId(new LogId(i + 1, 1));
+            entry.setData(ByteBuffer.wrap(data));
+            this.entries[i] = entry;
+        }
+        this.dbPath = Files.createTempDirectory("jraft-encode-bench").toFile();
+        this.db = RocksDB.open(this.dbPath.getAbsolutePath());
+        this.handle = this.db.getDefaultColumnFamily();
+        this.batch = new WriteBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.batch.close();
+        this.db.close();
+        final File[] files = this.dbPath.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        this.dbPath.delete();
+    }
+
+    //只比较编码，每条日志编码成一个新的字节数组
+    @Benchmark
+    public void encodeToArray(final Blackhole bh) {
+        for (final LogEntry entry : this.entries) {
+            bh.consume(V2Encoder.INSTANCE.encode(entry));
+        }
+    }
+
+    //只比较编码，所有日志依次编码到同一个对象池中的直接内存收集器
+    @Benchmark
+    public void encodeToDirect(final Blackhole bh) {
+        final ByteBufferCollector collector = ByteBufferCollector.allocateDirectByRecyclers(4 * 1024);
+        try {
+            for (final LogEntry entry : this.entries) {
+                BufferUtils.clear(collector.getBuffer());
+                V2Encoder.INSTANCE.encode(entry, collector);
+                bh.consume(collector.getBuffer().position());
+            }
+        } finally {
+            collector.recycle();
+        }
+    }
+
+    //之前RocksDBLogStorage.addDataBatch的写法，每条日志分配key和value两个字节数组
+    @Benchmark
+    public int writeBatchArray() throws RocksDBException {
+        this.batch.clear();
+        for (final LogEntry entry : this.entries) {
+            final byte[] ks = new byte[8];
+            Bits.putLong(ks, 0, entry.getId().getIndex());
+            this.batch.put(this.handle, ks, V2Encoder.INSTANCE.encode(entry));
+        }
+        return this.batch.count();
+    }
+
+    //开启enableDirectLogEncoding之后的写法
+    @Benchmark
+    public int writeBatchDirect() throws RocksDBException {
+        this.batch.clear();
+        final DirectLogEntryWriter writer = new DirectLogEntryWriter(V2Encoder.INSTANCE, new byte[0]);
+        try {
+            for (final LogEntry entry : this.entries) {
+                writer.put(this.batch, entry, this.handle, null);
+            }
+        } finally {
+            writer.release();
+        }
+        return this.batch.count();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+            .include(LogEntryEncodeBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+}